@@ -0,0 +1,23 @@
+package authserver.audit;
+
+/**
+ * Preallocated ring buffer slot. Fields are written by one producer and become visible to the
+ * consumer through the volatile {@link #sequence} store that publishes the slot.
+ */
+final class AuditEvent {
+
+    long timestamp;
+    AuditEventType type;
+    String actor;
+    String subject;
+    String detail;
+
+    volatile long sequence = -1;
+
+    void clear() {
+        type = null;
+        actor = null;
+        subject = null;
+        detail = null;
+    }
+}
@@ -0,0 +1,9 @@
+package authserver.audit;
+
+public enum AuditEventType {
+    TOKEN_ISSUED,
+    CLIENT_CREATED,
+    CLIENT_DELETED,
+    KEY_ROTATED,
+    CLIENT_UPDATED
+}
@@ -0,0 +1,181 @@
+package authserver.audit;
+
+import io.micrometer.core.instrument.Counter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Appends audit events as NDJSON lines to {@code audit.ndjson}, rolling it over at a size limit.
+ * Each line is encoded into one of a fixed pool of direct buffers and a batch is written with a single
+ * gathering write. An event whose line does not fit a buffer is rejected and counted rather than written cut,
+ * so every line in the file is complete JSON. Only used from the audit consumer thread.
+ */
+final class AuditFileWriter implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditFileWriter.class);
+
+    static final String ACTIVE_FILE = "audit.ndjson";
+
+    static final int LINE_BYTES = 1024;
+    private static final DateTimeFormatter ROLLED_SUFFIX =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS").withZone(ZoneOffset.UTC);
+
+    private final Path directory;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final boolean fsync;
+    private final Counter rejected;
+    private final ByteBuffer[] lines;
+    private final StringBuilder line = new StringBuilder(256);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private FileChannel channel;
+    private long fileBytes;
+    private int pending;
+
+    AuditFileWriter(Path directory, long maxFileBytes, int maxFiles, boolean fsync, int maxBatch, Counter rejected)
+            throws IOException {
+        this.directory = directory;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        this.fsync = fsync;
+        this.rejected = rejected;
+        this.lines = new ByteBuffer[maxBatch];
+        for (int i = 0; i < maxBatch; i++) {
+            lines[i] = ByteBuffer.allocateDirect(LINE_BYTES);
+        }
+        Files.createDirectories(directory);
+        open();
+    }
+
+    void append(AuditEvent event) {
+        line.setLength(0);
+        line.append("{\"ts\":\"").append(Instant.ofEpochMilli(event.timestamp)).append('"');
+        line.append(",\"type\":\"").append(event.type.name()).append('"');
+        appendField("actor", event.actor);
+        appendField("subject", event.subject);
+        appendField("detail", event.detail);
+        line.append('}');
+
+        ByteBuffer buffer = lines[pending];
+        buffer.clear();
+        encoder.reset();
+        // keep room for the newline
+        buffer.limit(LINE_BYTES - 1);
+        CoderResult result = encoder.encode(CharBuffer.wrap(line), buffer, true);
+        if (result.isOverflow()) {
+            rejected.increment();
+            logger.warn("Rejected {} audit event: {} characters do not fit a {} byte line", event.type, line.length(), LINE_BYTES);
+            return;
+        }
+        buffer.limit(LINE_BYTES);
+        buffer.put((byte) '\n');
+        buffer.flip();
+        pending++;
+    }
+
+    void flush() throws IOException {
+        if (pending == 0) {
+            return;
+        }
+        try {
+            long remaining = 0;
+            for (int i = 0; i < pending; i++) {
+                remaining += lines[i].remaining();
+            }
+            if (fileBytes > 0 && fileBytes + remaining > maxFileBytes) {
+                roll();
+            }
+            long written = 0;
+            while (written < remaining) {
+                written += channel.write(lines, 0, pending);
+            }
+            fileBytes += written;
+            if (fsync) {
+                channel.force(false);
+            }
+        } finally {
+            // a batch that failed to write is lost rather than retried into a full buffer pool
+            pending = 0;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void appendField(String name, String value) {
+        if (value == null) {
+            return;
+        }
+        line.append(",\"").append(name).append("\":\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c < 0x20) {
+                line.append(String.format("\\u%04x", (int) c));
+            } else {
+                line.append(c);
+            }
+        }
+        line.append('"');
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(directory.resolve(ACTIVE_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        fileBytes = channel.size();
+    }
+
+    private void roll() throws IOException {
+        channel.close();
+        String stamp = ROLLED_SUFFIX.format(Instant.now());
+        Path rolled;
+        int n = 0;
+        do {
+            // more than one roll within a millisecond gets a higher counter, which still sorts in order
+            rolled = directory.resolve(String.format("audit-%s-%03d.ndjson", stamp, n++));
+        } while (Files.exists(rolled));
+        Files.move(directory.resolve(ACTIVE_FILE), rolled);
+        deleteOldFiles();
+        open();
+    }
+
+    private void deleteOldFiles() throws IOException {
+        List<Path> rolled = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "audit-*.ndjson")) {
+            files.forEach(rolled::add);
+        }
+        // the timestamp suffix sorts chronologically
+        rolled.sort(null);
+        for (int i = 0; i < rolled.size() - maxFiles; i++) {
+            Files.deleteIfExists(rolled.get(i));
+        }
+    }
+}
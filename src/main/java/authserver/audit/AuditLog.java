@@ -0,0 +1,131 @@
+package authserver.audit;
+
+import authserver.config.AuthServerProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Audit trail of token issuance, client and key changes. {@link #record} only fills a ring buffer slot;
+ * a single "audit-writer" thread drains the ring in batches to a rolling NDJSON file.
+ */
+@Component
+public class AuditLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditLog.class);
+
+    public enum OverflowPolicy { DROP, BLOCK }
+
+    private final boolean enabled;
+    private final boolean block;
+    private final int maxBatch;
+    private final long idleParkNanos;
+    private final AuditRingBuffer ring;
+    private final AuditFileWriter writer;
+    private final Counter dropped;
+    private final Counter rejected;
+    private final Thread consumer;
+    private volatile boolean running = true;
+
+    public AuditLog(AuthServerProperties authServerProperties, MeterRegistry meterRegistry) {
+        AuthServerProperties.Audit cfg = authServerProperties.getAudit();
+        this.enabled = cfg.isEnabled();
+        this.block = cfg.getOverflowPolicy() == OverflowPolicy.BLOCK;
+        this.maxBatch = cfg.getBatchSize();
+        this.idleParkNanos = TimeUnit.MILLISECONDS.toNanos(cfg.getFlushIntervalMillis());
+        this.ring = new AuditRingBuffer(cfg.getBufferSize());
+        this.dropped = Counter.builder("authserver.audit.dropped")
+                .description("Audit events dropped because the buffer was full")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("authserver.audit.rejected")
+                .description("Audit events not written because they did not fit a line")
+                .register(meterRegistry);
+        Gauge.builder("authserver.audit.pending", ring, AuditRingBuffer::size)
+                .description("Audit events waiting to be written")
+                .register(meterRegistry);
+
+        if (!enabled) {
+            this.writer = null;
+            this.consumer = null;
+            return;
+        }
+        try {
+            this.writer = new AuditFileWriter(Path.of(cfg.getDirectory()), cfg.getMaxFileSizeMb() * 1024L * 1024L,
+                    cfg.getMaxFiles(), cfg.isFsync(), maxBatch, rejected);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open audit log in " + cfg.getDirectory(), e);
+        }
+        this.consumer = new Thread(this::consume, "audit-writer");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+        logger.info("Audit log writing to {} ({} policy)", cfg.getDirectory(), cfg.getOverflowPolicy());
+    }
+
+    /**
+     * Records an event performed by the current security principal.
+     */
+    public void record(AuditEventType type, String subject, String detail) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        record(type, authentication != null ? authentication.getName() : null, subject, detail);
+    }
+
+    public void record(AuditEventType type, String actor, String subject, String detail) {
+        if (!enabled) {
+            return;
+        }
+        if (!ring.publish(System.currentTimeMillis(), type, actor, subject, detail, block)) {
+            dropped.increment();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (consumer == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void consume() {
+        AuditRingBuffer.Handler handler = writer::append;
+        while (running || ring.size() > 0) {
+            try {
+                int drained = ring.drain(maxBatch, handler);
+                if (drained > 0) {
+                    writer.flush();
+                } else if (running) {
+                    LockSupport.parkNanos(idleParkNanos);
+                } else {
+                    // a producer claimed a slot but has not published it yet
+                    Thread.onSpinWait();
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.error("Failed to write audit events: {}", e.getMessage());
+                LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+            }
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close audit log: {}", e.getMessage());
+        }
+    }
+}
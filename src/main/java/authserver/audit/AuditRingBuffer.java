@@ -0,0 +1,87 @@
+package authserver.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded multi-producer, single-consumer ring of preallocated {@link AuditEvent} slots. Producers claim a
+ * sequence with a CAS and publish the slot with a volatile store; no locks are taken on either side.
+ */
+final class AuditRingBuffer {
+
+    interface Handler {
+        void onEvent(AuditEvent event);
+    }
+
+    private final AuditEvent[] slots;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+
+    AuditRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new AuditEvent[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            slots[i] = new AuditEvent();
+        }
+    }
+
+    /**
+     * @param block whether to wait for the consumer when the ring is full instead of giving up
+     * @return false if the event was dropped because the ring is full
+     */
+    boolean publish(long timestamp, AuditEventType type, String actor, String subject, String detail, boolean block) {
+        long sequence;
+        while (true) {
+            sequence = claimed.get();
+            if (sequence - consumed >= slots.length) {
+                if (!block) {
+                    return false;
+                }
+                LockSupport.parkNanos(50_000);
+                continue;
+            }
+            if (claimed.compareAndSet(sequence, sequence + 1)) {
+                break;
+            }
+        }
+        AuditEvent slot = slots[(int) (sequence & mask)];
+        slot.timestamp = timestamp;
+        slot.type = type;
+        slot.actor = actor;
+        slot.subject = subject;
+        slot.detail = detail;
+        slot.sequence = sequence;
+        return true;
+    }
+
+    /**
+     * Hands up to {@code maxBatch} consecutive published events to the handler and frees their slots.
+     * Must only be called from the consumer thread.
+     */
+    int drain(int maxBatch, Handler handler) {
+        long next = consumed;
+        int count = 0;
+        while (count < maxBatch && slots[(int) ((next + count) & mask)].sequence == next + count) {
+            count++;
+        }
+        for (int i = 0; i < count; i++) {
+            AuditEvent slot = slots[(int) ((next + i) & mask)];
+            handler.onEvent(slot);
+            slot.clear();
+        }
+        if (count > 0) {
+            consumed = next + count;
+        }
+        return count;
+    }
+
+    int size() {
+        return (int) (claimed.get() - consumed);
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+}
@@ -1,14 +1,22 @@
 package authserver.config;
 
+import authserver.audit.AuditLog;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.annotation.Validated;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 
 @Getter
@@ -23,7 +31,39 @@ public class AuthServerProperties {
     
     private Admin admin = new Admin();
     private OAuth oauth = new OAuth();
+    @Valid
     private Security security = new Security();
+    private TokenStore tokenStore = new TokenStore();
+    private ChangeFeed changeFeed = new ChangeFeed();
+    private ReadReplica readReplica = new ReadReplica();
+    private AdmissionControl admissionControl = new AdmissionControl();
+    private ClientPurge clientPurge = new ClientPurge();
+    private Audit audit = new Audit();
+    private Warmup warmup = new Warmup();
+    private JdbcAccounting jdbcAccounting = new JdbcAccounting();
+    @Valid
+    private Tenants tenants = new Tenants();
+    @Valid
+    private Storage storage = new Storage();
+    private TokenBatch tokenBatch = new TokenBatch();
+    @Valid
+    private AuthorizationEncoding authorizationEncoding = new AuthorizationEncoding();
+    private Profiling profiling = new Profiling();
+    
+    @Valid
+    private DegradedMode degradedMode = new DegradedMode();
+    
+    @Valid
+    private KnownClients knownClients = new KnownClients();
+    
+    @Valid
+    private ClientAssertion clientAssertion = new ClientAssertion();
+    
+    @Valid
+    private JwksNotifications jwksNotifications = new JwksNotifications();
+    
+    @Valid
+    private HeavyHitters heavyHitters = new HeavyHitters();
     
     @Getter
     @Setter
@@ -54,6 +94,20 @@ public class AuthServerProperties {
         @Max(value = 86400, message = "Default access token TTL cannot exceed 24 hours")
         private long defaultAccessTokenTtl = 3600; // 1 hour
         
+        // how long a replaced signing key stays in the JWK Set; at least the longest token TTL clients may set
+        @Min(value = 60, message = "Retired key retention must be at least 60 seconds")
+        private long retiredKeyRetentionSeconds = 86400;
+        
+        @NotBlank(message = "Default access token format is required")
+        private String defaultAccessTokenFormat = "self-contained";
+        
+        @DecimalMin(value = "0.0", message = "Token reuse remaining-lifetime ratio cannot be negative")
+        @DecimalMax(value = "1.0", message = "Token reuse remaining-lifetime ratio cannot exceed 1.0")
+        private double tokenReuseMinRemainingRatio = 0.5;
+        
+        @Min(value = 1, message = "Token reuse cache size must be at least 1")
+        private int tokenReuseMaxEntries = 50000;
+        
         @Min(value = 1, message = "Max scopes must be at least 1")
         @Max(value = 20, message = "Max scopes cannot exceed 20")
         private int maxScopes = 10;
@@ -89,5 +143,428 @@ public class AuthServerProperties {
         
         @Min(value = 300, message = "HSTS max age must be at least 300 seconds")
         private long hstsMaxAge = 31536000; // 1 year
+        
+        // no default: a pepper shipped with the code would be known to everyone
+        @NotBlank(message = "Client secret pepper is required (SECURITY_CLIENT_SECRET_PEPPER)")
+        @Size(min = 32, message = "Client secret pepper must be at least 32 characters")
+        private String clientSecretPepper;
+    }
+    
+    @Getter
+    @Setter
+    public static class TokenStore {
+        
+        @Min(value = 1, message = "Token store shards must be at least 1")
+        @Max(value = 1024, message = "Token store shards cannot exceed 1024")
+        private int shards = 16;
+        
+        @Min(value = 16, message = "Expiry wheel must have at least 16 slots")
+        private int wheelSlots = 512;
+        
+        @Min(value = 100, message = "Expiry wheel tick must be at least 100 milliseconds")
+        private long tickMillis = 1000;
+        
+        @Min(value = 1, message = "Token store capacity must be at least 1")
+        private int maxEntries = 100000;
+    }
+    
+    @Getter
+    @Setter
+    public static class ChangeFeed {
+        
+        private boolean enabled = true;
+        
+        @Min(value = 100, message = "Change feed poll interval must be at least 100 milliseconds")
+        private long pollIntervalMillis = 1000;
+        
+        @Min(value = 1, message = "Change feed batch size must be at least 1")
+        @Max(value = 10000, message = "Change feed batch size cannot exceed 10000")
+        private int batchSize = 500;
+        
+        @Min(value = 0, message = "Change feed gap timeout cannot be negative")
+        private long gapTimeoutMillis = 5000;
+        
+        @Min(value = 1, message = "Change feed retention must be at least 1 hour")
+        private int retentionHours = 24;
+    }
+    
+    @Getter
+    @Setter
+    public static class ReadReplica {
+        
+        private boolean enabled = false;
+        
+        private String url;
+        private String username;
+        private String password;
+        
+        @Min(value = 1, message = "Replica max lag must be at least 1 second")
+        private long maxLagSeconds = 5;
+        
+        @Min(value = 100, message = "Replica heartbeat interval must be at least 100 milliseconds")
+        private long heartbeatIntervalMillis = 1000;
+    }
+    
+    @Getter
+    @Setter
+    public static class AdmissionControl {
+        
+        private boolean enabled = true;
+        
+        @Min(value = 1, message = "Initial concurrency limit must be at least 1")
+        private int initialLimit = 20;
+        
+        @Min(value = 1, message = "Minimum concurrency limit must be at least 1")
+        private int minLimit = 2;
+        
+        @Min(value = 1, message = "Maximum concurrency limit must be at least 1")
+        private int maxLimit = 200;
+        
+        @Min(value = 10, message = "Latency target must be at least 10 milliseconds")
+        private long latencyTargetMillis = 500;
+        
+        @DecimalMin(value = "0.5", message = "Backoff ratio must be at least 0.5")
+        @DecimalMax(value = "0.99", message = "Backoff ratio must be below 1")
+        private double backoffRatio = 0.9;
+    }
+    
+    @Getter
+    @Setter
+    public static class ClientPurge {
+        
+        @Min(value = 1, message = "Purge batch size must be at least 1")
+        @Max(value = 10000, message = "Purge batch size cannot exceed 10000")
+        private int batchSize = 1000;
+        
+        @Min(value = 0, message = "Purge pause cannot be negative")
+        private long pauseMillis = 50;
+        
+        // a running job without progress for this long is taken over by the next node that looks for unfinished jobs
+        @Min(value = 10, message = "Purge lease must be at least 10 seconds")
+        private long leaseSeconds = 300;
+        
+        // how often each node looks for unfinished jobs, such as ones whose owner stopped within its lease
+        @Min(value = 10, message = "Purge rescan interval must be at least 10 seconds")
+        private long rescanIntervalSeconds = 60;
+    }
+    
+    @Getter
+    @Setter
+    public static class Audit {
+        
+        private boolean enabled = true;
+        
+        @NotBlank(message = "Audit directory is required")
+        private String directory = "audit";
+        
+        @Min(value = 64, message = "Audit buffer must hold at least 64 events")
+        private int bufferSize = 8192;
+        
+        @Min(value = 1, message = "Audit batch size must be at least 1")
+        @Max(value = 4096, message = "Audit batch size cannot exceed 4096")
+        private int batchSize = 256;
+        
+        @Min(value = 1, message = "Audit flush interval must be at least 1 millisecond")
+        private long flushIntervalMillis = 10;
+        
+        private AuditLog.OverflowPolicy overflowPolicy = AuditLog.OverflowPolicy.DROP;
+        
+        @Min(value = 1, message = "Audit file size must be at least 1 MB")
+        private int maxFileSizeMb = 64;
+        
+        @Min(value = 1, message = "At least one rolled audit file must be kept")
+        private int maxFiles = 10;
+        
+        private boolean fsync = false;
+    }
+    
+    @Getter
+    @Setter
+    public static class Warmup {
+        
+        private boolean enabled = true;
+        
+        @Min(value = 0, message = "Warm-up iterations cannot be negative")
+        private int iterations = 200;
+        
+        @Min(value = 1, message = "Warm-up concurrency must be at least 1")
+        @Max(value = 64, message = "Warm-up concurrency cannot exceed 64")
+        private int concurrency = 4;
+        
+        @Min(value = 1, message = "Warm-up budget must be at least 1 second")
+        private int maxDurationSeconds = 30;
+    }
+    
+    @Getter
+    @Setter
+    public static class JdbcAccounting {
+        
+        private boolean enabled = true;
+        
+        // adds X-Jdbc-Stats to every response and buffers response bodies; development only
+        private boolean responseHeader = false;
+    }
+    
+    @Getter
+    @Setter
+    public static class Tenants {
+        
+        // one process serving several issuers; requests matching no tenant are served by the "default" tenant (app.issuer)
+        private boolean enabled = false;
+        
+        @Valid
+        private Map<@Pattern(regexp = "^[a-z0-9][a-z0-9-]{0,49}$", message = "Tenant id must be lowercase alphanumeric or '-'") String, Tenant> registrations = new LinkedHashMap<>();
+    }
+    
+    @Getter
+    @Setter
+    public static class Tenant {
+        
+        // resolved from the request by host and, if the issuer has a path, path prefix
+        @NotBlank(message = "Tenant issuer URL is required")
+        private String issuer;
+        
+        // overrides of app.security.rate-limit-*; unset means the global value
+        @Min(value = 1, message = "Rate limit requests must be at least 1")
+        private Integer rateLimitRequests;
+        
+        @Min(value = 60, message = "Rate limit window must be at least 60 seconds")
+        private Integer rateLimitWindowSeconds;
+    }
+    
+    @Getter
+    @Setter
+    public static class Storage {
+        
+        // where clients, authorizations and signing keys live; "embedded" needs no external database
+        @Pattern(regexp = "^(jdbc|embedded)$", message = "Storage type must be 'jdbc' or 'embedded'")
+        private String type = "jdbc";
+        
+        @Valid
+        private Embedded embedded = new Embedded();
+    }
+    
+    @Getter
+    @Setter
+    public static class Embedded {
+        
+        @NotBlank(message = "Embedded storage directory is required")
+        private String directory = "data";
+        
+        @Min(value = 1, message = "Log segment size must be at least 1 MB")
+        @Max(value = 1024, message = "Log segment size cannot exceed 1024 MB")
+        private int segmentSizeMb = 64;
+        
+        // how much acknowledged writes a crash of the host (not of the process) can lose
+        @Min(value = 10, message = "Log fsync interval must be at least 10 milliseconds")
+        private long fsyncIntervalMillis = 1000;
+        
+        @Min(value = 10, message = "Snapshot interval must be at least 10 seconds")
+        private long snapshotIntervalSeconds = 300;
+    }
+    
+    @Getter
+    @Setter
+    public static class TokenBatch {
+        
+        @Min(value = 1, message = "Token batch size must be at least 1")
+        @Max(value = 1000, message = "Token batch size cannot exceed 1000")
+        private int maxSize = 100;
+        
+        // shared by all batch requests; a full pool makes the request thread sign itself
+        @Min(value = 1, message = "At least one signing thread is required")
+        @Max(value = 64, message = "Signing threads cannot exceed 64")
+        private int signingThreads = 4;
+        
+        // tokens persisted in one transaction and then written to the response
+        @Min(value = 1, message = "Token batch chunk size must be at least 1")
+        private int chunkSize = 50;
+    }
+    
+    @Getter
+    @Setter
+    public static class AuthorizationEncoding {
+        
+        // how oauth2_authorization attributes and metadata are written; both formats are always readable here, but
+        // older releases only read json, so binary is enabled once every node is upgraded
+        @Pattern(regexp = "^(binary|json)$", message = "Authorization encoding must be 'binary' or 'json'")
+        private String format = "json";
+        
+        private boolean compress = true;
+        
+        // smaller values are not worth deflating
+        @Min(value = 64, message = "Compression threshold must be at least 64 bytes")
+        private int compressThresholdBytes = 512;
+        
+        // rewrites JSON rows in the background after startup, with format=binary only
+        private boolean convertLegacyRows = false;
+        
+        @Min(value = 1, message = "Conversion batch size must be at least 1")
+        @Max(value = 10000, message = "Conversion batch size cannot exceed 10000")
+        private int batchSize = 500;
+        
+        @Min(value = 0, message = "Conversion pause cannot be negative")
+        private long pauseMillis = 50;
+    }
+    
+    @Getter
+    @Setter
+    public static class Profiling {
+        
+        // upper bounds of an on-demand flight recording started through /api/admin/jfr
+        @Min(value = 1, message = "Recording duration must be at least 1 second")
+        private long maxDurationSeconds = 300;
+        
+        @Min(value = 1, message = "Recording size must be at least 1 MB")
+        private int maxSizeMb = 100;
+    }
+    
+    @Getter
+    @Setter
+    public static class DegradedMode {
+        
+        // circuit breaker around client lookups and authorization writes (jdbc storage only)
+        private boolean enabled = true;
+        
+        @Min(value = 1, message = "Failure threshold must be at least 1")
+        private int failureThreshold = 5;
+        
+        // how long the circuit stays open before a probe call is let through
+        @Min(value = 1, message = "Open interval must be at least 1 second")
+        private long openSeconds = 10;
+        
+        // calls slower than this count as failures
+        @Min(value = 1, message = "Slow call threshold must be at least 1 millisecond")
+        private long slowCallThresholdMillis = 1000;
+        
+        // oldest client snapshot entry still used to authenticate while the database is down
+        @Min(value = 1, message = "Snapshot staleness must be at least 1 second")
+        private long snapshotMaxStalenessSeconds = 900;
+        
+        @Min(value = 1, message = "Snapshot must hold at least 1 client")
+        private int snapshotMaxEntries = 10000;
+        
+        @NotBlank(message = "Spool directory is required")
+        private String spoolDirectory = "spool";
+        
+        @Min(value = 1, message = "Spool segment size must be at least 1 MB")
+        @Max(value = 1024, message = "Spool segment size cannot exceed 1024 MB")
+        private int spoolSegmentSizeMb = 16;
+        
+        // authorizations held locally before writes fail again
+        @Min(value = 1, message = "Spool must hold at least 1 authorization")
+        private int spoolMaxEntries = 100000;
+        
+        @Min(value = 10, message = "Replay interval must be at least 10 milliseconds")
+        private long replayIntervalMillis = 1000;
+    }
+    
+    @Getter
+    @Setter
+    public static class KnownClients {
+        
+        // reject token requests for nonexistent client ids without a database query (jdbc storage only)
+        private boolean enabled = true;
+        
+        // the filter is sized for the larger of this and twice the registered clients
+        @Min(value = 1, message = "Expected clients must be at least 1")
+        @Max(value = 100000000, message = "Expected clients cannot exceed 100000000")
+        private long expectedClients = 100000;
+        
+        @DecimalMin(value = "0.0001", message = "False positive rate must be at least 0.0001")
+        @DecimalMax(value = "0.5", message = "False positive rate cannot exceed 0.5")
+        private double falsePositiveRate = 0.01;
+        
+        // reject filter misses without a lookup; only safe when no other node creates clients unseen by this one
+        private boolean trustFilter = false;
+        
+        // deleted clients leave the filter on the next rebuild
+        @Min(value = 60, message = "Rebuild interval must be at least 60 seconds")
+        private long rebuildIntervalSeconds = 600;
+        
+        // how long a client id that was not found is rejected without asking the database again
+        @Min(value = 1, message = "Negative cache TTL must be at least 1 second")
+        private long negativeCacheTtlSeconds = 30;
+        
+        @Min(value = 0, message = "Negative cache size cannot be negative")
+        private int negativeCacheMaxEntries = 100000;
+    }
+    
+    @Getter
+    @Setter
+    public static class ClientAssertion {
+        
+        // private_key_jwt assertions valid for longer are rejected; bounds how long a jti must be remembered
+        @Min(value = 10, message = "Assertion lifetime must be at least 10 seconds")
+        @Max(value = 3600, message = "Assertion lifetime cannot exceed 3600 seconds")
+        private long maxLifetimeSeconds = 300;
+        
+        // granularity at which used jti values are expired
+        @Min(value = 1, message = "Replay bucket width must be at least 1 second")
+        private long replayBucketSeconds = 10;
+        
+        // when full, further assertions are rejected rather than accepted unchecked
+        @Min(value = 1, message = "Replay cache must hold at least 1 entry")
+        private int replayCacheMaxEntries = 1000000;
+    }
+    
+    @Getter
+    @Setter
+    public static class JwksNotifications {
+        
+        private boolean enabled = true;
+        
+        // key changes of a tenant within this window are sent as one event
+        @Min(value = 0, message = "Coalesce window cannot be negative")
+        private long coalesceMillis = 1000;
+        
+        @Min(value = 100, message = "Webhook connect timeout must be at least 100 milliseconds")
+        private long connectTimeoutMillis = 2000;
+        
+        @Min(value = 100, message = "Webhook request timeout must be at least 100 milliseconds")
+        private long requestTimeoutMillis = 5000;
+        
+        @Min(value = 1, message = "Webhook delivery attempts must be at least 1")
+        @Max(value = 50, message = "Webhook delivery attempts cannot exceed 50")
+        private int maxAttempts = 10;
+        
+        // doubled after every failed attempt, up to maxBackoffMillis
+        @Min(value = 10, message = "Initial webhook backoff must be at least 10 milliseconds")
+        private long initialBackoffMillis = 1000;
+        
+        @Min(value = 10, message = "Maximum webhook backoff must be at least 10 milliseconds")
+        private long maxBackoffMillis = 300000;
+    }
+    
+    @Getter
+    @Setter
+    public static class HeavyHitters {
+        
+        private boolean enabled = true;
+        
+        @Min(value = 10, message = "Heavy-hitter window must be at least 10 seconds")
+        private long windowSeconds = 60;
+        
+        // the window slides by windowSeconds / windowBuckets
+        @Min(value = 2, message = "Heavy-hitter window must have at least 2 buckets")
+        @Max(value = 60, message = "Heavy-hitter window cannot have more than 60 buckets")
+        private int windowBuckets = 6;
+        
+        // memory per dimension: windowBuckets * sketchDepth * sketchWidth longs, whatever the number of keys
+        @Min(value = 1, message = "Sketch depth must be at least 1")
+        @Max(value = 16, message = "Sketch depth cannot exceed 16")
+        private int sketchDepth = 4;
+        
+        @Min(value = 64, message = "Sketch width must be at least 64")
+        @Max(value = 1048576, message = "Sketch width cannot exceed 1048576")
+        private int sketchWidth = 2048;
+        
+        // keys tracked per bucket and the largest limit of the admin endpoint
+        @Min(value = 1, message = "Heavy-hitter capacity must be at least 1")
+        @Max(value = 1000, message = "Heavy-hitter capacity cannot exceed 1000")
+        private int topK = 20;
+        
+        @Min(value = 0, message = "Gauged heavy-hitter ranks cannot be negative")
+        private int gaugedRanks = 5;
     }
-}
\ No newline at end of file
+}
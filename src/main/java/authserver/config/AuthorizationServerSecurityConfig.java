@@ -1,49 +1,140 @@
 package authserver.config;
 
+import authserver.audit.AuditEventType;
+import authserver.audit.AuditLog;
+import authserver.datasource.DatabaseCircuitBreaker;
+import authserver.datasource.DegradedModeAuthorizationService;
+import authserver.datasource.DegradedModeRegisteredClientRepository;
+import authserver.datasource.ReplicaAwareAuthorizationService;
+import authserver.datasource.ReplicaAwareRegisteredClientRepository;
+import authserver.embedded.AuthorizationSpool;
+import authserver.repo.ColumnarRegisteredClientRepository;
+import authserver.repo.CompactAuthorizationCodec;
+import authserver.repo.CompactAuthorizationParametersMapper;
+import authserver.repo.CompactAuthorizationRowMapper;
+import authserver.repo.RemovableRegisteredClientRepository;
+import authserver.security.AdmissionControlFilter;
 import authserver.security.ApiKeyAuthFilter;
+import authserver.security.CachingJwtEncoder;
+import authserver.security.ClientJwkSetDecoderFactory;
+import authserver.security.ClientSecretEncoder;
+import authserver.security.JtiReplayCache;
+import authserver.security.HeavyHitterFilter;
+import authserver.security.HeavyHitterTracker;
+import authserver.security.HeavyHitters;
+import authserver.security.KnownClientIds;
+import authserver.security.KnownClientRegisteredClientRepository;
 import authserver.security.RateLimitingFilter;
+import authserver.security.SecretVerificationEventProvider;
+import authserver.security.ReloadableJwkSource;
+import authserver.security.TokenReuseAuthenticationProvider;
+import authserver.security.TokenReuseCache;
+import authserver.security.UnknownClientFilter;
+import authserver.security.WarmupClient;
+import authserver.service.AuthorizationPurgeStore;
+import authserver.service.ChangeFeedService;
+import authserver.service.JdbcAuthorizationPurgeStore;
 import authserver.service.JwkKeyService;
-import com.nimbusds.jose.jwk.JWKSet;
-import com.nimbusds.jose.jwk.RSAKey;
-import com.nimbusds.jose.jwk.source.JWKSource;
-import com.nimbusds.jose.proc.SecurityContext;
+import authserver.service.ReferenceTokenAuthorizationService;
+import authserver.service.ReferenceTokenStore;
+import authserver.tenant.Tenant;
+import authserver.tenant.TenantRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.oauth2.server.authorization.settings.AuthorizationServerSettings;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
 import org.springframework.security.oauth2.server.authorization.JdbcOAuth2AuthorizationService;
 import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
-import org.springframework.security.oauth2.server.authorization.client.JdbcRegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.authentication.ClientSecretAuthenticationProvider;
+import org.springframework.security.oauth2.server.authorization.authentication.JwtClientAssertionAuthenticationProvider;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2AccessTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientCredentialsAuthenticationProvider;
 import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.config.annotation.web.configurers.OAuth2AuthorizationServerConfigurer;
+import org.springframework.security.oauth2.server.authorization.web.authentication.OAuth2AccessTokenResponseAuthenticationSuccessHandler;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
+import org.springframework.security.web.session.DisableEncodeUrlFilter;
+
+import java.time.Duration;
 
 @Configuration
 public class AuthorizationServerSecurityConfig {
 
     private final ApiKeyAuthFilter apiKeyAuthFilter;
     private final RateLimitingFilter rateLimitingFilter;
+    private final AdmissionControlFilter admissionControlFilter;
 
-    public AuthorizationServerSecurityConfig(ApiKeyAuthFilter apiKeyAuthFilter, RateLimitingFilter rateLimitingFilter) {
+    public AuthorizationServerSecurityConfig(ApiKeyAuthFilter apiKeyAuthFilter, RateLimitingFilter rateLimitingFilter,
+                                             AdmissionControlFilter admissionControlFilter) {
         this.apiKeyAuthFilter = apiKeyAuthFilter;
         this.rateLimitingFilter = rateLimitingFilter;
+        this.admissionControlFilter = admissionControlFilter;
     }
 
     @Bean
     @Order(1)
-    public SecurityFilterChain authorizationServerSecurityChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain authorizationServerSecurityChain(HttpSecurity http,
+                                                                OAuth2AuthorizationService authorizationService,
+                                                                TokenReuseCache tokenReuseCache,
+                                                                AuditLog auditLog,
+                                                                ObjectProvider<KnownClientIds> knownClientIds,
+                                                                ObjectProvider<HeavyHitters> heavyHitters,
+                                                                ClientJwkSetDecoderFactory clientJwkSetDecoderFactory,
+                                                                WarmupClient warmupClient,
+                                                                TenantRegistry tenantRegistry) throws Exception {
         org.springframework.security.oauth2.server.authorization.config.annotation.web.configuration.OAuth2AuthorizationServerConfiguration.applyDefaultSecurity(http);
+        http.getConfigurer(OAuth2AuthorizationServerConfigurer.class)
+                .clientAuthentication(clientAuthentication -> clientAuthentication
+                        .authenticationProviders(providers -> providers.replaceAll(provider -> {
+                            if (provider instanceof JwtClientAssertionAuthenticationProvider jwtClientAssertion) {
+                                jwtClientAssertion.setJwtDecoderFactory(clientJwkSetDecoderFactory);
+                            }
+                            return provider instanceof ClientSecretAuthenticationProvider
+                                    ? new SecretVerificationEventProvider(provider)
+                                    : provider;
+                        })))
+                .tokenEndpoint(tokenEndpoint -> tokenEndpoint
+                        .authenticationProviders(providers ->
+                                providers.replaceAll(provider -> provider instanceof OAuth2ClientCredentialsAuthenticationProvider
+                                        ? new TokenReuseAuthenticationProvider(provider, tokenReuseCache, authorizationService)
+                                        : provider))
+                        .accessTokenResponseHandler(auditingTokenResponseHandler(auditLog, warmupClient)));
+        // count every token request, including the ones rejected below
+        heavyHitters.ifAvailable(hitters -> http.addFilterBefore(new HeavyHitterFilter(hitters, tenantRegistry, warmupClient), DisableEncodeUrlFilter.class));
+        // unknown client ids are cheaper to reject than to admit, so that check comes first
+        knownClientIds.ifAvailable(known -> http.addFilterBefore(new UnknownClientFilter(known, tenantRegistry, warmupClient), DisableEncodeUrlFilter.class));
+        // shed excess token requests before any client authentication or database work
+        http.addFilterBefore(admissionControlFilter, DisableEncodeUrlFilter.class);
         return http.build();
     }
 
+    private static AuthenticationSuccessHandler auditingTokenResponseHandler(AuditLog auditLog, WarmupClient warmupClient) {
+        AuthenticationSuccessHandler delegate = new OAuth2AccessTokenResponseAuthenticationSuccessHandler();
+        return (request, response, authentication) -> {
+            OAuth2AccessTokenAuthenticationToken issued = (OAuth2AccessTokenAuthenticationToken) authentication;
+            if (!warmupClient.is(issued.getRegisteredClient().getClientId())) {
+                auditLog.record(AuditEventType.TOKEN_ISSUED, issued.getRegisteredClient().getClientId(),
+                        issued.getRegisteredClient().getClientId(), String.join(" ", issued.getAccessToken().getScopes()));
+            }
+            delegate.onAuthenticationSuccess(request, response, authentication);
+        };
+    }
+
     @Bean
-    public SecurityFilterChain defaultSecurityChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain defaultSecurityChain(HttpSecurity http, ObjectProvider<HeavyHitters> heavyHitters,
+                                                    ObjectProvider<KnownClientIds> knownClientIds,
+                                                    WarmupClient warmupClient, TenantRegistry tenantRegistry) throws Exception {
         http
                 .authorizeHttpRequests(auth -> auth
                         // Public endpoints - no authentication required
@@ -59,7 +150,7 @@ public class AuthorizationServerSecurityConfig {
                         .requestMatchers("/actuator/**").authenticated()
                         
                         // Admin endpoints - require API key authentication
-                        .requestMatchers("/api/clients/*/admin", "/api/keys/**").authenticated()
+                        .requestMatchers("/api/clients/*/admin", "/api/clients/*/admin/**", "/api/keys/**").authenticated()
                         .requestMatchers("/api/admin/**").authenticated()
                         
                         // All other requests are permitted
@@ -74,36 +165,162 @@ public class AuthorizationServerSecurityConfig {
                         .includeSubDomains(true))
                 );
 
-        // Add rate limiting filter first, then API key filter
+        // Count client registrations and token batches, screen and admit token batches like token requests,
+        // rate limit registrations, then authenticate API keys
+        heavyHitters.ifAvailable(hitters -> http.addFilterBefore(new HeavyHitterFilter(hitters, tenantRegistry, warmupClient), BasicAuthenticationFilter.class));
+        knownClientIds.ifAvailable(known -> http.addFilterBefore(new UnknownClientFilter(known, tenantRegistry, warmupClient), BasicAuthenticationFilter.class));
+        http.addFilterBefore(admissionControlFilter, BasicAuthenticationFilter.class);
         http.addFilterBefore(rateLimitingFilter, BasicAuthenticationFilter.class);
         http.addFilterBefore(apiKeyAuthFilter, UsernamePasswordAuthenticationFilter.class);
         return http.build();
     }
 
     @Bean
-    public RegisteredClientRepository registeredClientRepository(JdbcTemplate jdbcTemplate) {
-        return new JdbcRegisteredClientRepository(jdbcTemplate);
+    @ConditionalOnProperty(prefix = "app.storage", name = "type", havingValue = "jdbc", matchIfMissing = true)
+    public RemovableRegisteredClientRepository registeredClientRepository(JdbcTemplate jdbcTemplate, AuthServerProperties authServerProperties,
+                                                                          ObjectProvider<DatabaseCircuitBreaker> breaker,
+                                                                          ObjectProvider<KnownClientIds> knownClientIds,
+                                                                          WarmupClient warmupClient,
+                                                                          MeterRegistry meterRegistry) {
+        RemovableRegisteredClientRepository repository = new ColumnarRegisteredClientRepository(jdbcTemplate);
+        if (authServerProperties.getReadReplica().isEnabled()) {
+            repository = new ReplicaAwareRegisteredClientRepository(repository);
+        }
+        DatabaseCircuitBreaker databaseCircuitBreaker = breaker.getIfAvailable();
+        if (databaseCircuitBreaker != null) {
+            AuthServerProperties.DegradedMode cfg = authServerProperties.getDegradedMode();
+            repository = new DegradedModeRegisteredClientRepository(repository, databaseCircuitBreaker,
+                    Duration.ofSeconds(cfg.getSnapshotMaxStalenessSeconds()), cfg.getSnapshotMaxEntries(), meterRegistry);
+        }
+        KnownClientIds known = knownClientIds.getIfAvailable();
+        if (known != null) {
+            repository = new KnownClientRegisteredClientRepository(repository, known, warmupClient);
+        }
+        return repository;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.storage", name = "type", havingValue = "jdbc", matchIfMissing = true)
+    @ConditionalOnProperty(prefix = "app.known-clients", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public KnownClientIds knownClientIds(JdbcTemplate jdbcTemplate, AuthServerProperties authServerProperties,
+                                         MeterRegistry meterRegistry) {
+        AuthServerProperties.KnownClients cfg = authServerProperties.getKnownClients();
+        KnownClientIds knownClientIds = new KnownClientIds(
+                action -> ColumnarRegisteredClientRepository.forEachClientId(jdbcTemplate, action),
+                clientId -> ColumnarRegisteredClientRepository.existsClientId(jdbcTemplate, clientId), cfg.isTrustFilter(),
+                cfg.getExpectedClients(), cfg.getFalsePositiveRate(), Duration.ofSeconds(cfg.getNegativeCacheTtlSeconds()),
+                cfg.getNegativeCacheMaxEntries(), meterRegistry);
+        knownClientIds.start(Duration.ofSeconds(cfg.getRebuildIntervalSeconds()));
+        return knownClientIds;
+    }
+
+    @Bean
+    public WarmupClient warmupClient() {
+        return new WarmupClient();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.heavy-hitters", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public HeavyHitters heavyHitters(AuthServerProperties authServerProperties, MeterRegistry meterRegistry) {
+        AuthServerProperties.HeavyHitters cfg = authServerProperties.getHeavyHitters();
+        long bucketMillis = cfg.getWindowSeconds() * 1000 / cfg.getWindowBuckets();
+        return new HeavyHitters(
+                new HeavyHitterTracker(cfg.getWindowBuckets(), bucketMillis, cfg.getSketchDepth(), cfg.getSketchWidth(), cfg.getTopK()),
+                new HeavyHitterTracker(cfg.getWindowBuckets(), bucketMillis, cfg.getSketchDepth(), cfg.getSketchWidth(), cfg.getTopK()),
+                Math.min(cfg.getGaugedRanks(), cfg.getTopK()), meterRegistry);
+    }
+
+    @Bean
+    public ReferenceTokenStore referenceTokenStore(AuthServerProperties authServerProperties) {
+        AuthServerProperties.TokenStore cfg = authServerProperties.getTokenStore();
+        return new ReferenceTokenStore(cfg.getShards(), cfg.getWheelSlots(),
+                Duration.ofMillis(cfg.getTickMillis()), cfg.getMaxEntries());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.storage", name = "type", havingValue = "jdbc", matchIfMissing = true)
+    public AuthorizationPurgeStore authorizationPurgeStore(JdbcTemplate jdbcTemplate) {
+        return new JdbcAuthorizationPurgeStore(jdbcTemplate);
+    }
+
+    @Bean
+    public CompactAuthorizationCodec compactAuthorizationCodec(AuthServerProperties authServerProperties) {
+        AuthServerProperties.AuthorizationEncoding cfg = authServerProperties.getAuthorizationEncoding();
+        return new CompactAuthorizationCodec(cfg.isCompress(), cfg.getCompressThresholdBytes());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.storage", name = "type", havingValue = "jdbc", matchIfMissing = true)
+    public OAuth2AuthorizationService authorizationService(JdbcTemplate jdbcTemplate, RegisteredClientRepository repo,
+                                                           ReferenceTokenStore referenceTokenStore,
+                                                           CompactAuthorizationCodec codec,
+                                                           AuthServerProperties authServerProperties,
+                                                           ObjectProvider<DatabaseCircuitBreaker> breaker,
+                                                           ObjectProvider<AuthorizationSpool> spool,
+                                                           ChangeFeedService changeFeedService,
+                                                           MeterRegistry meterRegistry) {
+        JdbcOAuth2AuthorizationService compactService = new JdbcOAuth2AuthorizationService(jdbcTemplate, repo);
+        // reads both encodings; the framework's own parameters mapper still writes JSON when format=json
+        compactService.setAuthorizationRowMapper(new CompactAuthorizationRowMapper(repo, codec));
+        if ("binary".equals(authServerProperties.getAuthorizationEncoding().getFormat())) {
+            compactService.setAuthorizationParametersMapper(new CompactAuthorizationParametersMapper(codec));
+        }
+        OAuth2AuthorizationService jdbcService = compactService;
+        if (authServerProperties.getReadReplica().isEnabled()) {
+            jdbcService = new ReplicaAwareAuthorizationService(jdbcService);
+        }
+        DatabaseCircuitBreaker databaseCircuitBreaker = breaker.getIfAvailable();
+        AuthorizationSpool authorizationSpool = spool.getIfAvailable();
+        if (databaseCircuitBreaker != null && authorizationSpool != null) {
+            DegradedModeAuthorizationService degraded = new DegradedModeAuthorizationService(jdbcService,
+                    databaseCircuitBreaker, authorizationSpool, meterRegistry);
+            authorizationSpool.scheduleReplay(degraded::replayPending,
+                    Duration.ofMillis(authServerProperties.getDegradedMode().getReplayIntervalMillis()));
+            jdbcService = degraded;
+        }
+        return new ReferenceTokenAuthorizationService(jdbcService, referenceTokenStore, changeFeedService);
+    }
+
+    @Bean
+    public ClientJwkSetDecoderFactory clientJwkSetDecoderFactory(AuthServerProperties authServerProperties) {
+        AuthServerProperties.ClientAssertion cfg = authServerProperties.getClientAssertion();
+        // used jti values are kept past expiry for the clock skew the timestamp validator allows
+        JtiReplayCache replayCache = new JtiReplayCache(Duration.ofSeconds(cfg.getReplayBucketSeconds()),
+                Duration.ofSeconds(60), cfg.getReplayCacheMaxEntries());
+        return new ClientJwkSetDecoderFactory(replayCache, Duration.ofSeconds(cfg.getMaxLifetimeSeconds()));
+    }
+
+    @Bean
+    public TokenReuseCache tokenReuseCache(AuthServerProperties authServerProperties, ReloadableJwkSource jwkSource,
+                                           MeterRegistry meterRegistry) {
+        return new TokenReuseCache(authServerProperties.getOauth().getTokenReuseMinRemainingRatio(),
+                authServerProperties.getOauth().getTokenReuseMaxEntries(), jwkSource::getActiveKeyId, meterRegistry);
     }
 
     @Bean
-    public OAuth2AuthorizationService authorizationService(JdbcTemplate jdbcTemplate, RegisteredClientRepository repo) {
-        return new JdbcOAuth2AuthorizationService(jdbcTemplate, repo);
+    public ReloadableJwkSource jwkSource(JwkKeyService jwkKeyService, TenantRegistry tenantRegistry,
+                                         AuthServerProperties authServerProperties) {
+        return new ReloadableJwkSource(jwkKeyService, authServerProperties.getOauth().getDefaultKeySize(),
+                tenantRegistry.all().stream().map(Tenant::id).toList());
     }
 
     @Bean
-    public JWKSource<SecurityContext> jwkSource(JwkKeyService jwkKeyService) {
-        RSAKey rsa = jwkKeyService.getOrCreateActiveRsaKey(2048);
-        JWKSet set = new JWKSet(rsa);
-        return (sel, ctx) -> sel.select(set);
+    public JwtEncoder jwtEncoder(ReloadableJwkSource jwkSource) {
+        return new CachingJwtEncoder(jwkSource::getActiveKey, new NimbusJwtEncoder(jwkSource.signingKeySource()));
     }
 
     @Bean
-    public AuthorizationServerSettings authorizationServerSettings(@Value("${app.issuer}") String issuer) {
+    public AuthorizationServerSettings authorizationServerSettings(@Value("${app.issuer}") String issuer,
+                                                                   TenantRegistry tenantRegistry) {
+        // with tenants the issuer is derived per request from the host and issuer path (see TenantResolutionFilter)
+        if (tenantRegistry.isEnabled()) {
+            return AuthorizationServerSettings.builder().multipleIssuersAllowed(true).build();
+        }
         return AuthorizationServerSettings.builder().issuer(issuer).build();
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public ClientSecretEncoder passwordEncoder(AuthServerProperties authServerProperties) {
+        return new ClientSecretEncoder(authServerProperties.getSecurity().getClientSecretPepper());
     }
 }
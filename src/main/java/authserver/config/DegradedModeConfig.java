@@ -0,0 +1,40 @@
+package authserver.config;
+
+import authserver.datasource.DatabaseCircuitBreaker;
+import authserver.embedded.AuthorizationSpool;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Circuit breaker and local spool for keeping the token endpoint up through database brownouts; applied to the
+ * client repository and authorization service in {@link AuthorizationServerSecurityConfig}.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "app.storage", name = "type", havingValue = "jdbc", matchIfMissing = true)
+@ConditionalOnProperty(prefix = "app.degraded-mode", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class DegradedModeConfig {
+
+    @Bean
+    public DatabaseCircuitBreaker databaseCircuitBreaker(AuthServerProperties authServerProperties, MeterRegistry meterRegistry) {
+        AuthServerProperties.DegradedMode cfg = authServerProperties.getDegradedMode();
+        DatabaseCircuitBreaker breaker = new DatabaseCircuitBreaker(cfg.getFailureThreshold(), cfg.getOpenSeconds(),
+                cfg.getSlowCallThresholdMillis());
+        Gauge.builder("authserver.degraded.breaker.state", breaker, b -> b.getState().ordinal())
+                .description("Database circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .register(meterRegistry);
+        return breaker;
+    }
+
+    @Bean(destroyMethod = "close")
+    public AuthorizationSpool authorizationSpool(AuthServerProperties authServerProperties) throws IOException {
+        AuthServerProperties.DegradedMode cfg = authServerProperties.getDegradedMode();
+        return new AuthorizationSpool(Path.of(cfg.getSpoolDirectory()), cfg.getSpoolSegmentSizeMb() * 1024 * 1024,
+                cfg.getSpoolMaxEntries());
+    }
+}
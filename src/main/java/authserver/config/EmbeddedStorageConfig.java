@@ -0,0 +1,59 @@
+package authserver.config;
+
+import authserver.embedded.EmbeddedAuthorizationPurgeStore;
+import authserver.embedded.EmbeddedAuthorizationService;
+import authserver.embedded.EmbeddedJwkKeyRepository;
+import authserver.embedded.EmbeddedRegisteredClientRepository;
+import authserver.embedded.EmbeddedStore;
+import authserver.repo.JwkKeyRepository;
+import authserver.repo.RemovableRegisteredClientRepository;
+import authserver.service.AuthorizationPurgeStore;
+import authserver.service.ChangeFeedService;
+import authserver.service.ReferenceTokenAuthorizationService;
+import authserver.service.ReferenceTokenStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Keeps clients, authorizations and signing keys in the {@link EmbeddedStore} instead of the database
+ * ({@code app.storage.type=embedded}, see the {@code embedded} profile).
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "app.storage", name = "type", havingValue = "embedded")
+public class EmbeddedStorageConfig {
+
+    @Bean(destroyMethod = "close")
+    public EmbeddedStore embeddedStore(AuthServerProperties authServerProperties) throws IOException {
+        AuthServerProperties.Embedded cfg = authServerProperties.getStorage().getEmbedded();
+        return new EmbeddedStore(Path.of(cfg.getDirectory()), cfg.getSegmentSizeMb() * 1024 * 1024,
+                Duration.ofMillis(cfg.getFsyncIntervalMillis()), Duration.ofSeconds(cfg.getSnapshotIntervalSeconds()));
+    }
+
+    @Bean
+    public RemovableRegisteredClientRepository registeredClientRepository(EmbeddedStore embeddedStore) {
+        return new EmbeddedRegisteredClientRepository(embeddedStore);
+    }
+
+    @Bean
+    public OAuth2AuthorizationService authorizationService(EmbeddedStore embeddedStore, ReferenceTokenStore referenceTokenStore,
+                                                           ChangeFeedService changeFeedService) {
+        return new ReferenceTokenAuthorizationService(new EmbeddedAuthorizationService(embeddedStore), referenceTokenStore,
+                changeFeedService);
+    }
+
+    @Bean
+    public AuthorizationPurgeStore authorizationPurgeStore(EmbeddedStore embeddedStore, OAuth2AuthorizationService authorizationService) {
+        return new EmbeddedAuthorizationPurgeStore(embeddedStore, authorizationService);
+    }
+
+    @Bean
+    public JwkKeyRepository jwkKeyRepository(EmbeddedStore embeddedStore) {
+        return new EmbeddedJwkKeyRepository(embeddedStore);
+    }
+}
@@ -0,0 +1,44 @@
+package authserver.config;
+
+import authserver.datasource.JdbcAccountingDataSource;
+import authserver.datasource.JdbcAccountingFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "app.jdbc-accounting", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class JdbcAccountingConfig {
+
+    // Only the application-facing "dataSource" bean is wrapped; with a read replica its pools sit behind
+    // it, so wrapping them as well would count every statement twice.
+    @Bean
+    public static BeanPostProcessor jdbcAccountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ("dataSource".equals(beanName) && bean instanceof DataSource dataSource
+                        && !(bean instanceof JdbcAccountingDataSource)) {
+                    return new JdbcAccountingDataSource(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<JdbcAccountingFilter> jdbcAccountingFilter(MeterRegistry meterRegistry,
+                                                                             AuthServerProperties authServerProperties) {
+        // ahead of the security filter chain, where client authentication reads the database
+        FilterRegistrationBean<JdbcAccountingFilter> registration = new FilterRegistrationBean<>(
+                new JdbcAccountingFilter(meterRegistry, authServerProperties.getJdbcAccounting().isResponseHeader()));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+}
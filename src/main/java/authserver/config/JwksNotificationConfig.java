@@ -0,0 +1,31 @@
+package authserver.config;
+
+import authserver.service.JwkKeyService;
+import authserver.service.JwksChangeNotifier;
+import authserver.service.JwksSubscriptionService;
+import authserver.tenant.TenantRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+
+/**
+ * Webhook notifications of key rotations, sent by {@link JwkKeyService} once the new key is committed.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "app.jwks-notifications", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class JwksNotificationConfig {
+
+    @Bean(destroyMethod = "close")
+    public JwksChangeNotifier jwksChangeNotifier(JwksSubscriptionService jwksSubscriptionService, JwkKeyService jwkKeyService,
+                                                 TenantRegistry tenantRegistry, AuthServerProperties authServerProperties,
+                                                 MeterRegistry meterRegistry) {
+        return new JwksChangeNotifier(jwksSubscriptionService::findByTenant,
+                tenantId -> Map.of(
+                        "iss", tenantRegistry.get(tenantId).issuer(),
+                        "jwks", jwkKeyService.getPublicJwkSet(tenantId).toJSONObject()),
+                authServerProperties.getJwksNotifications(), meterRegistry);
+    }
+}
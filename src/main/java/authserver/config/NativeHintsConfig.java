@@ -0,0 +1,107 @@
+package authserver.config;
+
+import authserver.dto.CreateClientRequest;
+import authserver.dto.CreateClientResponse;
+import authserver.dto.CreateJwksSubscriptionRequest;
+import authserver.dto.UpdateClientAudiencesRequest;
+import authserver.entity.JwkKey;
+import authserver.exception.GlobalExceptionHandler;
+import authserver.security.HeavyHitterTracker;
+import authserver.service.ClientPurgeService;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jwt.JWTClaimsSet;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.boot.context.properties.bind.BindableRuntimeHintsRegistrar;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.security.oauth2.server.authorization.jackson2.OAuth2AuthorizationServerJackson2Module;
+import org.springframework.security.oauth2.server.authorization.settings.OAuth2TokenFormat;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * GraalVM native-image hints for the parts of the auth stack that are reached reflectively.
+ * The authorization server's own AOT processor only contributes its Jackson hints when the bean
+ * class is a Jdbc* type, which is not the case for our interface-typed factory methods.
+ */
+@Configuration(proxyBeanMethods = false)
+@ImportRuntimeHints(NativeHintsConfig.AuthServerRuntimeHints.class)
+public class NativeHintsConfig {
+
+    static class AuthServerRuntimeHints implements RuntimeHintsRegistrar {
+
+        private static final MemberCategory[] ALL_MEMBERS = {
+                MemberCategory.DECLARED_FIELDS,
+                MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                MemberCategory.INVOKE_DECLARED_METHODS
+        };
+
+        // Jackson mixins used by the registered client overflow column / JdbcOAuth2AuthorizationService (package-private types)
+        private static final List<String> SECURITY_JACKSON_MIXINS = List.of(
+                "org.springframework.security.jackson2.UnmodifiableSetMixin",
+                "org.springframework.security.jackson2.UnmodifiableListMixin",
+                "org.springframework.security.jackson2.UnmodifiableMapMixin",
+                "org.springframework.security.jackson2.SimpleGrantedAuthorityMixin",
+                "org.springframework.security.jackson2.UsernamePasswordAuthenticationTokenMixin",
+                "org.springframework.security.oauth2.server.authorization.jackson2.UnmodifiableMapMixin",
+                "org.springframework.security.oauth2.server.authorization.jackson2.HashSetMixin",
+                "org.springframework.security.oauth2.server.authorization.jackson2.OAuth2TokenFormatMixin",
+                "org.springframework.security.oauth2.server.authorization.jackson2.DurationMixin",
+                "org.springframework.security.oauth2.server.authorization.jackson2.JwsAlgorithmMixin",
+                "org.springframework.security.oauth2.server.authorization.jackson2.OAuth2AuthorizationRequestMixin"
+        );
+
+        private final BindingReflectionHintsRegistrar bindingRegistrar = new BindingReflectionHintsRegistrar();
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            // Nimbus JOSE key material and token model
+            hints.reflection().registerTypes(List.of(
+                    TypeReference.of(RSAKey.class),
+                    TypeReference.of(JWKSet.class),
+                    TypeReference.of(JWSHeader.class),
+                    TypeReference.of(JWSAlgorithm.class),
+                    TypeReference.of(JWTClaimsSet.class)
+            ), builder -> builder.withMembers(ALL_MEMBERS));
+
+            // Registered client / authorization JSON columns
+            hints.reflection().registerType(OAuth2AuthorizationServerJackson2Module.class, ALL_MEMBERS);
+            hints.reflection().registerType(OAuth2TokenFormat.class, ALL_MEMBERS);
+            for (String mixin : SECURITY_JACKSON_MIXINS) {
+                hints.reflection().registerType(TypeReference.of(mixin), ALL_MEMBERS);
+            }
+
+            // Signing key (embedded store serialization) and MVC payloads
+            hints.reflection().registerType(JwkKey.class, ALL_MEMBERS);
+            bindingRegistrar.registerReflectionHints(hints.reflection(),
+                    CreateClientRequest.class, CreateClientResponse.class, GlobalExceptionHandler.ErrorResponse.class,
+                    ClientPurgeService.PurgeStatus.class, CreateJwksSubscriptionRequest.class,
+                    HeavyHitterTracker.HeavyHitter.class, UpdateClientAudiencesRequest.class);
+
+            // app.* configuration properties, including nested groups
+            BindableRuntimeHintsRegistrar.forTypes(AuthServerProperties.class).registerHints(hints, classLoader);
+
+            hints.resources().registerPattern("db/migration/*.sql");
+            hints.resources().registerPattern("db/vendor/*/*.sql");
+
+            // JDBC accounting proxies
+            hints.proxies().registerJdkProxy(Connection.class);
+            hints.proxies().registerJdkProxy(Statement.class);
+            hints.proxies().registerJdkProxy(PreparedStatement.class);
+            hints.proxies().registerJdkProxy(CallableStatement.class);
+            hints.proxies().registerJdkProxy(ResultSet.class);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package authserver.config;
+
+import authserver.datasource.ReadReplicaRoutingDataSource;
+import authserver.datasource.ReplicaLagMonitor;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "app.read-replica", name = "enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("app.read-replica.hikari")
+    public HikariDataSource replicaDataSource(AuthServerProperties authServerProperties) {
+        AuthServerProperties.ReadReplica cfg = authServerProperties.getReadReplica();
+        HikariDataSource replica = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(cfg.getUrl())
+                .username(cfg.getUsername())
+                .password(cfg.getPassword())
+                .build();
+        replica.setReadOnly(true);
+        replica.setPoolName("replica-pool");
+        return replica;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("primaryDataSource") DataSource primary,
+                                               @Qualifier("replicaDataSource") DataSource replica,
+                                               AuthServerProperties authServerProperties,
+                                               MeterRegistry meterRegistry) {
+        AuthServerProperties.ReadReplica cfg = authServerProperties.getReadReplica();
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(primary, replica,
+                Duration.ofSeconds(cfg.getMaxLagSeconds()), Duration.ofMillis(cfg.getHeartbeatIntervalMillis()));
+        Gauge.builder("authserver.datasource.replica.lag", monitor, m -> m.getLagMillis() == Long.MAX_VALUE ? Double.NaN : m.getLagMillis() / 1000.0)
+                .baseUnit("seconds")
+                .description("Observed replication lag of the read replica")
+                .register(meterRegistry);
+        monitor.start();
+        return monitor;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 ReplicaLagMonitor replicaLagMonitor) {
+        return new LazyConnectionDataSourceProxy(new ReadReplicaRoutingDataSource(primary, replica, replicaLagMonitor));
+    }
+}
@@ -1,37 +1,31 @@
 package authserver.config;
 
-import authserver.service.JwkKeyService;
+import authserver.security.ReloadableJwkSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
 @Component
+@Order(1)
 public class StartupRunner implements CommandLineRunner {
 
     private static final Logger logger = LoggerFactory.getLogger(StartupRunner.class);
 
-    private final JwkKeyService jwkKeyService;
-    private final AuthServerProperties authServerProperties;
+    private final ReloadableJwkSource jwkSource;
 
-    public StartupRunner(JwkKeyService jwkKeyService, AuthServerProperties authServerProperties) {
-        this.jwkKeyService = jwkKeyService;
-        this.authServerProperties = authServerProperties;
+    public StartupRunner(ReloadableJwkSource jwkSource) {
+        this.jwkSource = jwkSource;
     }
 
     @Override
     public void run(String... args) throws Exception {
         logger.info("Initializing authorization server...");
         
-        try {
-            jwkKeyService.getActiveRsaKey();
-            logger.info("Active RSA key found and loaded successfully");
-        } catch (Exception ex) {
-            logger.warn("No active RSA key found, generating new key: {}", ex.getMessage());
-            int keySize = authServerProperties.getOauth().getDefaultKeySize();
-            jwkKeyService.generateAndSaveRsaKey(keySize);
-            logger.info("New RSA key generated successfully with size: {}", keySize);
-        }
+        // The jwkSource bean has already loaded (or generated) and parsed the active key; reuse it
+        // rather than reading and parsing the PEMs a second time.
+        logger.info("Active RSA key loaded successfully: {}", jwkSource.getActiveKeyId());
         
         logger.info("Authorization server initialization completed");
     }
@@ -0,0 +1,23 @@
+package authserver.config;
+
+import authserver.tenant.TenantRegistry;
+import authserver.tenant.TenantResolutionFilter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "app.tenants", name = "enabled", havingValue = "true")
+public class TenantConfig {
+
+    @Bean
+    public FilterRegistrationBean<TenantResolutionFilter> tenantResolutionFilter(TenantRegistry tenantRegistry) {
+        // the tenant must be known before anything below reads keys, clients or rate limits
+        FilterRegistrationBean<TenantResolutionFilter> registration = new FilterRegistrationBean<>(
+                new TenantResolutionFilter(tenantRegistry));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
@@ -0,0 +1,219 @@
+package authserver.config;
+
+import authserver.repo.RemovableRegisteredClientRepository;
+import authserver.security.ClientSecretEncoder;
+import authserver.security.TokenReuseAuthenticationProvider;
+import authserver.security.WarmupClient;
+import authserver.service.AuthorizationPurgeStore;
+import authserver.service.ReferenceTokenStore;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.settings.OAuth2TokenFormat;
+import org.springframework.security.oauth2.server.authorization.settings.TokenSettings;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Issues synthetic client_credentials tokens over loopback for a throwaway client before the application
+ * reports ready. Runners finish before Spring Boot publishes {@code ReadinessState.ACCEPTING_TRAFFIC}, so
+ * readiness probes keep failing until the configured number of tokens was issued or the time budget ran out.
+ * The client and its authorizations are written and removed through the stores directly, so the warm-up leaves
+ * no change-feed entries or purge jobs behind and other nodes never see the client; while it runs the client is
+ * announced as the {@link WarmupClient}, whose tokens are not audited or counted and whose id is kept out of the
+ * known-client filter. A failed warm-up is logged and startup continues.
+ */
+@Component
+@Order(2)
+public class WarmupRunner implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(WarmupRunner.class);
+
+    private final RemovableRegisteredClientRepository registeredClientRepository;
+    private final ClientSecretEncoder secretEncoder;
+    private final AuthorizationPurgeStore purgeStore;
+    private final ReferenceTokenStore referenceTokenStore;
+    private final WarmupClient warmupClient;
+    private final DataSource dataSource;
+    private final Environment environment;
+    private final AuthServerProperties authServerProperties;
+    private final AuthServerProperties.Warmup config;
+
+    public WarmupRunner(RemovableRegisteredClientRepository registeredClientRepository, ClientSecretEncoder secretEncoder,
+                        AuthorizationPurgeStore purgeStore, ReferenceTokenStore referenceTokenStore,
+                        WarmupClient warmupClient, DataSource dataSource, Environment environment, AuthServerProperties authServerProperties) {
+        this.registeredClientRepository = registeredClientRepository;
+        this.secretEncoder = secretEncoder;
+        this.purgeStore = purgeStore;
+        this.referenceTokenStore = referenceTokenStore;
+        this.warmupClient = warmupClient;
+        this.dataSource = dataSource;
+        this.environment = environment;
+        this.authServerProperties = authServerProperties;
+        this.config = authServerProperties.getWarmup();
+    }
+
+    @Override
+    public void run(String... args) {
+        Integer port = environment.getProperty("local.server.port", Integer.class);
+        if (!config.isEnabled() || port == null || port <= 0) {
+            return;
+        }
+        try {
+            warmUp(port);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Warm-up interrupted");
+        } catch (RuntimeException e) {
+            // only the first requests are slower without it
+            logger.warn("Warm-up failed: {}", e.toString());
+        }
+    }
+
+    private void warmUp(int port) throws InterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(config.getMaxDurationSeconds());
+
+        openConnections();
+
+        byte[] secretBytes = new byte[32];
+        new SecureRandom().nextBytes(secretBytes);
+        String secret = Base64.getUrlEncoder().withoutPadding().encodeToString(secretBytes);
+        RegisteredClient client = buildClient(secret);
+        warmupClient.begin(client.getClientId());
+        try {
+            registeredClientRepository.save(client);
+            int issued = issueTokens(port, client.getClientId(), secret, deadline);
+            logger.info("Warm-up issued {}/{} tokens in {} ms", issued, config.getIterations(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } finally {
+            registeredClientRepository.removeById(client.getId());
+            removeAuthorizations(client.getId());
+            warmupClient.end();
+        }
+    }
+
+    // shaped like a client created through the API with default settings, so the same code paths get warm
+    private RegisteredClient buildClient(String secret) {
+        AuthServerProperties.OAuth oauth = authServerProperties.getOauth();
+        return RegisteredClient.withId(UUID.randomUUID().toString())
+                .clientId("warmup-" + UUID.randomUUID())
+                .clientName("Warm-up client")
+                .clientSecret(secretEncoder.encodeGenerated(secret))
+                .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
+                .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                .scope(oauth.getDefaultScope())
+                .tokenSettings(TokenSettings.builder()
+                        .accessTokenTimeToLive(Duration.ofSeconds(oauth.getDefaultAccessTokenTtl()))
+                        .accessTokenFormat(OAuth2TokenFormat.REFERENCE.getValue().equalsIgnoreCase(oauth.getDefaultAccessTokenFormat())
+                                ? OAuth2TokenFormat.REFERENCE : OAuth2TokenFormat.SELF_CONTAINED)
+                        .setting(TokenReuseAuthenticationProvider.REUSE_ACCESS_TOKEN_SETTING, false)
+                        .build())
+                .build();
+    }
+
+    private void removeAuthorizations(String registeredClientId) {
+        int batchSize = authServerProperties.getClientPurge().getBatchSize();
+        String afterId = "";
+        List<String> ids;
+        while (!(ids = purgeStore.findIdsAfter(registeredClientId, afterId, batchSize)).isEmpty()) {
+            purgeStore.deleteByIds(ids);
+            afterId = ids.get(ids.size() - 1);
+        }
+        referenceTokenStore.removeByRegisteredClientId(registeredClientId);
+    }
+
+    private int issueTokens(int port, String clientId, String secret, long deadline) throws InterruptedException {
+        HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/oauth2/token"))
+                .timeout(Duration.ofSeconds(10))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .header("Authorization", "Basic " + Base64.getEncoder().encodeToString(
+                        (clientId + ":" + secret).getBytes(StandardCharsets.UTF_8)))
+                .POST(HttpRequest.BodyPublishers.ofString("grant_type=client_credentials"))
+                .build();
+
+        AtomicInteger remaining = new AtomicInteger(config.getIterations());
+        AtomicInteger issued = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(config.getConcurrency());
+        for (int i = 0; i < config.getConcurrency(); i++) {
+            workers.execute(() -> {
+                while (remaining.getAndDecrement() > 0 && System.nanoTime() < deadline) {
+                    try {
+                        HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() == 200) {
+                            issued.incrementAndGet();
+                        } else {
+                            logger.debug("Warm-up token request returned {}", response.statusCode());
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    } catch (Exception e) {
+                        logger.warn("Warm-up token request failed: {}", e.getMessage());
+                        return;
+                    }
+                }
+            });
+        }
+        workers.shutdown();
+        if (!workers.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+            logger.warn("Warm-up time budget of {}s exhausted", config.getMaxDurationSeconds());
+            workers.shutdownNow();
+        }
+        return issued.get();
+    }
+
+    // Hikari fills its pool in the background; open the idle connections now so first requests do not wait
+    private void openConnections() {
+        int count = config.getConcurrency();
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+                count = Math.max(count, Math.min(hikari.getMinimumIdle(), hikari.getMaximumPoolSize()));
+            }
+        } catch (SQLException e) {
+            logger.debug("Could not inspect connection pool: {}", e.getMessage());
+        }
+        List<Connection> connections = new ArrayList<>();
+        try {
+            for (int i = 0; i < count; i++) {
+                connections.add(dataSource.getConnection());
+            }
+        } catch (SQLException e) {
+            logger.warn("Could not pre-open database connections: {}", e.getMessage());
+        } finally {
+            for (Connection connection : connections) {
+                try {
+                    connection.close();
+                } catch (SQLException ignored) {
+                    // returned to the pool
+                }
+            }
+        }
+    }
+}
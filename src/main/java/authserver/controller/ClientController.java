@@ -2,7 +2,11 @@ package authserver.controller;
 
 import authserver.dto.CreateClientRequest;
 import authserver.dto.CreateClientResponse;
+import authserver.dto.UpdateClientAudiencesRequest;
+import authserver.security.TokenReuseAuthenticationProvider;
+import authserver.service.ClientPurgeService;
 import authserver.service.ClientService;
+import authserver.service.TokenBatchService;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
@@ -22,9 +26,11 @@ public class ClientController {
     private static final Logger logger = LoggerFactory.getLogger(ClientController.class);
 
     private final ClientService clientService;
+    private final ClientPurgeService clientPurgeService;
 
-    public ClientController(ClientService clientService) {
+    public ClientController(ClientService clientService, ClientPurgeService clientPurgeService) {
         this.clientService = clientService;
+        this.clientPurgeService = clientPurgeService;
     }
 
     @PostMapping
@@ -33,7 +39,8 @@ public class ClientController {
         
         ClientService.CreatedClient created = clientService.createClient(
                 req.getClientId(), req.getClientSecret(), req.getClientName(),
-                req.getScopes(), req.getAccessTokenTimeToLiveSeconds()
+                req.getScopes(), req.getAccessTokenTimeToLiveSeconds(), req.getAccessTokenFormat(),
+                req.getReuseAccessToken(), req.getTokenEndpointAuthMethod(), req.getJwks()
         );
         
         CreateClientResponse resp = new CreateClientResponse();
@@ -42,6 +49,9 @@ public class ClientController {
         resp.setClientName(created.getRegisteredClient().getClientName());
         resp.setScopes(created.getRegisteredClient().getScopes());
         resp.setAccessTokenTimeToLiveSeconds(req.getAccessTokenTimeToLiveSeconds());
+        resp.setAccessTokenFormat(created.getRegisteredClient().getTokenSettings().getAccessTokenFormat().getValue());
+        resp.setReuseAccessToken(created.getRegisteredClient().getTokenSettings().getSetting(TokenReuseAuthenticationProvider.REUSE_ACCESS_TOKEN_SETTING));
+        resp.setTokenEndpointAuthMethod(created.getRegisteredClient().getClientAuthenticationMethods().iterator().next().getValue());
         
         logger.info("Successfully created client with ID: {}", resp.getClientId());
         return ResponseEntity.status(HttpStatus.CREATED).body(resp);
@@ -66,13 +76,36 @@ public class ClientController {
                 "clientId", rc.getClientId(),
                 "clientName", rc.getClientName(),
                 "scopes", rc.getScopes(),
+                "accessTokenFormat", rc.getTokenSettings().getAccessTokenFormat().getValue(),
                 "clientIdIssuedAt", rc.getClientIdIssuedAt()
         ));
     }
 
+    @PutMapping("/{clientId}/admin/audiences")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> setAudiences(
+            @PathVariable
+            @Pattern(regexp = "^[a-zA-Z0-9_-]+$", message = "Invalid client ID format")
+            @Size(min = 3, max = 100, message = "Client ID must be between 3 and 100 characters")
+            String clientId,
+            @Valid @RequestBody UpdateClientAudiencesRequest req) {
+        
+        logger.info("Admin request to set the allowed audiences of client {}", clientId);
+        
+        var rc = clientService.setAllowedAudiences(clientId, req.getAudiences());
+        if (rc == null) {
+            logger.warn("Client not found with ID: {}", clientId);
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(Map.of(
+                "clientId", rc.getClientId(),
+                "audiences", TokenBatchService.allowedAudiences(rc)
+        ));
+    }
+
     @DeleteMapping("/{clientId}/admin")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Void> delete(
+    public ResponseEntity<ClientPurgeService.PurgeStatus> delete(
             @PathVariable
             @Pattern(regexp = "^[a-zA-Z0-9_-]+$", message = "Invalid client ID format")
             @Size(min = 3, max = 100, message = "Client ID must be between 3 and 100 characters")
@@ -80,9 +113,13 @@ public class ClientController {
         
         logger.info("Admin request to delete client with ID: {}", clientId);
         
-        clientService.deleteByClientId(clientId);
+        if (!clientService.deleteByClientId(clientId)) {
+            logger.warn("Client not found with ID: {}", clientId);
+            return ResponseEntity.notFound().build();
+        }
         
+        // authorizations are purged in the background, progress at /api/admin/client-purges/{clientId}
         logger.info("Successfully deleted client with ID: {}", clientId);
-        return ResponseEntity.noContent().build();
+        return ResponseEntity.accepted().body(clientPurgeService.findLatest(clientId));
     }
 }
@@ -0,0 +1,46 @@
+package authserver.controller;
+
+import authserver.service.ClientPurgeService;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/client-purges")
+public class ClientPurgeController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClientPurgeController.class);
+
+    private final ClientPurgeService clientPurgeService;
+
+    public ClientPurgeController(ClientPurgeService clientPurgeService) {
+        this.clientPurgeService = clientPurgeService;
+    }
+
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<ClientPurgeService.PurgeStatus>> list(
+            @RequestParam(defaultValue = "50")
+            @Min(value = 1, message = "Limit must be at least 1")
+            @Max(value = 500, message = "Limit cannot exceed 500")
+            int limit) {
+        logger.debug("Admin request to list client purges");
+        return ResponseEntity.ok(clientPurgeService.findRecent(limit));
+    }
+
+    @GetMapping("/{clientId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ClientPurgeService.PurgeStatus> get(@PathVariable String clientId) {
+        ClientPurgeService.PurgeStatus status = clientPurgeService.findLatest(clientId);
+        if (status == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(status);
+    }
+}
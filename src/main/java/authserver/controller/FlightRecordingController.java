@@ -0,0 +1,79 @@
+package authserver.controller;
+
+import authserver.profiling.FlightRecorderService;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/jfr")
+public class FlightRecordingController {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecordingController.class);
+
+    private final FlightRecorderService flightRecorderService;
+
+    public FlightRecordingController(FlightRecorderService flightRecorderService) {
+        this.flightRecorderService = flightRecorderService;
+    }
+
+    @PostMapping("/start")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> start(
+            @RequestParam(defaultValue = "60")
+            @Min(value = 1, message = "Duration must be at least 1 second")
+            long durationSeconds,
+            @RequestParam(defaultValue = "profile")
+            @Pattern(regexp = "^(default|profile)$", message = "Settings must be 'default' or 'profile'")
+            String settings) throws IOException, ParseException {
+        logger.info("Admin request to start a flight recording ({}s, {})", durationSeconds, settings);
+        try {
+            return ResponseEntity.ok(flightRecorderService.start(Duration.ofSeconds(durationSeconds), settings));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<FlightRecorderService.RecordingStatus> status() {
+        return ResponseEntity.ok(flightRecorderService.status());
+    }
+
+    @PostMapping("/stop")
+    @PreAuthorize("hasRole('ADMIN')")
+    public void stop(HttpServletResponse response) throws IOException {
+        Path file;
+        try {
+            file = flightRecorderService.stop();
+        } catch (IllegalStateException e) {
+            response.setStatus(HttpServletResponse.SC_CONFLICT);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"error\":\"" + e.getMessage() + "\"}");
+            return;
+        }
+        try {
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setContentLengthLong(Files.size(file));
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFileName() + "\"");
+            Files.copy(file, response.getOutputStream());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package authserver.controller;
+
+import authserver.security.HeavyHitterTracker;
+import authserver.security.HeavyHitters;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/heavy-hitters")
+@ConditionalOnProperty(prefix = "app.heavy-hitters", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class HeavyHitterController {
+
+    private static final Logger logger = LoggerFactory.getLogger(HeavyHitterController.class);
+
+    private final HeavyHitters heavyHitters;
+
+    public HeavyHitterController(HeavyHitters heavyHitters) {
+        this.heavyHitters = heavyHitters;
+    }
+
+    /**
+     * The busiest client ids and source IPs of the current window, with estimated request counts.
+     */
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> get(
+            @RequestParam(defaultValue = "10")
+            @Min(value = 1, message = "Limit must be at least 1")
+            @Max(value = 1000, message = "Limit cannot exceed 1000")
+            int limit) {
+        logger.debug("Admin request for heavy hitters");
+        return ResponseEntity.ok(Map.of(
+                "windowSeconds", heavyHitters.getClients().getWindowMillis() / 1000,
+                "clients", dimension(heavyHitters.getClients(), limit),
+                "sourceIps", dimension(heavyHitters.getSourceIps(), limit)));
+    }
+
+    private static Map<String, Object> dimension(HeavyHitterTracker tracker, int limit) {
+        return Map.of(
+                "total", tracker.total(),
+                "top", tracker.top(limit));
+    }
+}
@@ -0,0 +1,63 @@
+package authserver.controller;
+
+import authserver.dto.CreateJwksSubscriptionRequest;
+import authserver.service.JwksSubscriptionService;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/jwks-subscriptions")
+public class JwksSubscriptionController {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwksSubscriptionController.class);
+
+    private final JwksSubscriptionService jwksSubscriptionService;
+
+    public JwksSubscriptionController(JwksSubscriptionService jwksSubscriptionService) {
+        this.jwksSubscriptionService = jwksSubscriptionService;
+    }
+
+    /**
+     * Subscribes a webhook to key changes. The response carries the signing secret, which is not shown again.
+     */
+    @PostMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> subscribe(@Valid @RequestBody CreateJwksSubscriptionRequest request) {
+        JwksSubscriptionService.Subscription subscription = jwksSubscriptionService.subscribe(request.getUrl());
+        logger.info("Subscribed {} to JWKS changes of tenant {}", subscription.url(), subscription.tenantId());
+        return ResponseEntity.status(HttpStatus.CREATED).body(Map.of(
+                "id", subscription.id(),
+                "url", subscription.url(),
+                "secret", subscription.secret(),
+                "createdAt", subscription.createdAt()));
+    }
+
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<Map<String, Object>>> list() {
+        return ResponseEntity.ok(jwksSubscriptionService.findAll().stream()
+                .map(s -> Map.<String, Object>of(
+                        "id", s.id(),
+                        "url", s.url(),
+                        "createdAt", s.createdAt()))
+                .toList());
+    }
+
+    @DeleteMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> unsubscribe(@PathVariable String id) {
+        if (!jwksSubscriptionService.unsubscribe(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        logger.info("Removed JWKS subscription {}", id);
+        return ResponseEntity.noContent().build();
+    }
+}
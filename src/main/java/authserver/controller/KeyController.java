@@ -4,6 +4,7 @@ import authserver.config.AuthServerProperties;
 import authserver.entity.JwkKey;
 import authserver.repo.JwkKeyRepository;
 import authserver.service.JwkKeyService;
+import authserver.tenant.TenantContext;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import org.slf4j.Logger;
@@ -45,7 +46,7 @@ public class KeyController {
         
         try {
             int finalKeySize = keySize != null ? keySize : authServerProperties.getOauth().getDefaultKeySize();
-            JwkKey newKey = jwkKeyService.generateAndSaveRsaKey(finalKeySize);
+            JwkKey newKey = jwkKeyService.generateAndSaveRsaKey(TenantContext.current(), finalKeySize);
             
             Map<String, Object> response = Map.of(
                     "kid", newKey.getKid(),
@@ -67,7 +68,7 @@ public class KeyController {
     public ResponseEntity<List<Map<String, Object>>> list() {
         logger.debug("Admin request to list all JWK keys");
         
-        List<Map<String, Object>> keys = jwkKeyRepository.findAll().stream()
+        List<Map<String, Object>> keys = jwkKeyRepository.findAllByTenantId(TenantContext.current()).stream()
                 .map(k -> Map.<String, Object>of(
                         "kid", k.getKid(),
                         "publicKeyPem", k.getPublicKeyPem(),
@@ -85,7 +86,7 @@ public class KeyController {
         logger.debug("Request for active JWK key");
         
         try {
-            JwkKey activeKey = jwkKeyRepository.findFirstByIsActiveTrue()
+            JwkKey activeKey = jwkKeyRepository.findFirstByTenantIdAndIsActiveTrue(TenantContext.current())
                     .orElseThrow(() -> new RuntimeException("No active JWK key found"));
             
             Map<String, Object> response = Map.of(
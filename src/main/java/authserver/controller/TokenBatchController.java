@@ -0,0 +1,72 @@
+package authserver.controller;
+
+import authserver.dto.TokenBatchRequest;
+import authserver.service.TokenBatchService;
+import authserver.tenant.TenantRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+
+/**
+ * Several client_credentials tokens for one client authentication ({@code client_secret_basic}). The response
+ * is NDJSON, one line per requested token in request order, written as the tokens are minted.
+ */
+@RestController
+@RequestMapping(TenantRegistry.TOKEN_BATCH_ENDPOINT)
+public class TokenBatchController {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenBatchController.class);
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final TokenBatchService tokenBatchService;
+    private final TenantRegistry tenantRegistry;
+
+    public TokenBatchController(TokenBatchService tokenBatchService, TenantRegistry tenantRegistry) {
+        this.tokenBatchService = tokenBatchService;
+        this.tenantRegistry = tenantRegistry;
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public void mint(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                     @Valid @RequestBody TokenBatchRequest req,
+                     HttpServletRequest request, HttpServletResponse response) throws IOException {
+        RegisteredClient client = tokenBatchService.authenticate(authorization);
+        if (client == null) {
+            response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Basic");
+            writeError(response, HttpServletResponse.SC_UNAUTHORIZED, OAuth2ErrorCodes.INVALID_CLIENT);
+            return;
+        }
+        if (!client.getAuthorizationGrantTypes().contains(AuthorizationGrantType.CLIENT_CREDENTIALS)) {
+            writeError(response, HttpServletResponse.SC_BAD_REQUEST, OAuth2ErrorCodes.UNAUTHORIZED_CLIENT);
+            return;
+        }
+        logger.debug("Client {} requested a batch of {} tokens", client.getClientId(), req.getTokens().size());
+
+        // the issuer the token endpoint of this tenant would put into the tokens
+        String issuer = ServletUriComponentsBuilder.fromContextPath(request)
+                .path(tenantRegistry.current().pathPrefix())
+                .build()
+                .toUriString();
+        response.setContentType(NDJSON);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+        tokenBatchService.mint(client, issuer, req.getTokens(), response.getOutputStream());
+    }
+
+    private static void writeError(HttpServletResponse response, int status, String error) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"" + error + "\"}");
+    }
+}
@@ -0,0 +1,115 @@
+package authserver.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Circuit breaker for the persistence calls of the token pipeline. It opens after {@code failureThreshold}
+ * consecutive calls failed because the database was unavailable or took longer than the slow call threshold,
+ * and after {@code openSeconds} lets a single probe call through, whose outcome closes or re-opens it.
+ * Callers report every call they were allowed to make, so a probe is never left pending.
+ */
+public class DatabaseCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseCircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final long slowCallNanos;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+
+    public DatabaseCircuitBreaker(int failureThreshold, long openSeconds, long slowCallThresholdMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.SECONDS.toNanos(openSeconds);
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallThresholdMillis);
+    }
+
+    /**
+     * Whether a call may go to the database. Once the open interval has passed, the first caller gets the
+     * half-open probe and everyone else is refused until it is reported.
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.OPEN && System.nanoTime() - openedAtNanos >= openNanos) {
+            state = State.HALF_OPEN;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reports a call that reached the database, including one that failed for a reason other than availability.
+     */
+    public synchronized void recordSuccess(long latencyNanos) {
+        if (latencyNanos > slowCallNanos) {
+            recordFailure();
+            return;
+        }
+        if (state != State.CLOSED) {
+            logger.info("Database circuit closed");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            if (state == State.CLOSED) {
+                logger.warn("Database circuit opened after {} consecutive failed or slow calls", consecutiveFailures);
+            }
+            state = State.OPEN;
+            openedAtNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Reports the outcome of an allowed call that threw {@code e}.
+     */
+    public void record(RuntimeException e, long latencyNanos) {
+        if (isUnavailable(e)) {
+            recordFailure();
+        } else {
+            recordSuccess(latencyNanos);
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Whether {@code e} means the database could not be reached or did not answer in time, as opposed to a
+     * problem with the statement or the data.
+     */
+    public static boolean isUnavailable(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof DataAccessResourceFailureException
+                    || t instanceof TransientDataAccessException
+                    || t instanceof RecoverableDataAccessException
+                    || t instanceof CannotCreateTransactionException
+                    || t instanceof SQLTransientException
+                    || t instanceof SQLRecoverableException
+                    || t instanceof SQLNonTransientConnectionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
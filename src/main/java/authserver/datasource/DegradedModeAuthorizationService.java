@@ -0,0 +1,159 @@
+package authserver.datasource;
+
+import authserver.embedded.AuthorizationSpool;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+
+import java.util.function.Supplier;
+
+/**
+ * Spools authorization writes to a local {@link AuthorizationSpool} while the {@link DatabaseCircuitBreaker} is open
+ * or the database is unavailable, so tokens keep being issued through a brownout, and replays them once the
+ * breaker lets calls through again. Writes for an authorization that is still spooled are spooled behind it to
+ * keep their order. Lookups see spooled authorizations first. When the spool is full, writes fail as they would
+ * without it.
+ */
+public class DegradedModeAuthorizationService implements OAuth2AuthorizationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DegradedModeAuthorizationService.class);
+
+    private final OAuth2AuthorizationService delegate;
+    private final DatabaseCircuitBreaker breaker;
+    private final AuthorizationSpool spool;
+    private final Counter spooled;
+    private final Counter replayed;
+    private final Counter rejected;
+
+    public DegradedModeAuthorizationService(OAuth2AuthorizationService delegate, DatabaseCircuitBreaker breaker,
+                                            AuthorizationSpool spool, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.breaker = breaker;
+        this.spool = spool;
+        this.spooled = Counter.builder("authserver.degraded.authorization.writes")
+                .tag("outcome", "spooled")
+                .description("Authorization writes journaled locally while the database was unavailable")
+                .register(meterRegistry);
+        this.replayed = Counter.builder("authserver.degraded.authorization.writes")
+                .tag("outcome", "replayed")
+                .description("Spooled authorization writes replayed to the database")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("authserver.degraded.authorization.writes")
+                .tag("outcome", "rejected")
+                .description("Authorization writes that failed because the database was unavailable and the spool was full")
+                .register(meterRegistry);
+        Gauge.builder("authserver.degraded.authorization.spool.pending", spool, AuthorizationSpool::size)
+                .description("Spooled authorization writes not yet replayed")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void save(OAuth2Authorization authorization) {
+        write(authorization, false);
+    }
+
+    @Override
+    public void remove(OAuth2Authorization authorization) {
+        write(authorization, true);
+    }
+
+    @Override
+    public OAuth2Authorization findById(String id) {
+        AuthorizationSpool.Entry entry = spool.get(id);
+        if (entry != null) {
+            return entry.removed() ? null : entry.authorization();
+        }
+        return read(() -> delegate.findById(id));
+    }
+
+    @Override
+    public OAuth2Authorization findByToken(String token, OAuth2TokenType tokenType) {
+        OAuth2Authorization authorization = spool.findByToken(token, tokenType);
+        return authorization != null ? authorization : read(() -> delegate.findByToken(token, tokenType));
+    }
+
+    /**
+     * Replays spooled writes while the breaker lets calls through; run periodically.
+     */
+    public void replayPending() {
+        if (spool.size() == 0 || !breaker.allowRequest()) {
+            return;
+        }
+        long start = System.nanoTime();
+        int count = 0;
+        try {
+            count = spool.replay(new AuthorizationSpool.Target() {
+                @Override
+                public void save(OAuth2Authorization authorization) {
+                    delegate.save(authorization);
+                    replayed.increment();
+                }
+
+                @Override
+                public void remove(OAuth2Authorization authorization) {
+                    delegate.remove(authorization);
+                    replayed.increment();
+                }
+            });
+            breaker.recordSuccess(0);
+        } catch (RuntimeException e) {
+            breaker.record(e, System.nanoTime() - start);
+            logger.warn("Replay of spooled authorizations stopped, {} left: {}", spool.size(), e.getMessage());
+            return;
+        }
+        logger.info("Replayed {} spooled authorization writes", count);
+    }
+
+    private void write(OAuth2Authorization authorization, boolean remove) {
+        if (!spool.contains(authorization.getId()) && breaker.allowRequest()) {
+            long start = System.nanoTime();
+            try {
+                if (remove) {
+                    delegate.remove(authorization);
+                } else {
+                    delegate.save(authorization);
+                }
+                breaker.recordSuccess(System.nanoTime() - start);
+                return;
+            } catch (RuntimeException e) {
+                breaker.record(e, System.nanoTime() - start);
+                if (!DatabaseCircuitBreaker.isUnavailable(e)) {
+                    throw e;
+                }
+                spool(authorization, remove, e);
+                return;
+            }
+        }
+        spool(authorization, remove, null);
+    }
+
+    private void spool(OAuth2Authorization authorization, boolean remove, RuntimeException cause) {
+        boolean accepted = remove ? spool.remove(authorization) : spool.save(authorization);
+        if (!accepted) {
+            rejected.increment();
+            throw new DataAccessResourceFailureException("Database unavailable and authorization spool full", cause);
+        }
+        spooled.increment();
+    }
+
+    private OAuth2Authorization read(Supplier<OAuth2Authorization> lookup) {
+        if (!breaker.allowRequest()) {
+            throw new DataAccessResourceFailureException("Database circuit is open");
+        }
+        long start = System.nanoTime();
+        try {
+            OAuth2Authorization authorization = lookup.get();
+            breaker.recordSuccess(System.nanoTime() - start);
+            return authorization;
+        } catch (RuntimeException e) {
+            breaker.record(e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package authserver.datasource;
+
+import authserver.repo.RemovableRegisteredClientRepository;
+import authserver.tenant.TenantContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Keeps a snapshot of recently looked up clients and serves lookups from it while the {@link DatabaseCircuitBreaker}
+ * is open or the database is unavailable. Snapshot entries are refreshed by every successful lookup and are not
+ * served once older than {@code maxStaleness}, so a disabled or rotated client is at most that stale. Clients
+ * not in the snapshot cannot be authenticated during an outage; their lookup fails rather than returning null,
+ * which would look like an unknown client.
+ */
+public class DegradedModeRegisteredClientRepository implements RemovableRegisteredClientRepository {
+
+    private final RemovableRegisteredClientRepository delegate;
+    private final DatabaseCircuitBreaker breaker;
+    private final long maxStalenessNanos;
+    private final int maxEntries;
+    private final Map<String, Snapshot> byClientId = new ConcurrentHashMap<>();
+    private final Map<String, Snapshot> byId = new ConcurrentHashMap<>();
+    private final Counter snapshotHits;
+    private final Counter snapshotMisses;
+
+    public DegradedModeRegisteredClientRepository(RemovableRegisteredClientRepository delegate, DatabaseCircuitBreaker breaker,
+                                                  Duration maxStaleness, int maxEntries, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.breaker = breaker;
+        this.maxStalenessNanos = maxStaleness.toNanos();
+        this.maxEntries = maxEntries;
+        this.snapshotHits = Counter.builder("authserver.degraded.client.lookups")
+                .tag("outcome", "snapshot")
+                .description("Client lookups served from the local snapshot while the database was unavailable")
+                .register(meterRegistry);
+        this.snapshotMisses = Counter.builder("authserver.degraded.client.lookups")
+                .tag("outcome", "unavailable")
+                .description("Client lookups that failed because the database was unavailable and the client was not in the snapshot")
+                .register(meterRegistry);
+        Gauge.builder("authserver.degraded.client.snapshot.size", byClientId, Map::size)
+                .description("Clients in the local snapshot")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void save(RegisteredClient registeredClient) {
+        delegate.save(registeredClient);
+        put(registeredClient);
+    }
+
+    @Override
+    public void removeById(String id) {
+        delegate.removeById(id);
+        Snapshot removed = byId.remove(key(id));
+        if (removed != null) {
+            byClientId.remove(key(removed.client().getClientId()));
+        }
+    }
+
+    @Override
+    public RegisteredClient findById(String id) {
+        return find(byId, id, delegate::findById);
+    }
+
+    @Override
+    public RegisteredClient findByClientId(String clientId) {
+        return find(byClientId, clientId, delegate::findByClientId);
+    }
+
+    private RegisteredClient find(Map<String, Snapshot> snapshot, String value, Function<String, RegisteredClient> lookup) {
+        if (breaker.allowRequest()) {
+            long start = System.nanoTime();
+            RegisteredClient client;
+            try {
+                client = lookup.apply(value);
+            } catch (RuntimeException e) {
+                breaker.record(e, System.nanoTime() - start);
+                if (!DatabaseCircuitBreaker.isUnavailable(e)) {
+                    throw e;
+                }
+                return fromSnapshot(snapshot, value, e);
+            }
+            breaker.recordSuccess(System.nanoTime() - start);
+            if (client != null) {
+                put(client);
+            } else {
+                snapshot.remove(key(value));
+            }
+            return client;
+        }
+        return fromSnapshot(snapshot, value, null);
+    }
+
+    private RegisteredClient fromSnapshot(Map<String, Snapshot> snapshot, String value, RuntimeException cause) {
+        Snapshot entry = snapshot.get(key(value));
+        if (entry != null && System.nanoTime() - entry.takenAtNanos() <= maxStalenessNanos) {
+            snapshotHits.increment();
+            return entry.client();
+        }
+        snapshotMisses.increment();
+        throw new DataAccessResourceFailureException("Database unavailable and client not in the local snapshot", cause);
+    }
+
+    private void put(RegisteredClient client) {
+        long now = System.nanoTime();
+        if (byClientId.size() >= maxEntries && !byClientId.containsKey(key(client.getClientId()))) {
+            byClientId.values().removeIf(entry -> now - entry.takenAtNanos() > maxStalenessNanos);
+            byId.values().removeIf(entry -> now - entry.takenAtNanos() > maxStalenessNanos);
+            if (byClientId.size() >= maxEntries) {
+                return;
+            }
+        }
+        Snapshot entry = new Snapshot(client, now);
+        byClientId.put(key(client.getClientId()), entry);
+        byId.put(key(client.getId()), entry);
+    }
+
+    // client ids are only unique within a tenant
+    private static String key(String value) {
+        return TenantContext.current() + '|' + value;
+    }
+
+    private record Snapshot(RegisteredClient client, long takenAtNanos) {
+    }
+}
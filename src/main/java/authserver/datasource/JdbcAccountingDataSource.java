@@ -0,0 +1,139 @@
+package authserver.datasource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Counts statement executions, rows and JDBC time into the thread's {@link JdbcStats}. Threads without
+ * active stats (background jobs, startup) pass straight through apart from the proxy call itself.
+ */
+public class JdbcAccountingDataSource extends DelegatingDataSource {
+
+    public JdbcAccountingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxyConnection(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxyConnection(super.getConnection(username, password));
+    }
+
+    private static Connection proxyConnection(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(JdbcAccountingDataSource.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, new ConnectionHandler(connection));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private record ConnectionHandler(Connection target) implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> {
+                }
+            }
+            Object result = JdbcAccountingDataSource.invoke(target, method, args);
+            if (result instanceof Statement statement) {
+                Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                        : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+                return Proxy.newProxyInstance(JdbcAccountingDataSource.class.getClassLoader(),
+                        new Class<?>[] {type}, new StatementHandler(statement, (Connection) proxy));
+            }
+            return result;
+        }
+    }
+
+    private record StatementHandler(Statement target, Connection connection) implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("getConnection")) {
+                return connection;
+            }
+            JdbcStats stats = JdbcStats.current();
+            if (stats == null || !name.startsWith("execute")) {
+                Object result = JdbcAccountingDataSource.invoke(target, method, args);
+                return stats != null && result instanceof ResultSet resultSet ? proxyResultSet(resultSet, stats) : result;
+            }
+
+            long start = System.nanoTime();
+            Object result = JdbcAccountingDataSource.invoke(target, method, args);
+            long elapsed = System.nanoTime() - start;
+            switch (name) {
+                case "executeQuery" -> {
+                    stats.recordRead(elapsed);
+                    return proxyResultSet((ResultSet) result, stats);
+                }
+                case "executeUpdate", "executeLargeUpdate" -> stats.recordWrite(elapsed, ((Number) result).longValue());
+                case "executeBatch" -> stats.recordWrite(elapsed, sum((int[]) result));
+                case "executeLargeBatch" -> stats.recordWrite(elapsed, sum((long[]) result));
+                default -> {
+                    // execute(): true means a result set was produced
+                    if (Boolean.TRUE.equals(result)) {
+                        stats.recordRead(elapsed);
+                    } else {
+                        stats.recordWrite(elapsed, target.getUpdateCount());
+                    }
+                }
+            }
+            return result;
+        }
+
+        private static ResultSet proxyResultSet(ResultSet resultSet, JdbcStats stats) {
+            return (ResultSet) Proxy.newProxyInstance(JdbcAccountingDataSource.class.getClassLoader(),
+                    new Class<?>[] {ResultSet.class}, (proxy, method, args) -> {
+                        Object result = JdbcAccountingDataSource.invoke(resultSet, method, args);
+                        if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                            stats.recordRow();
+                        }
+                        return result;
+                    });
+        }
+
+        private static long sum(int[] counts) {
+            long total = 0;
+            for (int count : counts) {
+                total += Math.max(0, count);
+            }
+            return total;
+        }
+
+        private static long sum(long[] counts) {
+            long total = 0;
+            for (long count : counts) {
+                total += Math.max(0, count);
+            }
+            return total;
+        }
+    }
+}
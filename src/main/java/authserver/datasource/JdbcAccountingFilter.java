@@ -0,0 +1,106 @@
+package authserver.datasource;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accounts the JDBC work of each HTTP request and publishes it per endpoint. With the response header
+ * enabled (meant for development) the body is buffered so {@code X-Jdbc-Stats} can be set after the fact.
+ */
+public class JdbcAccountingFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-Jdbc-Stats";
+
+    private static final Map<String, String> ENDPOINTS = Map.ofEntries(
+            Map.entry("/oauth2/authorize", "authorize"),
+            Map.entry("/oauth2/device_authorization", "device_authorization"),
+            Map.entry("/oauth2/device_verification", "device_verification"),
+            Map.entry("/oauth2/token", "token"),
+            Map.entry("/oauth2/introspect", "introspect"),
+            Map.entry("/oauth2/revoke", "revoke"),
+            Map.entry("/oauth2/jwks", "jwks"),
+            Map.entry("/connect/register", "client_registration"),
+            Map.entry("/connect/logout", "logout"),
+            Map.entry("/userinfo", "userinfo"),
+            Map.entry("/.well-known/oauth-authorization-server", "authorization_server_metadata"),
+            Map.entry("/.well-known/openid-configuration", "openid_configuration"));
+
+    private final MeterRegistry meterRegistry;
+    private final boolean responseHeader;
+
+    public JdbcAccountingFilter(MeterRegistry meterRegistry, boolean responseHeader) {
+        this.meterRegistry = meterRegistry;
+        this.responseHeader = responseHeader;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        ContentCachingResponseWrapper buffered = responseHeader ? new ContentCachingResponseWrapper(response) : null;
+        JdbcStats stats = JdbcStats.begin();
+        try {
+            filterChain.doFilter(request, buffered != null ? buffered : response);
+        } finally {
+            JdbcStats.end();
+            record(endpoint(request), stats);
+            if (buffered != null) {
+                buffered.setHeader(HEADER, stats.toHeaderValue());
+                buffered.copyBodyToResponse();
+            }
+        }
+    }
+
+    private void record(String endpoint, JdbcStats stats) {
+        DistributionSummary.builder("authserver.jdbc.statements")
+                .description("JDBC statements executed per request")
+                .tag("endpoint", endpoint)
+                .tag("kind", "read")
+                .register(meterRegistry)
+                .record(stats.getReads());
+        DistributionSummary.builder("authserver.jdbc.statements")
+                .description("JDBC statements executed per request")
+                .tag("endpoint", endpoint)
+                .tag("kind", "write")
+                .register(meterRegistry)
+                .record(stats.getWrites());
+        DistributionSummary.builder("authserver.jdbc.rows")
+                .description("Rows read or updated per request")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry)
+                .record(stats.getRows());
+        Timer.builder("authserver.jdbc.time")
+                .description("Time spent executing JDBC statements per request")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry)
+                .record(stats.getNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    // MVC handlers expose their mapping pattern; the authorization server endpoints are named, since their paths
+    // carry the tenant's issuer prefix
+    private static String endpoint(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern != null) {
+            return request.getMethod() + " " + pattern;
+        }
+        String uri = request.getRequestURI();
+        for (Map.Entry<String, String> endpoint : ENDPOINTS.entrySet()) {
+            if (uri.endsWith(endpoint.getKey())) {
+                return request.getMethod() + " " + endpoint.getValue();
+            }
+        }
+        return request.getMethod() + " other";
+    }
+}
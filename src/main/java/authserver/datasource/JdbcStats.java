@@ -0,0 +1,70 @@
+package authserver.datasource;
+
+/**
+ * JDBC round-trips made by the current thread while a request is being accounted. A statement
+ * execution is one round-trip; rows are rows read from result sets plus rows reported as updated.
+ */
+public final class JdbcStats {
+
+    private static final ThreadLocal<JdbcStats> CURRENT = new ThreadLocal<>();
+
+    private int reads;
+    private int writes;
+    private long rows;
+    private long nanos;
+
+    public static JdbcStats begin() {
+        JdbcStats stats = new JdbcStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    static JdbcStats current() {
+        return CURRENT.get();
+    }
+
+    void recordRead(long elapsedNanos) {
+        reads++;
+        nanos += elapsedNanos;
+    }
+
+    void recordWrite(long elapsedNanos, long updatedRows) {
+        writes++;
+        nanos += elapsedNanos;
+        rows += Math.max(0, updatedRows);
+    }
+
+    void recordRow() {
+        rows++;
+    }
+
+    public int getReads() {
+        return reads;
+    }
+
+    public int getWrites() {
+        return writes;
+    }
+
+    public int getStatements() {
+        return reads + writes;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    /** Value of the {@code X-Jdbc-Stats} response header. */
+    public String toHeaderValue() {
+        return "statements=" + getStatements() + ";reads=" + reads + ";writes=" + writes + ";rows=" + rows
+                + ";time-us=" + nanos / 1000;
+    }
+}
@@ -0,0 +1,31 @@
+package authserver.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Marks lookups that may be served by the read replica even though they do not run inside a
+ * {@code @Transactional(readOnly = true)} method.
+ */
+public final class ReadOnlyRouting {
+
+    private static final ThreadLocal<Boolean> READ_ONLY = new ThreadLocal<>();
+
+    private ReadOnlyRouting() {
+    }
+
+    public static boolean isActive() {
+        return Boolean.TRUE.equals(READ_ONLY.get());
+    }
+
+    public static <T> T call(Supplier<T> lookup) {
+        if (isActive()) {
+            return lookup.get();
+        }
+        READ_ONLY.set(Boolean.TRUE);
+        try {
+            return lookup.get();
+        } finally {
+            READ_ONLY.remove();
+        }
+    }
+}
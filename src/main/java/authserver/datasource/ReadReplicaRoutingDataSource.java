@@ -0,0 +1,43 @@
+package authserver.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Sends read-only work to the replica while it is within the lag threshold, everything else to the primary.
+ * {@link ReadOnlyRouting} only applies outside transactions; a read-write transaction always uses the primary.
+ * Must be wrapped in a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} so the
+ * transaction's read-only flag is known before a physical connection is chosen.
+ */
+public class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target {
+        PRIMARY,
+        REPLICA
+    }
+
+    private final ReplicaLagMonitor lagMonitor;
+
+    public ReadReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor lagMonitor) {
+        this.lagMonitor = lagMonitor;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        boolean readOnly;
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            // the first statement pins the connection for the whole transaction, so a lookup at the start of a
+            // read-write transaction must not send its writes to the replica
+            readOnly = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        } else {
+            readOnly = ReadOnlyRouting.isActive();
+        }
+        return readOnly && lagMonitor.isReplicaUsable() ? Target.REPLICA : Target.PRIMARY;
+    }
+}
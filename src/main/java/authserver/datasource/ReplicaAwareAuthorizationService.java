@@ -0,0 +1,40 @@
+package authserver.datasource;
+
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+
+/**
+ * Serves authorization lookups (e.g. introspection) from the read replica, retrying on the
+ * primary when the replica has not yet seen a freshly issued token.
+ */
+public class ReplicaAwareAuthorizationService implements OAuth2AuthorizationService {
+
+    private final OAuth2AuthorizationService delegate;
+
+    public ReplicaAwareAuthorizationService(OAuth2AuthorizationService delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void save(OAuth2Authorization authorization) {
+        delegate.save(authorization);
+    }
+
+    @Override
+    public void remove(OAuth2Authorization authorization) {
+        delegate.remove(authorization);
+    }
+
+    @Override
+    public OAuth2Authorization findById(String id) {
+        OAuth2Authorization authorization = ReadOnlyRouting.call(() -> delegate.findById(id));
+        return authorization != null ? authorization : delegate.findById(id);
+    }
+
+    @Override
+    public OAuth2Authorization findByToken(String token, OAuth2TokenType tokenType) {
+        OAuth2Authorization authorization = ReadOnlyRouting.call(() -> delegate.findByToken(token, tokenType));
+        return authorization != null ? authorization : delegate.findByToken(token, tokenType);
+    }
+}
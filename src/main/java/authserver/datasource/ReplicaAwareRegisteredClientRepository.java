@@ -0,0 +1,39 @@
+package authserver.datasource;
+
+import authserver.repo.RemovableRegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+
+/**
+ * Serves client lookups from the read replica, retrying on the primary when the replica
+ * has not yet seen a recently registered client.
+ */
+public class ReplicaAwareRegisteredClientRepository implements RemovableRegisteredClientRepository {
+
+    private final RemovableRegisteredClientRepository delegate;
+
+    public ReplicaAwareRegisteredClientRepository(RemovableRegisteredClientRepository delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void save(RegisteredClient registeredClient) {
+        delegate.save(registeredClient);
+    }
+
+    @Override
+    public void removeById(String id) {
+        delegate.removeById(id);
+    }
+
+    @Override
+    public RegisteredClient findById(String id) {
+        RegisteredClient client = ReadOnlyRouting.call(() -> delegate.findById(id));
+        return client != null ? client : delegate.findById(id);
+    }
+
+    @Override
+    public RegisteredClient findByClientId(String clientId) {
+        RegisteredClient client = ReadOnlyRouting.call(() -> delegate.findByClientId(clientId));
+        return client != null ? client : delegate.findByClientId(clientId);
+    }
+}
@@ -0,0 +1,88 @@
+package authserver.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures replica lag by writing a heartbeat timestamp to the primary and reading it back from the replica.
+ */
+public class ReplicaLagMonitor implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final long maxLagMillis;
+    private final long intervalMillis;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile long lagMillis = Long.MAX_VALUE;
+    private volatile boolean usable;
+
+    public ReplicaLagMonitor(DataSource primary, DataSource replica, Duration maxLag, Duration interval) {
+        this.primary = new JdbcTemplate(primary);
+        this.replica = new JdbcTemplate(replica);
+        this.maxLagMillis = maxLag.toMillis();
+        this.intervalMillis = interval.toMillis();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "replica-lag-monitor");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::check, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isReplicaUsable() {
+        return usable;
+    }
+
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    void check() {
+        try {
+            primary.update("UPDATE replica_heartbeat SET beat_at = GREATEST(beat_at, ?) WHERE id = 1",
+                    System.currentTimeMillis());
+        } catch (DataAccessException e) {
+            logger.debug("Failed to write replica heartbeat: {}", e.getMessage());
+        }
+
+        long lag;
+        try {
+            Long beatAt = replica.queryForObject("SELECT beat_at FROM replica_heartbeat WHERE id = 1", Long.class);
+            lag = beatAt != null ? Math.max(0, System.currentTimeMillis() - beatAt) : Long.MAX_VALUE;
+        } catch (DataAccessException e) {
+            logger.debug("Failed to read replica heartbeat: {}", e.getMessage());
+            lag = Long.MAX_VALUE;
+        }
+
+        boolean nowUsable = lag <= maxLagMillis;
+        if (nowUsable != usable) {
+            if (nowUsable) {
+                logger.info("Read replica caught up (lag {} ms), routing read-only queries to it", lag);
+            } else {
+                logger.warn("Read replica lag {} ms exceeds {} ms, routing reads to the primary",
+                        lag == Long.MAX_VALUE ? "unknown" : lag, maxLagMillis);
+            }
+        }
+        lagMillis = lag;
+        usable = nowUsable;
+    }
+}
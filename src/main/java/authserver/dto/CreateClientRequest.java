@@ -6,6 +6,7 @@ import lombok.Setter;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
+import java.util.Map;
 import java.util.Set;
 
 @Getter
@@ -31,4 +32,14 @@ public class CreateClientRequest {
     @Min(value = 60, message = "Access token TTL must be at least 60 seconds")
     @Max(value = 86400, message = "Access token TTL cannot exceed 24 hours (86400 seconds)")
     public Long accessTokenTimeToLiveSeconds;
+    
+    @Pattern(regexp = "^(self-contained|reference)$", message = "Access token format must be either 'self-contained' or 'reference'")
+    public String accessTokenFormat; // optional; defaults to app.oauth.default-access-token-format
+    
+    public Boolean reuseAccessToken; // optional; return a still-valid token for repeat client_credentials requests
+    
+    @Pattern(regexp = "^(client_secret_basic|private_key_jwt)$", message = "Token endpoint auth method must be either 'client_secret_basic' or 'private_key_jwt'")
+    public String tokenEndpointAuthMethod; // optional; defaults to client_secret_basic
+    
+    public Map<String, Object> jwks; // public JWK Set ({"keys": [...]}), required for private_key_jwt
 }
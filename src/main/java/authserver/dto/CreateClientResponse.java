@@ -20,6 +20,9 @@ public class CreateClientResponse {
     private String clientName;
     private Set<String> scopes;
     private Long accessTokenTimeToLiveSeconds;
+    private String accessTokenFormat;
+    private Boolean reuseAccessToken;
+    private String tokenEndpointAuthMethod;
     private LocalDateTime createdAt;
     
     public CreateClientResponse(String clientId, String clientSecret, String clientName) {
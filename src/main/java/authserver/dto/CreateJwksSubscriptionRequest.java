@@ -0,0 +1,19 @@
+package authserver.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreateJwksSubscriptionRequest {
+
+    @NotBlank(message = "Webhook URL is required")
+    @Size(max = 2000, message = "Webhook URL cannot exceed 2000 characters")
+    public String url;
+}
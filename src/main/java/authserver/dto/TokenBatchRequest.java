@@ -0,0 +1,34 @@
+package authserver.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenBatchRequest {
+
+    @NotEmpty(message = "At least one token request is required")
+    public List<@Valid Item> tokens; // at most app.token-batch.max-size
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+
+        @Size(max = 1000, message = "Scope cannot exceed 1000 characters")
+        public String scope; // space-delimited, like the token endpoint's scope parameter
+
+        @Size(max = 255, message = "Audience cannot exceed 255 characters")
+        public String audience; // optional; replaces the default audience (the client id)
+    }
+}
@@ -0,0 +1,23 @@
+package authserver.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Set;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UpdateClientAudiencesRequest {
+
+    @NotNull(message = "Audiences are required")
+    @Size(max = 20, message = "Maximum 20 audiences allowed")
+    public Set<@Size(min = 1, max = 200, message = "Audience must be between 1 and 200 characters")
+            @Pattern(regexp = "^\\S+$", message = "Audience cannot contain whitespace") String> audiences;
+}
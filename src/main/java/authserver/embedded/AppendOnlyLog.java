@@ -0,0 +1,191 @@
+package authserver.embedded;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log of fixed-size, memory-mapped segment files {@code log-<id>.bin}. A record is
+ * {@code [int length][int crc32][payload]}; unused space is zero, so a zero length marks the end of a segment.
+ * Appends are plain memory writes that survive a crash of the process; {@link #force()} makes them survive a
+ * crash of the host. Not thread-safe: the caller serializes {@link #append}, {@link #roll()} and {@link #recover}.
+ */
+final class AppendOnlyLog implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AppendOnlyLog.class);
+
+    static final int HEADER_BYTES = 8;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final CRC32 crc = new CRC32();
+
+    private FileChannel channel;
+    private volatile MappedByteBuffer buffer;
+    private long segmentId;
+
+    AppendOnlyLog(Path directory, int segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * Feeds the payload of every intact record in segments {@code fromSegmentId} and later to {@code consumer}, in
+     * order, then opens the log for appending after the last of them. Replay stops at the first torn or corrupt
+     * record: the rest of that segment is zeroed and any later segment is deleted, so the log never holds a gap.
+     */
+    void recover(long fromSegmentId, Consumer<ByteBuffer> consumer) throws IOException {
+        List<Long> ids = segmentIds().stream().filter(id -> id >= fromSegmentId).toList();
+        if (ids.isEmpty()) {
+            open(fromSegmentId);
+            return;
+        }
+        for (int i = 0; i < ids.size(); i++) {
+            open(ids.get(i));
+            boolean intact = replay(consumer);
+            if (!intact || i == ids.size() - 1) {
+                for (long later : ids.subList(i + 1, ids.size())) {
+                    logger.warn("Discarding log segment {} after a corrupt record in segment {}", later, segmentId);
+                    Files.deleteIfExists(segmentPath(later));
+                }
+                return;
+            }
+            closeSegment();
+        }
+    }
+
+    void append(byte[] payload) throws IOException {
+        if (payload.length + HEADER_BYTES > segmentBytes) {
+            throw new IllegalArgumentException("Log record of " + payload.length + " bytes exceeds the segment size");
+        }
+        if (buffer.remaining() < payload.length + HEADER_BYTES) {
+            roll();
+        }
+        crc.reset();
+        crc.update(payload);
+        int start = buffer.position();
+        // the length goes in last, so a record is never visible to recovery before its payload is
+        buffer.position(start + 4);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(payload);
+        buffer.putInt(start, payload.length);
+    }
+
+    /**
+     * Seals the current segment and continues in a new one.
+     *
+     * @return the id of the new segment
+     */
+    long roll() throws IOException {
+        force();
+        closeSegment();
+        open(segmentId + 1);
+        return segmentId;
+    }
+
+    void force() {
+        MappedByteBuffer current = buffer;
+        if (current != null) {
+            current.force();
+        }
+    }
+
+    void deleteSegmentsBefore(long id) throws IOException {
+        for (long existing : segmentIds()) {
+            if (existing < id) {
+                Files.deleteIfExists(segmentPath(existing));
+            }
+        }
+    }
+
+    long segmentId() {
+        return segmentId;
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        closeSegment();
+    }
+
+    private boolean replay(Consumer<ByteBuffer> consumer) {
+        MappedByteBuffer segment = buffer;
+        while (segment.remaining() >= HEADER_BYTES) {
+            int start = segment.position();
+            int length = segment.getInt(start);
+            if (length == 0) {
+                return true;
+            }
+            if (length < 0 || length > segment.remaining() - HEADER_BYTES) {
+                return truncate(start);
+            }
+            ByteBuffer payload = segment.slice(start + HEADER_BYTES, length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != segment.getInt(start + 4)) {
+                return truncate(start);
+            }
+            consumer.accept(payload);
+            segment.position(start + HEADER_BYTES + length);
+        }
+        return true;
+    }
+
+    private boolean truncate(int position) {
+        logger.warn("Log segment {} has a torn or corrupt record at offset {}; discarding the rest of it", segmentId, position);
+        MappedByteBuffer segment = buffer;
+        for (int i = position; i < segment.limit(); i++) {
+            segment.put(i, (byte) 0);
+        }
+        segment.position(position);
+        segment.force();
+        return false;
+    }
+
+    private void open(long id) throws IOException {
+        segmentId = id;
+        channel = FileChannel.open(segmentPath(id), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // mapping past the end grows a new file to the full segment size, zero-filled; a segment written with a
+        // larger configured size is mapped whole
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), segmentBytes));
+    }
+
+    private void closeSegment() throws IOException {
+        // the mapping itself is released when the buffer is collected
+        buffer = null;
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private List<Long> segmentIds() throws IOException {
+        List<Long> ids = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "log-*.bin")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                ids.add(Long.parseLong(name.substring(4, name.length() - 4)));
+            }
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    private Path segmentPath(long id) {
+        return directory.resolve(String.format("log-%016d.bin", id));
+    }
+}
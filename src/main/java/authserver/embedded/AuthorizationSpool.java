@@ -0,0 +1,204 @@
+package authserver.embedded;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Authorization writes that could not reach the database, journaled to an {@link AppendOnlyLog} until they are
+ * replayed. Only the latest write per authorization is kept in memory, in the order the authorizations were first
+ * spooled, together with an index of their token values so tokens issued during an outage can still be looked
+ * up. Once everything is replayed the log is truncated; a restart before that replays the journal again, and an
+ * intact record that cannot be deserialized fails startup rather than dropping a write the database never saw.
+ */
+public class AuthorizationSpool implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthorizationSpool.class);
+
+    private static final byte SAVE = 1;
+    private static final byte REMOVE = 2;
+
+    private final AppendOnlyLog log;
+    private final int maxEntries;
+    private final Map<String, Entry> pending = new LinkedHashMap<>();
+    private final Map<String, String> idsByToken = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    public AuthorizationSpool(Path directory, int segmentBytes, int maxEntries) throws IOException {
+        this.log = new AppendOnlyLog(directory, segmentBytes);
+        this.maxEntries = maxEntries;
+        log.recover(0, this::apply);
+        if (!pending.isEmpty()) {
+            logger.warn("Authorization spool in {} holds {} writes not yet replayed to the database", directory, pending.size());
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "authorization-spool");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Journals a save.
+     *
+     * @return false if the spool is full
+     */
+    public boolean save(OAuth2Authorization authorization) {
+        return append(SAVE, authorization);
+    }
+
+    /**
+     * Journals a remove.
+     *
+     * @return false if the spool is full
+     */
+    public boolean remove(OAuth2Authorization authorization) {
+        return append(REMOVE, authorization);
+    }
+
+    public synchronized boolean contains(String authorizationId) {
+        return pending.containsKey(authorizationId);
+    }
+
+    /**
+     * The latest spooled write for an authorization, or null if none is pending.
+     */
+    @Nullable
+    public synchronized Entry get(String authorizationId) {
+        return pending.get(authorizationId);
+    }
+
+    @Nullable
+    public synchronized OAuth2Authorization findByToken(String token, @Nullable OAuth2TokenType tokenType) {
+        String id = idsByToken.get(token);
+        Entry entry = id != null ? pending.get(id) : null;
+        return entry != null && !entry.removed()
+                && EmbeddedAuthorizationService.hasToken(entry.authorization(), token, tokenType) ? entry.authorization() : null;
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    /**
+     * Hands the pending writes to {@code target} in order, stopping at the first one that fails. Writes spooled
+     * for an authorization while its earlier state was being replayed stay pending.
+     *
+     * @return the number of writes replayed
+     */
+    public int replay(Target target) {
+        List<Entry> batch;
+        synchronized (this) {
+            batch = new ArrayList<>(pending.values());
+        }
+        int replayed = 0;
+        for (Entry entry : batch) {
+            if (entry.removed()) {
+                target.remove(entry.authorization());
+            } else {
+                target.save(entry.authorization());
+            }
+            synchronized (this) {
+                String id = entry.authorization().getId();
+                if (pending.get(id) == entry) {
+                    pending.remove(id);
+                    EmbeddedAuthorizationService.tokenValues(entry.authorization()).forEach(token -> idsByToken.remove(token, id));
+                }
+            }
+            replayed++;
+        }
+        truncateIfEmpty();
+        return replayed;
+    }
+
+    public void scheduleReplay(Runnable replay, Duration interval) {
+        scheduler.scheduleWithFixedDelay(replay, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        scheduler.shutdownNow();
+        log.close();
+    }
+
+    private synchronized boolean append(byte op, OAuth2Authorization authorization) {
+        if (!pending.containsKey(authorization.getId()) && pending.size() >= maxEntries) {
+            return false;
+        }
+        byte[] value = EmbeddedStore.serialize(authorization);
+        byte[] record = new byte[value.length + 1];
+        record[0] = op;
+        System.arraycopy(value, 0, record, 1, value.length);
+        try {
+            log.append(record);
+            // an outage is exactly when a crash of the host must not lose what was acknowledged
+            log.force();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to the authorization spool", e);
+        }
+        put(op, authorization);
+        return true;
+    }
+
+    private void apply(ByteBuffer record) {
+        byte op = record.get();
+        byte[] value = new byte[record.remaining()];
+        record.get(value);
+        try {
+            put(op, (OAuth2Authorization) EmbeddedStore.deserialize(new ByteArrayInputStream(value)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unreadable authorization spool record; replay or remove the spool directory", e);
+        }
+    }
+
+    private void put(byte op, OAuth2Authorization authorization) {
+        Entry previous = pending.get(authorization.getId());
+        if (previous != null) {
+            EmbeddedAuthorizationService.tokenValues(previous.authorization())
+                    .forEach(token -> idsByToken.remove(token, authorization.getId()));
+        }
+        pending.put(authorization.getId(), new Entry(authorization, op == REMOVE));
+        if (op == SAVE) {
+            EmbeddedAuthorizationService.tokenValues(authorization).forEach(token -> idsByToken.put(token, authorization.getId()));
+        }
+    }
+
+    private synchronized void truncateIfEmpty() {
+        if (!pending.isEmpty()) {
+            return;
+        }
+        try {
+            long current = log.roll();
+            log.deleteSegmentsBefore(current);
+        } catch (IOException e) {
+            logger.warn("Could not truncate the authorization spool: {}", e.getMessage());
+        }
+    }
+
+    public record Entry(OAuth2Authorization authorization, boolean removed) {
+    }
+
+    public interface Target {
+
+        void save(OAuth2Authorization authorization);
+
+        void remove(OAuth2Authorization authorization);
+    }
+}
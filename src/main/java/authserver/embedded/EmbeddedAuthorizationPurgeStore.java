@@ -0,0 +1,52 @@
+package authserver.embedded;
+
+import authserver.service.AuthorizationPurgeStore;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Purges through the authorization service rather than the store, so its token index and any cache in front
+ * of it forget the deleted authorizations too.
+ */
+public class EmbeddedAuthorizationPurgeStore implements AuthorizationPurgeStore {
+
+    private final EmbeddedStore store;
+    private final OAuth2AuthorizationService authorizationService;
+
+    public EmbeddedAuthorizationPurgeStore(EmbeddedStore store, OAuth2AuthorizationService authorizationService) {
+        this.store = store;
+        this.authorizationService = authorizationService;
+    }
+
+    @Override
+    public List<String> findIdsAfter(String registeredClientId, String afterId, int limit) {
+        return store.<OAuth2Authorization>values(EmbeddedAuthorizationService.NAMESPACE).stream()
+                .filter(authorization -> authorization.getRegisteredClientId().equals(registeredClientId))
+                .map(OAuth2Authorization::getId)
+                .filter(id -> id.compareTo(afterId) > 0)
+                .sorted(Comparator.naturalOrder())
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public int deleteByIds(List<String> ids) {
+        int deleted = 0;
+        for (String id : ids) {
+            OAuth2Authorization authorization = authorizationService.findById(id);
+            if (authorization != null) {
+                authorizationService.remove(authorization);
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    @Override
+    public void deleteConsents(String registeredClientId) {
+        // consents are not kept in the embedded store
+    }
+}
@@ -0,0 +1,158 @@
+package authserver.embedded;
+
+import authserver.profiling.TokenPipelineEvents;
+import org.springframework.lang.Nullable;
+import org.springframework.security.oauth2.core.AbstractOAuth2Token;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.core.oidc.OidcIdToken;
+import org.springframework.security.oauth2.core.oidc.endpoint.OidcParameterNames;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationCode;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.core.OAuth2DeviceCode;
+import org.springframework.security.oauth2.core.OAuth2UserCode;
+import org.springframework.util.Assert;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Authorizations in the {@link EmbeddedStore}, with an in-memory index from every token value (and the
+ * {@code state} attribute) to its authorization, so {@link #findByToken} is a single map lookup. Authorizations
+ * whose tokens have all expired are dropped before each snapshot.
+ */
+public class EmbeddedAuthorizationService implements OAuth2AuthorizationService {
+
+    static final String NAMESPACE = "authorization";
+
+    private static final List<Class<? extends AbstractOAuth2Token>> TOKEN_TYPES = List.of(OAuth2AuthorizationCode.class,
+            OAuth2AccessToken.class, OAuth2RefreshToken.class, OidcIdToken.class, OAuth2DeviceCode.class, OAuth2UserCode.class);
+
+    private final EmbeddedStore store;
+    private final Map<String, String> idsByToken = new ConcurrentHashMap<>();
+
+    public EmbeddedAuthorizationService(EmbeddedStore store) {
+        this.store = store;
+        store.<OAuth2Authorization>values(NAMESPACE).forEach(authorization ->
+                tokenValues(authorization).forEach(token -> idsByToken.put(token, authorization.getId())));
+        store.addCompactionHook(this::removeExpired);
+    }
+
+    @Override
+    public void save(OAuth2Authorization authorization) {
+        Assert.notNull(authorization, "authorization cannot be null");
+        TokenPipelineEvents.AuthorizationPersist event = new TokenPipelineEvents.AuthorizationPersist();
+        event.begin();
+        OAuth2Authorization existing = store.get(NAMESPACE, authorization.getId());
+        store.put(NAMESPACE, authorization.getId(), authorization);
+        List<String> tokens = tokenValues(authorization);
+        if (existing != null) {
+            tokenValues(existing).stream().filter(token -> !tokens.contains(token)).forEach(idsByToken::remove);
+        }
+        tokens.forEach(token -> idsByToken.put(token, authorization.getId()));
+        if (event.shouldCommit()) {
+            event.clientId = authorization.getPrincipalName();
+            event.authorizationId = authorization.getId();
+            event.commit();
+        }
+    }
+
+    @Override
+    public void remove(OAuth2Authorization authorization) {
+        Assert.notNull(authorization, "authorization cannot be null");
+        removeById(authorization.getId());
+    }
+
+    @Override
+    @Nullable
+    public OAuth2Authorization findById(String id) {
+        Assert.hasText(id, "id cannot be empty");
+        return store.get(NAMESPACE, id);
+    }
+
+    @Override
+    @Nullable
+    public OAuth2Authorization findByToken(String token, @Nullable OAuth2TokenType tokenType) {
+        Assert.hasText(token, "token cannot be empty");
+        String id = idsByToken.get(token);
+        OAuth2Authorization authorization = id != null ? store.get(NAMESPACE, id) : null;
+        return authorization != null && hasToken(authorization, token, tokenType) ? authorization : null;
+    }
+
+    void removeExpired() {
+        Instant now = Instant.now();
+        List<String> expired = new ArrayList<>();
+        for (OAuth2Authorization authorization : store.<OAuth2Authorization>values(NAMESPACE)) {
+            if (isExpired(authorization, now)) {
+                expired.add(authorization.getId());
+            }
+        }
+        expired.forEach(this::removeById);
+    }
+
+    private void removeById(String id) {
+        OAuth2Authorization existing = store.get(NAMESPACE, id);
+        if (existing != null) {
+            store.remove(NAMESPACE, id);
+            tokenValues(existing).forEach(token -> idsByToken.remove(token, id));
+        }
+    }
+
+    private static boolean isExpired(OAuth2Authorization authorization, Instant now) {
+        boolean anyToken = false;
+        for (Class<? extends AbstractOAuth2Token> type : TOKEN_TYPES) {
+            OAuth2Authorization.Token<? extends AbstractOAuth2Token> token = authorization.getToken(type);
+            if (token != null) {
+                anyToken = true;
+                Instant expiresAt = token.getToken().getExpiresAt();
+                if (expiresAt == null || expiresAt.isAfter(now)) {
+                    return false;
+                }
+            }
+        }
+        return anyToken;
+    }
+
+    static List<String> tokenValues(OAuth2Authorization authorization) {
+        List<String> values = new ArrayList<>(2);
+        String state = authorization.getAttribute(OAuth2ParameterNames.STATE);
+        if (state != null) {
+            values.add(state);
+        }
+        for (Class<? extends AbstractOAuth2Token> type : TOKEN_TYPES) {
+            OAuth2Authorization.Token<? extends AbstractOAuth2Token> token = authorization.getToken(type);
+            if (token != null) {
+                values.add(token.getToken().getTokenValue());
+            }
+        }
+        return values;
+    }
+
+    // same matching rules as InMemoryOAuth2AuthorizationService
+    static boolean hasToken(OAuth2Authorization authorization, String token, @Nullable OAuth2TokenType tokenType) {
+        if (tokenType == null) {
+            return tokenValues(authorization).contains(token);
+        }
+        return switch (tokenType.getValue()) {
+            case OAuth2ParameterNames.STATE -> token.equals(authorization.getAttribute(OAuth2ParameterNames.STATE));
+            case OAuth2ParameterNames.CODE -> matches(authorization.getToken(OAuth2AuthorizationCode.class), token);
+            case OAuth2ParameterNames.ACCESS_TOKEN -> matches(authorization.getToken(OAuth2AccessToken.class), token);
+            case OidcParameterNames.ID_TOKEN -> matches(authorization.getToken(OidcIdToken.class), token);
+            case OAuth2ParameterNames.REFRESH_TOKEN -> matches(authorization.getToken(OAuth2RefreshToken.class), token);
+            case OAuth2ParameterNames.DEVICE_CODE -> matches(authorization.getToken(OAuth2DeviceCode.class), token);
+            case OAuth2ParameterNames.USER_CODE -> matches(authorization.getToken(OAuth2UserCode.class), token);
+            default -> false;
+        };
+    }
+
+    private static boolean matches(@Nullable OAuth2Authorization.Token<? extends AbstractOAuth2Token> candidate, String token) {
+        return candidate != null && Objects.equals(candidate.getToken().getTokenValue(), token);
+    }
+}
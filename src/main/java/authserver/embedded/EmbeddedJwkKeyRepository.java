@@ -0,0 +1,65 @@
+package authserver.embedded;
+
+import authserver.entity.JwkKey;
+import authserver.repo.JwkKeyRepository;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Signing keys in the {@link EmbeddedStore}. {@link JwkKey} is mutable, so keys are copied in and out and a
+ * caller never holds the instance the store serializes.
+ */
+public class EmbeddedJwkKeyRepository implements JwkKeyRepository {
+
+    static final String NAMESPACE = "jwk-key";
+
+    private final EmbeddedStore store;
+    private final AtomicLong ids;
+
+    public EmbeddedJwkKeyRepository(EmbeddedStore store) {
+        this.store = store;
+        this.ids = new AtomicLong(store.<JwkKey>values(NAMESPACE).stream().mapToLong(JwkKey::getId).max().orElse(0));
+    }
+
+    @Override
+    public Optional<JwkKey> findFirstByTenantIdAndIsActiveTrue(String tenantId) {
+        return store.<JwkKey>values(NAMESPACE).stream()
+                .filter(key -> key.getTenantId().equals(tenantId) && Boolean.TRUE.equals(key.getIsActive()))
+                .min(Comparator.comparing(JwkKey::getId))
+                .map(EmbeddedJwkKeyRepository::copy);
+    }
+
+    @Override
+    public List<JwkKey> findAllByTenantId(String tenantId) {
+        return store.<JwkKey>values(NAMESPACE).stream()
+                .filter(key -> key.getTenantId().equals(tenantId))
+                .sorted(Comparator.comparing(JwkKey::getId))
+                .map(EmbeddedJwkKeyRepository::copy)
+                .toList();
+    }
+
+    @Override
+    public JwkKey save(JwkKey key) {
+        // mirrors the identity column and defaults of JdbcJwkKeyRepository
+        if (key.getId() == null) {
+            key.setId(ids.incrementAndGet());
+        }
+        if (key.getCreatedAt() == null) {
+            key.setCreatedAt(LocalDateTime.now());
+        }
+        if (key.getIsActive() == null) {
+            key.setIsActive(true);
+        }
+        store.put(NAMESPACE, String.valueOf(key.getId()), copy(key));
+        return key;
+    }
+
+    private static JwkKey copy(JwkKey key) {
+        return new JwkKey(key.getId(), key.getKid(), key.getPublicKeyPem(), key.getPrivateKeyPem(), key.getAlgorithm(),
+                key.getCreatedAt(), key.getIsActive(), key.getTenantId());
+    }
+}
@@ -0,0 +1,89 @@
+package authserver.embedded;
+
+import authserver.profiling.TokenPipelineEvents;
+import authserver.repo.RemovableRegisteredClientRepository;
+import authserver.tenant.TenantContext;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.util.Assert;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registered clients in the {@link EmbeddedStore}, with an in-memory index by (tenant, client_id). Like the
+ * JDBC repository, clients live in the namespace of the current tenant.
+ */
+public class EmbeddedRegisteredClientRepository implements RemovableRegisteredClientRepository {
+
+    static final String NAMESPACE = "registered-client";
+
+    private final EmbeddedStore store;
+    private final Map<String, String> idsByClientId = new ConcurrentHashMap<>();
+
+    public EmbeddedRegisteredClientRepository(EmbeddedStore store) {
+        this.store = store;
+        store.<StoredClient>values(NAMESPACE).forEach(stored ->
+                idsByClientId.put(indexKey(stored.tenantId(), stored.client().getClientId()), stored.client().getId()));
+    }
+
+    @Override
+    public synchronized void save(RegisteredClient registeredClient) {
+        Assert.notNull(registeredClient, "registeredClient cannot be null");
+        String tenantId = TenantContext.current();
+        StoredClient existing = store.get(NAMESPACE, registeredClient.getId());
+        if (existing != null && !existing.tenantId().equals(tenantId)) {
+            throw new IllegalArgumentException("Registered client must be unique. Found duplicate identifier: " + registeredClient.getId());
+        }
+        String indexKey = indexKey(tenantId, registeredClient.getClientId());
+        String owner = idsByClientId.get(indexKey);
+        if (owner != null && !owner.equals(registeredClient.getId())) {
+            throw new IllegalArgumentException("Registered client must be unique. Found duplicate client identifier: "
+                    + registeredClient.getClientId());
+        }
+        store.put(NAMESPACE, registeredClient.getId(), new StoredClient(tenantId, registeredClient));
+        if (existing != null && !existing.client().getClientId().equals(registeredClient.getClientId())) {
+            idsByClientId.remove(indexKey(tenantId, existing.client().getClientId()));
+        }
+        idsByClientId.put(indexKey, registeredClient.getId());
+    }
+
+    @Override
+    public synchronized void removeById(String id) {
+        StoredClient existing = store.get(NAMESPACE, id);
+        if (existing == null || !existing.tenantId().equals(TenantContext.current())) {
+            return;
+        }
+        store.remove(NAMESPACE, id);
+        idsByClientId.remove(indexKey(existing.tenantId(), existing.client().getClientId()));
+    }
+
+    @Override
+    public RegisteredClient findById(String id) {
+        Assert.hasText(id, "id cannot be empty");
+        StoredClient stored = store.get(NAMESPACE, id);
+        return stored != null && stored.tenantId().equals(TenantContext.current()) ? stored.client() : null;
+    }
+
+    @Override
+    public RegisteredClient findByClientId(String clientId) {
+        Assert.hasText(clientId, "clientId cannot be empty");
+        TokenPipelineEvents.ClientLookup event = new TokenPipelineEvents.ClientLookup();
+        event.begin();
+        String id = idsByClientId.get(indexKey(TenantContext.current(), clientId));
+        RegisteredClient registeredClient = id != null ? findById(id) : null;
+        if (event.shouldCommit()) {
+            event.clientId = clientId;
+            event.found = registeredClient != null;
+            event.commit();
+        }
+        return registeredClient;
+    }
+
+    private static String indexKey(String tenantId, String clientId) {
+        return tenantId + '\0' + clientId;
+    }
+
+    record StoredClient(String tenantId, RegisteredClient client) implements Serializable {
+    }
+}
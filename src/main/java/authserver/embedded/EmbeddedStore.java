@@ -0,0 +1,339 @@
+package authserver.embedded;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Namespaced key-value maps kept entirely in memory, made durable by an {@link AppendOnlyLog}. Reads never leave
+ * the heap; a write appends to the memory-mapped log and updates the map under one lock, so the order in the log
+ * is the order the maps saw. Values are Java-serialized and must be treated as immutable once stored; reading
+ * them back only accepts the JDK, Spring Security and application types the stored objects are made of.
+ * <p>
+ * A snapshot rolls the log to a new segment, writes every map to {@code snapshot-<segment>.bin} and then deletes
+ * the segments before it. Writes are not held up while the snapshot is written: it is only weakly consistent, but
+ * every write it may have missed or caught half-way is in the segments that follow it, and replaying those over
+ * the snapshot converges on the same state. On startup the newest snapshot is loaded and the log after it
+ * replayed; the segments it replaced are gone, so a snapshot that cannot be read fails startup.
+ */
+public class EmbeddedStore implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedStore.class);
+
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final int SNAPSHOT_MAGIC = 0x534e4150;
+    private static final int SNAPSHOT_END = 0x454e4421;
+    private static final ObjectInputFilter VALUE_FILTER = ObjectInputFilter.Config.createFilter(
+            "maxdepth=64;maxrefs=100000;maxbytes=16777216;java.lang.*;java.util.**;java.time.*;java.net.URL;java.net.URI;"
+                    + "java.security.Principal;org.springframework.security.**;org.springframework.util.*;authserver.**;!*");
+
+    private final Path directory;
+    private final AppendOnlyLog log;
+    private final Map<String, Map<String, Serializable>> namespaces = new ConcurrentHashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private final List<Runnable> compactionHooks = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler;
+
+    public EmbeddedStore(Path directory, int segmentBytes, Duration fsyncInterval, Duration snapshotInterval) throws IOException {
+        this.directory = directory;
+        this.log = new AppendOnlyLog(directory, segmentBytes);
+        long firstSegment = loadSnapshot();
+        long[] replayed = new long[1];
+        log.recover(firstSegment, record -> {
+            apply(record);
+            replayed[0]++;
+        });
+        logger.info("Embedded store recovered {} entries from {} ({} log records replayed)",
+                namespaces.values().stream().mapToInt(Map::size).sum(), directory, replayed[0]);
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "embedded-store");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(log::force, fsyncInterval.toMillis(), fsyncInterval.toMillis(), TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::scheduledSnapshot, snapshotInterval.toMillis(), snapshotInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String namespace, String key) {
+        return (T) namespace(namespace).get(key);
+    }
+
+    /**
+     * A live, weakly consistent view of the values in the namespace.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Collection<T> values(String namespace) {
+        return (Collection<T>) namespace(namespace).values();
+    }
+
+    public void put(String namespace, String key, Serializable value) {
+        byte[] record = record(PUT, namespace, key, value);
+        writeLock.lock();
+        try {
+            append(record);
+            namespace(namespace).put(key, value);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void remove(String namespace, String key) {
+        Map<String, Serializable> entries = namespace(namespace);
+        if (!entries.containsKey(key)) {
+            return;
+        }
+        byte[] record = record(REMOVE, namespace, key, null);
+        writeLock.lock();
+        try {
+            append(record);
+            entries.remove(key);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Registers work to run before each snapshot, such as dropping expired entries so they are not carried over.
+     */
+    public void addCompactionHook(Runnable hook) {
+        compactionHooks.add(hook);
+    }
+
+    public void snapshot() throws IOException {
+        snapshotLock.lock();
+        try {
+            compactionHooks.forEach(Runnable::run);
+            long firstSegment;
+            writeLock.lock();
+            try {
+                firstSegment = log.roll();
+            } finally {
+                writeLock.unlock();
+            }
+            writeSnapshot(firstSegment);
+            log.deleteSegmentsBefore(firstSegment);
+            for (Path old : snapshots()) {
+                if (snapshotSegment(old) < firstSegment) {
+                    Files.deleteIfExists(old);
+                }
+            }
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        scheduler.shutdownNow();
+        writeLock.lock();
+        try {
+            log.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private Map<String, Serializable> namespace(String namespace) {
+        return namespaces.computeIfAbsent(namespace, ns -> new ConcurrentHashMap<>());
+    }
+
+    private void append(byte[] record) {
+        try {
+            log.append(record);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to the embedded store log", e);
+        }
+    }
+
+    private void scheduledSnapshot() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            logger.error("Embedded store snapshot failed; the log keeps growing until one succeeds", e);
+        }
+    }
+
+    private static byte[] record(byte op, String namespace, String key, Serializable value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(op);
+            out.writeUTF(namespace);
+            out.writeUTF(key);
+            if (value != null) {
+                out.write(serialize(value));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void apply(ByteBuffer record) {
+        byte[] bytes = new byte[record.remaining()];
+        record.get(bytes);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            byte op = in.readByte();
+            String namespace = in.readUTF();
+            String key = in.readUTF();
+            if (op == PUT) {
+                namespace(namespace).put(key, deserialize(in));
+            } else if (op == REMOVE) {
+                namespace(namespace).remove(key);
+            } else {
+                throw new IOException("Unknown log operation " + op);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unreadable embedded store log record", e);
+        }
+    }
+
+    private void writeSnapshot(long firstSegment) throws IOException {
+        Path target = directory.resolve(String.format("snapshot-%016d.bin", firstSegment));
+        Path tmp = directory.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(firstSegment);
+            long entries = 0;
+            for (Map.Entry<String, Map<String, Serializable>> namespace : namespaces.entrySet()) {
+                for (Map.Entry<String, Serializable> entry : namespace.getValue().entrySet()) {
+                    byte[] value = serialize(entry.getValue());
+                    out.writeBoolean(true);
+                    out.writeUTF(namespace.getKey());
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(value.length);
+                    out.write(value);
+                    entries++;
+                }
+            }
+            out.writeBoolean(false);
+            out.writeLong(entries);
+            out.writeInt(SNAPSHOT_END);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Loads the newest snapshot.
+     *
+     * @return the first log segment not covered by it
+     */
+    private long loadSnapshot() throws IOException {
+        List<Path> candidates = snapshots();
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+        Path snapshot = Collections.max(candidates, Comparator.comparingLong(EmbeddedStore::snapshotSegment));
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot), 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("not a snapshot");
+            }
+            long firstSegment = in.readLong();
+            Map<String, Map<String, Serializable>> loaded = new ConcurrentHashMap<>();
+            long entries = 0;
+            while (in.readBoolean()) {
+                String namespace = in.readUTF();
+                String key = in.readUTF();
+                byte[] value = new byte[in.readInt()];
+                in.readFully(value);
+                loaded.computeIfAbsent(namespace, ns -> new ConcurrentHashMap<>())
+                        .put(key, deserialize(new ByteArrayInputStream(value)));
+                entries++;
+            }
+            if (in.readLong() != entries || in.readInt() != SNAPSHOT_END) {
+                throw new IOException("incomplete snapshot");
+            }
+            namespaces.putAll(loaded);
+            return firstSegment;
+        } catch (IOException | RuntimeException e) {
+            // replaying only the segments after it would silently lose everything the snapshot held
+            throw new IOException("Unreadable embedded store snapshot " + snapshot
+                    + "; restore it from a backup, or remove the directory to start empty", e);
+        }
+    }
+
+    private List<Path> snapshots() throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "snapshot-*.bin")) {
+            files.forEach(snapshots::add);
+        }
+        return snapshots;
+    }
+
+    private static long snapshotSegment(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(9, name.length() - 4));
+    }
+
+    static byte[] serialize(Serializable value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not serialize " + value.getClass().getName(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static Serializable deserialize(InputStream bytes) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(bytes) {
+            @Override
+            protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+                // the application class loader, not the one of whatever code happens to be on the stack
+                try {
+                    return Class.forName(desc.getName(), false, EmbeddedStore.class.getClassLoader());
+                } catch (ClassNotFoundException e) {
+                    return super.resolveClass(desc);
+                }
+            }
+        }) {
+            in.setObjectInputFilter(VALUE_FILTER);
+            return (Serializable) in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Stored value of unknown type: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package authserver.profiling;
+
+import authserver.config.AuthServerProperties;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * One on-demand Flight Recorder recording at a time. A recording is bounded in both duration and size, so one
+ * that is never stopped through the API ends by itself; its data is kept until it is fetched or a new one
+ * is started.
+ */
+@Service
+public class FlightRecorderService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecorderService.class);
+
+    private final AuthServerProperties.Profiling config;
+    private Recording recording;
+
+    public FlightRecorderService(AuthServerProperties authServerProperties) {
+        this.config = authServerProperties.getProfiling();
+    }
+
+    /**
+     * @param duration capped at {@code app.profiling.max-duration-seconds}
+     * @param settings a JFR configuration name, {@code default} or {@code profile}
+     * @throws IllegalStateException if a recording is already running
+     */
+    public synchronized RecordingStatus start(Duration duration, String settings) throws IOException, ParseException {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            throw new IllegalStateException("A recording is already running");
+        }
+        closeRecording();
+        Duration bounded = duration.compareTo(Duration.ofSeconds(config.getMaxDurationSeconds())) > 0
+                ? Duration.ofSeconds(config.getMaxDurationSeconds()) : duration;
+        Recording started = new Recording(Configuration.getConfiguration(settings));
+        started.setName("authserver-admin");
+        started.setToDisk(true);
+        started.setDuration(bounded);
+        started.setMaxSize(config.getMaxSizeMb() * 1024L * 1024L);
+        started.start();
+        recording = started;
+        logger.info("Started flight recording '{}' for at most {}", settings, bounded);
+        return status();
+    }
+
+    /**
+     * Stops the recording if it is still running and dumps it to a temporary file, which the caller deletes.
+     *
+     * @throws IllegalStateException if there is no recording
+     */
+    public synchronized Path stop() throws IOException {
+        if (recording == null) {
+            throw new IllegalStateException("No recording to stop");
+        }
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+        }
+        Path file = Files.createTempFile("authserver-", ".jfr");
+        try {
+            recording.dump(file);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        } finally {
+            closeRecording();
+        }
+        logger.info("Stopped flight recording, {} bytes", Files.size(file));
+        return file;
+    }
+
+    public synchronized RecordingStatus status() {
+        if (recording == null) {
+            return new RecordingStatus("NONE", null, null, 0);
+        }
+        return new RecordingStatus(recording.getState().name(), recording.getStartTime(), recording.getDuration(),
+                recording.getSize());
+    }
+
+    @PreDestroy
+    public synchronized void closeRecording() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    public record RecordingStatus(String state, Instant startTime, Duration duration, long sizeBytes) {
+    }
+}
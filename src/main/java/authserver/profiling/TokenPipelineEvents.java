@@ -0,0 +1,95 @@
+package authserver.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder events of the token pipeline. The JFR duration of each event is the time spent in that step.
+ * Call sites follow the usual pattern: {@code begin()} before the step and, only if {@code shouldCommit()},
+ * fill in the fields and {@code commit()}; with no recording running both are no-ops the JIT removes.
+ * Stack traces are off: the events are meant to be cheap enough to record on a live node.
+ */
+public final class TokenPipelineEvents {
+
+    private TokenPipelineEvents() {
+    }
+
+    @Name("authserver.ClientLookup")
+    @Label("Client Lookup")
+    @Category({"Auth Server", "Token Pipeline"})
+    @Description("RegisteredClientRepository.findByClientId")
+    @StackTrace(false)
+    public static class ClientLookup extends Event {
+        @Label("Client ID")
+        public String clientId;
+
+        @Label("Found")
+        public boolean found;
+    }
+
+    @Name("authserver.SecretVerification")
+    @Label("Client Secret Verification")
+    @Category({"Auth Server", "Token Pipeline"})
+    @Description("Client secret authentication; at the token endpoint this includes the nested Client Lookup")
+    @StackTrace(false)
+    public static class SecretVerification extends Event {
+        @Label("Client ID")
+        public String clientId;
+
+        @Label("Success")
+        public boolean success;
+    }
+
+    @Name("authserver.TokenSigning")
+    @Label("Token Signing")
+    @Category({"Auth Server", "Token Pipeline"})
+    @Description("JWT encoding and signing")
+    @StackTrace(false)
+    public static class TokenSigning extends Event {
+        @Label("Client ID")
+        @Description("The subject of the token, which is the client for client_credentials")
+        public String clientId;
+
+        @Label("Key ID")
+        public String kid;
+
+        @Label("Fast Path")
+        @Description("Signed by the caching encoder rather than its delegate")
+        public boolean fastPath;
+    }
+
+    @Name("authserver.AuthorizationPersist")
+    @Label("Authorization Persist")
+    @Category({"Auth Server", "Token Pipeline"})
+    @Description("OAuth2AuthorizationService.save")
+    @StackTrace(false)
+    public static class AuthorizationPersist extends Event {
+        @Label("Client ID")
+        @Description("The principal of the authorization, which is the client for client_credentials")
+        public String clientId;
+
+        @Label("Authorization ID")
+        public String authorizationId;
+    }
+
+    @Name("authserver.RateLimitDecision")
+    @Label("Rate Limit Decision")
+    @Category({"Auth Server", "Token Pipeline"})
+    @Description("A request admitted or rejected by a rate limiter or admission control")
+    @StackTrace(false)
+    public static class RateLimitDecision extends Event {
+        @Label("Limiter")
+        public String limiter;
+
+        @Label("Key")
+        @Description("What the limit applies to, e.g. tenant and client IP")
+        public String key;
+
+        @Label("Allowed")
+        public boolean allowed;
+    }
+}
@@ -0,0 +1,319 @@
+package authserver.repo;
+
+import authserver.profiling.TokenPipelineEvents;
+import authserver.security.TokenReuseAuthenticationProvider;
+import authserver.tenant.TenantContext;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.security.jackson2.SecurityJackson2Modules;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.jackson2.OAuth2AuthorizationServerJackson2Module;
+import org.springframework.security.oauth2.server.authorization.settings.ClientSettings;
+import org.springframework.security.oauth2.server.authorization.settings.ConfigurationSettingNames;
+import org.springframework.security.oauth2.server.authorization.settings.OAuth2TokenFormat;
+import org.springframework.security.oauth2.server.authorization.settings.TokenSettings;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * {@link RegisteredClientRepository} over typed columns. The settings this server reads on every token request
+ * (access token TTL and format, token reuse) are plain columns mapped by hand; any setting that differs from the
+ * framework default and has no column goes into the {@code settings_overflow} JSON column, which stays empty for
+ * clients registered through the API, so a lookup does not touch Jackson at all. Clients live in the namespace of
+ * the current tenant: the same client_id may be registered once per tenant.
+ * <p>
+ * Until a later release drops them, the framework's {@code client_settings}/{@code token_settings} JSON columns are
+ * written too, so nodes of the previous release can read clients saved here, and rows such nodes save (with empty
+ * typed columns) are read from them.
+ */
+public class ColumnarRegisteredClientRepository implements RemovableRegisteredClientRepository {
+
+    private static final String COLUMNS = "id, client_id, client_id_issued_at, client_secret, client_secret_expires_at, client_name, "
+            + "client_authentication_methods, authorization_grant_types, redirect_uris, post_logout_redirect_uris, scopes, "
+            + "access_token_ttl_seconds, access_token_format, reuse_access_token, settings_overflow, client_settings, token_settings";
+    private static final String SELECT_SQL = "SELECT " + COLUMNS + " FROM oauth2_registered_client WHERE tenant_id = ? AND ";
+    private static final String INSERT_SQL = "INSERT INTO oauth2_registered_client (" + COLUMNS + ", tenant_id) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_SQL = "UPDATE oauth2_registered_client SET client_secret = ?, client_secret_expires_at = ?, client_name = ?, "
+            + "client_authentication_methods = ?, authorization_grant_types = ?, redirect_uris = ?, post_logout_redirect_uris = ?, scopes = ?, "
+            + "access_token_ttl_seconds = ?, access_token_format = ?, reuse_access_token = ?, settings_overflow = ?, "
+            + "client_settings = ?, token_settings = ? WHERE id = ? AND tenant_id = ?";
+
+    private static final Set<String> COLUMN_SETTINGS = Set.of(
+            ConfigurationSettingNames.Token.ACCESS_TOKEN_TIME_TO_LIVE,
+            ConfigurationSettingNames.Token.ACCESS_TOKEN_FORMAT,
+            TokenReuseAuthenticationProvider.REUSE_ACCESS_TOKEN_SETTING);
+    private static final Map<String, Object> DEFAULT_CLIENT_SETTINGS = ClientSettings.builder().build().getSettings();
+    private static final Map<String, Object> DEFAULT_TOKEN_SETTINGS = TokenSettings.builder().build().getSettings();
+    private static final String CLIENT_OVERFLOW = "client";
+    private static final String TOKEN_OVERFLOW = "token";
+
+    private final JdbcOperations jdbcOperations;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final RowMapper<RegisteredClient> rowMapper = (rs, rowNum) -> {
+        Timestamp issuedAt = rs.getTimestamp("client_id_issued_at");
+        Timestamp secretExpiresAt = rs.getTimestamp("client_secret_expires_at");
+        Set<String> authenticationMethods = split(rs.getString("client_authentication_methods"));
+        Set<String> authorizationGrantTypes = split(rs.getString("authorization_grant_types"));
+        Set<String> redirectUris = split(rs.getString("redirect_uris"));
+        Set<String> postLogoutRedirectUris = split(rs.getString("post_logout_redirect_uris"));
+        Set<String> clientScopes = split(rs.getString("scopes"));
+        RegisteredClient.Builder builder = RegisteredClient.withId(rs.getString("id"))
+                .clientId(rs.getString("client_id"))
+                .clientIdIssuedAt(issuedAt != null ? issuedAt.toInstant() : null)
+                .clientSecret(rs.getString("client_secret"))
+                .clientSecretExpiresAt(secretExpiresAt != null ? secretExpiresAt.toInstant() : null)
+                .clientName(rs.getString("client_name"))
+                .clientAuthenticationMethods(methods -> authenticationMethods
+                        .forEach(method -> methods.add(resolveClientAuthenticationMethod(method))))
+                .authorizationGrantTypes(grantTypes -> authorizationGrantTypes
+                        .forEach(grantType -> grantTypes.add(resolveAuthorizationGrantType(grantType))))
+                .redirectUris(uris -> uris.addAll(redirectUris))
+                .postLogoutRedirectUris(uris -> uris.addAll(postLogoutRedirectUris))
+                .scopes(scopes -> scopes.addAll(clientScopes));
+
+        if (rs.getObject("access_token_ttl_seconds") == null) {
+            // saved by a node of the previous release, which only writes the JSON columns
+            return builder.clientSettings(ClientSettings.withSettings(readSettings(rs.getString("client_settings"))).build())
+                    .tokenSettings(TokenSettings.withSettings(readSettings(rs.getString("token_settings"))).build())
+                    .build();
+        }
+        Map<String, Map<String, Object>> overflow = readOverflow(rs.getString("settings_overflow"));
+        ClientSettings.Builder clientSettings = ClientSettings.builder();
+        overflow.getOrDefault(CLIENT_OVERFLOW, Map.of()).forEach(clientSettings::setting);
+        TokenSettings.Builder tokenSettings = TokenSettings.builder()
+                .accessTokenTimeToLive(Duration.ofSeconds(rs.getLong("access_token_ttl_seconds")))
+                .accessTokenFormat(resolveTokenFormat(rs.getString("access_token_format")))
+                .setting(TokenReuseAuthenticationProvider.REUSE_ACCESS_TOKEN_SETTING, rs.getBoolean("reuse_access_token"));
+        overflow.getOrDefault(TOKEN_OVERFLOW, Map.of()).forEach(tokenSettings::setting);
+        return builder.clientSettings(clientSettings.build()).tokenSettings(tokenSettings.build()).build();
+    };
+
+    public ColumnarRegisteredClientRepository(JdbcOperations jdbcOperations) {
+        Assert.notNull(jdbcOperations, "jdbcOperations cannot be null");
+        this.jdbcOperations = jdbcOperations;
+        ClassLoader classLoader = ColumnarRegisteredClientRepository.class.getClassLoader();
+        objectMapper.registerModules(SecurityJackson2Modules.getModules(classLoader));
+        objectMapper.registerModule(new OAuth2AuthorizationServerJackson2Module());
+    }
+
+    @Override
+    public void save(RegisteredClient registeredClient) {
+        Assert.notNull(registeredClient, "registeredClient cannot be null");
+        Object[] settings = settingsColumns(registeredClient);
+        int updated = jdbcOperations.update(UPDATE_SQL,
+                registeredClient.getClientSecret(),
+                timestamp(registeredClient.getClientSecretExpiresAt()),
+                registeredClient.getClientName(),
+                join(registeredClient.getClientAuthenticationMethods().stream().map(ClientAuthenticationMethod::getValue).toList()),
+                join(registeredClient.getAuthorizationGrantTypes().stream().map(AuthorizationGrantType::getValue).toList()),
+                join(registeredClient.getRedirectUris()),
+                join(registeredClient.getPostLogoutRedirectUris()),
+                join(registeredClient.getScopes()),
+                settings[0], settings[1], settings[2], settings[3],
+                writeSettings(registeredClient.getClientSettings().getSettings()),
+                writeSettings(registeredClient.getTokenSettings().getSettings()),
+                registeredClient.getId(), TenantContext.current());
+        if (updated > 0) {
+            return;
+        }
+        assertUniqueIdentifiers(registeredClient);
+        jdbcOperations.update(INSERT_SQL,
+                registeredClient.getId(),
+                registeredClient.getClientId(),
+                timestamp(registeredClient.getClientIdIssuedAt() != null ? registeredClient.getClientIdIssuedAt() : Instant.now()),
+                registeredClient.getClientSecret(),
+                timestamp(registeredClient.getClientSecretExpiresAt()),
+                registeredClient.getClientName(),
+                join(registeredClient.getClientAuthenticationMethods().stream().map(ClientAuthenticationMethod::getValue).toList()),
+                join(registeredClient.getAuthorizationGrantTypes().stream().map(AuthorizationGrantType::getValue).toList()),
+                join(registeredClient.getRedirectUris()),
+                join(registeredClient.getPostLogoutRedirectUris()),
+                join(registeredClient.getScopes()),
+                settings[0], settings[1], settings[2], settings[3],
+                writeSettings(registeredClient.getClientSettings().getSettings()),
+                writeSettings(registeredClient.getTokenSettings().getSettings()),
+                TenantContext.current());
+    }
+
+    @Override
+    public void removeById(String id) {
+        jdbcOperations.update("DELETE FROM oauth2_registered_client WHERE id = ? AND tenant_id = ?", id, TenantContext.current());
+    }
+
+    @Override
+    public RegisteredClient findById(String id) {
+        Assert.hasText(id, "id cannot be empty");
+        return findBy("id = ?", id);
+    }
+
+    @Override
+    public RegisteredClient findByClientId(String clientId) {
+        Assert.hasText(clientId, "clientId cannot be empty");
+        TokenPipelineEvents.ClientLookup event = new TokenPipelineEvents.ClientLookup();
+        event.begin();
+        RegisteredClient registeredClient = findBy("client_id = ?", clientId);
+        if (event.shouldCommit()) {
+            event.clientId = clientId;
+            event.found = registeredClient != null;
+            event.commit();
+        }
+        return registeredClient;
+    }
+
+    /**
+     * Streams the client ids of all tenants, e.g. to build a membership filter.
+     */
+    public static void forEachClientId(JdbcOperations jdbcOperations, Consumer<String> action) {
+        jdbcOperations.query("SELECT client_id FROM oauth2_registered_client", (RowCallbackHandler) rs -> action.accept(rs.getString(1)));
+    }
+
+    /**
+     * Whether {@code clientId} is registered in the current tenant, without reading the client.
+     */
+    public static boolean existsClientId(JdbcOperations jdbcOperations, String clientId) {
+        Integer count = jdbcOperations.queryForObject("SELECT COUNT(*) FROM oauth2_registered_client WHERE tenant_id = ? AND client_id = ?",
+                Integer.class, TenantContext.current(), clientId);
+        return count != null && count > 0;
+    }
+
+    /**
+     * Values for {@code access_token_ttl_seconds, access_token_format, reuse_access_token, settings_overflow}.
+     */
+    Object[] settingsColumns(RegisteredClient registeredClient) {
+        TokenSettings tokenSettings = registeredClient.getTokenSettings();
+        Map<String, Object> overflow = new LinkedHashMap<>();
+        Map<String, Object> clientOverflow = nonDefault(registeredClient.getClientSettings().getSettings(), DEFAULT_CLIENT_SETTINGS);
+        Map<String, Object> tokenOverflow = nonDefault(tokenSettings.getSettings(), DEFAULT_TOKEN_SETTINGS);
+        if (!clientOverflow.isEmpty()) {
+            overflow.put(CLIENT_OVERFLOW, clientOverflow);
+        }
+        if (!tokenOverflow.isEmpty()) {
+            overflow.put(TOKEN_OVERFLOW, tokenOverflow);
+        }
+        return new Object[] {
+                tokenSettings.getAccessTokenTimeToLive().toSeconds(),
+                tokenSettings.getAccessTokenFormat().getValue(),
+                Boolean.TRUE.equals(tokenSettings.getSetting(TokenReuseAuthenticationProvider.REUSE_ACCESS_TOKEN_SETTING)),
+                overflow.isEmpty() ? null : writeOverflow(overflow)
+        };
+    }
+
+    private RegisteredClient findBy(String filter, Object arg) {
+        List<RegisteredClient> result = jdbcOperations.query(SELECT_SQL + filter, rowMapper, TenantContext.current(), arg);
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    private void assertUniqueIdentifiers(RegisteredClient registeredClient) {
+        Integer count = jdbcOperations.queryForObject("SELECT COUNT(*) FROM oauth2_registered_client WHERE tenant_id = ? AND client_id = ?",
+                Integer.class, TenantContext.current(), registeredClient.getClientId());
+        if (count != null && count > 0) {
+            throw new IllegalArgumentException("Registered client must be unique. Found duplicate client identifier: "
+                    + registeredClient.getClientId());
+        }
+    }
+
+    private static Map<String, Object> nonDefault(Map<String, Object> settings, Map<String, Object> defaults) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        settings.forEach((name, value) -> {
+            if (!COLUMN_SETTINGS.contains(name) && !Objects.equals(value, defaults.get(name))) {
+                result.put(name, value);
+            }
+        });
+        return result;
+    }
+
+    private Map<String, Map<String, Object>> readOverflow(String json) {
+        if (json == null || json.isEmpty()) {
+            return Map.of();
+        }
+        try {
+            return objectMapper.readValue(json, new TypeReference<>() {});
+        } catch (Exception e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    private Map<String, Object> readSettings(String json) {
+        try {
+            return objectMapper.readValue(json, new TypeReference<>() {});
+        } catch (Exception e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    // the framework's JSON layout, for nodes of the previous release
+    private String writeSettings(Map<String, Object> settings) {
+        try {
+            return objectMapper.writeValueAsString(settings);
+        } catch (Exception e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    private String writeOverflow(Map<String, Object> overflow) {
+        try {
+            return objectMapper.writeValueAsString(overflow);
+        } catch (Exception e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    private static Set<String> split(String value) {
+        return StringUtils.commaDelimitedListToSet(value);
+    }
+
+    private static String join(Iterable<String> values) {
+        return String.join(",", values);
+    }
+
+    private static Timestamp timestamp(Instant instant) {
+        return instant != null ? Timestamp.from(instant) : null;
+    }
+
+    private static OAuth2TokenFormat resolveTokenFormat(String value) {
+        return OAuth2TokenFormat.REFERENCE.getValue().equals(value) ? OAuth2TokenFormat.REFERENCE : OAuth2TokenFormat.SELF_CONTAINED;
+    }
+
+    private static AuthorizationGrantType resolveAuthorizationGrantType(String value) {
+        if (AuthorizationGrantType.CLIENT_CREDENTIALS.getValue().equals(value)) {
+            return AuthorizationGrantType.CLIENT_CREDENTIALS;
+        }
+        if (AuthorizationGrantType.AUTHORIZATION_CODE.getValue().equals(value)) {
+            return AuthorizationGrantType.AUTHORIZATION_CODE;
+        }
+        if (AuthorizationGrantType.REFRESH_TOKEN.getValue().equals(value)) {
+            return AuthorizationGrantType.REFRESH_TOKEN;
+        }
+        return new AuthorizationGrantType(value);
+    }
+
+    private static ClientAuthenticationMethod resolveClientAuthenticationMethod(String value) {
+        if (ClientAuthenticationMethod.CLIENT_SECRET_BASIC.getValue().equals(value)) {
+            return ClientAuthenticationMethod.CLIENT_SECRET_BASIC;
+        }
+        if (ClientAuthenticationMethod.CLIENT_SECRET_POST.getValue().equals(value)) {
+            return ClientAuthenticationMethod.CLIENT_SECRET_POST;
+        }
+        if (ClientAuthenticationMethod.NONE.getValue().equals(value)) {
+            return ClientAuthenticationMethod.NONE;
+        }
+        return new ClientAuthenticationMethod(value);
+    }
+}
@@ -0,0 +1,342 @@
+package authserver.repo;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.security.jackson2.SecurityJackson2Modules;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.jwt.JwtClaimNames;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.jackson2.OAuth2AuthorizationServerJackson2Module;
+import org.springframework.security.oauth2.server.authorization.settings.OAuth2TokenFormat;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Encodes the {@code attributes} and {@code *_metadata} maps of an authorization. Strings, numbers, booleans,
+ * instants and collections of them (everything in the token claims) are written as tagged values with varint
+ * lengths, and well-known keys such as {@code metadata.token.claims} take one byte; any other value is written
+ * as the framework's allow-listed Jackson JSON, as before. The first byte holds the format version and whether
+ * the rest is deflated. Rows written before the binary format start with {@code '{'} and are parsed as JSON.
+ */
+public class CompactAuthorizationCodec {
+
+    static final int VERSION = 1;
+    private static final int DEFLATED = 0x80;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte KNOWN_STRING = 2;
+    private static final byte TRUE = 3;
+    private static final byte FALSE = 4;
+    private static final byte INT = 5;
+    private static final byte LONG = 6;
+    private static final byte DOUBLE = 7;
+    private static final byte INSTANT = 8;
+    private static final byte LIST = 9;
+    private static final byte SET = 10;
+    private static final byte MAP = 11;
+    private static final byte JSON = 12;
+
+    // part of format version 1: only ever append
+    private static final List<String> KNOWN_STRINGS = List.of(
+            OAuth2Authorization.Token.CLAIMS_METADATA_NAME,
+            OAuth2Authorization.Token.INVALIDATED_METADATA_NAME,
+            OAuth2TokenFormat.class.getName(),
+            OAuth2TokenFormat.SELF_CONTAINED.getValue(),
+            OAuth2TokenFormat.REFERENCE.getValue(),
+            JwtClaimNames.ISS, JwtClaimNames.SUB, JwtClaimNames.AUD, JwtClaimNames.EXP, JwtClaimNames.NBF,
+            JwtClaimNames.IAT, JwtClaimNames.JTI, OAuth2ParameterNames.SCOPE, OAuth2ParameterNames.CLIENT_ID,
+            OAuth2ParameterNames.STATE, Principal.class.getName(), "org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest",
+            OAuth2AccessToken.TokenType.BEARER.getValue(), AuthorizationGrantType.CLIENT_CREDENTIALS.getValue(),
+            AuthorizationGrantType.AUTHORIZATION_CODE.getValue(), AuthorizationGrantType.REFRESH_TOKEN.getValue());
+
+    private static final Map<String, Integer> KNOWN_STRING_INDEX = new HashMap<>();
+
+    static {
+        for (int i = 0; i < KNOWN_STRINGS.size(); i++) {
+            KNOWN_STRING_INDEX.put(KNOWN_STRINGS.get(i), i);
+        }
+    }
+
+    private final boolean compress;
+    private final int compressThresholdBytes;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public CompactAuthorizationCodec(boolean compress, int compressThresholdBytes) {
+        this.compress = compress;
+        this.compressThresholdBytes = compressThresholdBytes;
+        ClassLoader classLoader = CompactAuthorizationCodec.class.getClassLoader();
+        objectMapper.registerModules(SecurityJackson2Modules.getModules(classLoader));
+        objectMapper.registerModule(new OAuth2AuthorizationServerJackson2Module());
+    }
+
+    public byte[] encode(Map<String, Object> data) {
+        Output out = new Output();
+        out.writeByte(VERSION);
+        writeMapEntries(out, data);
+        byte[] encoded = out.toByteArray();
+        if (!compress || encoded.length < compressThresholdBytes) {
+            return encoded;
+        }
+        byte[] deflated = deflate(encoded);
+        return deflated.length < encoded.length ? deflated : encoded;
+    }
+
+    public Map<String, Object> decode(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return new LinkedHashMap<>();
+        }
+        if (isJson(bytes)) {
+            return parseJson(new String(bytes, StandardCharsets.UTF_8));
+        }
+        int header = bytes[0] & 0xff;
+        if ((header & ~DEFLATED) != VERSION) {
+            throw new IllegalArgumentException("Unsupported authorization encoding version " + (header & ~DEFLATED));
+        }
+        ByteBuffer in = (header & DEFLATED) != 0 ? ByteBuffer.wrap(inflate(bytes)) : ByteBuffer.wrap(bytes, 1, bytes.length - 1);
+        return readMapEntries(in);
+    }
+
+    /**
+     * Whether the value was written before the binary format; {@code VERSION} is never a JSON start character.
+     */
+    public static boolean isJson(byte[] bytes) {
+        return bytes != null && bytes.length > 0 && (bytes[0] == '{' || Character.isWhitespace(bytes[0]));
+    }
+
+    private void writeValue(Output out, Object value) {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String s) {
+            writeString(out, s);
+        } else if (value instanceof Boolean b) {
+            out.writeByte(b ? TRUE : FALSE);
+        } else if (value instanceof Integer i) {
+            out.writeByte(INT);
+            out.writeVarLong(zigZag(i));
+        } else if (value instanceof Long l) {
+            out.writeByte(LONG);
+            out.writeVarLong(zigZag(l));
+        } else if (value instanceof Double d) {
+            out.writeByte(DOUBLE);
+            out.writeLong(Double.doubleToLongBits(d));
+        } else if (value instanceof Instant instant) {
+            out.writeByte(INSTANT);
+            out.writeVarLong(zigZag(instant.getEpochSecond()));
+            out.writeVarLong(instant.getNano());
+        } else if ((value instanceof List<?> || value instanceof Set<?>) && isPlainCollection((Collection<?>) value)) {
+            Collection<?> collection = (Collection<?>) value;
+            out.writeByte(value instanceof Set<?> ? SET : LIST);
+            out.writeVarLong(collection.size());
+            collection.forEach(element -> writeValue(out, element));
+        } else if (value instanceof Map<?, ?> map && map.keySet().stream().allMatch(String.class::isInstance)) {
+            out.writeByte(MAP);
+            @SuppressWarnings("unchecked")
+            Map<String, Object> entries = (Map<String, Object>) map;
+            writeMapEntries(out, entries);
+        } else {
+            out.writeByte(JSON);
+            // wrapped like a whole attributes map, so the value keeps its type id and allow-listing
+            Map<String, Object> wrapper = new HashMap<>(1);
+            wrapper.put("v", value);
+            out.writeLengthPrefixed(writeJson(wrapper).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private Object readValue(ByteBuffer in) {
+        byte tag = in.get();
+        return switch (tag) {
+            case NULL -> null;
+            case STRING, KNOWN_STRING -> readString(in, tag);
+            case TRUE -> Boolean.TRUE;
+            case FALSE -> Boolean.FALSE;
+            case INT -> (int) unZigZag(readVarLong(in));
+            case LONG -> unZigZag(readVarLong(in));
+            case DOUBLE -> Double.longBitsToDouble(in.getLong());
+            case INSTANT -> Instant.ofEpochSecond(unZigZag(readVarLong(in)), readVarLong(in));
+            case LIST, SET -> {
+                int size = (int) readVarLong(in);
+                Collection<Object> collection = tag == SET ? new LinkedHashSet<>(size * 2) : new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    collection.add(readValue(in));
+                }
+                yield collection;
+            }
+            case MAP -> readMapEntries(in);
+            case JSON -> parseJson(new String(readBytes(in), StandardCharsets.UTF_8)).get("v");
+            default -> throw new IllegalArgumentException("Unknown authorization value tag " + tag);
+        };
+    }
+
+    private void writeMapEntries(Output out, Map<String, Object> map) {
+        out.writeVarLong(map.size());
+        map.forEach((key, value) -> {
+            writeString(out, key);
+            writeValue(out, value);
+        });
+    }
+
+    private Map<String, Object> readMapEntries(ByteBuffer in) {
+        int size = (int) readVarLong(in);
+        Map<String, Object> map = new LinkedHashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            String key = readString(in, in.get());
+            map.put(key, readValue(in));
+        }
+        return map;
+    }
+
+    private static void writeString(Output out, String value) {
+        Integer known = KNOWN_STRING_INDEX.get(value);
+        if (known != null) {
+            out.writeByte(KNOWN_STRING);
+            out.writeVarLong(known);
+        } else {
+            out.writeByte(STRING);
+            out.writeLengthPrefixed(value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String readString(ByteBuffer in, byte tag) {
+        if (tag == KNOWN_STRING) {
+            return KNOWN_STRINGS.get((int) readVarLong(in));
+        }
+        if (tag != STRING) {
+            throw new IllegalArgumentException("Expected a string, found tag " + tag);
+        }
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(ByteBuffer in) {
+        byte[] bytes = new byte[(int) readVarLong(in)];
+        in.get(bytes);
+        return bytes;
+    }
+
+    private static boolean isPlainCollection(Collection<?> collection) {
+        return collection.stream().allMatch(element -> element == null || element instanceof String
+                || element instanceof Number || element instanceof Boolean || element instanceof Instant);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private String writeJson(Map<String, Object> data) {
+        try {
+            return objectMapper.writeValueAsString(data);
+        } catch (Exception e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    private Map<String, Object> parseJson(String data) {
+        try {
+            return objectMapper.readValue(data, new TypeReference<>() {
+            });
+        } catch (Exception e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    private static byte[] deflate(byte[] encoded) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(encoded, 1, encoded.length - 1);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(encoded.length);
+            out.write(VERSION | DEFLATED);
+            byte[] buffer = new byte[1024];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes) {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(bytes, 1, bytes.length - 1);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length * 3);
+            byte[] buffer = new byte[1024];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Truncated compressed authorization data");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt compressed authorization data", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static final class Output extends ByteArrayOutputStream {
+
+        Output() {
+            super(256);
+        }
+
+        void writeByte(int value) {
+            write(value);
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7fL) != 0) {
+                write((int) ((value & 0x7f) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeLong(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                write((int) (value >>> shift));
+            }
+        }
+
+        void writeLengthPrefixed(byte[] bytes) {
+            writeVarLong(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+    }
+}
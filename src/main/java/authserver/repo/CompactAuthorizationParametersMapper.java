@@ -0,0 +1,76 @@
+package authserver.repo;
+
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.security.oauth2.core.AbstractOAuth2Token;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2DeviceCode;
+import org.springframework.security.oauth2.core.OAuth2UserCode;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.core.oidc.OidcIdToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationCode;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Writes {@code oauth2_authorization} rows with attributes and metadata in the {@link CompactAuthorizationCodec}
+ * format. Parameters are in the order the framework's INSERT and UPDATE statements expect.
+ */
+public class CompactAuthorizationParametersMapper implements Function<OAuth2Authorization, List<SqlParameterValue>> {
+
+    private final CompactAuthorizationCodec codec;
+
+    public CompactAuthorizationParametersMapper(CompactAuthorizationCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public List<SqlParameterValue> apply(OAuth2Authorization authorization) {
+        List<SqlParameterValue> parameters = new ArrayList<>(33);
+        parameters.add(new SqlParameterValue(Types.VARCHAR, authorization.getId()));
+        parameters.add(new SqlParameterValue(Types.VARCHAR, authorization.getRegisteredClientId()));
+        parameters.add(new SqlParameterValue(Types.VARCHAR, authorization.getPrincipalName()));
+        parameters.add(new SqlParameterValue(Types.VARCHAR, authorization.getAuthorizationGrantType().getValue()));
+        parameters.add(new SqlParameterValue(Types.VARCHAR, join(authorization.getAuthorizedScopes())));
+        parameters.add(new SqlParameterValue(Types.BLOB, codec.encode(authorization.getAttributes())));
+        String state = authorization.getAttribute(OAuth2ParameterNames.STATE);
+        parameters.add(new SqlParameterValue(Types.VARCHAR, StringUtils.hasText(state) ? state : null));
+
+        addToken(parameters, authorization.getToken(OAuth2AuthorizationCode.class));
+        OAuth2Authorization.Token<OAuth2AccessToken> accessToken = authorization.getAccessToken();
+        addToken(parameters, accessToken);
+        parameters.add(new SqlParameterValue(Types.VARCHAR,
+                accessToken != null ? accessToken.getToken().getTokenType().getValue() : null));
+        parameters.add(new SqlParameterValue(Types.VARCHAR,
+                accessToken != null ? join(accessToken.getToken().getScopes()) : null));
+        addToken(parameters, authorization.getToken(OidcIdToken.class));
+        addToken(parameters, authorization.getRefreshToken());
+        addToken(parameters, authorization.getToken(OAuth2UserCode.class));
+        addToken(parameters, authorization.getToken(OAuth2DeviceCode.class));
+        return parameters;
+    }
+
+    private void addToken(List<SqlParameterValue> parameters, OAuth2Authorization.Token<? extends AbstractOAuth2Token> token) {
+        AbstractOAuth2Token value = token != null ? token.getToken() : null;
+        parameters.add(new SqlParameterValue(Types.VARCHAR, value != null ? value.getTokenValue() : null));
+        parameters.add(new SqlParameterValue(Types.TIMESTAMP, value != null ? timestamp(value.getIssuedAt()) : null));
+        parameters.add(new SqlParameterValue(Types.TIMESTAMP, value != null ? timestamp(value.getExpiresAt()) : null));
+        parameters.add(new SqlParameterValue(Types.BLOB, token != null ? codec.encode(token.getMetadata()) : null));
+    }
+
+    private static Timestamp timestamp(Instant instant) {
+        return instant != null ? Timestamp.from(instant) : null;
+    }
+
+    private static String join(Collection<String> values) {
+        return CollectionUtils.isEmpty(values) ? null : StringUtils.collectionToDelimitedString(values, ",");
+    }
+}
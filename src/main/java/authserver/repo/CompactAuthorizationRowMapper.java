@@ -0,0 +1,116 @@
+package authserver.repo;
+
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2DeviceCode;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.OAuth2UserCode;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.core.oidc.OidcIdToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationCode;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.util.StringUtils;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads {@code oauth2_authorization} rows whose attributes and metadata are in the {@link CompactAuthorizationCodec}
+ * format or still in JSON. Otherwise the same mapping as the framework's row mapper.
+ */
+public class CompactAuthorizationRowMapper implements RowMapper<OAuth2Authorization> {
+
+    private final RegisteredClientRepository registeredClientRepository;
+    private final CompactAuthorizationCodec codec;
+
+    public CompactAuthorizationRowMapper(RegisteredClientRepository registeredClientRepository, CompactAuthorizationCodec codec) {
+        this.registeredClientRepository = registeredClientRepository;
+        this.codec = codec;
+    }
+
+    @Override
+    public OAuth2Authorization mapRow(ResultSet rs, int rowNum) throws SQLException {
+        String registeredClientId = rs.getString("registered_client_id");
+        RegisteredClient registeredClient = registeredClientRepository.findById(registeredClientId);
+        if (registeredClient == null) {
+            throw new DataRetrievalFailureException("The RegisteredClient with id '" + registeredClientId
+                    + "' was not found in the RegisteredClientRepository.");
+        }
+        Map<String, Object> attributes = codec.decode(rs.getBytes("attributes"));
+        OAuth2Authorization.Builder builder = OAuth2Authorization.withRegisteredClient(registeredClient)
+                .id(rs.getString("id"))
+                .principalName(rs.getString("principal_name"))
+                .authorizationGrantType(new AuthorizationGrantType(rs.getString("authorization_grant_type")))
+                .authorizedScopes(split(rs.getString("authorized_scopes")))
+                .attributes(attrs -> attrs.putAll(attributes));
+        String state = rs.getString("state");
+        if (StringUtils.hasText(state)) {
+            builder.attribute(OAuth2ParameterNames.STATE, state);
+        }
+
+        String authorizationCodeValue = rs.getString("authorization_code_value");
+        if (StringUtils.hasText(authorizationCodeValue)) {
+            Map<String, Object> metadata = codec.decode(rs.getBytes("authorization_code_metadata"));
+            builder.token(new OAuth2AuthorizationCode(authorizationCodeValue, instant(rs, "authorization_code_issued_at"),
+                    instant(rs, "authorization_code_expires_at")), m -> m.putAll(metadata));
+        }
+        String accessTokenValue = rs.getString("access_token_value");
+        if (StringUtils.hasText(accessTokenValue)) {
+            Map<String, Object> metadata = codec.decode(rs.getBytes("access_token_metadata"));
+            String type = rs.getString("access_token_type");
+            OAuth2AccessToken.TokenType tokenType = null;
+            if (OAuth2AccessToken.TokenType.BEARER.getValue().equalsIgnoreCase(type)) {
+                tokenType = OAuth2AccessToken.TokenType.BEARER;
+            } else if (OAuth2AccessToken.TokenType.DPOP.getValue().equalsIgnoreCase(type)) {
+                tokenType = OAuth2AccessToken.TokenType.DPOP;
+            }
+            builder.token(new OAuth2AccessToken(tokenType, accessTokenValue, instant(rs, "access_token_issued_at"),
+                    instant(rs, "access_token_expires_at"), split(rs.getString("access_token_scopes"))), m -> m.putAll(metadata));
+        }
+        String oidcIdTokenValue = rs.getString("oidc_id_token_value");
+        if (StringUtils.hasText(oidcIdTokenValue)) {
+            Map<String, Object> metadata = codec.decode(rs.getBytes("oidc_id_token_metadata"));
+            @SuppressWarnings("unchecked")
+            Map<String, Object> claims = (Map<String, Object>) metadata.get(OAuth2Authorization.Token.CLAIMS_METADATA_NAME);
+            builder.token(new OidcIdToken(oidcIdTokenValue, instant(rs, "oidc_id_token_issued_at"),
+                    instant(rs, "oidc_id_token_expires_at"), claims), m -> m.putAll(metadata));
+        }
+        String refreshTokenValue = rs.getString("refresh_token_value");
+        if (StringUtils.hasText(refreshTokenValue)) {
+            Map<String, Object> metadata = codec.decode(rs.getBytes("refresh_token_metadata"));
+            builder.token(new OAuth2RefreshToken(refreshTokenValue, instant(rs, "refresh_token_issued_at"),
+                    instant(rs, "refresh_token_expires_at")), m -> m.putAll(metadata));
+        }
+        String userCodeValue = rs.getString("user_code_value");
+        if (StringUtils.hasText(userCodeValue)) {
+            Map<String, Object> metadata = codec.decode(rs.getBytes("user_code_metadata"));
+            builder.token(new OAuth2UserCode(userCodeValue, instant(rs, "user_code_issued_at"),
+                    instant(rs, "user_code_expires_at")), m -> m.putAll(metadata));
+        }
+        String deviceCodeValue = rs.getString("device_code_value");
+        if (StringUtils.hasText(deviceCodeValue)) {
+            Map<String, Object> metadata = codec.decode(rs.getBytes("device_code_metadata"));
+            builder.token(new OAuth2DeviceCode(deviceCodeValue, instant(rs, "device_code_issued_at"),
+                    instant(rs, "device_code_expires_at")), m -> m.putAll(metadata));
+        }
+        return builder.build();
+    }
+
+    private static Instant instant(ResultSet rs, String column) throws SQLException {
+        Timestamp timestamp = rs.getTimestamp(column);
+        return timestamp != null ? timestamp.toInstant() : null;
+    }
+
+    private static Set<String> split(String value) {
+        return value != null ? StringUtils.commaDelimitedListToSet(value) : Collections.emptySet();
+    }
+}
@@ -0,0 +1,86 @@
+package authserver.repo;
+
+import authserver.entity.JwkKey;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Signing keys in the {@code jwk_keys} table, whose schema comes from the Flyway migrations only.
+ */
+@Repository
+@ConditionalOnProperty(prefix = "app.storage", name = "type", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcJwkKeyRepository implements JwkKeyRepository {
+
+    private static final String COLUMNS = "id, kid, public_key_pem, private_key_pem, algorithm, created_at, is_active, tenant_id";
+    private static final String INSERT_SQL = "INSERT INTO jwk_keys (kid, public_key_pem, private_key_pem, algorithm, created_at, is_active, tenant_id) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_SQL = "UPDATE jwk_keys SET kid = ?, public_key_pem = ?, private_key_pem = ?, algorithm = ?, "
+            + "is_active = ?, tenant_id = ? WHERE id = ?";
+
+    private static final RowMapper<JwkKey> ROW_MAPPER = (rs, rowNum) -> new JwkKey(
+            rs.getLong("id"),
+            rs.getString("kid"),
+            rs.getString("public_key_pem"),
+            rs.getString("private_key_pem"),
+            rs.getString("algorithm"),
+            rs.getTimestamp("created_at").toLocalDateTime(),
+            rs.getBoolean("is_active"),
+            rs.getString("tenant_id"));
+
+    private final JdbcOperations jdbcOperations;
+
+    public JdbcJwkKeyRepository(JdbcOperations jdbcOperations) {
+        this.jdbcOperations = jdbcOperations;
+    }
+
+    @Override
+    public Optional<JwkKey> findFirstByTenantIdAndIsActiveTrue(String tenantId) {
+        return jdbcOperations.query("SELECT " + COLUMNS + " FROM jwk_keys WHERE tenant_id = ? AND is_active = TRUE ORDER BY id LIMIT 1",
+                ROW_MAPPER, tenantId).stream().findFirst();
+    }
+
+    @Override
+    public List<JwkKey> findAllByTenantId(String tenantId) {
+        return jdbcOperations.query("SELECT " + COLUMNS + " FROM jwk_keys WHERE tenant_id = ? ORDER BY id", ROW_MAPPER, tenantId);
+    }
+
+    @Override
+    public JwkKey save(JwkKey key) {
+        if (key.getIsActive() == null) {
+            key.setIsActive(true);
+        }
+        if (key.getId() != null) {
+            jdbcOperations.update(UPDATE_SQL, key.getKid(), key.getPublicKeyPem(), key.getPrivateKeyPem(), key.getAlgorithm(),
+                    key.getIsActive(), key.getTenantId(), key.getId());
+            return key;
+        }
+        if (key.getCreatedAt() == null) {
+            key.setCreatedAt(LocalDateTime.now());
+        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcOperations.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS);
+            ps.setString(1, key.getKid());
+            ps.setString(2, key.getPublicKeyPem());
+            ps.setString(3, key.getPrivateKeyPem());
+            ps.setString(4, key.getAlgorithm());
+            ps.setTimestamp(5, Timestamp.valueOf(key.getCreatedAt()));
+            ps.setBoolean(6, key.getIsActive());
+            ps.setString(7, key.getTenantId());
+            return ps;
+        }, keyHolder);
+        key.setId(keyHolder.getKeyAs(Long.class));
+        return key;
+    }
+}
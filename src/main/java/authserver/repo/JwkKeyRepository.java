@@ -1,10 +1,19 @@
 package authserver.repo;
 
 import authserver.entity.JwkKey;
-import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.List;
 import java.util.Optional;
 
-public interface JwkKeyRepository extends JpaRepository<JwkKey, Long> {
-    Optional<JwkKey> findFirstByIsActiveTrue();
+/**
+ * Signing key storage. Backed by the {@code jwk_keys} table ({@link JdbcJwkKeyRepository}) or, with embedded storage, by the
+ * embedded store.
+ */
+public interface JwkKeyRepository {
+
+    Optional<JwkKey> findFirstByTenantIdAndIsActiveTrue(String tenantId);
+
+    List<JwkKey> findAllByTenantId(String tenantId);
+
+    JwkKey save(JwkKey key);
 }
@@ -0,0 +1,59 @@
+package authserver.repo;
+
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.security.oauth2.server.authorization.client.JdbcRegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * V6: converts the JSON {@code client_settings}/{@code token_settings} of existing clients into the typed columns
+ * added by V5, using the framework's own row mapper to read the old layout. The JSON columns stay until every node
+ * reads the typed ones (see db/contract).
+ * Registered as a bean so Flyway gets it without classpath scanning, which also works in the native image.
+ */
+@Component
+public class RegisteredClientColumnsMigration implements JavaMigration {
+
+    private static final String SELECT_LEGACY_SQL = "SELECT id, client_id, client_id_issued_at, client_secret, client_secret_expires_at, "
+            + "client_name, client_authentication_methods, authorization_grant_types, redirect_uris, post_logout_redirect_uris, scopes, "
+            + "client_settings, token_settings FROM oauth2_registered_client";
+    private static final String UPDATE_SQL = "UPDATE oauth2_registered_client SET access_token_ttl_seconds = ?, access_token_format = ?, "
+            + "reuse_access_token = ?, settings_overflow = ? WHERE id = ?";
+
+    @Override
+    public MigrationVersion getVersion() {
+        return MigrationVersion.fromVersion("6");
+    }
+
+    @Override
+    public String getDescription() {
+        return "registered client settings columns";
+    }
+
+    @Override
+    public Integer getChecksum() {
+        return null;
+    }
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return true;
+    }
+
+    @Override
+    public void migrate(Context context) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(context.getConnection(), true));
+        ColumnarRegisteredClientRepository repository = new ColumnarRegisteredClientRepository(jdbcTemplate);
+        List<RegisteredClient> clients = jdbcTemplate.query(SELECT_LEGACY_SQL, new JdbcRegisteredClientRepository.RegisteredClientRowMapper());
+        for (RegisteredClient client : clients) {
+            Object[] settings = repository.settingsColumns(client);
+            jdbcTemplate.update(UPDATE_SQL, settings[0], settings[1], settings[2], settings[3], client.getId());
+        }
+    }
+}
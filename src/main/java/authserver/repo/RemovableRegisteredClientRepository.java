@@ -0,0 +1,11 @@
+package authserver.repo;
+
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+
+/**
+ * A {@link RegisteredClientRepository} that can also remove registrations, which the framework interface cannot.
+ */
+public interface RemovableRegisteredClientRepository extends RegisteredClientRepository {
+
+    void removeById(String id);
+}
@@ -0,0 +1,99 @@
+package authserver.security;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AIMD concurrency limit. The limit grows by one per limit's worth of fast completions while the limit is
+ * actually being used, and is cut by {@code backoffRatio} when a request exceeds the latency target or fails.
+ * At most one cut is applied per latency target interval, so a burst of slow responses that were all admitted
+ * under the old limit does not collapse it to the minimum.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double EWMA_WEIGHT = 0.1;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyTargetNanos;
+    private final double backoffRatio;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+    private volatile double ewmaLatencyNanos;
+    private long lastDecreaseNanos;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long latencyTargetMillis, double backoffRatio) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTargetNanos = TimeUnit.MILLISECONDS.toNanos(latencyTargetMillis);
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.lastDecreaseNanos = System.nanoTime() - latencyTargetNanos;
+    }
+
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    /**
+     * Acquires {@code permits} at once, e.g. one per token of a batch. A request wider than the limit is only
+     * admitted while nothing else is in flight, so it is delayed but never starved.
+     */
+    public boolean tryAcquire(int permits) {
+        int limitNow = getLimit();
+        while (true) {
+            int current = inFlight.get();
+            if (current > 0 && current + permits > limitNow) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + permits)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases a permit obtained from {@link #tryAcquire()}.
+     *
+     * @param latencyNanos time the admitted request took
+     * @param overloaded whether the request failed in a way that indicates overload (e.g. a 5xx)
+     */
+    public void release(long latencyNanos, boolean overloaded) {
+        release(1, latencyNanos, overloaded);
+    }
+
+    /**
+     * Releases permits obtained from {@link #tryAcquire(int)}. The latency is taken per permit, so a batch
+     * that takes longer in proportion to its size does not count as slow.
+     */
+    public void release(int permits, long latencyNanos, boolean overloaded) {
+        int inFlightBefore = inFlight.getAndAdd(-permits);
+        long permitLatencyNanos = latencyNanos / permits;
+        long now = System.nanoTime();
+        synchronized (this) {
+            ewmaLatencyNanos = ewmaLatencyNanos == 0 ? permitLatencyNanos : ewmaLatencyNanos + EWMA_WEIGHT * (permitLatencyNanos - ewmaLatencyNanos);
+            if (overloaded || permitLatencyNanos > latencyTargetNanos) {
+                if (now - lastDecreaseNanos >= latencyTargetNanos) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    lastDecreaseNanos = now;
+                }
+            } else if (inFlightBefore * 2 >= limit) {
+                // only grow while demand is close to the limit, otherwise the limit drifts up unchecked
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getAverageLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis((long) ewmaLatencyNanos);
+    }
+}
@@ -0,0 +1,179 @@
+package authserver.security;
+
+import authserver.config.AuthServerProperties;
+import authserver.profiling.TokenPipelineEvents;
+import authserver.tenant.TenantRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Sheds token endpoint load above an adaptive concurrency limit with {@code 503} and {@code Retry-After},
+ * instead of letting requests queue on Tomcat threads behind a slow database or a saturated CPU.
+ * Only the token and token batch endpoints are limited; health checks and JWKS are never rejected. A batch
+ * takes one permit per requested token, so it cannot mint a limit's worth of tokens on a single permit; its
+ * body is read here to count them and replayed to the controller.
+ */
+@Component
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionControlFilter.class);
+
+    private final TenantRegistry tenantRegistry;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final Counter rejected;
+
+    public AdmissionControlFilter(AuthServerProperties authServerProperties, TenantRegistry tenantRegistry,
+                                  ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.tenantRegistry = tenantRegistry;
+        this.objectMapper = objectMapper;
+        AuthServerProperties.AdmissionControl cfg = authServerProperties.getAdmissionControl();
+        this.enabled = cfg.isEnabled();
+        this.limiter = new AdaptiveConcurrencyLimiter(cfg.getInitialLimit(), cfg.getMinLimit(), cfg.getMaxLimit(),
+                cfg.getLatencyTargetMillis(), cfg.getBackoffRatio());
+        this.rejected = Counter.builder("authserver.admission.rejected")
+                .description("Token requests shed by admission control")
+                .register(meterRegistry);
+        Gauge.builder("authserver.admission.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit of the token endpoint")
+                .register(meterRegistry);
+        Gauge.builder("authserver.admission.inflight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Token requests currently being processed")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !(tenantRegistry.isTokenEndpoint(request) || tenantRegistry.isTokenBatchEndpoint(request));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        int permits = 1;
+        String endpoint = TenantRegistry.TOKEN_ENDPOINT;
+        if (tenantRegistry.isTokenBatchEndpoint(request)) {
+            byte[] body = request.getInputStream().readAllBytes();
+            permits = batchSize(body);
+            endpoint = TenantRegistry.TOKEN_BATCH_ENDPOINT;
+            request = new CachedBodyRequest(request, body);
+        }
+
+        TokenPipelineEvents.RateLimitDecision event = new TokenPipelineEvents.RateLimitDecision();
+        event.begin();
+        boolean admitted = limiter.tryAcquire(permits);
+        if (event.shouldCommit()) {
+            event.limiter = "admission-control";
+            event.key = endpoint;
+            event.allowed = admitted;
+            event.commit();
+        }
+        if (!admitted) {
+            rejected.increment();
+            logger.debug("Shedding {} request for {} tokens, limit {} reached", endpoint, permits, limiter.getLimit());
+            sendOverloadedResponse(response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = response.getStatus() >= 500;
+        } finally {
+            limiter.release(permits, System.nanoTime() - start, failed);
+        }
+    }
+
+    // a body that is not a batch counts as one token; the controller rejects it
+    private int batchSize(byte[] body) {
+        try {
+            return Math.max(1, objectMapper.readTree(body).path("tokens").size());
+        } catch (IOException e) {
+            return 1;
+        }
+    }
+
+    private void sendOverloadedResponse(HttpServletResponse response) throws IOException {
+        // a client retrying after roughly one average request time is likely to be admitted
+        long retryAfterSeconds = Math.max(1, (limiter.getAverageLatencyMillis() + 999) / 1000);
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.setHeader("Cache-Control", "no-store");
+        response.setContentType("application/json");
+        response.getWriter().write(
+            "{\"error\": \"temporarily_unavailable\", " +
+            "\"error_description\": \"The server is overloaded. Please retry later.\"}"
+        );
+    }
+
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+    }
+}
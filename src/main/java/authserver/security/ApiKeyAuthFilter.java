@@ -60,7 +60,7 @@ public class ApiKeyAuthFilter extends OncePerRequestFilter {
 
     private boolean requiresApiKeyAuth(String path) {
         return path.matches("^/api/keys/rotate") ||
-               path.matches("^/api/clients/.*/admin$") ||
+               path.matches("^/api/clients/.*/admin(/.*)?$") ||
                path.matches("^/api/admin/.*");
     }
 
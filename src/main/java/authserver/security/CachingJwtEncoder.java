@@ -0,0 +1,241 @@
+package authserver.security;
+
+import authserver.profiling.TokenPipelineEvents;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.jwk.RSAKey;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwtEncodingException;
+
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * RS256 {@link JwtEncoder} for the token hot path. The Base64URL header for the active key is computed once
+ * per key, {@link Signature} instances are kept per thread and key and initialized only when the key rotates,
+ * and claims are written straight to JSON in a per-thread buffer. Anything it does not handle (other algorithms, extra header parameters, unusual claim
+ * types) is passed to the delegate encoder.
+ */
+public class CachingJwtEncoder implements JwtEncoder {
+
+    private static final Base64.Encoder BASE64URL = Base64.getUrlEncoder().withoutPadding();
+    private static final int MAX_RETAINED_BUFFER = 16 * 1024;
+    private static final int MAX_SIGNING_STATES = 256;
+
+    private final Supplier<RSAKey> activeKey;
+    private final JwtEncoder delegate;
+    private final ThreadLocal<StringBuilder> jsonBuffer = ThreadLocal.withInitial(() -> new StringBuilder(512));
+    // one entry per key ring in use (a single one unless tenants are enabled), keyed by kid
+    private final Map<String, SigningState> signingStates = new ConcurrentHashMap<>();
+
+    public CachingJwtEncoder(Supplier<RSAKey> activeKey, JwtEncoder delegate) {
+        this.activeKey = activeKey;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Jwt encode(JwtEncoderParameters parameters) throws JwtEncodingException {
+        TokenPipelineEvents.TokenSigning event = new TokenPipelineEvents.TokenSigning();
+        event.begin();
+        Jwt jwt = encodeFast(parameters);
+        boolean fastPath = jwt != null;
+        if (!fastPath) {
+            jwt = delegate.encode(parameters);
+        }
+        if (event.shouldCommit()) {
+            event.clientId = jwt.getSubject();
+            event.kid = (String) jwt.getHeaders().get("kid");
+            event.fastPath = fastPath;
+            event.commit();
+        }
+        return jwt;
+    }
+
+    /**
+     * @return the signed token, or null if the delegate has to encode it
+     */
+    private Jwt encodeFast(JwtEncoderParameters parameters) {
+        JwsHeader header = parameters.getJwsHeader();
+        if (header != null && (header.getHeaders().size() != 1 || !SignatureAlgorithm.RS256.equals(header.getAlgorithm()))) {
+            return null;
+        }
+
+        JwtClaimsSet claims = parameters.getClaims();
+        String payloadJson;
+        try {
+            payloadJson = toJson(claims.getClaims());
+        } catch (IllegalArgumentException unsupportedClaim) {
+            return null;
+        }
+
+        SigningState state = currentSigningState();
+        byte[] payload = BASE64URL.encode(payloadJson.getBytes(StandardCharsets.UTF_8));
+        byte[] signature;
+        try {
+            // sign() leaves the signer initialized with the same key for the next token
+            Signature signer = state.signer.get();
+            signer.update(state.encodedHeader);
+            signer.update((byte) '.');
+            signer.update(payload);
+            signature = BASE64URL.encode(signer.sign());
+        } catch (GeneralSecurityException e) {
+            // the signer may hold part of this token; start the next one from a fresh instance
+            state.signer.remove();
+            throw new JwtEncodingException("An error occurred while signing the JWT: " + e.getMessage(), e);
+        }
+
+        byte[] token = new byte[state.encodedHeader.length + payload.length + signature.length + 2];
+        System.arraycopy(state.encodedHeader, 0, token, 0, state.encodedHeader.length);
+        int pos = state.encodedHeader.length;
+        token[pos++] = '.';
+        System.arraycopy(payload, 0, token, pos, payload.length);
+        pos += payload.length;
+        token[pos++] = '.';
+        System.arraycopy(signature, 0, token, pos, signature.length);
+
+        return Jwt.withTokenValue(new String(token, StandardCharsets.US_ASCII))
+                .headers(h -> h.putAll(state.headers))
+                .claims(c -> c.putAll(claims.getClaims()))
+                .build();
+    }
+
+    private SigningState currentSigningState() {
+        RSAKey key = activeKey.get();
+        SigningState state = signingStates.get(key.getKeyID());
+        if (state == null || state.key != key) {
+            // key rotated (or first use): rebuild header and signers for the new kid
+            if (signingStates.size() >= MAX_SIGNING_STATES) {
+                signingStates.clear();
+            }
+            state = new SigningState(key);
+            signingStates.put(key.getKeyID(), state);
+        }
+        return state;
+    }
+
+    private String toJson(Map<String, Object> claims) {
+        StringBuilder json = jsonBuffer.get();
+        json.setLength(0);
+        writeValue(json, claims);
+        String result = json.toString();
+        if (json.capacity() > MAX_RETAINED_BUFFER) {
+            jsonBuffer.remove();
+        }
+        return result;
+    }
+
+    private static void writeValue(StringBuilder json, Object value) {
+        if (value == null) {
+            json.append("null");
+        } else if (value instanceof String s) {
+            writeString(json, s);
+        } else if (value instanceof Instant instant) {
+            // NumericDate: seconds since the epoch
+            json.append(instant.getEpochSecond());
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            json.append(((Number) value).longValue());
+        } else if (value instanceof Boolean b) {
+            json.append(b.booleanValue());
+        } else if (value instanceof URL url) {
+            writeString(json, url.toExternalForm());
+        } else if (value instanceof Collection<?> collection) {
+            json.append('[');
+            boolean first = true;
+            for (Object element : collection) {
+                if (!first) {
+                    json.append(',');
+                }
+                writeValue(json, element);
+                first = false;
+            }
+            json.append(']');
+        } else if (value instanceof Map<?, ?> map) {
+            json.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (!(entry.getKey() instanceof String name)) {
+                    throw new IllegalArgumentException("Unsupported claim name type");
+                }
+                if (!first) {
+                    json.append(',');
+                }
+                writeString(json, name);
+                json.append(':');
+                writeValue(json, entry.getValue());
+                first = false;
+            }
+            json.append('}');
+        } else {
+            throw new IllegalArgumentException("Unsupported claim value type: " + value.getClass().getName());
+        }
+    }
+
+    private static void writeString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                case '\b' -> json.append("\\b");
+                case '\f' -> json.append("\\f");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+
+    private static final class SigningState {
+
+        private final RSAKey key;
+        private final PrivateKey privateKey;
+        private final byte[] encodedHeader;
+        private final Map<String, Object> headers;
+        private final ThreadLocal<Signature> signer;
+
+        SigningState(RSAKey key) {
+            this.key = key;
+            try {
+                this.privateKey = key.toPrivateKey();
+            } catch (JOSEException e) {
+                throw new JwtEncodingException("Active JWK has no usable RSA private key", e);
+            }
+            this.headers = Map.of("alg", SignatureAlgorithm.RS256.getName(), "kid", key.getKeyID());
+            StringBuilder json = new StringBuilder(64).append("{\"alg\":\"RS256\",\"kid\":");
+            writeString(json, key.getKeyID());
+            json.append('}');
+            this.encodedHeader = BASE64URL.encode(json.toString().getBytes(StandardCharsets.UTF_8));
+            this.signer = ThreadLocal.withInitial(() -> {
+                try {
+                    Signature signature = Signature.getInstance("SHA256withRSA");
+                    signature.initSign(privateKey);
+                    return signature;
+                } catch (GeneralSecurityException e) {
+                    throw new JwtEncodingException("Cannot initialize SHA256withRSA signing with the active JWK", e);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package authserver.security;
+
+import authserver.service.ChangeEvent;
+import authserver.service.ChangeListener;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jose.jws.JwsAlgorithm;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtDecoderFactory;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.server.authorization.authentication.JwtClientAssertionDecoderFactory;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decoders for {@code private_key_jwt} client assertions signed with keys registered inline with the client
+ * (the {@link #JWK_SET_SETTING} client setting), so authentication verifies a signature against an already parsed
+ * key set instead of hashing a secret or fetching a JWK Set URL. Decoders are cached per registration and rebuilt
+ * when its key set changes. Clients without inline keys are handled by the framework's
+ * {@link JwtClientAssertionDecoderFactory}. Besides the framework's claim checks, assertions must carry a
+ * {@code jti} that was not used before and must not be valid for longer than {@code maxLifetime}.
+ */
+public class ClientJwkSetDecoderFactory implements JwtDecoderFactory<RegisteredClient>, ChangeListener {
+
+    public static final String JWK_SET_SETTING = "settings.client.jwk-set";
+
+    public static final int MAX_KEYS = 10;
+
+    private static final String ERROR_URI = "https://datatracker.ietf.org/doc/html/rfc7523#section-3";
+
+    private static final Set<JWSAlgorithm> SIGNATURE_ALGORITHMS;
+
+    static {
+        Set<JWSAlgorithm> algorithms = new HashSet<>(JWSAlgorithm.Family.RSA);
+        algorithms.addAll(JWSAlgorithm.Family.EC);
+        SIGNATURE_ALGORITHMS = Set.copyOf(algorithms);
+    }
+
+    private final JwtClientAssertionDecoderFactory jwkSetUrlDecoders = new JwtClientAssertionDecoderFactory();
+    private final Map<String, CachedDecoder> decoders = new ConcurrentHashMap<>();
+    private final JtiReplayCache replayCache;
+    private final Duration maxLifetime;
+
+    public ClientJwkSetDecoderFactory(JtiReplayCache replayCache, Duration maxLifetime) {
+        this.replayCache = replayCache;
+        this.maxLifetime = maxLifetime;
+        jwkSetUrlDecoders.setJwtValidatorFactory(this::validator);
+    }
+
+    @Override
+    public JwtDecoder createDecoder(RegisteredClient registeredClient) {
+        String jwkSet = registeredClient.getClientSettings().getSetting(JWK_SET_SETTING);
+        if (jwkSet == null) {
+            return jwkSetUrlDecoders.createDecoder(registeredClient);
+        }
+        CachedDecoder cached = decoders.get(registeredClient.getId());
+        if (cached != null && cached.jwkSet().equals(jwkSet)) {
+            return cached.decoder();
+        }
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(processor(registeredClient, jwkSet));
+        decoder.setJwtValidator(validator(registeredClient));
+        decoders.put(registeredClient.getId(), new CachedDecoder(registeredClient.getClientId(), jwkSet, decoder));
+        return decoder;
+    }
+
+    @Override
+    public void onChange(ChangeEvent event) {
+        if (event.entityType() == ChangeEvent.EntityType.CLIENT && event.changeType() == ChangeEvent.ChangeType.DELETED) {
+            decoders.values().removeIf(cached -> cached.clientId().equals(event.entityId()));
+        }
+    }
+
+    /**
+     * Parses a client's JWK Set, keeping only its public keys.
+     *
+     * @throws IllegalArgumentException if it is not a JWK Set of 1 to {@value #MAX_KEYS} RSA or EC keys
+     */
+    public static JWKSet parsePublicKeys(Map<String, Object> jwks) {
+        JWKSet jwkSet;
+        try {
+            jwkSet = JWKSet.parse(jwks).toPublicJWKSet();
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Invalid JWK Set: " + e.getMessage());
+        }
+        if (jwkSet.getKeys().isEmpty() || jwkSet.getKeys().size() > MAX_KEYS) {
+            throw new IllegalArgumentException("JWK Set must contain between 1 and " + MAX_KEYS + " public keys");
+        }
+        jwkSet.getKeys().forEach(jwk -> {
+            String type = jwk.getKeyType().getValue();
+            if (!"RSA".equals(type) && !"EC".equals(type)) {
+                throw new IllegalArgumentException("Unsupported JWK key type: " + type);
+            }
+        });
+        return jwkSet;
+    }
+
+    private static DefaultJWTProcessor<SecurityContext> processor(RegisteredClient registeredClient, String jwkSet) {
+        JWKSet keys;
+        try {
+            keys = JWKSet.parse(jwkSet);
+        } catch (ParseException e) {
+            throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.INVALID_CLIENT,
+                    "Unreadable JWK Set registered for client '" + registeredClient.getId() + "'", ERROR_URI));
+        }
+        JwsAlgorithm configured = registeredClient.getClientSettings().getTokenEndpointAuthenticationSigningAlgorithm();
+        Set<JWSAlgorithm> algorithms = configured instanceof SignatureAlgorithm
+                ? Set.of(JWSAlgorithm.parse(configured.getName())) : SIGNATURE_ALGORITHMS;
+        DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+        processor.setJWSKeySelector(new JWSVerificationKeySelector<>(algorithms, new ImmutableJWKSet<>(keys)));
+        // claims are checked by the Spring validators
+        processor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+        return processor;
+    }
+
+    private OAuth2TokenValidator<Jwt> validator(RegisteredClient registeredClient) {
+        OAuth2TokenValidator<Jwt> singleUse = jwt -> {
+            Instant expiresAt = jwt.getExpiresAt();
+            if (expiresAt == null || expiresAt.isAfter(Instant.now().plus(maxLifetime))) {
+                return failure("Client assertion must expire within " + maxLifetime.toSeconds() + " seconds");
+            }
+            if (jwt.getId() == null || jwt.getId().isBlank()) {
+                return failure("Client assertion must have a jti claim");
+            }
+            if (!replayCache.firstUse(registeredClient.getClientId(), jwt.getId(), expiresAt)) {
+                return failure("Client assertion was already used");
+            }
+            return OAuth2TokenValidatorResult.success();
+        };
+        OAuth2TokenValidator<Jwt> claims = JwtClientAssertionDecoderFactory.DEFAULT_JWT_VALIDATOR_FACTORY.apply(registeredClient);
+        // the replay check only runs for otherwise valid assertions, so that only those are remembered
+        return jwt -> {
+            OAuth2TokenValidatorResult result = claims.validate(jwt);
+            return result.hasErrors() ? result : singleUse.validate(jwt);
+        };
+    }
+
+    private static OAuth2TokenValidatorResult failure(String description) {
+        return OAuth2TokenValidatorResult.failure(new OAuth2Error(OAuth2ErrorCodes.INVALID_CLIENT, description, ERROR_URI));
+    }
+
+    private record CachedDecoder(String clientId, String jwkSet, JwtDecoder decoder) {
+    }
+}
@@ -0,0 +1,95 @@
+package authserver.security;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * Client secret hashing. Secrets generated by the server carry 256 bits of entropy and are stored as a
+ * peppered HMAC-SHA-256 ({@code {hmac-sha256}}); caller-chosen secrets keep BCrypt ({@code {bcrypt}}).
+ * Hashes written before the scheme prefixes existed are plain BCrypt and are matched as such. They are never
+ * re-encoded: whether such a secret was generated is not recorded, so the only possible upgrade is to the same
+ * BCrypt hash with a prefix, an extra write on the token path for nothing. Such clients stay on BCrypt.
+ */
+public class ClientSecretEncoder implements PasswordEncoder {
+
+    public static final String BCRYPT = "bcrypt";
+    public static final String HMAC_SHA256 = "hmac-sha256";
+
+    private static final String HMAC_PREFIX = "{" + HMAC_SHA256 + "}";
+
+    private final HmacSha256Encoder hmac;
+    private final BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder();
+    private final DelegatingPasswordEncoder matcher;
+
+    public ClientSecretEncoder(String pepper) {
+        this.hmac = new HmacSha256Encoder(pepper.getBytes(StandardCharsets.UTF_8));
+        this.matcher = new DelegatingPasswordEncoder(BCRYPT, Map.of(BCRYPT, bcrypt, HMAC_SHA256, hmac));
+        // legacy hashes have no {id} prefix
+        this.matcher.setDefaultPasswordEncoderForMatches(bcrypt);
+    }
+
+    public String encodeGenerated(CharSequence rawSecret) {
+        return HMAC_PREFIX + hmac.encode(rawSecret);
+    }
+
+    public String encodeProvided(CharSequence rawSecret) {
+        return matcher.encode(rawSecret);
+    }
+
+    /**
+     * Whether a secret was generated is not known here, so this encodes like {@link #encodeProvided}.
+     */
+    @Override
+    public String encode(CharSequence rawSecret) {
+        return encodeProvided(rawSecret);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawSecret, String encodedSecret) {
+        return matcher.matches(rawSecret, encodedSecret);
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedSecret) {
+        return false;
+    }
+
+    private static final class HmacSha256Encoder implements PasswordEncoder {
+
+        private final SecretKeySpec key;
+
+        HmacSha256Encoder(byte[] pepper) {
+            this.key = new SecretKeySpec(pepper, "HmacSHA256");
+        }
+
+        @Override
+        public String encode(CharSequence rawSecret) {
+            try {
+                Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(key);
+                byte[] digest = mac.doFinal(rawSecret.toString().getBytes(StandardCharsets.UTF_8));
+                return Base64.getEncoder().encodeToString(digest);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 is not available", e);
+            }
+        }
+
+        @Override
+        public boolean matches(CharSequence rawSecret, String encodedSecret) {
+            if (rawSecret == null || encodedSecret == null) {
+                return false;
+            }
+            return MessageDigest.isEqual(encode(rawSecret).getBytes(StandardCharsets.US_ASCII),
+                    encodedSecret.getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+}
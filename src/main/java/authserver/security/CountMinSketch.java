@@ -0,0 +1,70 @@
+package authserver.security;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size count-min sketch of string occurrences. {@link #estimate} never undercounts and overcounts by at
+ * most about {@code e / width} of all occurrences with probability {@code 1 - e^-depth}, whatever the number of
+ * distinct keys. Increments and estimates are lock-free; uses the hashing of {@link BloomFilter}.
+ */
+public final class CountMinSketch {
+
+    private final AtomicLongArray counters;
+    private final int depth;
+    private final int widthMask;
+
+    /**
+     * @param width counters per row, rounded up to a power of two
+     */
+    public CountMinSketch(int depth, int width) {
+        this.depth = depth;
+        int w = Integer.highestOneBit(Math.max(2, width - 1)) << 1;
+        this.widthMask = w - 1;
+        this.counters = new AtomicLongArray(Math.multiplyExact(depth, w));
+    }
+
+    /**
+     * Counts one occurrence of {@code key}.
+     *
+     * @return the estimated number of occurrences, including this one
+     */
+    public long add(String key) {
+        long hash = BloomFilter.hash(key);
+        long h1 = BloomFilter.mix(hash);
+        long h2 = BloomFilter.mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.incrementAndGet(index(row, h1 + row * h2)));
+        }
+        return estimate;
+    }
+
+    public long estimate(String key) {
+        long hash = BloomFilter.hash(key);
+        long h1 = BloomFilter.mix(hash);
+        long h2 = BloomFilter.mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.get(index(row, h1 + row * h2)));
+        }
+        return estimate;
+    }
+
+    public void clear() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+    }
+
+    public int getWidth() {
+        return widthMask + 1;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    private int index(int row, long hash) {
+        return row * (widthMask + 1) + (int) (hash & widthMask);
+    }
+}
@@ -0,0 +1,55 @@
+package authserver.security;
+
+import authserver.tenant.TenantRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Counts token and token batch requests by client id and source IP, and client registrations by source IP, in
+ * {@link HeavyHitters}. Runs ahead of every check that could reject the request, so floods are counted too.
+ * Token requests of the start-up warm-up are not counted.
+ */
+public class HeavyHitterFilter extends OncePerRequestFilter {
+
+    private static final String REGISTRATION_ENDPOINT = "/api/clients";
+
+    private final HeavyHitters heavyHitters;
+    private final TenantRegistry tenantRegistry;
+    private final WarmupClient warmupClient;
+
+    public HeavyHitterFilter(HeavyHitters heavyHitters, TenantRegistry tenantRegistry, WarmupClient warmupClient) {
+        this.heavyHitters = heavyHitters;
+        this.tenantRegistry = tenantRegistry;
+        this.warmupClient = warmupClient;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!"POST".equals(request.getMethod())) {
+            return true;
+        }
+        String path = tenantRegistry.endpointPath(request);
+        return !(TenantRegistry.TOKEN_ENDPOINT.equals(path) || TenantRegistry.TOKEN_BATCH_ENDPOINT.equals(path)
+                || REGISTRATION_ENDPOINT.equals(path));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        // registrations carry no client id
+        String clientId = REGISTRATION_ENDPOINT.equals(tenantRegistry.endpointPath(request))
+                ? null : UnknownClientFilter.clientId(request);
+        if (!warmupClient.is(clientId)) {
+            heavyHitters.recordSourceIp(RateLimitingFilter.getClientIpAddress(request));
+            if (clientId != null) {
+                heavyHitters.recordClient(clientId);
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,159 @@
+package authserver.security;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * The most frequent keys (client ids, source IPs) over a sliding window, in memory that does not grow with the
+ * number of distinct keys. The window is a ring of buckets, each with a {@link CountMinSketch} of all keys seen in
+ * it and a space-saving table of its {@code capacity} most frequent keys: a key that is not tracked replaces the
+ * least frequent tracked key once its sketch estimate is higher. Recording is lock-free unless a key enters a full
+ * table, which only keys more frequent than every tracked one do. Counts are estimates and may include a few
+ * occurrences from just before a bucket was reused.
+ */
+public class HeavyHitterTracker {
+
+    // keys are taken from request headers, so their size is bounded too
+    static final int MAX_KEY_LENGTH = 128;
+
+    private final Bucket[] buckets;
+    private final long bucketMillis;
+    private final int capacity;
+    private final LongSupplier clock;
+
+    public HeavyHitterTracker(int bucketCount, long bucketMillis, int sketchDepth, int sketchWidth, int capacity) {
+        this(bucketCount, bucketMillis, sketchDepth, sketchWidth, capacity, System::currentTimeMillis);
+    }
+
+    HeavyHitterTracker(int bucketCount, long bucketMillis, int sketchDepth, int sketchWidth, int capacity, LongSupplier clock) {
+        this.buckets = new Bucket[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new Bucket(new CountMinSketch(sketchDepth, sketchWidth));
+        }
+        this.bucketMillis = bucketMillis;
+        this.capacity = capacity;
+        this.clock = clock;
+    }
+
+    public void record(String key) {
+        if (key.length() > MAX_KEY_LENGTH) {
+            key = key.substring(0, MAX_KEY_LENGTH);
+        }
+        long epoch = clock.getAsLong() / bucketMillis;
+        Bucket bucket = buckets[(int) (epoch % buckets.length)];
+        if (bucket.epoch != epoch) {
+            bucket.reset(epoch);
+        }
+        bucket.total.increment();
+        bucket.offer(key, bucket.sketch.add(key), capacity);
+    }
+
+    /**
+     * The {@code limit} most frequent keys of the window, most frequent first.
+     */
+    public List<HeavyHitter> top(int limit) {
+        List<Bucket> live = liveBuckets();
+        Set<String> candidates = new HashSet<>();
+        live.forEach(bucket -> candidates.addAll(bucket.top.keySet()));
+        List<HeavyHitter> hitters = new ArrayList<>(candidates.size());
+        for (String key : candidates) {
+            long estimate = 0;
+            for (Bucket bucket : live) {
+                estimate += bucket.sketch.estimate(key);
+            }
+            hitters.add(new HeavyHitter(key, estimate));
+        }
+        hitters.sort(Comparator.comparingLong(HeavyHitter::estimate).reversed().thenComparing(HeavyHitter::key));
+        return hitters.size() > limit ? List.copyOf(hitters.subList(0, limit)) : hitters;
+    }
+
+    /**
+     * Occurrences of all keys in the window.
+     */
+    public long total() {
+        return liveBuckets().stream().mapToLong(bucket -> bucket.total.sum()).sum();
+    }
+
+    public long getWindowMillis() {
+        return bucketMillis * buckets.length;
+    }
+
+    private List<Bucket> liveBuckets() {
+        long current = clock.getAsLong() / bucketMillis;
+        List<Bucket> live = new ArrayList<>(buckets.length);
+        for (Bucket bucket : buckets) {
+            if (current - bucket.epoch < buckets.length) {
+                live.add(bucket);
+            }
+        }
+        return live;
+    }
+
+    public record HeavyHitter(String key, long estimate) {
+    }
+
+    private static final class Bucket {
+
+        private final CountMinSketch sketch;
+        private final Map<String, Long> top = new ConcurrentHashMap<>();
+        private final LongAdder total = new LongAdder();
+        private volatile long epoch = Long.MIN_VALUE / 2;
+        // estimate of the least frequent tracked key once the table is full; only written under the lock
+        private volatile long admissionThreshold;
+
+        private Bucket(CountMinSketch sketch) {
+            this.sketch = sketch;
+        }
+
+        private synchronized void reset(long newEpoch) {
+            if (newEpoch > epoch) {
+                sketch.clear();
+                top.clear();
+                total.reset();
+                admissionThreshold = 0;
+                epoch = newEpoch;
+            }
+        }
+
+        private void offer(String key, long estimate, int capacity) {
+            Long tracked = top.get(key);
+            if (tracked != null) {
+                if (estimate > tracked) {
+                    top.replace(key, tracked, estimate);
+                }
+                return;
+            }
+            if (estimate <= admissionThreshold) {
+                return;
+            }
+            synchronized (this) {
+                if (top.size() >= capacity) {
+                    Map.Entry<String, Long> least = null;
+                    for (Map.Entry<String, Long> entry : top.entrySet()) {
+                        if (least == null || entry.getValue() < least.getValue()) {
+                            least = entry;
+                        }
+                    }
+                    if (least != null && estimate <= least.getValue()) {
+                        admissionThreshold = least.getValue();
+                        return;
+                    }
+                    if (least != null) {
+                        top.remove(least.getKey());
+                    }
+                }
+                top.put(key, estimate);
+                if (top.size() >= capacity) {
+                    admissionThreshold = top.values().stream().mapToLong(Long::longValue).min().orElse(0);
+                }
+            }
+        }
+    }
+}
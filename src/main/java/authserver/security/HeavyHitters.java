@@ -0,0 +1,58 @@
+package authserver.security;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.List;
+
+/**
+ * The busiest client ids and source IPs of token and client registration traffic, for finding the culprits
+ * during an incident. Exposed at {@code /api/admin/heavy-hitters} and, by rank rather than by key to keep metric
+ * cardinality fixed, as gauges.
+ */
+public class HeavyHitters {
+
+    private final HeavyHitterTracker clients;
+    private final HeavyHitterTracker sourceIps;
+
+    public HeavyHitters(HeavyHitterTracker clients, HeavyHitterTracker sourceIps, int gaugedRanks, MeterRegistry meterRegistry) {
+        this.clients = clients;
+        this.sourceIps = sourceIps;
+        register("client", clients, gaugedRanks, meterRegistry);
+        register("source-ip", sourceIps, gaugedRanks, meterRegistry);
+    }
+
+    public void recordClient(String clientId) {
+        clients.record(clientId);
+    }
+
+    public void recordSourceIp(String ip) {
+        sourceIps.record(ip);
+    }
+
+    public HeavyHitterTracker getClients() {
+        return clients;
+    }
+
+    public HeavyHitterTracker getSourceIps() {
+        return sourceIps;
+    }
+
+    private static void register(String dimension, HeavyHitterTracker tracker, int ranks, MeterRegistry meterRegistry) {
+        Gauge.builder("authserver.heavy-hitters.window.total", tracker, HeavyHitterTracker::total)
+                .tag("dimension", dimension)
+                .description("Requests counted in the heavy-hitter window")
+                .register(meterRegistry);
+        for (int rank = 1; rank <= ranks; rank++) {
+            int index = rank - 1;
+            Gauge.builder("authserver.heavy-hitters.top", tracker, t -> {
+                        List<HeavyHitterTracker.HeavyHitter> top = t.top(index + 1);
+                        return top.size() > index ? top.get(index).estimate() : 0;
+                    })
+                    .tag("dimension", dimension)
+                    .tag("rank", Integer.toString(rank))
+                    .description("Estimated requests in the window of the key at this rank; see /api/admin/heavy-hitters for the keys")
+                    .register(meterRegistry);
+        }
+    }
+}
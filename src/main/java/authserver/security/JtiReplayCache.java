@@ -0,0 +1,65 @@
+package authserver.security;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Client assertion ids ({@code jti}) seen until their assertion expires, so that an assertion cannot be used twice.
+ * Ids are kept in buckets by expiry time; whole buckets are dropped once every assertion in them has expired
+ * (plus the allowed clock skew), so there is no per-entry expiry bookkeeping. A replayed assertion has the same
+ * expiry as the original and therefore lands in the same bucket.
+ */
+public class JtiReplayCache {
+
+    private final long bucketMillis;
+    private final long clockSkewMillis;
+    private final int maxEntries;
+    private final ConcurrentSkipListMap<Long, Set<String>> buckets = new ConcurrentSkipListMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    public JtiReplayCache(Duration bucketWidth, Duration clockSkew, int maxEntries) {
+        this.bucketMillis = bucketWidth.toMillis();
+        this.clockSkewMillis = clockSkew.toMillis();
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Records the first use of an assertion id.
+     *
+     * @return false if it was already used, or if the cache is full and the use cannot be remembered
+     */
+    public boolean firstUse(String clientId, String jti, Instant expiresAt) {
+        long now = System.currentTimeMillis();
+        evictExpired(now);
+        if (size.get() >= maxEntries) {
+            return false;
+        }
+        Set<String> bucket = buckets.computeIfAbsent(expiresAt.toEpochMilli() / bucketMillis, b -> ConcurrentHashMap.newKeySet());
+        // client ids cannot contain a line feed, so the key is unambiguous
+        if (!bucket.add(clientId + '\n' + jti)) {
+            return false;
+        }
+        size.incrementAndGet();
+        return true;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    private void evictExpired(long now) {
+        // a bucket can go once even its latest expiry is past the skew
+        long firstLive = (now - clockSkewMillis) / bucketMillis;
+        Map.Entry<Long, Set<String>> oldest;
+        while ((oldest = buckets.firstEntry()) != null && oldest.getKey() < firstLive) {
+            if (buckets.remove(oldest.getKey(), oldest.getValue())) {
+                size.addAndGet(-oldest.getValue().size());
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package authserver.security;
+
+import authserver.service.ChangeEvent;
+import authserver.service.ChangeListener;
+import authserver.tenant.TenantContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Tells client ids that certainly do not exist apart from ones that may, so token requests for unknown clients
+ * can be rejected without a database query. A {@link BloomFilter} of all client ids (of all tenants) is rebuilt
+ * from the database periodically and updated when clients are created here or, through the change feed, on
+ * another node; deleted clients stay in it until the next rebuild. A client created on another node is missing
+ * from the filter until its change-feed event arrives, so a filter miss is only taken as proof when the filter is
+ * trusted to be up to date; otherwise it costs one lookup in the current tenant. Ids that were looked up and not
+ * found are kept in a short-lived negative cache per tenant. Until the first build completes every id may exist.
+ */
+public class KnownClientIds implements ChangeListener, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(KnownClientIds.class);
+
+    private final Consumer<Consumer<String>> allClientIds;
+    private final Predicate<String> clientExists;
+    private final boolean trustFilter;
+    private final long expectedClients;
+    private final double falsePositiveRate;
+    private final long negativeTtlNanos;
+    private final int negativeMaxEntries;
+    private final Map<Key, Long> notFound = new ConcurrentHashMap<>();
+    private final AtomicLong filterSize = new AtomicLong();
+    private final Counter rejectedByFilter;
+    private final Counter rejectedByNegativeCache;
+    private final Counter rejectedByLookup;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile BloomFilter filter;
+    // guarded by this; ids created while a rebuild is reading the table
+    private Set<String> addedDuringRebuild = new HashSet<>();
+
+    /**
+     * @param allClientIds hands every registered client id to the given consumer
+     * @param clientExists whether a client id is registered in the current tenant, asked on filter misses
+     * @param trustFilter  whether a filter miss is proof enough, i.e. no client can be created unseen by this node
+     */
+    public KnownClientIds(Consumer<Consumer<String>> allClientIds, Predicate<String> clientExists, boolean trustFilter,
+                          long expectedClients, double falsePositiveRate, Duration negativeTtl, int negativeMaxEntries,
+                          MeterRegistry meterRegistry) {
+        this.allClientIds = allClientIds;
+        this.clientExists = clientExists;
+        this.trustFilter = trustFilter;
+        this.expectedClients = expectedClients;
+        this.falsePositiveRate = falsePositiveRate;
+        this.negativeTtlNanos = negativeTtl.toNanos();
+        this.negativeMaxEntries = negativeMaxEntries;
+        this.rejectedByFilter = Counter.builder("authserver.client.unknown.rejected")
+                .tag("by", "filter")
+                .description("Lookups of client ids rejected by the known-client filter without a database query")
+                .register(meterRegistry);
+        this.rejectedByNegativeCache = Counter.builder("authserver.client.unknown.rejected")
+                .tag("by", "negative-cache")
+                .description("Lookups of client ids rejected because they were recently not found")
+                .register(meterRegistry);
+        this.rejectedByLookup = Counter.builder("authserver.client.unknown.rejected")
+                .tag("by", "lookup")
+                .description("Lookups of client ids missing from the known-client filter and not found in the database")
+                .register(meterRegistry);
+        Gauge.builder("authserver.client.unknown.negative-cache.size", notFound, Map::size)
+                .description("Client ids in the negative cache")
+                .register(meterRegistry);
+        Gauge.builder("authserver.client.known.filter.size", filterSize, AtomicLong::get)
+                .description("Client ids added to the known-client filter since it was last built")
+                .register(meterRegistry);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "known-client-ids");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Builds the filter in the background now and then every {@code rebuildInterval}.
+     */
+    public void start(Duration rebuildInterval) {
+        scheduler.scheduleWithFixedDelay(this::rebuildQuietly, 0, rebuildInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Whether {@code clientId} is certainly not registered in the current tenant.
+     */
+    public boolean isKnownAbsent(String clientId) {
+        BloomFilter current = filter;
+        boolean filterMiss = current != null && !current.mightContain(clientId);
+        if (filterMiss && trustFilter) {
+            rejectedByFilter.increment();
+            return true;
+        }
+        Key key = new Key(TenantContext.current(), clientId);
+        Long expiresAt = notFound.get(key);
+        if (expiresAt != null) {
+            if (System.nanoTime() - expiresAt < 0) {
+                rejectedByNegativeCache.increment();
+                return true;
+            }
+            notFound.remove(key, expiresAt);
+        }
+        if (!filterMiss) {
+            return false;
+        }
+        boolean exists;
+        try {
+            exists = clientExists.test(clientId);
+        } catch (RuntimeException e) {
+            // let the regular client authentication decide
+            logger.debug("Could not look up client id missing from the known-client filter: {}", e.getMessage());
+            return false;
+        }
+        if (exists) {
+            recordPresent(clientId);
+            return false;
+        }
+        recordAbsent(clientId);
+        rejectedByLookup.increment();
+        return true;
+    }
+
+    public synchronized void recordPresent(String clientId) {
+        BloomFilter current = filter;
+        if (current != null) {
+            current.add(clientId);
+            filterSize.incrementAndGet();
+        }
+        if (addedDuringRebuild != null) {
+            addedDuringRebuild.add(clientId);
+        }
+        notFound.keySet().removeIf(key -> key.clientId().equals(clientId));
+    }
+
+    public void recordAbsent(String clientId) {
+        long now = System.nanoTime();
+        if (notFound.size() >= negativeMaxEntries) {
+            notFound.values().removeIf(expiresAt -> now - expiresAt >= 0);
+            if (notFound.size() >= negativeMaxEntries) {
+                return;
+            }
+        }
+        notFound.put(new Key(TenantContext.current(), clientId), now + negativeTtlNanos);
+    }
+
+    @Override
+    public void onChange(ChangeEvent event) {
+        // a client created on another node must pass the filter here too
+        if (event.entityType() == ChangeEvent.EntityType.CLIENT && event.changeType() == ChangeEvent.ChangeType.CREATED) {
+            recordPresent(event.entityId());
+        }
+    }
+
+    /**
+     * Replaces the filter with one built from the database, sized for twice the current number of clients.
+     */
+    public void rebuild() {
+        synchronized (this) {
+            if (addedDuringRebuild == null) {
+                addedDuringRebuild = new HashSet<>();
+            }
+        }
+        Set<String> ids = new HashSet<>();
+        allClientIds.accept(ids::add);
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedClients, ids.size() * 2L), falsePositiveRate);
+        ids.forEach(rebuilt::add);
+        synchronized (this) {
+            addedDuringRebuild.forEach(rebuilt::add);
+            filterSize.set(ids.size() + addedDuringRebuild.size());
+            addedDuringRebuild = null;
+            filter = rebuilt;
+        }
+        logger.debug("Rebuilt known-client filter with {} client ids ({} bits, {} hashes)",
+                ids.size(), rebuilt.getBitCount(), rebuilt.getHashCount());
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            // keep the previous filter (or none, which lets every id through)
+            logger.warn("Could not rebuild the known-client filter: {}", e.getMessage());
+        }
+    }
+
+    private record Key(String tenantId, String clientId) {
+    }
+}
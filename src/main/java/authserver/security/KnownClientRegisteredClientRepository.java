@@ -0,0 +1,56 @@
+package authserver.security;
+
+import authserver.repo.RemovableRegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+
+/**
+ * Answers lookups of client ids that {@link KnownClientIds} knows not to exist without reading the client from
+ * the delegate, and feeds it the outcome of the lookups it does make. The warm-up client bypasses the filter,
+ * since a Bloom filter cannot forget the id once the client is removed.
+ */
+public class KnownClientRegisteredClientRepository implements RemovableRegisteredClientRepository {
+
+    private final RemovableRegisteredClientRepository delegate;
+    private final KnownClientIds knownClientIds;
+    private final WarmupClient warmupClient;
+
+    public KnownClientRegisteredClientRepository(RemovableRegisteredClientRepository delegate, KnownClientIds knownClientIds,
+                                                 WarmupClient warmupClient) {
+        this.delegate = delegate;
+        this.knownClientIds = knownClientIds;
+        this.warmupClient = warmupClient;
+    }
+
+    @Override
+    public void save(RegisteredClient registeredClient) {
+        delegate.save(registeredClient);
+        if (!warmupClient.is(registeredClient.getClientId())) {
+            knownClientIds.recordPresent(registeredClient.getClientId());
+        }
+    }
+
+    @Override
+    public void removeById(String id) {
+        delegate.removeById(id);
+    }
+
+    @Override
+    public RegisteredClient findById(String id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public RegisteredClient findByClientId(String clientId) {
+        if (warmupClient.is(clientId)) {
+            return delegate.findByClientId(clientId);
+        }
+        if (knownClientIds.isKnownAbsent(clientId)) {
+            return null;
+        }
+        RegisteredClient client = delegate.findByClientId(clientId);
+        if (client == null) {
+            knownClientIds.recordAbsent(clientId);
+        }
+        return client;
+    }
+}
@@ -1,6 +1,8 @@
 package authserver.security;
 
-import authserver.config.AuthServerProperties;
+import authserver.profiling.TokenPipelineEvents;
+import authserver.tenant.Tenant;
+import authserver.tenant.TenantRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -20,11 +22,11 @@ public class RateLimitingFilter extends OncePerRequestFilter {
 
     private static final Logger logger = LoggerFactory.getLogger(RateLimitingFilter.class);
 
-    private final AuthServerProperties authServerProperties;
+    private final TenantRegistry tenantRegistry;
     private final Map<String, RateLimitInfo> rateLimitMap = new ConcurrentHashMap<>();
 
-    public RateLimitingFilter(AuthServerProperties authServerProperties) {
-        this.authServerProperties = authServerProperties;
+    public RateLimitingFilter(TenantRegistry tenantRegistry) {
+        this.tenantRegistry = tenantRegistry;
     }
 
     @Override
@@ -37,8 +39,18 @@ public class RateLimitingFilter extends OncePerRequestFilter {
         // Only apply rate limiting to public client creation endpoint
         if ("POST".equals(method) && "/api/clients".equals(path)) {
             String clientIp = getClientIpAddress(request);
+            Tenant tenant = tenantRegistry.current();
+            TokenPipelineEvents.RateLimitDecision event = new TokenPipelineEvents.RateLimitDecision();
+            event.begin();
+            boolean limited = isRateLimited(tenant, clientIp);
+            if (event.shouldCommit()) {
+                event.limiter = "client-registration";
+                event.key = tenant.id() + "|" + clientIp;
+                event.allowed = !limited;
+                event.commit();
+            }
             
-            if (isRateLimited(clientIp)) {
+            if (limited) {
                 logger.warn("Rate limit exceeded for IP: {} on endpoint: {}", clientIp, path);
                 sendRateLimitExceededResponse(response);
                 return;
@@ -48,26 +60,28 @@ public class RateLimitingFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
-    private boolean isRateLimited(String clientIp) {
+    // each tenant has its own budget per IP
+    private boolean isRateLimited(Tenant tenant, String clientIp) {
         LocalDateTime now = LocalDateTime.now();
-        RateLimitInfo rateLimitInfo = rateLimitMap.get(clientIp);
+        String key = tenant.id() + "|" + clientIp;
+        RateLimitInfo rateLimitInfo = rateLimitMap.get(key);
 
         if (rateLimitInfo == null) {
-            rateLimitMap.put(clientIp, new RateLimitInfo(1, now));
+            rateLimitMap.put(key, new RateLimitInfo(1, now));
             return false;
         }
 
         // Check if the time window has passed
-        LocalDateTime windowStart = now.minusSeconds(authServerProperties.getSecurity().getRateLimitWindowSeconds());
+        LocalDateTime windowStart = now.minusSeconds(tenant.rateLimitWindowSeconds());
         
         if (rateLimitInfo.getFirstRequestTime().isBefore(windowStart)) {
             // Reset the counter for a new time window
-            rateLimitMap.put(clientIp, new RateLimitInfo(1, now));
+            rateLimitMap.put(key, new RateLimitInfo(1, now));
             return false;
         }
 
         // Check if rate limit is exceeded
-        if (rateLimitInfo.getRequestCount() >= authServerProperties.getSecurity().getRateLimitRequests()) {
+        if (rateLimitInfo.getRequestCount() >= tenant.rateLimitRequests()) {
             return true;
         }
 
@@ -76,7 +90,7 @@ public class RateLimitingFilter extends OncePerRequestFilter {
         return false;
     }
 
-    private String getClientIpAddress(HttpServletRequest request) {
+    static String getClientIpAddress(HttpServletRequest request) {
         String xForwardedFor = request.getHeader("X-Forwarded-For");
         if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
             return xForwardedFor.split(",")[0].trim();
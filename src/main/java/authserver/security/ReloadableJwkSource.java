@@ -0,0 +1,94 @@
+package authserver.security;
+
+import authserver.service.ChangeEvent;
+import authserver.service.ChangeListener;
+import authserver.service.JwkKeyService;
+import authserver.tenant.TenantContext;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JWK source holding the key ring of every tenant in memory: its active signing key first, then the public keys it
+ * retired while their tokens may still be valid. Lookups and the JWK Set endpoint see the key ring of the tenant the
+ * request was resolved to; signing only uses the active key ({@link #signingKeySource()}). Reloaded from the database
+ * whenever the change feed reports a key rotation, on this node or any other, which is also when keys past their
+ * retention leave the ring.
+ */
+public class ReloadableJwkSource implements JWKSource<SecurityContext>, ChangeListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReloadableJwkSource.class);
+
+    private final JwkKeyService jwkKeyService;
+    private final int keySize;
+    private final Collection<String> tenantIds;
+    private final Map<String, JWKSet> jwkSets = new ConcurrentHashMap<>();
+
+    public ReloadableJwkSource(JwkKeyService jwkKeyService, int keySize, Collection<String> tenantIds) {
+        this.jwkKeyService = jwkKeyService;
+        this.keySize = keySize;
+        this.tenantIds = List.copyOf(tenantIds);
+        reload();
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) {
+        return jwkSelector.select(currentJwkSet());
+    }
+
+    @Override
+    public void onChange(ChangeEvent event) {
+        if (event.entityType() == ChangeEvent.EntityType.JWK_KEY) {
+            reload();
+        }
+    }
+
+    public String getActiveKeyId() {
+        return currentJwkSet().getKeys().get(0).getKeyID();
+    }
+
+    public RSAKey getActiveKey() {
+        return (RSAKey) currentJwkSet().getKeys().get(0);
+    }
+
+    /**
+     * The active key of the current tenant alone, for encoders that select a signing key from their source and
+     * would find several.
+     */
+    public JWKSource<SecurityContext> signingKeySource() {
+        return (jwkSelector, context) -> jwkSelector.select(new JWKSet(getActiveKey()));
+    }
+
+    public void reload() {
+        for (String tenantId : tenantIds) {
+            List<JWK> keys = new ArrayList<>();
+            keys.add(jwkKeyService.getOrCreateActiveRsaKey(tenantId, keySize));
+            keys.addAll(jwkKeyService.getRetiredPublicKeys(tenantId));
+            JWKSet reloaded = new JWKSet(keys);
+            JWKSet previous = jwkSets.put(tenantId, reloaded);
+            if (previous == null || !previous.getKeys().get(0).getKeyID().equals(reloaded.getKeys().get(0).getKeyID())) {
+                logger.info("Loaded active signing key for tenant {}: {}", tenantId, reloaded.getKeys().get(0).getKeyID());
+            }
+        }
+    }
+
+    private JWKSet currentJwkSet() {
+        String tenantId = TenantContext.current();
+        JWKSet jwkSet = jwkSets.get(tenantId);
+        if (jwkSet == null) {
+            throw new IllegalStateException("No signing key loaded for tenant " + tenantId);
+        }
+        return jwkSet;
+    }
+}
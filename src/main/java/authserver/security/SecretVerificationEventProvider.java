@@ -0,0 +1,42 @@
+package authserver.security;
+
+import authserver.profiling.TokenPipelineEvents;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+
+/**
+ * Wraps the client secret authentication provider of the token endpoint to emit a
+ * {@link TokenPipelineEvents.SecretVerification} event. The provider looks the client up itself, so the event
+ * contains the {@link TokenPipelineEvents.ClientLookup} of the same request.
+ */
+public class SecretVerificationEventProvider implements AuthenticationProvider {
+
+    private final AuthenticationProvider delegate;
+
+    public SecretVerificationEventProvider(AuthenticationProvider delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        TokenPipelineEvents.SecretVerification event = new TokenPipelineEvents.SecretVerification();
+        event.begin();
+        Authentication result = null;
+        try {
+            result = delegate.authenticate(authentication);
+            return result;
+        } finally {
+            if (event.shouldCommit()) {
+                event.clientId = String.valueOf(authentication.getPrincipal());
+                event.success = result != null && result.isAuthenticated();
+                event.commit();
+            }
+        }
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return delegate.supports(authentication);
+    }
+}
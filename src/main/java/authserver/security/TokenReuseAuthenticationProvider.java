@@ -0,0 +1,98 @@
+package authserver.security;
+
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2AccessTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientCredentialsAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.settings.OAuth2TokenFormat;
+
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Wraps the client_credentials provider so clients with {@link #REUSE_ACCESS_TOKEN_SETTING} enabled
+ * get their still-valid token back instead of a newly signed and persisted one.
+ */
+public class TokenReuseAuthenticationProvider implements AuthenticationProvider {
+
+    public static final String REUSE_ACCESS_TOKEN_SETTING = "settings.token.reuse-access-token";
+
+    private final AuthenticationProvider delegate;
+    private final TokenReuseCache cache;
+    private final OAuth2AuthorizationService authorizationService;
+
+    public TokenReuseAuthenticationProvider(AuthenticationProvider delegate, TokenReuseCache cache,
+                                            OAuth2AuthorizationService authorizationService) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.authorizationService = authorizationService;
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        OAuth2ClientCredentialsAuthenticationToken request = (OAuth2ClientCredentialsAuthenticationToken) authentication;
+        if (!(request.getPrincipal() instanceof OAuth2ClientAuthenticationToken clientPrincipal)
+                || !clientPrincipal.isAuthenticated()
+                || clientPrincipal.getRegisteredClient() == null
+                || !isReuseEnabled(clientPrincipal.getRegisteredClient())
+                || request.getAdditionalParameters().containsKey("dpop_proof")) {
+            return delegate.authenticate(authentication);
+        }
+
+        RegisteredClient registeredClient = clientPrincipal.getRegisteredClient();
+        String clientId = registeredClient.getClientId();
+        Set<String> scopes = request.getScopes();
+
+        OAuth2AccessToken cached = cache.get(clientId, scopes);
+        if (cached != null) {
+            if (isStillActive(registeredClient, cached)) {
+                cache.recordReused();
+                return new OAuth2AccessTokenAuthenticationToken(registeredClient, clientPrincipal, reissued(cached));
+            }
+            cache.evict(clientId, scopes);
+        }
+
+        Authentication result = delegate.authenticate(authentication);
+        if (result instanceof OAuth2AccessTokenAuthenticationToken issued
+                && OAuth2AccessToken.TokenType.BEARER.equals(issued.getAccessToken().getTokenType())) {
+            cache.put(clientId, scopes, issued.getAccessToken());
+        }
+        cache.recordIssued();
+        return result;
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return delegate.supports(authentication);
+    }
+
+    // A reference token may have been revoked since it was cached, so it is re-checked (normally an in-memory
+    // hit in the reference token store). A revocation on another node only evicts it here once the change feed
+    // delivers it, so for up to a poll interval the token can still be reused. Self-contained tokens are
+    // validated by resource servers on their own, and revoking one does not stop them from accepting it,
+    // so reusing one does not widen its validity and it is not re-checked against the database.
+    private boolean isStillActive(RegisteredClient registeredClient, OAuth2AccessToken token) {
+        if (!OAuth2TokenFormat.REFERENCE.equals(registeredClient.getTokenSettings().getAccessTokenFormat())) {
+            return true;
+        }
+        OAuth2Authorization authorization = authorizationService.findByToken(token.getTokenValue(), OAuth2TokenType.ACCESS_TOKEN);
+        return authorization != null && authorization.getAccessToken() != null && authorization.getAccessToken().isActive();
+    }
+
+    // expires_in is derived from issuedAt, so the reused token is re-stamped to advertise only its remaining lifetime
+    private static OAuth2AccessToken reissued(OAuth2AccessToken token) {
+        return new OAuth2AccessToken(token.getTokenType(), token.getTokenValue(), Instant.now(), token.getExpiresAt(),
+                token.getScopes());
+    }
+
+    private static boolean isReuseEnabled(RegisteredClient registeredClient) {
+        return Boolean.TRUE.equals(registeredClient.getTokenSettings().getSetting(REUSE_ACCESS_TOKEN_SETTING));
+    }
+}
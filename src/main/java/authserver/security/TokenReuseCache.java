@@ -0,0 +1,135 @@
+package authserver.security;
+
+import authserver.service.ChangeEvent;
+import authserver.service.ChangeListener;
+import authserver.tenant.TenantContext;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+
+import java.text.ParseException;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Recently issued client_credentials access tokens, keyed by client and requested scope set,
+ * for clients that opted into token reuse. A self-contained token is only handed out again while the key that
+ * signed it is still the tenant's active key.
+ */
+public class TokenReuseCache implements ChangeListener {
+
+    private final Map<Key, Entry> tokens = new ConcurrentHashMap<>();
+    private final double minRemainingRatio;
+    private final int maxEntries;
+    private final Supplier<String> activeKeyId;
+    private final Counter reused;
+    private final Counter issued;
+
+    /**
+     * @param activeKeyId the key id of the current tenant's active signing key
+     */
+    public TokenReuseCache(double minRemainingRatio, int maxEntries, Supplier<String> activeKeyId, MeterRegistry meterRegistry) {
+        this.minRemainingRatio = minRemainingRatio;
+        this.maxEntries = maxEntries;
+        this.activeKeyId = activeKeyId;
+        this.reused = Counter.builder("authserver.token.reuse")
+                .tag("outcome", "reused")
+                .description("client_credentials requests answered with a cached access token")
+                .register(meterRegistry);
+        this.issued = Counter.builder("authserver.token.reuse")
+                .tag("outcome", "issued")
+                .description("client_credentials requests of reuse-enabled clients that minted a new token")
+                .register(meterRegistry);
+        Gauge.builder("authserver.token.reuse.ratio", this, TokenReuseCache::reuseRatio)
+                .description("Share of reuse-enabled client_credentials requests served from the cache")
+                .register(meterRegistry);
+    }
+
+    public OAuth2AccessToken get(String clientId, Set<String> scopes) {
+        Key key = new Key(TenantContext.current(), clientId, new TreeSet<>(scopes));
+        Entry entry = tokens.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!hasEnoughLifetime(entry.token(), Instant.now())
+                || (entry.kid() != null && !entry.kid().equals(activeKeyId.get()))) {
+            tokens.remove(key, entry);
+            return null;
+        }
+        return entry.token();
+    }
+
+    public void put(String clientId, Set<String> scopes, OAuth2AccessToken token) {
+        if (token.getIssuedAt() == null || token.getExpiresAt() == null) {
+            return;
+        }
+        if (tokens.size() >= maxEntries) {
+            evictExhausted();
+            if (tokens.size() >= maxEntries) {
+                return;
+            }
+        }
+        tokens.put(new Key(TenantContext.current(), clientId, new TreeSet<>(scopes)), new Entry(token, keyId(token)));
+    }
+
+    public void evict(String clientId, Set<String> scopes) {
+        tokens.remove(new Key(TenantContext.current(), clientId, new TreeSet<>(scopes)));
+    }
+
+    public void recordReused() {
+        reused.increment();
+    }
+
+    public void recordIssued() {
+        issued.increment();
+    }
+
+    @Override
+    public void onChange(ChangeEvent event) {
+        // a changed or deleted client must not keep receiving tokens minted under its old registration
+        if (event.entityType() == ChangeEvent.EntityType.CLIENT) {
+            tokens.keySet().removeIf(key -> key.clientId().equals(event.entityId()));
+        } else if (event.entityType() == ChangeEvent.EntityType.JWK_KEY) {
+            // the event does not name the tenant; the key id check in get() covers rotations not seen yet
+            tokens.clear();
+        }
+    }
+
+    private boolean hasEnoughLifetime(OAuth2AccessToken token, Instant now) {
+        long lifetime = token.getExpiresAt().toEpochMilli() - token.getIssuedAt().toEpochMilli();
+        long remaining = token.getExpiresAt().toEpochMilli() - now.toEpochMilli();
+        return remaining > 0 && remaining >= lifetime * minRemainingRatio;
+    }
+
+    private void evictExhausted() {
+        Instant now = Instant.now();
+        tokens.values().removeIf(entry -> !hasEnoughLifetime(entry.token(), now));
+    }
+
+    // the kid of a self-contained token, null for a reference token
+    private static String keyId(OAuth2AccessToken token) {
+        try {
+            return SignedJWT.parse(token.getTokenValue()).getHeader().getKeyID();
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
+    private double reuseRatio() {
+        double total = reused.count() + issued.count();
+        return total == 0 ? 0 : reused.count() / total;
+    }
+
+    // client ids are unique per tenant only
+    private record Key(String tenantId, String clientId, Set<String> scopes) {
+    }
+
+    private record Entry(OAuth2AccessToken token, String kid) {
+    }
+}
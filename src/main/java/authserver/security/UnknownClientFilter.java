@@ -0,0 +1,73 @@
+package authserver.security;
+
+import authserver.tenant.TenantRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Rejects token and token batch requests whose client id {@link KnownClientIds} knows not to exist with a fixed
+ * {@code invalid_client} response, before client authentication or admission control, and with at most one
+ * indexed lookup for an id the filter has not seen.
+ * The client id is taken from a {@code client_secret_basic} header or the {@code client_id} parameter; requests
+ * without one are left to the regular client authentication, and so is the warm-up client, which is kept out
+ * of the filter.
+ */
+public class UnknownClientFilter extends OncePerRequestFilter {
+
+    private static final byte[] INVALID_CLIENT = "{\"error\":\"invalid_client\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final KnownClientIds knownClientIds;
+    private final TenantRegistry tenantRegistry;
+    private final WarmupClient warmupClient;
+
+    public UnknownClientFilter(KnownClientIds knownClientIds, TenantRegistry tenantRegistry, WarmupClient warmupClient) {
+        this.knownClientIds = knownClientIds;
+        this.tenantRegistry = tenantRegistry;
+        this.warmupClient = warmupClient;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !(tenantRegistry.isTokenEndpoint(request) || tenantRegistry.isTokenBatchEndpoint(request));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String clientId = clientId(request);
+        if (clientId != null && !warmupClient.is(clientId) && knownClientIds.isKnownAbsent(clientId)) {
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setContentLength(INVALID_CLIENT.length);
+            response.getOutputStream().write(INVALID_CLIENT);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    static String clientId(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header != null && header.regionMatches(true, 0, "Basic ", 0, 6)) {
+            try {
+                String credentials = new String(Base64.getDecoder().decode(header.substring(6).trim()), StandardCharsets.UTF_8);
+                int colon = credentials.indexOf(':');
+                return colon > 0 ? URLDecoder.decode(credentials.substring(0, colon), StandardCharsets.UTF_8) : null;
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        String clientId = request.getParameter("client_id");
+        return clientId == null || clientId.isEmpty() ? null : clientId;
+    }
+}
@@ -0,0 +1,24 @@
+package authserver.security;
+
+/**
+ * The client the start-up warm-up issues tokens for, while it runs. Its requests exercise the token endpoint
+ * like any other, but are left out of the audit log, the heavy-hitter counts and the known-client filter,
+ * which would otherwise keep a trace of a client that exists only for a few seconds.
+ */
+public class WarmupClient {
+
+    private volatile String clientId;
+
+    public void begin(String clientId) {
+        this.clientId = clientId;
+    }
+
+    public void end() {
+        this.clientId = null;
+    }
+
+    public boolean is(String clientId) {
+        String current = this.clientId;
+        return current != null && current.equals(clientId);
+    }
+}
@@ -0,0 +1,143 @@
+package authserver.service;
+
+import authserver.config.AuthServerProperties;
+import authserver.repo.CompactAuthorizationCodec;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rewrites {@code oauth2_authorization} rows still holding JSON attributes or metadata in the
+ * {@link CompactAuthorizationCodec} format. Rows are walked by primary key in batches; each batch is one short
+ * transaction that locks the rows it reads, so a token request saving the same authorization waits for it
+ * instead of being overwritten. Already converted rows are skipped, so an interrupted run simply starts over.
+ */
+@Service
+public class AuthorizationEncodingMigrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthorizationEncodingMigrator.class);
+
+    static final List<String> ENCODED_COLUMNS = List.of("attributes", "authorization_code_metadata", "access_token_metadata",
+            "oidc_id_token_metadata", "refresh_token_metadata", "user_code_metadata", "device_code_metadata");
+
+    private static final String SELECT_SQL = "SELECT id, " + String.join(", ", ENCODED_COLUMNS)
+            + " FROM oauth2_authorization WHERE id > ? ORDER BY id LIMIT ? FOR UPDATE";
+    private static final String UPDATE_SQL = "UPDATE oauth2_authorization SET "
+            + String.join(" = ?, ", ENCODED_COLUMNS) + " = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CompactAuthorizationCodec codec;
+    private final AuthServerProperties authServerProperties;
+    private final ExecutorService worker;
+
+    public AuthorizationEncodingMigrator(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                         CompactAuthorizationCodec codec, AuthServerProperties authServerProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.codec = codec;
+        this.authServerProperties = authServerProperties;
+        this.worker = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "authorization-encoding");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        AuthServerProperties.AuthorizationEncoding config = authServerProperties.getAuthorizationEncoding();
+        if ("jdbc".equals(authServerProperties.getStorage().getType()) && "binary".equals(config.getFormat())
+                && config.isConvertLegacyRows()) {
+            worker.execute(this::convertLegacyRows);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        worker.shutdownNow();
+    }
+
+    /**
+     * Converts every JSON row.
+     *
+     * @return the number of rows rewritten
+     */
+    public long convertLegacyRows() {
+        AuthServerProperties.AuthorizationEncoding config = authServerProperties.getAuthorizationEncoding();
+        String lastId = "";
+        long scanned = 0;
+        long converted = 0;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                String afterId = lastId;
+                Batch batch = transactionTemplate.execute(status -> convertBatch(afterId, config.getBatchSize()));
+                if (batch == null || batch.lastId() == null) {
+                    break;
+                }
+                scanned += batch.scanned();
+                converted += batch.converted();
+                lastId = batch.lastId();
+                if (batch.scanned() < config.getBatchSize()) {
+                    break;
+                }
+                if (config.getPauseMillis() > 0) {
+                    TimeUnit.MILLISECONDS.sleep(config.getPauseMillis());
+                }
+            }
+            if (converted > 0) {
+                logger.info("Converted {} of {} authorizations to the binary encoding", converted, scanned);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (DataAccessException | IllegalArgumentException e) {
+            logger.error("Authorization encoding conversion stopped after id '{}' ({} rows converted): {}",
+                    lastId, converted, e.getMessage());
+        }
+        return converted;
+    }
+
+    private Batch convertBatch(String afterId, int batchSize) {
+        List<Object[]> updates = new ArrayList<>();
+        List<String> ids = new ArrayList<>(batchSize);
+        jdbcTemplate.query(SELECT_SQL, rs -> {
+            String id = rs.getString("id");
+            ids.add(id);
+            Object[] row = new Object[ENCODED_COLUMNS.size() + 1];
+            boolean legacy = false;
+            for (int i = 0; i < ENCODED_COLUMNS.size(); i++) {
+                byte[] value = rs.getBytes(ENCODED_COLUMNS.get(i));
+                if (CompactAuthorizationCodec.isJson(value)) {
+                    value = codec.encode(codec.decode(value));
+                    legacy = true;
+                }
+                row[i] = new SqlParameterValue(Types.BLOB, value);
+            }
+            row[ENCODED_COLUMNS.size()] = id;
+            if (legacy) {
+                updates.add(row);
+            }
+        }, afterId, batchSize);
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+        }
+        return new Batch(ids.isEmpty() ? null : ids.get(ids.size() - 1), ids.size(), updates.size());
+    }
+
+    private record Batch(String lastId, int scanned, int converted) {
+    }
+}
@@ -0,0 +1,18 @@
+package authserver.service;
+
+import java.util.List;
+
+/**
+ * Where {@link ClientPurgeService} deletes a removed client's authorizations and consents from.
+ */
+public interface AuthorizationPurgeStore {
+
+    /**
+     * Up to {@code limit} authorization ids of the client greater than {@code afterId}, in id order.
+     */
+    List<String> findIdsAfter(String registeredClientId, String afterId, int limit);
+
+    int deleteByIds(List<String> ids);
+
+    void deleteConsents(String registeredClientId);
+}
@@ -0,0 +1,19 @@
+package authserver.service;
+
+import java.time.LocalDateTime;
+
+public record ChangeEvent(long id, EntityType entityType, String entityId, ChangeType changeType, LocalDateTime createdAt) {
+
+    public enum EntityType {
+        CLIENT,
+        JWK_KEY,
+        AUTHORIZATION
+    }
+
+    public enum ChangeType {
+        CREATED,
+        DELETED,
+        ROTATED,
+        REVOKED
+    }
+}
@@ -0,0 +1,179 @@
+package authserver.service;
+
+import authserver.config.AuthServerProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only change log shared by all replicas. Mutations are recorded in the caller's
+ * transaction; every node tails the table by id and dispatches new rows to local {@link ChangeListener}s.
+ */
+@Service
+public class ChangeFeedService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeFeedService.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO change_log (entity_type, entity_id, change_type, created_at) VALUES (?, ?, ?, ?)";
+    private static final String POLL_SQL =
+            "SELECT id, entity_type, entity_id, change_type, created_at FROM change_log WHERE id > ? ORDER BY id LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectProvider<ChangeListener> listeners;
+    private final AuthServerProperties.ChangeFeed config;
+    private final ScheduledExecutorService poller;
+
+    private volatile boolean ready;
+    private long lastSeenId = -1;
+    private long gapSeenAt;
+    private long lastCleanupAt;
+
+    public ChangeFeedService(JdbcTemplate jdbcTemplate,
+                             ObjectProvider<ChangeListener> listeners,
+                             AuthServerProperties authServerProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.listeners = listeners;
+        this.config = authServerProperties.getChangeFeed();
+        this.poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "change-feed-poller");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public void record(ChangeEvent.EntityType entityType, String entityId, ChangeEvent.ChangeType changeType) {
+        jdbcTemplate.update(INSERT_SQL, entityType.name(), entityId, changeType.name(), LocalDateTime.now());
+        logger.debug("Recorded {} {} for {}", entityType, changeType, entityId);
+
+        // Apply the change locally as soon as it is visible instead of waiting for the next poll
+        // (listeners initialise from the database themselves, so nothing is dispatched during startup)
+        if (!ready) {
+            return;
+        }
+        Runnable applyLocally = config.isEnabled()
+                ? () -> poller.execute(this::poll)
+                : () -> dispatch(new ChangeEvent(0, entityType, entityId, changeType, LocalDateTime.now()));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    applyLocally.run();
+                }
+            });
+        } else {
+            applyLocally.run();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        ready = true;
+        if (!config.isEnabled()) {
+            logger.info("Change feed polling is disabled");
+            return;
+        }
+        poller.execute(() -> {
+            try {
+                Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM change_log", Long.class);
+                lastSeenId = maxId != null ? maxId : 0;
+                logger.info("Change feed tailing from id {}", lastSeenId);
+            } catch (RuntimeException e) {
+                logger.warn("Change feed unavailable, replicas will not be notified of changes: {}", e.getMessage());
+            }
+        });
+        poller.scheduleWithFixedDelay(this::poll, config.getPollIntervalMillis(),
+                config.getPollIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        poller.shutdownNow();
+    }
+
+    // Only ever runs on the poller thread
+    void poll() {
+        if (lastSeenId < 0) {
+            return;
+        }
+        try {
+            List<ChangeEvent> events = jdbcTemplate.query(POLL_SQL, (rs, rowNum) -> new ChangeEvent(
+                    rs.getLong("id"),
+                    parse(ChangeEvent.EntityType.class, rs.getString("entity_type")),
+                    rs.getString("entity_id"),
+                    parse(ChangeEvent.ChangeType.class, rs.getString("change_type")),
+                    rs.getObject("created_at", LocalDateTime.class)
+            ), lastSeenId, config.getBatchSize());
+
+            long now = System.currentTimeMillis();
+            for (ChangeEvent event : events) {
+                // An id gap may be a transaction that has not committed yet; give it a moment before skipping past it
+                if (event.id() > lastSeenId + 1) {
+                    if (gapSeenAt == 0) {
+                        gapSeenAt = now;
+                    }
+                    if (now - gapSeenAt < config.getGapTimeoutMillis()) {
+                        break;
+                    }
+                }
+                gapSeenAt = 0;
+                if (event.entityType() == null || event.changeType() == null) {
+                    logger.warn("Skipping change {} of a type this node does not know (written by a newer release?)", event.id());
+                } else {
+                    dispatch(event);
+                }
+                lastSeenId = event.id();
+            }
+
+            cleanup(now);
+        } catch (RuntimeException e) {
+            // an exception escaping a scheduled run would cancel all later polls
+            logger.warn("Change feed poll failed: {}", e.getMessage());
+        }
+    }
+
+    // null for a value added by a newer release
+    private static <E extends Enum<E>> E parse(Class<E> type, String name) {
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void dispatch(ChangeEvent event) {
+        listeners.orderedStream().forEach(listener -> {
+            try {
+                listener.onChange(event);
+            } catch (RuntimeException e) {
+                logger.error("Change listener {} failed for event {}: {}",
+                        listener.getClass().getSimpleName(), event.id(), e.getMessage(), e);
+            }
+        });
+    }
+
+    private void cleanup(long now) {
+        if (now - lastCleanupAt < TimeUnit.MINUTES.toMillis(10)) {
+            return;
+        }
+        lastCleanupAt = now;
+        int deleted = jdbcTemplate.update("DELETE FROM change_log WHERE created_at < ?",
+                LocalDateTime.now().minusHours(config.getRetentionHours()));
+        if (deleted > 0) {
+            logger.debug("Purged {} change log entries", deleted);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package authserver.service;
+
+/**
+ * Receives change-feed events on every node, including the one that made the change.
+ * Implementations must be idempotent.
+ */
+@FunctionalInterface
+public interface ChangeListener {
+
+    void onChange(ChangeEvent event);
+}
@@ -0,0 +1,226 @@
+package authserver.service;
+
+import authserver.config.AuthServerProperties;
+import authserver.tenant.TenantContext;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Removes the authorizations of deleted clients in the background. Each chunk is a separate short
+ * statement bounded by primary key (keyset pagination), so a busy client never holds millions of row
+ * locks at once. Progress is kept in {@code client_purge_job}; unfinished jobs resume on startup and are looked
+ * for again periodically. A node claims a job by setting itself as its owner in a conditional update before
+ * working on it, so a job is worked on by one node at a time; a running job whose owner stopped reporting progress
+ * for the lease period is taken over by the next node that looks.
+ */
+@Service
+public class ClientPurgeService implements ChangeListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClientPurgeService.class);
+
+    public static final String PENDING = "PENDING";
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    private static final String STATUS_COLUMNS =
+            "SELECT registered_client_id, client_id, status, purged_authorizations, created_at, updated_at FROM client_purge_job";
+
+    private static final RowMapper<PurgeStatus> STATUS_MAPPER = (rs, rowNum) -> new PurgeStatus(
+            rs.getString("client_id"),
+            rs.getString("registered_client_id"),
+            rs.getString("status"),
+            rs.getLong("purged_authorizations"),
+            rs.getObject("created_at", LocalDateTime.class),
+            rs.getObject("updated_at", LocalDateTime.class));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AuthorizationPurgeStore purgeStore;
+    private final ReferenceTokenStore referenceTokenStore;
+    private final AuthServerProperties.ClientPurge config;
+    private final ScheduledExecutorService worker;
+    private final String owner = UUID.randomUUID().toString();
+
+    public ClientPurgeService(JdbcTemplate jdbcTemplate, AuthorizationPurgeStore purgeStore,
+                              ReferenceTokenStore referenceTokenStore, AuthServerProperties authServerProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.purgeStore = purgeStore;
+        this.referenceTokenStore = referenceTokenStore;
+        this.config = authServerProperties.getClientPurge();
+        this.worker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "client-purge");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Records a purge job in the caller's transaction and starts it once that transaction commits.
+     */
+    public void schedule(String registeredClientId, String clientId) {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("INSERT INTO client_purge_job (registered_client_id, client_id, tenant_id, status, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?)",
+                registeredClientId, clientId, TenantContext.current(), PENDING, now, now);
+
+        Runnable start = () -> worker.execute(() -> {
+            if (claim(registeredClientId)) {
+                purge(registeredClientId, "");
+            }
+        });
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    start.run();
+                }
+            });
+        } else {
+            start.run();
+        }
+    }
+
+    public PurgeStatus findLatest(String clientId) {
+        List<PurgeStatus> jobs = jdbcTemplate.query(STATUS_COLUMNS + " WHERE tenant_id = ? AND client_id = ? ORDER BY created_at DESC LIMIT 1",
+                STATUS_MAPPER, TenantContext.current(), clientId);
+        return jobs.isEmpty() ? null : jobs.get(0);
+    }
+
+    public List<PurgeStatus> findRecent(int limit) {
+        return jdbcTemplate.query(STATUS_COLUMNS + " WHERE tenant_id = ? ORDER BY created_at DESC LIMIT ?", STATUS_MAPPER,
+                TenantContext.current(), limit);
+    }
+
+    @Override
+    public void onChange(ChangeEvent event) {
+        // drop cached reference tokens of a deleted client on every node, not only the one running the purge
+        if (event.entityType() == ChangeEvent.EntityType.CLIENT && event.changeType() == ChangeEvent.ChangeType.DELETED) {
+            jdbcTemplate.queryForList("SELECT registered_client_id FROM client_purge_job WHERE client_id = ?",
+                    String.class, event.entityId()).forEach(referenceTokenStore::removeByRegisteredClientId);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        worker.scheduleWithFixedDelay(this::resumeUnfinished, 0, config.getRescanIntervalSeconds(), TimeUnit.SECONDS);
+    }
+
+    /**
+     * Queues the jobs this node could claim: pending and failed ones, and running ones whose lease expired.
+     */
+    void resumeUnfinished() {
+        List<String> unfinished;
+        try {
+            unfinished = jdbcTemplate.queryForList(
+                    "SELECT registered_client_id FROM client_purge_job WHERE status IN (?, ?) OR (status = ? AND updated_at < ?)",
+                    String.class, PENDING, FAILED, RUNNING, LocalDateTime.now().minusSeconds(config.getLeaseSeconds()));
+        } catch (RuntimeException e) {
+            // thrown out of the periodic task it would cancel all later runs
+            logger.warn("Could not look up unfinished client purges: {}", e.getMessage());
+            unfinished = Collections.emptyList();
+        }
+        for (String registeredClientId : unfinished) {
+            // claimed only when its turn comes, so queued jobs do not look abandoned to other nodes
+            worker.execute(() -> {
+                if (claim(registeredClientId)) {
+                    logger.info("Resuming authorization purge for registered client {}", registeredClientId);
+                    purge(registeredClientId, jdbcTemplate.queryForObject(
+                            "SELECT last_authorization_id FROM client_purge_job WHERE registered_client_id = ?",
+                            String.class, registeredClientId));
+                }
+            });
+        }
+    }
+
+    /**
+     * Makes this node the owner of a pending or failed job, or of a running one whose owner has not reported
+     * progress within the lease. The update is conditional, so of several nodes only one succeeds.
+     */
+    boolean claim(String registeredClientId) {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            return jdbcTemplate.update("UPDATE client_purge_job SET owner = ?, status = ?, updated_at = ? WHERE registered_client_id = ? "
+                            + "AND (status IN (?, ?) OR (status = ? AND updated_at < ?))",
+                    owner, RUNNING, now, registeredClientId, PENDING, FAILED, RUNNING,
+                    now.minusSeconds(config.getLeaseSeconds())) == 1;
+        } catch (DataAccessException e) {
+            logger.warn("Could not claim purge of registered client {}: {}", registeredClientId, e.getMessage());
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        worker.shutdownNow();
+    }
+
+    // Only ever runs on the worker thread
+    void purge(String registeredClientId, String startAfterId) {
+        String lastId = startAfterId;
+        try {
+            referenceTokenStore.removeByRegisteredClientId(registeredClientId);
+            while (!Thread.currentThread().isInterrupted()) {
+                List<String> ids = purgeStore.findIdsAfter(registeredClientId, lastId, config.getBatchSize());
+                if (ids.isEmpty()) {
+                    break;
+                }
+                int deleted = purgeStore.deleteByIds(ids);
+                lastId = ids.get(ids.size() - 1);
+                int owned = jdbcTemplate.update("UPDATE client_purge_job SET purged_authorizations = purged_authorizations + ?, last_authorization_id = ?, updated_at = ? WHERE registered_client_id = ? AND owner = ?",
+                        deleted, lastId, LocalDateTime.now(), registeredClientId, owner);
+                if (owned == 0) {
+                    logger.warn("Authorization purge for registered client {} was taken over by another node", registeredClientId);
+                    return;
+                }
+                if (ids.size() < config.getBatchSize()) {
+                    break;
+                }
+                if (config.getPauseMillis() > 0) {
+                    TimeUnit.MILLISECONDS.sleep(config.getPauseMillis());
+                }
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            purgeStore.deleteConsents(registeredClientId);
+            updateStatus(registeredClientId, COMPLETED);
+            logger.info("Purged authorizations of registered client {}", registeredClientId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            // not only database errors: whatever stopped the chunk, the job must not stay RUNNING until its lease expires
+            logger.error("Authorization purge for registered client {} failed after id '{}': {}",
+                    registeredClientId, lastId, e.toString());
+            updateStatus(registeredClientId, FAILED);
+        }
+    }
+
+    private void updateStatus(String registeredClientId, String status) {
+        try {
+            jdbcTemplate.update("UPDATE client_purge_job SET status = ?, updated_at = ? WHERE registered_client_id = ? AND owner = ?",
+                    status, LocalDateTime.now(), registeredClientId, owner);
+        } catch (DataAccessException e) {
+            logger.warn("Could not update purge status of registered client {}: {}", registeredClientId, e.getMessage());
+        }
+    }
+
+    public record PurgeStatus(String clientId, String registeredClientId, String status, long purgedAuthorizations,
+                              LocalDateTime createdAt, LocalDateTime updatedAt) {
+    }
+}
@@ -1,23 +1,30 @@
 package authserver.service;
 
+import authserver.audit.AuditEventType;
+import authserver.audit.AuditLog;
 import authserver.config.AuthServerProperties;
-import jakarta.transaction.Transactional;
+import authserver.repo.RemovableRegisteredClientRepository;
+import authserver.security.ClientJwkSetDecoderFactory;
+import authserver.security.ClientSecretEncoder;
+import authserver.security.TokenReuseAuthenticationProvider;
+import org.springframework.transaction.annotation.Transactional;
 import lombok.Getter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
 import org.springframework.security.oauth2.core.AuthorizationGrantType;
 import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
-import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.settings.ClientSettings;
+import org.springframework.security.oauth2.server.authorization.settings.OAuth2TokenFormat;
 import org.springframework.security.oauth2.server.authorization.settings.TokenSettings;
 import org.springframework.stereotype.Service;
 
 import java.security.SecureRandom;
 import java.time.Duration;
 import java.util.Base64;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
 
 @Service
@@ -25,20 +32,26 @@ public class ClientService {
     
     private static final Logger logger = LoggerFactory.getLogger(ClientService.class);
     
-    private final RegisteredClientRepository registeredClientRepository;
-    private final PasswordEncoder passwordEncoder;
-    private final JdbcTemplate jdbcTemplate;
+    private final RemovableRegisteredClientRepository registeredClientRepository;
+    private final ClientSecretEncoder passwordEncoder;
     private final AuthServerProperties authServerProperties;
+    private final ChangeFeedService changeFeedService;
+    private final ClientPurgeService clientPurgeService;
+    private final AuditLog auditLog;
     private final SecureRandom random = new SecureRandom();
 
-    public ClientService(RegisteredClientRepository registeredClientRepository,
-                         PasswordEncoder passwordEncoder,
-                         JdbcTemplate jdbcTemplate,
-                         AuthServerProperties authServerProperties) {
+    public ClientService(RemovableRegisteredClientRepository registeredClientRepository,
+                         ClientSecretEncoder passwordEncoder,
+                         AuthServerProperties authServerProperties,
+                         ChangeFeedService changeFeedService,
+                         ClientPurgeService clientPurgeService,
+                         AuditLog auditLog) {
         this.registeredClientRepository = registeredClientRepository;
         this.passwordEncoder = passwordEncoder;
-        this.jdbcTemplate = jdbcTemplate;
         this.authServerProperties = authServerProperties;
+        this.changeFeedService = changeFeedService;
+        this.clientPurgeService = clientPurgeService;
+        this.auditLog = auditLog;
     }
 
     private String genSecret() {
@@ -49,21 +62,42 @@ public class ClientService {
     }
 
     @Transactional
-    public CreatedClient createClient(String clientId, String rawSecret, String clientName, Set<String> scopes, Long accessTtlSec) {
+    public CreatedClient createClient(String clientId, String rawSecret, String clientName, Set<String> scopes, Long accessTtlSec,
+                                      String accessTokenFormat, Boolean reuseAccessToken, String authenticationMethod,
+                                      Map<String, Object> jwks) {
         logger.info("Creating new OAuth client with name: {}", clientName);
         
         String id = UUID.randomUUID().toString();
         String finalClientId = (clientId == null || clientId.isBlank()) ? UUID.randomUUID().toString() : clientId;
-        String secretRaw = (rawSecret == null || rawSecret.isBlank()) ? genSecret() : rawSecret;
-        String encoded = passwordEncoder.encode(secretRaw);
 
         var builder = RegisteredClient.withId(id)
                 .clientId(finalClientId)
-                .clientSecret(encoded)
-                .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
                 .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
                 .clientName(clientName);
 
+        String secretRaw = null;
+        if (ClientAuthenticationMethod.PRIVATE_KEY_JWT.getValue().equals(authenticationMethod)) {
+            // authenticates with assertions signed by its own keys; there is no secret to hash or send
+            if (jwks == null || jwks.isEmpty()) {
+                throw new IllegalArgumentException("A JWK Set is required for private_key_jwt clients");
+            }
+            if (rawSecret != null && !rawSecret.isBlank()) {
+                throw new IllegalArgumentException("private_key_jwt clients cannot have a client secret");
+            }
+            builder.clientAuthenticationMethod(ClientAuthenticationMethod.PRIVATE_KEY_JWT)
+                    .clientSettings(ClientSettings.builder()
+                            .setting(ClientJwkSetDecoderFactory.JWK_SET_SETTING,
+                                    ClientJwkSetDecoderFactory.parsePublicKeys(jwks).toString())
+                            .build());
+        } else {
+            boolean generated = rawSecret == null || rawSecret.isBlank();
+            secretRaw = generated ? genSecret() : rawSecret;
+            // generated secrets are high-entropy and need no stretching; caller-chosen ones might not be
+            String encoded = generated ? passwordEncoder.encodeGenerated(secretRaw) : passwordEncoder.encodeProvided(secretRaw);
+            builder.clientSecret(encoded)
+                    .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC);
+        }
+
         // Handle scopes with configuration defaults
         if (scopes != null && !scopes.isEmpty()) {
             if (scopes.size() > authServerProperties.getOauth().getMaxScopes()) {
@@ -76,25 +110,78 @@ public class ClientService {
 
         // Handle TTL with configuration defaults
         long ttl = (accessTtlSec != null && accessTtlSec > 0) ? accessTtlSec : authServerProperties.getOauth().getDefaultAccessTokenTtl();
-        builder.tokenSettings(TokenSettings.builder().accessTokenTimeToLive(Duration.ofSeconds(ttl)).build());
+        // Reference tokens are opaque handles resolved through the authorization service
+        String format = (accessTokenFormat != null && !accessTokenFormat.isBlank())
+                ? accessTokenFormat : authServerProperties.getOauth().getDefaultAccessTokenFormat();
+        builder.tokenSettings(TokenSettings.builder()
+                .accessTokenTimeToLive(Duration.ofSeconds(ttl))
+                .accessTokenFormat(resolveTokenFormat(format))
+                .setting(TokenReuseAuthenticationProvider.REUSE_ACCESS_TOKEN_SETTING, Boolean.TRUE.equals(reuseAccessToken))
+                .build());
 
         RegisteredClient rc = builder.build();
         registeredClientRepository.save(rc);
+        changeFeedService.record(ChangeEvent.EntityType.CLIENT, finalClientId, ChangeEvent.ChangeType.CREATED);
+        auditLog.record(AuditEventType.CLIENT_CREATED, finalClientId, String.join(" ", rc.getScopes()));
         
         logger.info("Successfully created OAuth client with ID: {}", finalClientId);
         return new CreatedClient(rc, secretRaw);
     }
 
+    private OAuth2TokenFormat resolveTokenFormat(String format) {
+        if (OAuth2TokenFormat.REFERENCE.getValue().equalsIgnoreCase(format)) {
+            return OAuth2TokenFormat.REFERENCE;
+        }
+        if (OAuth2TokenFormat.SELF_CONTAINED.getValue().equalsIgnoreCase(format)) {
+            return OAuth2TokenFormat.SELF_CONTAINED;
+        }
+        throw new IllegalArgumentException("Unsupported access token format: " + format);
+    }
+
     public RegisteredClient findByClientId(String clientId) {
         return registeredClientRepository.findByClientId(clientId);
     }
 
+    /**
+     * Replaces the audiences the client may request tokens for (see {@link TokenBatchService}).
+     *
+     * @return the updated client, or null if no such client exists
+     */
     @Transactional
-    public void deleteByClientId(String clientId) {
-        // delete from oauth2_registered_client; JdbcRegisteredClientRepository does not expose deleteByClientId in interface
-        jdbcTemplate.update("DELETE FROM oauth2_registered_client WHERE client_id = ?", clientId);
-        // also remove possible oauth2_authorization entries
-        jdbcTemplate.update("DELETE FROM oauth2_authorization WHERE registered_client_id IN (SELECT id FROM oauth2_registered_client WHERE client_id = ?)", clientId);
+    public RegisteredClient setAllowedAudiences(String clientId, Set<String> audiences) {
+        RegisteredClient client = registeredClientRepository.findByClientId(clientId);
+        if (client == null) {
+            return null;
+        }
+        String allowed = String.join(" ", new TreeSet<>(audiences));
+        RegisteredClient updated = RegisteredClient.from(client)
+                .clientSettings(ClientSettings.withSettings(client.getClientSettings().getSettings())
+                        .setting(TokenBatchService.ALLOWED_AUDIENCES_SETTING, allowed)
+                        .build())
+                .build();
+        registeredClientRepository.save(updated);
+        auditLog.record(AuditEventType.CLIENT_UPDATED, clientId, "audiences: " + allowed);
+        logger.info("Allowed audiences of client {}: {}", clientId, allowed);
+        return updated;
+    }
+
+    /**
+     * Deletes the client registration, which immediately stops it from authenticating, and hands the
+     * removal of its authorizations to {@link ClientPurgeService}.
+     *
+     * @return false if no such client exists
+     */
+    @Transactional
+    public boolean deleteByClientId(String clientId) {
+        RegisteredClient client = registeredClientRepository.findByClientId(clientId);
+        if (client == null) {
+            return false;
+        }
+        registeredClientRepository.removeById(client.getId());
+        clientPurgeService.schedule(client.getId(), clientId);
+        changeFeedService.record(ChangeEvent.EntityType.CLIENT, clientId, ChangeEvent.ChangeType.DELETED);
+        auditLog.record(AuditEventType.CLIENT_DELETED, clientId, null);
+        return true;
     }
 
     @Getter
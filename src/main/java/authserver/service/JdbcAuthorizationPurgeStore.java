@@ -0,0 +1,34 @@
+package authserver.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Collections;
+import java.util.List;
+
+public class JdbcAuthorizationPurgeStore implements AuthorizationPurgeStore {
+
+    private static final String SELECT_CHUNK_SQL =
+            "SELECT id FROM oauth2_authorization WHERE registered_client_id = ? AND id > ? ORDER BY id LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JdbcAuthorizationPurgeStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<String> findIdsAfter(String registeredClientId, String afterId, int limit) {
+        return jdbcTemplate.queryForList(SELECT_CHUNK_SQL, String.class, registeredClientId, afterId, limit);
+    }
+
+    @Override
+    public int deleteByIds(List<String> ids) {
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        return jdbcTemplate.update("DELETE FROM oauth2_authorization WHERE id IN (" + placeholders + ")", ids.toArray());
+    }
+
+    @Override
+    public void deleteConsents(String registeredClientId) {
+        jdbcTemplate.update("DELETE FROM oauth2_authorization_consent WHERE registered_client_id = ?", registeredClientId);
+    }
+}
@@ -1,21 +1,32 @@
 package authserver.service;
 
+import authserver.audit.AuditEventType;
+import authserver.audit.AuditLog;
 import authserver.config.AuthServerProperties;
 import authserver.entity.JwkKey;
 import authserver.repo.JwkKeyRepository;
+import authserver.tenant.TenantContext;
 import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
 import com.nimbusds.jose.jwk.RSAKey;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
 import java.security.NoSuchAlgorithmException;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 @Service
@@ -25,15 +36,23 @@ public class JwkKeyService {
     
     private final JwkKeyRepository repo;
     private final AuthServerProperties authServerProperties;
+    private final ChangeFeedService changeFeedService;
+    private final AuditLog auditLog;
+    private final ObjectProvider<JwksChangeNotifier> jwksChangeNotifier;
 
-    public JwkKeyService(JwkKeyRepository repo, AuthServerProperties authServerProperties) {
+    public JwkKeyService(JwkKeyRepository repo, AuthServerProperties authServerProperties,
+                         ChangeFeedService changeFeedService, AuditLog auditLog,
+                         ObjectProvider<JwksChangeNotifier> jwksChangeNotifier) {
         this.repo = repo;
         this.authServerProperties = authServerProperties;
+        this.changeFeedService = changeFeedService;
+        this.auditLog = auditLog;
+        this.jwksChangeNotifier = jwksChangeNotifier;
     }
 
     @Transactional(readOnly = true)
     public RSAKey getActiveRsaKey() {
-        JwkKey jk = repo.findFirstByIsActiveTrue()
+        JwkKey jk = repo.findFirstByTenantIdAndIsActiveTrue(TenantContext.current())
                 .orElseThrow(() -> new IllegalStateException("No active JWK key found"));
         try {
             RSAPublicKey pub = PemUtils.readPublicKeyFromPem(jk.getPublicKeyPem());
@@ -47,14 +66,49 @@ public class JwkKeyService {
         }
     }
 
+    /**
+     * The public JWK Set of a tenant, as served by its JWK Set endpoint: the active key first, then the retired keys
+     * tokens may still be signed with.
+     */
+    @Transactional(readOnly = true)
+    public JWKSet getPublicJwkSet(String tenantId) {
+        JwkKey jk = repo.findFirstByTenantIdAndIsActiveTrue(tenantId)
+                .orElseThrow(() -> new IllegalStateException("No active JWK key found for tenant " + tenantId));
+        List<JWK> keys = new ArrayList<>();
+        keys.add(convertToRSAKey(jk).toPublicJWK());
+        keys.addAll(getRetiredPublicKeys(tenantId));
+        return new JWKSet(keys);
+    }
+
+    /**
+     * Public keys of a tenant that were replaced less than {@code app.oauth.retired-key-retention-seconds} ago, newest
+     * first, so tokens they signed still verify until they expire.
+     */
+    @Transactional(readOnly = true)
+    public List<JWK> getRetiredPublicKeys(String tenantId) {
+        LocalDateTime retainedSince = LocalDateTime.now().minusSeconds(authServerProperties.getOauth().getRetiredKeyRetentionSeconds());
+        List<JwkKey> keys = repo.findAllByTenantId(tenantId);
+        List<JWK> retired = new ArrayList<>();
+        // a key was retired when the next one was created
+        for (int i = keys.size() - 2; i >= 0; i--) {
+            if (keys.get(i + 1).getCreatedAt().isBefore(retainedSince)) {
+                break;
+            }
+            if (!Boolean.TRUE.equals(keys.get(i).getIsActive())) {
+                retired.add(convertToRSAKey(keys.get(i)).toPublicJWK());
+            }
+        }
+        return retired;
+    }
+
     @Transactional
-    public RSAKey getOrCreateActiveRsaKey(int keySize) {
-        return repo.findFirstByIsActiveTrue()
+    public RSAKey getOrCreateActiveRsaKey(String tenantId, int keySize) {
+        return repo.findFirstByTenantIdAndIsActiveTrue(tenantId)
                 .map(this::convertToRSAKey)
                 .orElseGet(() -> {
                     try {
                         int finalKeySize = keySize > 0 ? keySize : authServerProperties.getOauth().getDefaultKeySize();
-                        return convertToRSAKey(generateAndSaveRsaKey(finalKeySize));
+                        return convertToRSAKey(generateAndSaveRsaKey(tenantId, finalKeySize));
                     } catch (NoSuchAlgorithmException e) {
                         logger.error("Failed to generate RSA key", e);
                         throw new RuntimeException("Failed to generate RSA key", e);
@@ -63,8 +117,8 @@ public class JwkKeyService {
     }
 
     @Transactional
-    public JwkKey generateAndSaveRsaKey(int keySize) throws NoSuchAlgorithmException {
-        logger.info("Generating new RSA key with size: {}", keySize);
+    public JwkKey generateAndSaveRsaKey(String tenantId, int keySize) throws NoSuchAlgorithmException {
+        logger.info("Generating new RSA key with size {} for tenant {}", keySize, tenantId);
         
         KeyPairGenerator gen = KeyPairGenerator.getInstance("RSA");
         gen.initialize(keySize);
@@ -77,7 +131,7 @@ public class JwkKeyService {
         String privPem = PemUtils.encodePrivateKeyToPem(priv);
 
         // deactivate existing active key
-        repo.findFirstByIsActiveTrue().ifPresent(existing -> {
+        repo.findFirstByTenantIdAndIsActiveTrue(tenantId).ifPresent(existing -> {
             logger.info("Deactivating existing key with ID: {}", existing.getKid());
             existing.setIsActive(false);
             repo.save(existing);
@@ -89,13 +143,30 @@ public class JwkKeyService {
         newKey.setPrivateKeyPem(privPem);
         newKey.setAlgorithm(authServerProperties.getOauth().getDefaultAlgorithm());
         newKey.setIsActive(true);
+        newKey.setTenantId(tenantId);
         
         JwkKey savedKey = repo.save(newKey);
+        changeFeedService.record(ChangeEvent.EntityType.JWK_KEY, kid, ChangeEvent.ChangeType.ROTATED);
+        auditLog.record(AuditEventType.KEY_ROTATED, kid, keySize + " bit");
+        jwksChangeNotifier.ifAvailable(notifier -> notifyAfterCommit(notifier, tenantId));
         logger.info("Successfully generated and saved new RSA key with ID: {}", kid);
         
         return savedKey;
     }
 
+    private static void notifyAfterCommit(JwksChangeNotifier notifier, String tenantId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    notifier.keysChanged(tenantId);
+                }
+            });
+        } else {
+            notifier.keysChanged(tenantId);
+        }
+    }
+
     private RSAKey convertToRSAKey(JwkKey jk) {
         try {
             RSAPublicKey pub = PemUtils.readPublicKeyFromPem(jk.getPublicKeyPem());
@@ -0,0 +1,251 @@
+package authserver.service;
+
+import authserver.config.AuthServerProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * POSTs a signed {@code jwks.changed} event with a tenant's new public JWK Set to the webhooks subscribed to it,
+ * so resource servers can cache the JWK Set for long instead of polling for new key ids. The set is the one the JWK
+ * Set endpoint serves, retired keys included, so replacing a cached set with it keeps older tokens verifiable.
+ * <p>
+ * Changes of a tenant within {@code coalesceMillis} become one event, built when it is sent. Failed deliveries
+ * are retried with exponential backoff; a change arriving while a delivery to a webhook is still pending replaces
+ * its payload, so each webhook receives the latest set rather than every intermediate one. Deliveries are kept
+ * in memory on the node that rotated the key and are lost if it stops, so resource servers should still
+ * refresh the JWK Set now and then.
+ * <p>
+ * The body is signed with the subscription's secret: {@code X-Jwks-Signature: t=<epoch seconds>,v1=<hex HMAC-SHA256
+ * of "<t>.<body>">}.
+ */
+public class JwksChangeNotifier implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwksChangeNotifier.class);
+
+    public static final String EVENT_TYPE = "jwks.changed";
+    public static final String SIGNATURE_HEADER = "X-Jwks-Signature";
+    public static final String EVENT_ID_HEADER = "X-Jwks-Event-Id";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Function<String, List<JwksSubscriptionService.Subscription>> subscriptions;
+    private final Function<String, Map<String, Object>> eventContent;
+    private final AuthServerProperties.JwksNotifications config;
+    private final HttpClient httpClient;
+    private final ScheduledExecutorService scheduler;
+    private final Set<String> changedTenants = ConcurrentHashMap.newKeySet();
+    // guarded by this; one entry per webhook with a delivery in flight or waiting for a retry
+    private final Map<String, Delivery> deliveries = new LinkedHashMap<>();
+    private final Counter delivered;
+    private final Counter retried;
+    private final Counter failed;
+
+    /**
+     * @param subscriptions the subscriptions of a tenant
+     * @param eventContent  the tenant-specific fields of the event for a tenant, at least its {@code jwks}
+     */
+    public JwksChangeNotifier(Function<String, List<JwksSubscriptionService.Subscription>> subscriptions,
+                              Function<String, Map<String, Object>> eventContent,
+                              AuthServerProperties.JwksNotifications config, MeterRegistry meterRegistry) {
+        this.subscriptions = subscriptions;
+        this.eventContent = eventContent;
+        this.config = config;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(config.getConnectTimeoutMillis()))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "jwks-notifier");
+            t.setDaemon(true);
+            return t;
+        });
+        this.delivered = outcome("delivered", "JWKS change events accepted by a webhook", meterRegistry);
+        this.retried = outcome("retried", "JWKS change deliveries that failed and were scheduled again", meterRegistry);
+        this.failed = outcome("failed", "JWKS change deliveries given up on", meterRegistry);
+        Gauge.builder("authserver.jwks.notifications.pending", this, JwksChangeNotifier::pending)
+                .description("Webhooks with a JWKS change delivery in flight or waiting for a retry")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Notifies the tenant's subscribers, after the coalescing delay, of its current JWK Set.
+     */
+    public void keysChanged(String tenantId) {
+        if (changedTenants.add(tenantId)) {
+            scheduler.schedule(() -> publish(tenantId), config.getCoalesceMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized int pending() {
+        return deliveries.size();
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void publish(String tenantId) {
+        changedTenants.remove(tenantId);
+        try {
+            List<JwksSubscriptionService.Subscription> subscribers = subscriptions.apply(tenantId);
+            if (subscribers.isEmpty()) {
+                return;
+            }
+            Map<String, Object> event = new LinkedHashMap<>();
+            event.put("id", UUID.randomUUID().toString());
+            event.put("type", EVENT_TYPE);
+            event.put("tenant", tenantId);
+            event.put("occurred_at", Instant.now().getEpochSecond());
+            event.putAll(eventContent.apply(tenantId));
+            Payload payload = new Payload((String) event.get("id"), objectMapper.writeValueAsBytes(event));
+            subscribers.forEach(subscription -> enqueue(subscription, payload));
+        } catch (JsonProcessingException | RuntimeException e) {
+            logger.warn("Could not publish JWKS change of tenant {}: {}", tenantId, e.getMessage());
+        }
+    }
+
+    private void enqueue(JwksSubscriptionService.Subscription subscription, Payload payload) {
+        Delivery delivery;
+        synchronized (this) {
+            delivery = deliveries.get(subscription.id());
+            if (delivery != null) {
+                // the pending delivery sends the latest set, with a fresh retry budget
+                delivery.payload = payload;
+                delivery.attempts = 0;
+                return;
+            }
+            delivery = new Delivery(subscription, payload);
+            deliveries.put(subscription.id(), delivery);
+        }
+        send(delivery);
+    }
+
+    private void send(Delivery delivery) {
+        Payload payload;
+        synchronized (this) {
+            payload = delivery.payload;
+            delivery.attempts++;
+        }
+        String timestamp = Long.toString(Instant.now().getEpochSecond());
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(delivery.subscription.url()))
+                    .timeout(Duration.ofMillis(config.getRequestTimeoutMillis()))
+                    .header("Content-Type", "application/json")
+                    .header(EVENT_ID_HEADER, payload.eventId())
+                    .header(SIGNATURE_HEADER, "t=" + timestamp + ",v1=" + sign(delivery.subscription.secret(), timestamp, payload.body()))
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(payload.body()))
+                    .build();
+        } catch (IllegalArgumentException e) {
+            completed(delivery, payload, 0, e);
+            return;
+        }
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> completed(delivery, payload, response != null ? response.statusCode() : 0, error));
+    }
+
+    private void completed(Delivery delivery, Payload payload, int status, Throwable error) {
+        boolean success = error == null && status >= 200 && status < 300;
+        // other client errors will not go away by retrying the same request
+        boolean permanent = error == null && status >= 400 && status < 500 && status != 408 && status != 429;
+        long retryDelay;
+        synchronized (this) {
+            if (delivery.payload != payload) {
+                retryDelay = 0;
+            } else if (success || permanent || delivery.attempts >= config.getMaxAttempts()) {
+                deliveries.remove(delivery.subscription.id());
+                retryDelay = -1;
+            } else {
+                retryDelay = backoffMillis(delivery.attempts);
+            }
+        }
+        if (success) {
+            delivered.increment();
+            logger.debug("Delivered JWKS change {} to {}", payload.eventId(), delivery.subscription.url());
+        } else if (retryDelay > 0) {
+            retried.increment();
+            logger.debug("JWKS change delivery to {} failed ({}), retrying in {} ms", delivery.subscription.url(),
+                    error != null ? error.toString() : "HTTP " + status, retryDelay);
+        } else if (retryDelay < 0) {
+            failed.increment();
+            logger.warn("Giving up on JWKS change delivery to {} after {} attempt(s): {}", delivery.subscription.url(),
+                    delivery.attempts, error != null ? error.toString() : "HTTP " + status);
+        }
+        if (retryDelay >= 0) {
+            // a newer set arrived while this one was in flight, or the delivery is retried
+            try {
+                scheduler.schedule(() -> send(delivery), retryDelay, TimeUnit.MILLISECONDS);
+            } catch (RuntimeException e) {
+                logger.debug("JWKS notifier stopped, dropping delivery to {}", delivery.subscription.url());
+            }
+        }
+    }
+
+    private long backoffMillis(int attempts) {
+        long backoff = Math.min(config.getMaxBackoffMillis(), config.getInitialBackoffMillis() << Math.min(attempts - 1, 20));
+        // jitter keeps subscribers that failed together from being retried in lockstep
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    static String sign(String secret, String timestamp, byte[] body) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            mac.update((timestamp + ".").getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(mac.doFinal(body));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private Counter outcome(String outcome, String description, MeterRegistry meterRegistry) {
+        return Counter.builder("authserver.jwks.notifications")
+                .tag("outcome", outcome)
+                .description(description)
+                .register(meterRegistry);
+    }
+
+    private record Payload(String eventId, byte[] body) {
+    }
+
+    private static final class Delivery {
+
+        private final JwksSubscriptionService.Subscription subscription;
+        private Payload payload;
+        private int attempts;
+
+        private Delivery(JwksSubscriptionService.Subscription subscription, Payload payload) {
+            this.subscription = subscription;
+            this.payload = payload;
+        }
+    }
+}
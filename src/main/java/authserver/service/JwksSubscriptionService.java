@@ -0,0 +1,90 @@
+package authserver.service;
+
+import authserver.tenant.TenantContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Webhook URLs that {@link JwksChangeNotifier} calls when the signing keys of their tenant change. Each subscription
+ * has its own secret, returned once on registration, with which the notifications are signed.
+ */
+@Service
+public class JwksSubscriptionService {
+
+    public static final int MAX_SUBSCRIPTIONS_PER_TENANT = 100;
+
+    private static final String COLUMNS = "SELECT id, tenant_id, url, secret, created_at FROM jwks_subscription";
+
+    private static final RowMapper<Subscription> MAPPER = (rs, rowNum) -> new Subscription(
+            rs.getString("id"),
+            rs.getString("tenant_id"),
+            rs.getString("url"),
+            rs.getString("secret"),
+            rs.getObject("created_at", LocalDateTime.class));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SecureRandom random = new SecureRandom();
+
+    public JwksSubscriptionService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Subscribes {@code url} to key changes of the current tenant.
+     *
+     * @throws IllegalArgumentException if it is not an absolute http(s) URL or the tenant has too many subscriptions
+     */
+    public Subscription subscribe(String url) {
+        URI uri;
+        try {
+            uri = URI.create(url);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid webhook URL: " + url);
+        }
+        if (!("https".equalsIgnoreCase(uri.getScheme()) || "http".equalsIgnoreCase(uri.getScheme())) || uri.getHost() == null) {
+            throw new IllegalArgumentException("Webhook URL must be an absolute http or https URL");
+        }
+        String tenantId = TenantContext.current();
+        if (findByTenant(tenantId).size() >= MAX_SUBSCRIPTIONS_PER_TENANT) {
+            throw new IllegalArgumentException("A tenant cannot have more than " + MAX_SUBSCRIPTIONS_PER_TENANT + " JWKS subscriptions");
+        }
+        byte[] secret = new byte[32];
+        random.nextBytes(secret);
+        Subscription subscription = new Subscription(UUID.randomUUID().toString(), tenantId, uri.toString(),
+                Base64.getUrlEncoder().withoutPadding().encodeToString(secret), LocalDateTime.now());
+        jdbcTemplate.update("INSERT INTO jwks_subscription (id, tenant_id, url, secret, created_at) VALUES (?, ?, ?, ?, ?)",
+                subscription.id(), subscription.tenantId(), subscription.url(), subscription.secret(), subscription.createdAt());
+        return subscription;
+    }
+
+    /**
+     * Subscriptions of the current tenant.
+     */
+    public List<Subscription> findAll() {
+        return findByTenant(TenantContext.current());
+    }
+
+    public List<Subscription> findByTenant(String tenantId) {
+        return jdbcTemplate.query(COLUMNS + " WHERE tenant_id = ? ORDER BY created_at", MAPPER, tenantId);
+    }
+
+    /**
+     * Removes a subscription of the current tenant.
+     *
+     * @return false if there is no such subscription
+     */
+    public boolean unsubscribe(String id) {
+        return jdbcTemplate.update("DELETE FROM jwks_subscription WHERE id = ? AND tenant_id = ?", id, TenantContext.current()) > 0;
+    }
+
+    public record Subscription(String id, String tenantId, String url, String secret, LocalDateTime createdAt) {
+    }
+}
@@ -0,0 +1,105 @@
+package authserver.service;
+
+import authserver.profiling.TokenPipelineEvents;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.settings.OAuth2TokenFormat;
+
+/**
+ * Write-through decorator that serves reference (opaque) access token lookups, such as
+ * token introspection, from a {@link ReferenceTokenStore} instead of the database.
+ * Revoking or removing a reference token is published on the change feed, so the other nodes evict it from
+ * their stores within a poll interval instead of serving it until it expires.
+ */
+public class ReferenceTokenAuthorizationService implements OAuth2AuthorizationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceTokenAuthorizationService.class);
+
+    private final OAuth2AuthorizationService delegate;
+    private final ReferenceTokenStore store;
+    private final ChangeFeedService changeFeed;
+
+    public ReferenceTokenAuthorizationService(OAuth2AuthorizationService delegate, ReferenceTokenStore store,
+                                              ChangeFeedService changeFeed) {
+        this.delegate = delegate;
+        this.store = store;
+        this.changeFeed = changeFeed;
+    }
+
+    @Override
+    public void save(OAuth2Authorization authorization) {
+        TokenPipelineEvents.AuthorizationPersist event = new TokenPipelineEvents.AuthorizationPersist();
+        event.begin();
+        delegate.save(authorization);
+        if (event.shouldCommit()) {
+            event.clientId = authorization.getPrincipalName();
+            event.authorizationId = authorization.getId();
+            event.commit();
+        }
+        if (hasActiveReferenceToken(authorization)) {
+            store.put(authorization);
+        } else {
+            // covers revocation, which saves the authorization with an invalidated token
+            store.remove(authorization);
+            if (hasReferenceToken(authorization) && authorization.getAccessToken().isInvalidated()) {
+                publish(authorization, ChangeEvent.ChangeType.REVOKED);
+            }
+        }
+    }
+
+    @Override
+    public void remove(OAuth2Authorization authorization) {
+        delegate.remove(authorization);
+        store.remove(authorization);
+        if (hasReferenceToken(authorization)) {
+            publish(authorization, ChangeEvent.ChangeType.DELETED);
+        }
+    }
+
+    @Override
+    public OAuth2Authorization findById(String id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public OAuth2Authorization findByToken(String token, OAuth2TokenType tokenType) {
+        if (tokenType == null || OAuth2TokenType.ACCESS_TOKEN.equals(tokenType)) {
+            OAuth2Authorization cached = store.get(token);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        OAuth2Authorization authorization = delegate.findByToken(token, tokenType);
+        if (authorization != null && hasActiveReferenceToken(authorization)
+                && token.equals(authorization.getAccessToken().getToken().getTokenValue())) {
+            // tokens minted by another node are cached on first lookup
+            store.put(authorization);
+        }
+        return authorization;
+    }
+
+    private void publish(OAuth2Authorization authorization, ChangeEvent.ChangeType changeType) {
+        try {
+            changeFeed.record(ChangeEvent.EntityType.AUTHORIZATION, authorization.getId(), changeType);
+        } catch (DataAccessException e) {
+            logger.warn("Could not publish {} reference token of authorization {}, other nodes keep it cached until it expires: {}",
+                    changeType, authorization.getId(), e.getMessage());
+        }
+    }
+
+    private static boolean hasActiveReferenceToken(OAuth2Authorization authorization) {
+        return hasReferenceToken(authorization) && authorization.getAccessToken().isActive();
+    }
+
+    private static boolean hasReferenceToken(OAuth2Authorization authorization) {
+        OAuth2Authorization.Token<OAuth2AccessToken> accessToken = authorization.getAccessToken();
+        return accessToken != null
+                && OAuth2TokenFormat.REFERENCE.getValue().equals(accessToken.getMetadata(OAuth2TokenFormat.class.getName()));
+    }
+}
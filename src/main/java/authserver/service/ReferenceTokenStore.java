@@ -0,0 +1,245 @@
+package authserver.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * In-memory index of authorizations holding opaque (reference) access tokens, keyed by token value.
+ * Entries are spread over lock-striped shards and expired by a per-shard hashed timing wheel.
+ * Authorizations revoked or removed on any node are evicted when their change-feed event arrives.
+ */
+public class ReferenceTokenStore implements ChangeListener, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceTokenStore.class);
+
+    private final Shard[] shards;
+    private final int shardMask;
+    private final int wheelSlots;
+    private final long tickMillis;
+    private final int maxEntriesPerShard;
+    private final ScheduledExecutorService sweeper;
+
+    public ReferenceTokenStore(int shardCount, int wheelSlots, Duration tick, int maxEntries) {
+        int size = Integer.highestOneBit(Math.max(1, shardCount - 1)) << 1;
+        this.shards = new Shard[size];
+        this.shardMask = size - 1;
+        this.wheelSlots = wheelSlots;
+        this.tickMillis = tick.toMillis();
+        this.maxEntriesPerShard = Math.max(1, maxEntries / size);
+
+        long currentTick = System.currentTimeMillis() / tickMillis;
+        for (int i = 0; i < size; i++) {
+            shards[i] = new Shard(currentTick);
+        }
+
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "reference-token-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        this.sweeper.scheduleAtFixedRate(this::sweep, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void put(OAuth2Authorization authorization) {
+        OAuth2Authorization.Token<OAuth2AccessToken> accessToken = authorization.getAccessToken();
+        if (accessToken == null || accessToken.getToken().getExpiresAt() == null) {
+            return;
+        }
+        String tokenValue = accessToken.getToken().getTokenValue();
+        long expiresAt = accessToken.getToken().getExpiresAt().toEpochMilli();
+        if (expiresAt <= System.currentTimeMillis()) {
+            return;
+        }
+        shardFor(tokenValue).put(tokenValue, authorization, expiresAt);
+    }
+
+    public OAuth2Authorization get(String tokenValue) {
+        return shardFor(tokenValue).get(tokenValue, System.currentTimeMillis());
+    }
+
+    public void remove(OAuth2Authorization authorization) {
+        OAuth2Authorization.Token<OAuth2AccessToken> accessToken = authorization.getAccessToken();
+        if (accessToken != null) {
+            String tokenValue = accessToken.getToken().getTokenValue();
+            shardFor(tokenValue).remove(tokenValue);
+        }
+    }
+
+    public int removeByRegisteredClientId(String registeredClientId) {
+        int removed = 0;
+        for (Shard shard : shards) {
+            removed += shard.removeIf(entry -> registeredClientId.equals(entry.authorization().getRegisteredClientId()));
+        }
+        return removed;
+    }
+
+    // events carry the authorization id rather than the token value, so this scans every shard; revocations are rare
+    public int removeByAuthorizationId(String authorizationId) {
+        int removed = 0;
+        for (Shard shard : shards) {
+            removed += shard.removeIf(entry -> authorizationId.equals(entry.authorization().getId()));
+        }
+        return removed;
+    }
+
+    @Override
+    public void onChange(ChangeEvent event) {
+        if (event.entityType() == ChangeEvent.EntityType.AUTHORIZATION) {
+            removeByAuthorizationId(event.entityId());
+        }
+    }
+
+    public int size() {
+        int total = 0;
+        for (Shard shard : shards) {
+            total += shard.size();
+        }
+        return total;
+    }
+
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+    }
+
+    void sweep() {
+        try {
+            long now = System.currentTimeMillis();
+            long currentTick = now / tickMillis;
+            for (Shard shard : shards) {
+                shard.advance(currentTick, now);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Reference token sweep failed: {}", e.getMessage());
+        }
+    }
+
+    private Shard shardFor(String tokenValue) {
+        int h = tokenValue.hashCode();
+        return shards[(h ^ (h >>> 16)) & shardMask];
+    }
+
+    private int slotOf(long expiresAt) {
+        return (int) ((expiresAt / tickMillis) % wheelSlots);
+    }
+
+    private record Entry(OAuth2Authorization authorization, long expiresAt) {
+    }
+
+    private final class Shard {
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<String, Entry> entries = new HashMap<>();
+        private final ArrayDeque<String>[] wheel;
+        private long lastTick;
+
+        @SuppressWarnings("unchecked")
+        Shard(long startTick) {
+            this.wheel = new ArrayDeque[wheelSlots];
+            this.lastTick = startTick;
+        }
+
+        void put(String tokenValue, OAuth2Authorization authorization, long expiresAt) {
+            lock.writeLock().lock();
+            try {
+                if (entries.size() >= maxEntriesPerShard && !entries.containsKey(tokenValue)) {
+                    return;
+                }
+                Entry previous = entries.put(tokenValue, new Entry(authorization, expiresAt));
+                int slot = slotOf(expiresAt);
+                if (previous != null && slotOf(previous.expiresAt()) == slot) {
+                    return;
+                }
+                if (wheel[slot] == null) {
+                    wheel[slot] = new ArrayDeque<>();
+                }
+                wheel[slot].add(tokenValue);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        OAuth2Authorization get(String tokenValue, long now) {
+            lock.readLock().lock();
+            try {
+                Entry entry = entries.get(tokenValue);
+                return (entry != null && entry.expiresAt() > now) ? entry.authorization() : null;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void remove(String tokenValue) {
+            lock.writeLock().lock();
+            try {
+                // the wheel slot is cleaned lazily when the sweeper reaches it
+                entries.remove(tokenValue);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        int removeIf(Predicate<Entry> filter) {
+            lock.writeLock().lock();
+            try {
+                int before = entries.size();
+                entries.values().removeIf(filter);
+                return before - entries.size();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        int size() {
+            lock.readLock().lock();
+            try {
+                return entries.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void advance(long currentTick, long now) {
+            lock.writeLock().lock();
+            try {
+                long ticks = Math.min(currentTick - lastTick, wheelSlots);
+                for (long i = 1; i <= ticks; i++) {
+                    int slot = (int) ((lastTick + i) % wheelSlots);
+                    ArrayDeque<String> bucket = wheel[slot];
+                    if (bucket == null || bucket.isEmpty()) {
+                        continue;
+                    }
+                    ArrayDeque<String> remaining = new ArrayDeque<>();
+                    for (String tokenValue : bucket) {
+                        Entry entry = entries.get(tokenValue);
+                        if (entry == null || slotOf(entry.expiresAt()) != slot) {
+                            continue;
+                        }
+                        if (entry.expiresAt() <= now) {
+                            entries.remove(tokenValue);
+                        } else {
+                            // expires in a later revolution of the wheel
+                            remaining.add(tokenValue);
+                        }
+                    }
+                    wheel[slot] = remaining.isEmpty() ? null : remaining;
+                }
+                lastTick = Math.max(lastTick, currentTick);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package authserver.service;
+
+import authserver.audit.AuditEventType;
+import authserver.audit.AuditLog;
+import authserver.config.AuthServerProperties;
+import authserver.dto.TokenBatchRequest;
+import authserver.profiling.TokenPipelineEvents;
+import authserver.security.ClientSecretEncoder;
+import authserver.tenant.TenantContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClaimAccessor;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.OAuth2Token;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientCredentialsAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.context.AuthorizationServerContext;
+import org.springframework.security.oauth2.server.authorization.settings.AuthorizationServerSettings;
+import org.springframework.security.oauth2.server.authorization.settings.OAuth2TokenFormat;
+import org.springframework.security.oauth2.server.authorization.token.DefaultOAuth2TokenContext;
+import org.springframework.security.oauth2.server.authorization.token.DelegatingOAuth2TokenGenerator;
+import org.springframework.security.oauth2.server.authorization.token.JwtGenerator;
+import org.springframework.security.oauth2.server.authorization.token.OAuth2AccessTokenGenerator;
+import org.springframework.security.oauth2.server.authorization.token.OAuth2TokenGenerator;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Mints many client_credentials tokens for one authenticated client. The tokens are the ones the token endpoint
+ * would issue (same generators, claims and persisted authorization), except that an item may name its own
+ * audience, provided an administrator allowed that audience for the client ({@link #ALLOWED_AUDIENCES_SETTING}). Items are handled in chunks: a chunk is signed in parallel on a shared bounded pool, its
+ * authorizations are saved in one transaction, and only then is it written to the response, so a token is never
+ * handed out before it can be introspected or revoked.
+ */
+@Service
+public class TokenBatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenBatchService.class);
+
+    /**
+     * Client setting: the audiences, separated by spaces, the client may request tokens for.
+     */
+    public static final String ALLOWED_AUDIENCES_SETTING = "settings.client.allowed-audiences";
+
+    static final String AUDIENCE_PARAMETER = "audience";
+
+    // RFC 8707
+    private static final String INVALID_TARGET = "invalid_target";
+
+    private final RegisteredClientRepository registeredClientRepository;
+    private final ClientSecretEncoder clientSecretEncoder;
+    private final OAuth2AuthorizationService authorizationService;
+    private final AuthorizationServerSettings authorizationServerSettings;
+    private final TransactionTemplate transactionTemplate;
+    private final AuditLog auditLog;
+    private final ObjectMapper objectMapper;
+    private final AuthServerProperties.TokenBatch config;
+    private final OAuth2TokenGenerator<? extends OAuth2Token> tokenGenerator;
+    private final ThreadPoolExecutor signers;
+
+    public TokenBatchService(RegisteredClientRepository registeredClientRepository, ClientSecretEncoder clientSecretEncoder,
+                             OAuth2AuthorizationService authorizationService, AuthorizationServerSettings authorizationServerSettings,
+                             JwtEncoder jwtEncoder, TransactionTemplate transactionTemplate, AuditLog auditLog,
+                             ObjectMapper objectMapper, AuthServerProperties authServerProperties) {
+        this.registeredClientRepository = registeredClientRepository;
+        this.clientSecretEncoder = clientSecretEncoder;
+        this.authorizationService = authorizationService;
+        this.authorizationServerSettings = authorizationServerSettings;
+        this.transactionTemplate = transactionTemplate;
+        this.auditLog = auditLog;
+        this.objectMapper = objectMapper;
+        this.config = authServerProperties.getTokenBatch();
+
+        // the generators pass the grant, not custom context entries, on to their customizers
+        JwtGenerator jwtGenerator = new JwtGenerator(jwtEncoder);
+        jwtGenerator.setJwtCustomizer(context -> {
+            String audience = requestedAudience(context.getAuthorizationGrant());
+            if (audience != null) {
+                context.getClaims().audience(List.of(audience));
+            }
+        });
+        OAuth2AccessTokenGenerator referenceGenerator = new OAuth2AccessTokenGenerator();
+        referenceGenerator.setAccessTokenCustomizer(context -> {
+            String audience = requestedAudience(context.getAuthorizationGrant());
+            if (audience != null) {
+                context.getClaims().audience(List.of(audience));
+            }
+        });
+        this.tokenGenerator = new DelegatingOAuth2TokenGenerator(jwtGenerator, referenceGenerator);
+
+        AtomicInteger threads = new AtomicInteger();
+        this.signers = new ThreadPoolExecutor(config.getSigningThreads(), config.getSigningThreads(), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(config.getSigningThreads() * 16), r -> {
+                    Thread t = new Thread(r, "token-batch-signer-" + threads.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Authenticates a {@code client_secret_basic} Authorization header.
+     *
+     * @return the client, or null if the credentials are missing or wrong
+     */
+    public RegisteredClient authenticate(String authorizationHeader) {
+        if (authorizationHeader == null || !authorizationHeader.regionMatches(true, 0, "Basic ", 0, 6)) {
+            return null;
+        }
+        String[] credentials;
+        try {
+            credentials = new String(Base64.getDecoder().decode(authorizationHeader.substring(6).trim()), StandardCharsets.UTF_8)
+                    .split(":", 2);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (credentials.length != 2) {
+            return null;
+        }
+        String clientId = URLDecoder.decode(credentials[0], StandardCharsets.UTF_8);
+        String clientSecret = URLDecoder.decode(credentials[1], StandardCharsets.UTF_8);
+        if (!StringUtils.hasText(clientId)) {
+            return null;
+        }
+        TokenPipelineEvents.SecretVerification event = new TokenPipelineEvents.SecretVerification();
+        event.begin();
+        RegisteredClient client = registeredClientRepository.findByClientId(clientId);
+        boolean authenticated = client != null
+                && client.getClientAuthenticationMethods().contains(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
+                && client.getClientSecret() != null
+                && (client.getClientSecretExpiresAt() == null || !Instant.now().isAfter(client.getClientSecretExpiresAt()))
+                && clientSecretEncoder.matches(clientSecret, client.getClientSecret());
+        if (event.shouldCommit()) {
+            event.clientId = clientId;
+            event.success = authenticated;
+            event.commit();
+        }
+        return authenticated ? client : null;
+    }
+
+    /**
+     * Mints one token per item and writes one JSON object per line to {@code out}: either a token response
+     * with the item's {@code index}, or an OAuth2 error for that item.
+     *
+     * @param issuer the issuer of the request, as the token endpoint would have resolved it
+     */
+    public void mint(RegisteredClient client, String issuer, List<TokenBatchRequest.Item> items, OutputStream out) throws IOException {
+        if (items.size() > config.getMaxSize()) {
+            throw new IllegalArgumentException("Too many tokens requested. Maximum allowed: " + config.getMaxSize());
+        }
+        String tenantId = TenantContext.current();
+        AuthorizationServerContext serverContext = new BatchServerContext(
+                authorizationServerSettings.getIssuer() != null ? authorizationServerSettings.getIssuer() : issuer,
+                authorizationServerSettings);
+        OAuth2ClientAuthenticationToken principal =
+                new OAuth2ClientAuthenticationToken(client, ClientAuthenticationMethod.CLIENT_SECRET_BASIC, null);
+
+        for (int start = 0; start < items.size(); start += config.getChunkSize()) {
+            List<CompletableFuture<Minted>> chunk = new ArrayList<>();
+            for (int i = start; i < Math.min(start + config.getChunkSize(), items.size()); i++) {
+                int index = i;
+                TokenBatchRequest.Item item = items.get(i);
+                // the signing key is chosen by tenant, which is a thread local of the request thread
+                chunk.add(CompletableFuture.supplyAsync(() -> TenantContext.callAs(tenantId,
+                        () -> mintOne(index, item, principal, serverContext)), signers));
+            }
+            List<Minted> minted = chunk.stream().map(CompletableFuture::join).toList();
+
+            List<OAuth2Authorization> authorizations = minted.stream().map(Minted::authorization).filter(Objects::nonNull).toList();
+            if (!authorizations.isEmpty()) {
+                transactionTemplate.executeWithoutResult(status -> authorizations.forEach(authorizationService::save));
+            }
+            for (Minted token : minted) {
+                if (token.authorization() != null) {
+                    auditLog.record(AuditEventType.TOKEN_ISSUED, client.getClientId(), client.getClientId(),
+                            String.join(" ", token.authorization().getAuthorizedScopes()));
+                }
+                out.write(objectMapper.writeValueAsBytes(token.response()));
+                out.write('\n');
+            }
+            out.flush();
+        }
+        logger.debug("Minted a batch of {} tokens for client {}", items.size(), client.getClientId());
+    }
+
+    @PreDestroy
+    public void stop() {
+        signers.shutdownNow();
+    }
+
+    private Minted mintOne(int index, TokenBatchRequest.Item item, OAuth2ClientAuthenticationToken principal,
+                           AuthorizationServerContext serverContext) {
+        RegisteredClient client = principal.getRegisteredClient();
+        Set<String> scopes = StringUtils.hasText(item.getScope())
+                ? new LinkedHashSet<>(List.of(item.getScope().trim().split("\\s+")))
+                : Set.of();
+        if (!client.getScopes().containsAll(scopes)) {
+            return Minted.error(index, OAuth2ErrorCodes.INVALID_SCOPE, "Scope not registered for the client");
+        }
+        if (StringUtils.hasText(item.getAudience()) && !allowedAudiences(client).contains(item.getAudience())) {
+            return Minted.error(index, INVALID_TARGET, "Audience not registered for the client");
+        }
+
+        DefaultOAuth2TokenContext.Builder context = DefaultOAuth2TokenContext.builder()
+                .registeredClient(client)
+                .principal(principal)
+                .authorizationServerContext(serverContext)
+                .authorizedScopes(scopes)
+                .tokenType(OAuth2TokenType.ACCESS_TOKEN)
+                .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                .authorizationGrant(new OAuth2ClientCredentialsAuthenticationToken(principal, scopes,
+                        StringUtils.hasText(item.getAudience()) ? Map.of(AUDIENCE_PARAMETER, item.getAudience()) : Map.of()));
+        OAuth2Token generated = tokenGenerator.generate(context.build());
+        if (generated == null) {
+            return Minted.error(index, OAuth2ErrorCodes.SERVER_ERROR, "The token generator failed to generate the access token.");
+        }
+
+        // same authorization as the client_credentials provider saves for a token endpoint request
+        OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, generated.getTokenValue(),
+                generated.getIssuedAt(), generated.getExpiresAt(), scopes);
+        OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(client)
+                .principalName(principal.getName())
+                .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                .authorizedScopes(scopes)
+                .token(accessToken, metadata -> {
+                    if (generated instanceof ClaimAccessor claims) {
+                        metadata.put(OAuth2Authorization.Token.CLAIMS_METADATA_NAME, claims.getClaims());
+                    }
+                    metadata.put(OAuth2Authorization.Token.INVALIDATED_METADATA_NAME, false);
+                    metadata.put(OAuth2TokenFormat.class.getName(), client.getTokenSettings().getAccessTokenFormat().getValue());
+                })
+                .build();
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("index", index);
+        response.put("access_token", accessToken.getTokenValue());
+        response.put("token_type", accessToken.getTokenType().getValue());
+        response.put("expires_in", Duration.between(Instant.now(), accessToken.getExpiresAt()).getSeconds());
+        if (!scopes.isEmpty()) {
+            response.put("scope", String.join(" ", scopes));
+        }
+        return new Minted(authorization, response);
+    }
+
+    public static Set<String> allowedAudiences(RegisteredClient client) {
+        String allowed = client.getClientSettings().getSetting(ALLOWED_AUDIENCES_SETTING);
+        return StringUtils.hasText(allowed) ? Set.of(allowed.split(" ")) : Set.of();
+    }
+
+    private static String requestedAudience(Authentication grant) {
+        return grant instanceof OAuth2ClientCredentialsAuthenticationToken clientCredentials
+                ? (String) clientCredentials.getAdditionalParameters().get(AUDIENCE_PARAMETER)
+                : null;
+    }
+
+    private record Minted(OAuth2Authorization authorization, Map<String, Object> response) {
+
+        static Minted error(int index, String error, String description) {
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("index", index);
+            response.put("error", error);
+            response.put("error_description", description);
+            return new Minted(null, response);
+        }
+    }
+
+    private record BatchServerContext(String issuer, AuthorizationServerSettings settings) implements AuthorizationServerContext {
+
+        @Override
+        public String getIssuer() {
+            return issuer;
+        }
+
+        @Override
+        public AuthorizationServerSettings getAuthorizationServerSettings() {
+            return settings;
+        }
+    }
+}
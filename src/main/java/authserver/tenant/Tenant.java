@@ -0,0 +1,13 @@
+package authserver.tenant;
+
+/**
+ * A configured issuer. {@code host} and {@code pathPrefix} come from the issuer URL; the prefix is empty for
+ * host-based tenants.
+ */
+public record Tenant(String id, String issuer, String host, String pathPrefix, int rateLimitRequests,
+                     int rateLimitWindowSeconds) {
+
+    public boolean isDefault() {
+        return TenantContext.DEFAULT.equals(id);
+    }
+}
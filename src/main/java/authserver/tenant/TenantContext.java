@@ -0,0 +1,44 @@
+package authserver.tenant;
+
+import java.util.function.Supplier;
+
+/**
+ * The tenant the current thread works for, set per request by {@link TenantResolutionFilter}. Threads without
+ * a tenant (startup, background jobs, single-tenant mode) work for {@link #DEFAULT}.
+ */
+public final class TenantContext {
+
+    public static final String DEFAULT = "default";
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private TenantContext() {
+    }
+
+    public static String current() {
+        String tenantId = CURRENT.get();
+        return tenantId != null ? tenantId : DEFAULT;
+    }
+
+    public static <T> T callAs(String tenantId, Supplier<T> action) {
+        String previous = CURRENT.get();
+        CURRENT.set(tenantId);
+        try {
+            return action.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    static void set(String tenantId) {
+        CURRENT.set(tenantId);
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+}
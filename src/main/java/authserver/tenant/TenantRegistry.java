@@ -0,0 +1,134 @@
+package authserver.tenant;
+
+import authserver.config.AuthServerProperties;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The configured tenants plus the {@code default} tenant, which owns {@code app.issuer}, everything created
+ * before tenants were enabled, and every request that matches no other tenant.
+ */
+@Component
+public class TenantRegistry {
+
+    public static final String TOKEN_ENDPOINT = "/oauth2/token";
+    public static final String TOKEN_BATCH_ENDPOINT = "/api/tokens/batch";
+
+    private final boolean enabled;
+    private final Tenant defaultTenant;
+    private final Map<String, Tenant> tenants = new LinkedHashMap<>();
+    // longest path prefix first, so /acme/eu wins over /acme on the same host
+    private final List<Tenant> matchOrder = new ArrayList<>();
+
+    public TenantRegistry(AuthServerProperties authServerProperties) {
+        AuthServerProperties.Security security = authServerProperties.getSecurity();
+        this.enabled = authServerProperties.getTenants().isEnabled();
+        this.defaultTenant = tenant(TenantContext.DEFAULT, authServerProperties.getIssuer(),
+                security.getRateLimitRequests(), security.getRateLimitWindowSeconds());
+        tenants.put(defaultTenant.id(), defaultTenant);
+        if (!enabled) {
+            return;
+        }
+        authServerProperties.getTenants().getRegistrations().forEach((id, cfg) -> {
+            if (TenantContext.DEFAULT.equals(id)) {
+                throw new IllegalStateException("Tenant id '" + TenantContext.DEFAULT + "' is reserved for app.issuer");
+            }
+            Tenant tenant = tenant(id, cfg.getIssuer(),
+                    cfg.getRateLimitRequests() != null ? cfg.getRateLimitRequests() : security.getRateLimitRequests(),
+                    cfg.getRateLimitWindowSeconds() != null ? cfg.getRateLimitWindowSeconds() : security.getRateLimitWindowSeconds());
+            for (Tenant other : matchOrder) {
+                if (other.host().equals(tenant.host()) && other.pathPrefix().equals(tenant.pathPrefix())) {
+                    throw new IllegalStateException("Tenants '" + other.id() + "' and '" + id + "' share issuer " + tenant.issuer());
+                }
+            }
+            tenants.put(id, tenant);
+            matchOrder.add(tenant);
+        });
+        matchOrder.sort(Comparator.comparingInt((Tenant t) -> t.pathPrefix().length()).reversed());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Collection<Tenant> all() {
+        return tenants.values();
+    }
+
+    public Tenant get(String tenantId) {
+        return tenants.getOrDefault(tenantId, defaultTenant);
+    }
+
+    public Tenant current() {
+        return get(TenantContext.current());
+    }
+
+    /**
+     * The path of {@code request} below the context path and the current tenant's issuer path, so
+     * {@code /acme/oauth2/token} is {@code /oauth2/token} for the tenant issuing at {@code /acme}. Application
+     * endpoints arrive with the prefix already removed by {@link TenantResolutionFilter} and are returned as is.
+     */
+    public String endpointPath(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String prefix = current().pathPrefix();
+        if (!prefix.isEmpty() && path.startsWith(prefix + "/")) {
+            return path.substring(prefix.length());
+        }
+        return path;
+    }
+
+    public boolean isTokenEndpoint(HttpServletRequest request) {
+        return TOKEN_ENDPOINT.equals(endpointPath(request));
+    }
+
+    public boolean isTokenBatchEndpoint(HttpServletRequest request) {
+        return TOKEN_BATCH_ENDPOINT.equals(endpointPath(request));
+    }
+
+    /**
+     * The tenant whose issuer is exactly {@code host} + {@code issuerPath}, or null.
+     */
+    public Tenant findByIssuer(String host, String issuerPath) {
+        for (Tenant tenant : matchOrder) {
+            if (tenant.host().equalsIgnoreCase(host) && tenant.pathPrefix().equals(issuerPath)) {
+                return tenant;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The tenant on {@code host} with the longest path prefix of {@code path}, or the default tenant.
+     */
+    public Tenant findByPrefix(String host, String path) {
+        for (Tenant tenant : matchOrder) {
+            String prefix = tenant.pathPrefix();
+            if (tenant.host().equalsIgnoreCase(host)
+                    && (prefix.isEmpty() || path.equals(prefix) || path.startsWith(prefix + "/"))) {
+                return tenant;
+            }
+        }
+        return defaultTenant;
+    }
+
+    private static Tenant tenant(String id, String issuer, int rateLimitRequests, int rateLimitWindowSeconds) {
+        URI uri = URI.create(issuer);
+        if (uri.getHost() == null) {
+            throw new IllegalStateException("Issuer of tenant '" + id + "' is not an absolute URL: " + issuer);
+        }
+        String path = uri.getPath() == null ? "" : uri.getPath();
+        while (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        return new Tenant(id, issuer, uri.getHost().toLowerCase(Locale.ROOT), path, rateLimitRequests, rateLimitWindowSeconds);
+    }
+}
@@ -0,0 +1,114 @@
+package authserver.tenant;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Binds each request to a tenant. Authorization server endpoints keep the issuer path in front of them
+ * ({@code /acme/oauth2/token}), which the framework resolves itself once multiple issuers are allowed; an
+ * endpoint under an unknown issuer path is answered with 404 rather than served with the default tenant's keys.
+ * Application endpoints under a tenant's prefix ({@code /acme/api/clients}) are passed on with the prefix removed.
+ */
+public class TenantResolutionFilter extends OncePerRequestFilter {
+
+    private static final String WELL_KNOWN_METADATA = "/.well-known/oauth-authorization-server";
+    private static final List<String> ENDPOINT_MARKERS = List.of("/oauth2/", "/.well-known/", "/connect/", "/userinfo");
+
+    private final TenantRegistry tenantRegistry;
+
+    public TenantResolutionFilter(TenantRegistry tenantRegistry) {
+        this.tenantRegistry = tenantRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        String host = request.getServerName();
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String issuerPath = issuerPath(path);
+
+        Tenant tenant;
+        HttpServletRequest forwarded = request;
+        if (issuerPath != null) {
+            tenant = tenantRegistry.findByIssuer(host, issuerPath);
+            if (tenant == null && !issuerPath.isEmpty()) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            if (tenant == null) {
+                tenant = tenantRegistry.get(TenantContext.DEFAULT);
+            }
+        } else {
+            tenant = tenantRegistry.findByPrefix(host, path);
+            if (!tenant.pathPrefix().isEmpty()) {
+                forwarded = new PrefixStrippingRequest(request, tenant.pathPrefix());
+            }
+        }
+
+        TenantContext.set(tenant.id());
+        try {
+            filterChain.doFilter(forwarded, response);
+        } finally {
+            TenantContext.clear();
+        }
+    }
+
+    // the issuer path of an authorization server endpoint, or null for application endpoints
+    private static String issuerPath(String path) {
+        if (path.startsWith(WELL_KNOWN_METADATA)) {
+            return path.substring(WELL_KNOWN_METADATA.length());
+        }
+        for (String marker : ENDPOINT_MARKERS) {
+            int index = path.indexOf(marker);
+            if (index >= 0) {
+                return path.substring(0, index);
+            }
+        }
+        return null;
+    }
+
+    private static final class PrefixStrippingRequest extends HttpServletRequestWrapper {
+
+        private final String prefix;
+
+        PrefixStrippingRequest(HttpServletRequest request, String prefix) {
+            super(request);
+            this.prefix = prefix;
+        }
+
+        @Override
+        public String getRequestURI() {
+            String contextPath = getContextPath();
+            String uri = super.getRequestURI();
+            return contextPath + strip(uri.substring(contextPath.length()));
+        }
+
+        @Override
+        public StringBuffer getRequestURL() {
+            StringBuffer url = super.getRequestURL();
+            int index = url.indexOf(getContextPath() + prefix, url.indexOf("//") + 2);
+            return index < 0 ? url : url.delete(index + getContextPath().length(), index + getContextPath().length() + prefix.length());
+        }
+
+        @Override
+        public String getServletPath() {
+            return strip(super.getServletPath());
+        }
+
+        private String strip(String path) {
+            if (!path.startsWith(prefix)) {
+                return path;
+            }
+            String stripped = path.substring(prefix.length());
+            return stripped.isEmpty() ? "/" : stripped;
+        }
+    }
+}
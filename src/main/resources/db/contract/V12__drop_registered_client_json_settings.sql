@@ -0,0 +1,9 @@
+-- V12__drop_registered_client_json_settings.sql
+-- Not applied by this release: move it to db/migration in the release after the typed client settings columns (V5),
+-- once no node reads client_settings/token_settings any more, and drop their writes and the fallback read from
+-- ColumnarRegisteredClientRepository in the same change.
+
+ALTER TABLE `oauth2_registered_client` DROP COLUMN `client_settings`;
+ALTER TABLE `oauth2_registered_client` DROP COLUMN `token_settings`;
+ALTER TABLE `oauth2_registered_client` MODIFY COLUMN `access_token_ttl_seconds` BIGINT NOT NULL;
+ALTER TABLE `oauth2_registered_client` MODIFY COLUMN `access_token_format` VARCHAR(20) NOT NULL;
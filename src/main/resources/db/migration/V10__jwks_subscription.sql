@@ -0,0 +1,12 @@
+-- V10__jwks_subscription.sql
+-- Webhooks of resource servers notified when a tenant's signing keys change.
+
+CREATE TABLE IF NOT EXISTS `jwks_subscription` (
+  `id` VARCHAR(100) NOT NULL,
+  `tenant_id` VARCHAR(100) NOT NULL,
+  `url` VARCHAR(2000) NOT NULL,
+  `secret` VARCHAR(100) NOT NULL,
+  `created_at` DATETIME(6) NOT NULL,
+  PRIMARY KEY (`id`),
+  KEY `idx_jwks_subscription_tenant` (`tenant_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
@@ -0,0 +1,4 @@
+-- V11__client_purge_job_owner.sql
+-- The node working on a purge job; a job is claimed by setting it, so only one node resumes it.
+
+ALTER TABLE `client_purge_job` ADD COLUMN `owner` VARCHAR(100) NULL;
@@ -0,0 +1,11 @@
+-- V2__change_log.sql
+
+CREATE TABLE IF NOT EXISTS `change_log` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT,
+  `entity_type` VARCHAR(50) NOT NULL,
+  `entity_id` VARCHAR(100) NOT NULL,
+  `change_type` VARCHAR(20) NOT NULL,
+  `created_at` DATETIME(6) NOT NULL,
+  PRIMARY KEY (`id`),
+  KEY `idx_change_log_created_at` (`created_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
@@ -0,0 +1,9 @@
+-- V3__replica_heartbeat.sql
+
+CREATE TABLE IF NOT EXISTS `replica_heartbeat` (
+  `id` INT NOT NULL,
+  `beat_at` BIGINT NOT NULL,
+  PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+INSERT INTO `replica_heartbeat` (`id`, `beat_at`) VALUES (1, 0);
@@ -0,0 +1,13 @@
+-- V4__client_purge_job.sql
+
+CREATE TABLE IF NOT EXISTS `client_purge_job` (
+  `registered_client_id` VARCHAR(100) NOT NULL,
+  `client_id` VARCHAR(100) NOT NULL,
+  `status` VARCHAR(20) NOT NULL,
+  `purged_authorizations` BIGINT NOT NULL DEFAULT 0,
+  `last_authorization_id` VARCHAR(100) NOT NULL DEFAULT '',
+  `created_at` DATETIME(6) NOT NULL,
+  `updated_at` DATETIME(6) NOT NULL,
+  PRIMARY KEY (`registered_client_id`),
+  KEY `idx_client_purge_job_client_id` (`client_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
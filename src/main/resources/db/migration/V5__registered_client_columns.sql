@@ -0,0 +1,9 @@
+-- V5__registered_client_columns.sql
+-- Typed columns for the client settings read on every client lookup; everything else moves to settings_overflow.
+-- Existing rows are converted by RegisteredClientColumnsMigration (V6); the JSON columns are only dropped in a later
+-- release (db/contract), so nodes of the previous release keep reading clients during a rolling deploy.
+
+ALTER TABLE `oauth2_registered_client` ADD COLUMN `access_token_ttl_seconds` BIGINT NULL;
+ALTER TABLE `oauth2_registered_client` ADD COLUMN `access_token_format` VARCHAR(20) NULL;
+ALTER TABLE `oauth2_registered_client` ADD COLUMN `reuse_access_token` BIT(1) NOT NULL DEFAULT 0;
+ALTER TABLE `oauth2_registered_client` ADD COLUMN `settings_overflow` TEXT NULL;
@@ -0,0 +1,10 @@
+-- V8__tenants.sql
+-- Everything that existed before multi-tenant mode belongs to the default tenant (app.issuer).
+
+ALTER TABLE `jwk_keys` ADD COLUMN `tenant_id` VARCHAR(100) NOT NULL DEFAULT 'default';
+CREATE INDEX `idx_jwk_tenant_active` ON `jwk_keys` (`tenant_id`, `is_active`);
+
+ALTER TABLE `oauth2_registered_client` ADD COLUMN `tenant_id` VARCHAR(100) NOT NULL DEFAULT 'default';
+CREATE INDEX `idx_client_tenant_client_id` ON `oauth2_registered_client` (`tenant_id`, `client_id`);
+
+ALTER TABLE `client_purge_job` ADD COLUMN `tenant_id` VARCHAR(100) NOT NULL DEFAULT 'default';
@@ -0,0 +1,72 @@
+package authserver;
+
+import authserver.embedded.EmbeddedStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.datasource.url=jdbc:h2:mem:embedded;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+		"app.warmup.enabled=false"
+})
+@ActiveProfiles({"smoke", "embedded"})
+class EmbeddedStorageSmokeTests {
+
+	@Autowired
+	private TestRestTemplate restTemplate;
+
+	@Autowired
+	private EmbeddedStore embeddedStore;
+
+	@DynamicPropertySource
+	static void storageDirectory(DynamicPropertyRegistry registry) throws IOException {
+		Path directory = Files.createTempDirectory("embedded-smoke");
+		registry.add("app.storage.embedded.directory", directory::toString);
+	}
+
+	@Test
+	@SuppressWarnings("rawtypes")
+	void issuesTokensWithoutDatabaseRoundTrips() throws IOException {
+		Map<String, Object> client = Map.of(
+				"clientId", "embedded-client",
+				"clientSecret", "embedded-secret-value",
+				"clientName", "Embedded Client",
+				"accessTokenFormat", "reference");
+		assertThat(restTemplate.postForEntity("/api/clients", client, Map.class).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+
+		ResponseEntity<Map> token = requestToken();
+		assertThat(token.getStatusCode()).isEqualTo(HttpStatus.OK);
+		JdbcRoundTrips.of(token).assertStatementsAtMost(0);
+
+		embeddedStore.snapshot();
+		assertThat(requestToken().getStatusCode()).isEqualTo(HttpStatus.OK);
+	}
+
+	@SuppressWarnings("rawtypes")
+	private ResponseEntity<Map> requestToken() {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+		headers.setBasicAuth("embedded-client", "embedded-secret-value");
+		MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+		form.add("grant_type", "client_credentials");
+		return restTemplate.postForEntity("/oauth2/token", new HttpEntity<>(form, headers), Map.class);
+	}
+}
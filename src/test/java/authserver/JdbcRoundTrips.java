@@ -0,0 +1,69 @@
+package authserver;
+
+import authserver.datasource.JdbcAccountingFilter;
+import org.springframework.http.ResponseEntity;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Round-trip budget assertions for integration tests, read from the {@code X-Jdbc-Stats} header
+ * (enable {@code app.jdbc-accounting.response-header} in the test profile).
+ *
+ * <pre>
+ * JdbcRoundTrips.of(response).assertWritesAtMost(1).assertStatementsAtMost(4);
+ * </pre>
+ */
+public final class JdbcRoundTrips {
+
+	private final Map<String, Long> values;
+
+	private JdbcRoundTrips(Map<String, Long> values) {
+		this.values = values;
+	}
+
+	public static JdbcRoundTrips of(ResponseEntity<?> response) {
+		String header = response.getHeaders().getFirst(JdbcAccountingFilter.HEADER);
+		assertThat(header).as("%s response header", JdbcAccountingFilter.HEADER).isNotNull();
+		Map<String, Long> values = new HashMap<>();
+		for (String part : header.split(";")) {
+			String[] pair = part.split("=", 2);
+			values.put(pair[0], Long.parseLong(pair[1]));
+		}
+		return new JdbcRoundTrips(values);
+	}
+
+	public long statements() {
+		return values.get("statements");
+	}
+
+	public long reads() {
+		return values.get("reads");
+	}
+
+	public long writes() {
+		return values.get("writes");
+	}
+
+	public long rows() {
+		return values.get("rows");
+	}
+
+	public JdbcRoundTrips assertStatementsAtMost(long budget) {
+		assertThat(statements()).as("JDBC statements (%s)", values).isLessThanOrEqualTo(budget);
+		return this;
+	}
+
+	public JdbcRoundTrips assertReadsAtMost(long budget) {
+		assertThat(reads()).as("JDBC reads (%s)", values).isLessThanOrEqualTo(budget);
+		return this;
+	}
+
+	public JdbcRoundTrips assertWritesAtMost(long budget) {
+		assertThat(writes()).as("JDBC writes (%s)", values).isLessThanOrEqualTo(budget);
+		return this;
+	}
+
+}
@@ -0,0 +1,112 @@
+package authserver;
+
+import authserver.security.HeavyHitterTracker;
+import authserver.security.HeavyHitters;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.util.Base64;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.datasource.url=jdbc:h2:mem:tenants;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+		"app.warmup.enabled=false",
+		"app.tenants.enabled=true",
+		"app.tenants.registrations.acme.issuer=http://localhost/acme",
+		"app.tenants.registrations.globex.issuer=http://127.0.0.1"
+})
+@ActiveProfiles("smoke")
+class MultiTenantSmokeTests {
+
+	private static final ObjectMapper JSON = new ObjectMapper();
+
+	@Autowired
+	private TestRestTemplate restTemplate;
+
+	@Autowired
+	private HeavyHitters heavyHitters;
+
+	@LocalServerPort
+	private int port;
+
+	@Test
+	@SuppressWarnings("rawtypes")
+	void keepsClientsAndKeysPerTenant() throws Exception {
+		createClient("/acme/api/clients", "shared-client", "acme-secret-value");
+		createClient("/api/clients", "shared-client", "default-secret-value");
+
+		ResponseEntity<Map> acme = requestToken("/acme/oauth2/token", "shared-client", "acme-secret-value");
+		ResponseEntity<Map> fallback = requestToken("/oauth2/token", "shared-client", "default-secret-value");
+		assertThat(acme.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(fallback.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(requestToken("/oauth2/token", "shared-client", "acme-secret-value").getStatusCode())
+				.isEqualTo(HttpStatus.UNAUTHORIZED);
+
+		Map<?, ?> acmeClaims = part(acme, 1);
+		assertThat(acmeClaims.get("iss")).isEqualTo("http://localhost:" + port + "/acme");
+		assertThat(part(acme, 0).get("kid")).isNotEqualTo(part(fallback, 0).get("kid"));
+	}
+
+	@Test
+	@SuppressWarnings("rawtypes")
+	void resolvesTenantsByHost() throws Exception {
+		String globex = "http://127.0.0.1:" + port;
+		createClient(globex + "/api/clients", "globex-client", "globex-secret-value");
+
+		ResponseEntity<Map> token = requestToken(globex + "/oauth2/token", "globex-client", "globex-secret-value");
+		assertThat(token.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(part(token, 1).get("iss")).isEqualTo(globex);
+		assertThat(requestToken("/oauth2/token", "globex-client", "globex-secret-value").getStatusCode())
+				.isEqualTo(HttpStatus.UNAUTHORIZED);
+	}
+
+	@Test
+	void guardsTokenEndpointUnderIssuerPath() {
+		assertThat(requestToken("/acme/oauth2/token", "acme-unregistered", "any-secret-value").getStatusCode())
+				.isIn(HttpStatus.UNAUTHORIZED, HttpStatus.SERVICE_UNAVAILABLE);
+		assertThat(heavyHitters.getClients().top(100)).extracting(HeavyHitterTracker.HeavyHitter::key)
+				.contains("acme-unregistered");
+	}
+
+	@Test
+	void rejectsUnknownIssuerPath() {
+		assertThat(restTemplate.getForEntity("/unknown/oauth2/jwks", String.class).getStatusCode())
+				.isEqualTo(HttpStatus.NOT_FOUND);
+	}
+
+	private void createClient(String url, String clientId, String secret) {
+		Map<String, Object> client = Map.of("clientId", clientId, "clientSecret", secret, "clientName", clientId);
+		assertThat(restTemplate.postForEntity(url, client, Map.class).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+	}
+
+	@SuppressWarnings("rawtypes")
+	private ResponseEntity<Map> requestToken(String url, String clientId, String clientSecret) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+		headers.setBasicAuth(clientId, clientSecret);
+		MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+		form.add("grant_type", "client_credentials");
+		return restTemplate.postForEntity(url, new HttpEntity<>(form, headers), Map.class);
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static Map<?, ?> part(ResponseEntity<Map> token, int index) throws Exception {
+		String jwt = (String) token.getBody().get("access_token");
+		return JSON.readValue(Base64.getUrlDecoder().decode(jwt.split("\\.")[index]), Map.class);
+	}
+
+}
@@ -0,0 +1,434 @@
+package authserver;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpServer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledInNativeImage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+// Runs on the JVM with `mvn test` and inside the native image with `mvn -PnativeTest test`
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("smoke")
+class TokenIssuanceSmokeTests {
+
+	@Autowired
+	private TestRestTemplate restTemplate;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Value("${app.admin.api-key}")
+	private String adminApiKey;
+
+	@Value("${app.issuer}")
+	private String issuer;
+
+	@Value("${app.audit.directory}")
+	private String auditDirectory;
+
+	@Autowired
+	private ApplicationContext applicationContext;
+
+	@Test
+	@SuppressWarnings("rawtypes")
+	void issuesClientCredentialsToken() {
+		Map<String, Object> client = Map.of(
+				"clientId", "smoke-client",
+				"clientSecret", "smoke-secret-value",
+				"clientName", "Smoke Test Client",
+				"scopes", new String[] {"read"});
+		ResponseEntity<Map> created = restTemplate.postForEntity("/api/clients", client, Map.class);
+		assertThat(created.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+
+		ResponseEntity<Map> token = requestToken("smoke-client", "smoke-secret-value");
+		assertThat(token.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(token.getBody()).containsKey("access_token");
+		assertThat(token.getBody().get("token_type")).isEqualTo("Bearer");
+	}
+
+	@Test
+	@SuppressWarnings("rawtypes")
+	void warmUpLeavesNoTraces() throws Exception {
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM oauth2_registered_client WHERE client_id LIKE 'warmup-%'", Integer.class)).isZero();
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM oauth2_authorization WHERE principal_name LIKE 'warmup-%'", Integer.class)).isZero();
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM change_log WHERE entity_id LIKE 'warmup-%'", Integer.class)).isZero();
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM client_purge_job WHERE client_id LIKE 'warmup-%'", Integer.class)).isZero();
+
+		// once a later token shows up in the audit file, anything the warm-up recorded would be there too
+		Map<String, Object> client = Map.of(
+				"clientId", "audit-probe-client",
+				"clientSecret", "audit-probe-secret",
+				"clientName", "Audit Probe Client");
+		assertThat(restTemplate.postForEntity("/api/clients", client, Map.class).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+		assertThat(requestToken("audit-probe-client", "audit-probe-secret").getStatusCode()).isEqualTo(HttpStatus.OK);
+		Path auditFile = Path.of(auditDirectory, "audit.ndjson");
+		await().atMost(Duration.ofSeconds(10)).until(() -> Files.exists(auditFile)
+				&& Files.readString(auditFile).contains("\"type\":\"TOKEN_ISSUED\",\"actor\":\"audit-probe-client\""));
+		// the file outlives test runs, so only this run's lines count
+		Instant started = Instant.ofEpochMilli(applicationContext.getStartupDate());
+		assertThat(Files.readAllLines(auditFile))
+				.filteredOn(line -> line.contains("\"warmup-"))
+				.allSatisfy(line -> assertThat(Instant.parse(line.substring(7, line.indexOf('"', 7)))).isBefore(started));
+
+		HttpHeaders admin = new HttpHeaders();
+		admin.set("X-API-KEY", adminApiKey);
+		ResponseEntity<String> hitters = restTemplate.exchange("/api/admin/heavy-hitters?limit=100", HttpMethod.GET,
+				new HttpEntity<>(admin), String.class);
+		assertThat(hitters.getBody()).doesNotContain("warmup-");
+	}
+
+	@Test
+	@SuppressWarnings("rawtypes")
+	void authenticatesWithGeneratedSecret() {
+		Map<String, Object> client = Map.of(
+				"clientId", "generated-secret-client",
+				"clientName", "Generated Secret Client",
+				"scopes", new String[] {"read"});
+		ResponseEntity<Map> created = restTemplate.postForEntity("/api/clients", client, Map.class);
+		assertThat(created.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+
+		ResponseEntity<Map> token = requestToken("generated-secret-client", (String) created.getBody().get("clientSecret"));
+		assertThat(token.getStatusCode()).isEqualTo(HttpStatus.OK);
+	}
+
+	@Test
+	@SuppressWarnings("rawtypes")
+	void reusesTokenForOptedInClient() throws InterruptedException {
+		Map<String, Object> client = Map.of(
+				"clientId", "reuse-client",
+				"clientSecret", "reuse-secret-value",
+				"clientName", "Reuse Client",
+				"reuseAccessToken", true);
+		assertThat(restTemplate.postForEntity("/api/clients", client, Map.class).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+
+		ResponseEntity<Map> first = requestToken("reuse-client", "reuse-secret-value");
+		Thread.sleep(2_100);
+		ResponseEntity<Map> second = requestToken("reuse-client", "reuse-secret-value");
+		assertThat(second.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(second.getBody().get("access_token")).isEqualTo(first.getBody().get("access_token"));
+		JdbcRoundTrips.of(second).assertWritesAtMost(0);
+		// the reused token advertises only what is left of its lifetime
+		long firstExpiresIn = ((Number) first.getBody().get("expires_in")).longValue();
+		assertThat(((Number) second.getBody().get("expires_in")).longValue()).isBetween(firstExpiresIn - 4, firstExpiresIn - 1);
+	}
+
+	@Test
+	@SuppressWarnings("rawtypes")
+	void staysWithinRoundTripBudget() {
+		Map<String, Object> client = Map.of(
+				"clientId", "budget-client",
+				"clientSecret", "budget-secret-value",
+				"clientName", "Budget Client");
+		assertThat(restTemplate.postForEntity("/api/clients", client, Map.class).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+		requestToken("budget-client", "budget-secret-value");
+
+		ResponseEntity<Map> token = requestToken("budget-client", "budget-secret-value");
+		assertThat(token.getStatusCode()).isEqualTo(HttpStatus.OK);
+		// client lookup, authorization insert; no secret re-hash or key lookups on the hot path
+		JdbcRoundTrips.of(token).assertWritesAtMost(1).assertStatementsAtMost(3);
+	}
+
+	@Test
+	@SuppressWarnings("rawtypes")
+	void deletingClientPurgesItsAuthorizations() {
+		Map<String, Object> client = Map.of(
+				"clientId", "deleted-client",
+				"clientSecret", "deleted-secret-value",
+				"clientName", "Deleted Client",
+				"accessTokenFormat", "reference");
+		assertThat(restTemplate.postForEntity("/api/clients", client, Map.class).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+		assertThat(requestToken("deleted-client", "deleted-secret-value").getStatusCode()).isEqualTo(HttpStatus.OK);
+
+		HttpHeaders admin = new HttpHeaders();
+		admin.set("X-API-KEY", adminApiKey);
+		ResponseEntity<Map> deleted = restTemplate.exchange("/api/clients/deleted-client/admin", HttpMethod.DELETE,
+				new HttpEntity<>(admin), Map.class);
+		assertThat(deleted.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+		assertThat(requestToken("deleted-client", "deleted-secret-value").getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+
+		await().atMost(Duration.ofSeconds(10)).untilAsserted(() -> {
+			ResponseEntity<Map> status = restTemplate.exchange("/api/admin/client-purges/deleted-client", HttpMethod.GET,
+					new HttpEntity<>(admin), Map.class);
+			assertThat(status.getBody().get("status")).isEqualTo("COMPLETED");
+			assertThat(status.getBody().get("purgedAuthorizations")).isEqualTo(1);
+		});
+	}
+
+	@Test
+	@SuppressWarnings("rawtypes")
+	void authenticatesWithPrivateKeyJwtOnlyOncePerAssertion() throws Exception {
+		RSAKey key = new RSAKeyGenerator(2048).keyID("client-key").generate();
+		Map<String, Object> client = Map.of(
+				"clientId", "jwt-client",
+				"clientName", "Private Key JWT Client",
+				"tokenEndpointAuthMethod", "private_key_jwt",
+				"jwks", new JWKSet(key).toPublicJWKSet().toJSONObject());
+		ResponseEntity<Map> created = restTemplate.postForEntity("/api/clients", client, Map.class);
+		assertThat(created.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+		assertThat(created.getBody()).doesNotContainKey("clientSecret");
+
+		Instant now = Instant.now();
+		SignedJWT assertion = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID("client-key").build(),
+				new JWTClaimsSet.Builder()
+						.issuer("jwt-client")
+						.subject("jwt-client")
+						.audience(issuer + "/oauth2/token")
+						.jwtID(UUID.randomUUID().toString())
+						.issueTime(Date.from(now))
+						.expirationTime(Date.from(now.plusSeconds(60)))
+						.build());
+		assertion.sign(new RSASSASigner(key));
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+		MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+		form.add("grant_type", "client_credentials");
+		form.add("client_id", "jwt-client");
+		form.add("client_assertion_type", "urn:ietf:params:oauth:client-assertion-type:jwt-bearer");
+		form.add("client_assertion", assertion.serialize());
+		ResponseEntity<Map> token = restTemplate.postForEntity("/oauth2/token", new HttpEntity<>(form, headers), Map.class);
+		assertThat(token.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(token.getBody()).containsKey("access_token");
+
+		ResponseEntity<Map> replayed = restTemplate.postForEntity("/oauth2/token", new HttpEntity<>(form, headers), Map.class);
+		assertThat(replayed.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+	}
+
+	@Test
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	void reportsBusiestClientsIncludingRejectedOnes() {
+		for (int i = 0; i < 5; i++) {
+			assertThat(requestToken("flooding-client", "whatever-secret").getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+		}
+
+		HttpHeaders admin = new HttpHeaders();
+		admin.set("X-API-KEY", adminApiKey);
+		ResponseEntity<Map> hitters = restTemplate.exchange("/api/admin/heavy-hitters?limit=100", HttpMethod.GET,
+				new HttpEntity<>(admin), Map.class);
+		assertThat(hitters.getStatusCode()).isEqualTo(HttpStatus.OK);
+		List<Map> clients = (List<Map>) ((Map) hitters.getBody().get("clients")).get("top");
+		assertThat(clients).filteredOn(hitter -> "flooding-client".equals(hitter.get("key")))
+				.singleElement().satisfies(hitter -> assertThat(((Number) hitter.get("estimate")).longValue()).isGreaterThanOrEqualTo(5));
+		assertThat(((List<Map>) ((Map) hitters.getBody().get("sourceIps")).get("top"))).isNotEmpty();
+	}
+
+	@Test
+	@SuppressWarnings("rawtypes")
+	void rejectsUnknownClientWithoutDatabaseQuery() {
+		ResponseEntity<Map> first = requestToken("no-such-client", "whatever-secret");
+		assertThat(first.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+		assertThat(first.getBody().get("error")).isEqualTo("invalid_client");
+
+		// rejected by the filter, or by the negative cache if the id happens to be a false positive
+		ResponseEntity<Map> second = requestToken("no-such-client", "whatever-secret");
+		assertThat(second.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+		JdbcRoundTrips.of(second).assertStatementsAtMost(0);
+	}
+
+	@Test
+	@SuppressWarnings("rawtypes")
+	void mintsTokenBatchForOneClientAuthentication() throws Exception {
+		Map<String, Object> client = Map.of(
+				"clientId", "batch-client",
+				"clientSecret", "batch-secret-value",
+				"clientName", "Batch Client",
+				"scopes", new String[] {"read", "write"});
+		assertThat(restTemplate.postForEntity("/api/clients", client, Map.class).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+		HttpHeaders admin = new HttpHeaders();
+		admin.set("X-API-KEY", adminApiKey);
+		assertThat(restTemplate.exchange("/api/clients/batch-client/admin/audiences", HttpMethod.PUT,
+				new HttpEntity<>(Map.of("audiences", List.of("inventory-service")), admin), Map.class).getStatusCode())
+				.isEqualTo(HttpStatus.OK);
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.APPLICATION_JSON);
+		headers.setBasicAuth("batch-client", "batch-secret-value");
+		Map<String, Object> batch = Map.of("tokens", List.of(
+				Map.of("scope", "read", "audience", "inventory-service"),
+				Map.of("scope", "read write"),
+				Map.of("scope", "admin"),
+				Map.of("scope", "read", "audience", "billing-service")));
+		ResponseEntity<String> response = restTemplate.postForEntity("/api/tokens/batch", new HttpEntity<>(batch, headers), String.class);
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+		ObjectMapper json = new ObjectMapper();
+		List<Map> lines = response.getBody().lines().map(line -> {
+			try {
+				return json.readValue(line, Map.class);
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		}).toList();
+		assertThat(lines).hasSize(4);
+		assertThat(lines.get(1).get("scope")).isEqualTo("read write");
+		assertThat(lines.get(2).get("error")).isEqualTo("invalid_scope");
+		assertThat(lines.get(3).get("error")).as("audience not allowed for the client").isEqualTo("invalid_target");
+		assertThat(lines.get(3)).doesNotContainKey("access_token");
+		String payload = ((String) lines.get(0).get("access_token")).split("\\.")[1];
+		Map claims = json.readValue(Base64.getUrlDecoder().decode(payload), Map.class);
+		assertThat(claims.get("aud")).isEqualTo(List.of("inventory-service"));
+		assertThat(claims.get("sub")).isEqualTo("batch-client");
+
+		headers.setBasicAuth("batch-client", "wrong-secret");
+		assertThat(restTemplate.postForEntity("/api/tokens/batch", new HttpEntity<>(batch, headers), String.class).getStatusCode())
+				.isEqualTo(HttpStatus.UNAUTHORIZED);
+
+		// screened by the known-client filter like the token endpoint
+		headers.setBasicAuth("no-such-batch-client", "whatever-secret");
+		ResponseEntity<String> unknown = restTemplate.postForEntity("/api/tokens/batch", new HttpEntity<>(batch, headers), String.class);
+		assertThat(unknown.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+		ResponseEntity<String> again = restTemplate.postForEntity("/api/tokens/batch", new HttpEntity<>(batch, headers), String.class);
+		assertThat(again.getBody()).contains("invalid_client");
+		JdbcRoundTrips.of(again).assertStatementsAtMost(0);
+	}
+
+	@Test
+	@DisabledInNativeImage
+	void recordsTokenPipelineEventsOnDemand() throws Exception {
+		HttpHeaders admin = new HttpHeaders();
+		admin.set("X-API-KEY", adminApiKey);
+		ResponseEntity<String> started = restTemplate.exchange("/api/admin/jfr/start?durationSeconds=60&settings=default",
+				HttpMethod.POST, new HttpEntity<>(admin), String.class);
+		assertThat(started.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(restTemplate.exchange("/api/admin/jfr/start", HttpMethod.POST, new HttpEntity<>(admin), String.class)
+				.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+
+		Map<String, Object> client = Map.of(
+				"clientId", "profiled-client",
+				"clientSecret", "profiled-secret-value",
+				"clientName", "Profiled Client");
+		assertThat(restTemplate.postForEntity("/api/clients", client, Map.class).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+		assertThat(requestToken("profiled-client", "profiled-secret-value").getStatusCode()).isEqualTo(HttpStatus.OK);
+
+		ResponseEntity<byte[]> stopped = restTemplate.exchange("/api/admin/jfr/stop", HttpMethod.POST, new HttpEntity<>(admin), byte[].class);
+		assertThat(stopped.getStatusCode()).isEqualTo(HttpStatus.OK);
+		Path recording = Files.createTempFile("smoke-", ".jfr");
+		try {
+			Files.write(recording, stopped.getBody());
+			List<RecordedEvent> events = RecordingFile.readAllEvents(recording).stream()
+					.filter(event -> event.getEventType().getName().startsWith("authserver."))
+					.toList();
+			assertThat(events).extracting(event -> event.getEventType().getName()).contains(
+					"authserver.ClientLookup", "authserver.SecretVerification", "authserver.TokenSigning",
+					"authserver.AuthorizationPersist", "authserver.RateLimitDecision");
+			assertThat(events).filteredOn(event -> event.getEventType().getName().equals("authserver.TokenSigning"))
+					.extracting(event -> event.getString("clientId")).contains("profiled-client");
+		} finally {
+			Files.deleteIfExists(recording);
+		}
+	}
+
+	@Test
+	@DisabledInNativeImage
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	void notifiesSubscribedWebhookOfKeyRotation() throws Exception {
+		List<byte[]> received = new CopyOnWriteArrayList<>();
+		List<String> signatures = new CopyOnWriteArrayList<>();
+		HttpServer webhook = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		webhook.createContext("/jwks-changed", exchange -> {
+			received.add(exchange.getRequestBody().readAllBytes());
+			signatures.add(exchange.getRequestHeaders().getFirst("X-Jwks-Signature"));
+			exchange.sendResponseHeaders(204, -1);
+			exchange.close();
+		});
+		webhook.start();
+		try {
+			HttpHeaders admin = new HttpHeaders();
+			admin.set("X-API-KEY", adminApiKey);
+			ResponseEntity<Map> subscribed = restTemplate.exchange("/api/admin/jwks-subscriptions", HttpMethod.POST,
+					new HttpEntity<>(Map.of("url", "http://127.0.0.1:" + webhook.getAddress().getPort() + "/jwks-changed"), admin),
+					Map.class);
+			assertThat(subscribed.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+			String secret = (String) subscribed.getBody().get("secret");
+			ResponseEntity<Map> created = restTemplate.postForEntity("/api/clients", Map.of(
+					"clientId", "rotation-client",
+					"clientSecret", "rotation-secret-value",
+					"clientName", "Rotation Client",
+					"scopes", new String[] {"read"}), Map.class);
+			assertThat(created.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+			SignedJWT issuedBefore = SignedJWT.parse((String) requestToken("rotation-client", "rotation-secret-value").getBody().get("access_token"));
+
+			ResponseEntity<Map> rotated = restTemplate.exchange("/api/keys/rotate?keySize=2048", HttpMethod.POST,
+					new HttpEntity<>(admin), Map.class);
+			assertThat(rotated.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+			await().atMost(Duration.ofSeconds(10)).until(() -> !received.isEmpty());
+			Map event = new ObjectMapper().readValue(received.get(0), Map.class);
+			assertThat(event.get("type")).isEqualTo("jwks.changed");
+			assertThat(event.get("iss")).isEqualTo(issuer);
+			JWKSet pushed = JWKSet.parse((Map<String, Object>) event.get("jwks"));
+			assertThat(pushed.getKeys().get(0).getKeyID()).isEqualTo(rotated.getBody().get("kid"));
+			assertThat(pushed.getKeys()).noneMatch(jwk -> jwk.isPrivate());
+			// tokens signed before the rotation still verify against the pushed set, and the served one
+			String retiredKid = issuedBefore.getHeader().getKeyID();
+			assertThat(issuedBefore.verify(new RSASSAVerifier(pushed.getKeyByKeyId(retiredKid).toRSAKey()))).isTrue();
+			assertThat(JWKSet.parse(restTemplate.getForObject("/oauth2/jwks", String.class)).getKeyByKeyId(retiredKid)).isNotNull();
+			String timestamp = signatures.get(0).substring(2, signatures.get(0).indexOf(','));
+			Mac mac = Mac.getInstance("HmacSHA256");
+			mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+			mac.update((timestamp + ".").getBytes(StandardCharsets.UTF_8));
+			assertThat(signatures.get(0)).endsWith(",v1=" + HexFormat.of().formatHex(mac.doFinal(received.get(0))));
+
+			restTemplate.exchange("/api/admin/jwks-subscriptions/" + subscribed.getBody().get("id"), HttpMethod.DELETE,
+					new HttpEntity<>(admin), Void.class);
+		} finally {
+			webhook.stop(0);
+		}
+	}
+
+	@SuppressWarnings("rawtypes")
+	private ResponseEntity<Map> requestToken(String clientId, String clientSecret) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+		headers.setBasicAuth(clientId, clientSecret);
+		MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+		form.add("grant_type", "client_credentials");
+		form.add("scope", "read");
+		return restTemplate.postForEntity("/oauth2/token", new HttpEntity<>(form, headers), Map.class);
+	}
+
+}
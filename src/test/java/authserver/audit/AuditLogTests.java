@@ -0,0 +1,104 @@
+package authserver.audit;
+
+import authserver.config.AuthServerProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditLogTests {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void writesEventsFromConcurrentProducersAsNdjson() throws Exception {
+		AuthServerProperties properties = properties(AuditLog.OverflowPolicy.BLOCK);
+		properties.getAudit().setBufferSize(64);
+		AuditLog auditLog = new AuditLog(properties, new SimpleMeterRegistry());
+
+		ExecutorService producers = Executors.newFixedThreadPool(4);
+		for (int p = 0; p < 4; p++) {
+			int producer = p;
+			producers.execute(() -> {
+				for (int i = 0; i < 500; i++) {
+					auditLog.record(AuditEventType.TOKEN_ISSUED, "client-" + producer, "client-" + producer, "read \"x\"");
+				}
+			});
+		}
+		producers.shutdown();
+		assertThat(producers.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+		auditLog.close();
+
+		List<String> lines = Files.readAllLines(directory.resolve(AuditFileWriter.ACTIVE_FILE));
+		assertThat(lines).hasSize(2000);
+		assertThat(lines.get(0)).startsWith("{\"ts\":\"").contains("\"type\":\"TOKEN_ISSUED\"").endsWith("\"detail\":\"read \\\"x\\\"\"}");
+	}
+
+	@Test
+	void dropsWhenFullUnderDropPolicy() {
+		AuditRingBuffer ring = new AuditRingBuffer(64);
+		for (int i = 0; i < 64; i++) {
+			assertThat(ring.publish(i, AuditEventType.KEY_ROTATED, null, "kid", null, false)).isTrue();
+		}
+		assertThat(ring.publish(64, AuditEventType.KEY_ROTATED, null, "kid", null, false)).isFalse();
+
+		assertThat(ring.drain(10, event -> { })).isEqualTo(10);
+		assertThat(ring.publish(65, AuditEventType.KEY_ROTATED, null, "kid", null, false)).isTrue();
+	}
+
+	@Test
+	void rollsFilesAtSizeLimit() throws IOException {
+		AuditFileWriter writer = new AuditFileWriter(directory, 200, 2, false, 4, new SimpleMeterRegistry().counter("rejected"));
+		AuditEvent event = new AuditEvent();
+		event.type = AuditEventType.CLIENT_CREATED;
+		event.subject = "some-client";
+		for (int i = 0; i < 10; i++) {
+			writer.append(event);
+			writer.flush();
+		}
+		writer.close();
+
+		try (var files = Files.list(directory)) {
+			assertThat(files.filter(f -> f.getFileName().toString().startsWith("audit-")).count()).isLessThanOrEqualTo(2);
+		}
+		assertThat(Files.size(directory.resolve(AuditFileWriter.ACTIVE_FILE))).isLessThanOrEqualTo(200);
+	}
+
+	@Test
+	void rejectsAndCountsEventsThatDoNotFitALine() throws IOException {
+		Counter rejected = new SimpleMeterRegistry().counter("rejected");
+		AuditFileWriter writer = new AuditFileWriter(directory, 1024 * 1024, 2, false, 4, rejected);
+		AuditEvent event = new AuditEvent();
+		event.type = AuditEventType.TOKEN_ISSUED;
+		event.subject = "some-client";
+		event.detail = "scope ".repeat(AuditFileWriter.LINE_BYTES / 6);
+		writer.append(event);
+		event.detail = "read";
+		writer.append(event);
+		writer.close();
+
+		assertThat(rejected.count()).isEqualTo(1);
+		assertThat(Files.readAllLines(directory.resolve(AuditFileWriter.ACTIVE_FILE)))
+				.singleElement().asString().endsWith("\"detail\":\"read\"}");
+	}
+
+	private AuthServerProperties properties(AuditLog.OverflowPolicy policy) {
+		AuthServerProperties properties = new AuthServerProperties();
+		properties.getAudit().setDirectory(directory.toString());
+		properties.getAudit().setOverflowPolicy(policy);
+		properties.getAudit().setFlushIntervalMillis(1);
+		return properties;
+	}
+
+}
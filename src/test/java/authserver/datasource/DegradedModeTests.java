@@ -0,0 +1,189 @@
+package authserver.datasource;
+
+import authserver.embedded.AuthorizationSpool;
+import authserver.repo.RemovableRegisteredClientRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.server.authorization.InMemoryOAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.client.InMemoryRegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DegradedModeTests {
+
+	@TempDir
+	Path directory;
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final DatabaseCircuitBreaker breaker = new DatabaseCircuitBreaker(2, 3600, 10_000);
+	private final RegisteredClient client = RegisteredClient.withId(UUID.randomUUID().toString())
+			.clientId("brownout-client")
+			.clientSecret("{noop}secret")
+			.clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
+			.authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+			.build();
+
+	private boolean databaseDown;
+	private AuthorizationSpool spool;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		spool = new AuthorizationSpool(directory, 64 * 1024, 100);
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		spool.close();
+	}
+
+	@Test
+	void servesKnownClientsFromSnapshotWhileDatabaseIsDown() {
+		DegradedModeRegisteredClientRepository repository = new DegradedModeRegisteredClientRepository(
+				new FlakyClientRepository(new InMemoryRegisteredClientRepository(client)), breaker,
+				Duration.ofMinutes(5), 10, meterRegistry);
+		assertThat(repository.findByClientId("brownout-client")).isNotNull();
+
+		databaseDown = true;
+		assertThat(repository.findByClientId("brownout-client").getId()).isEqualTo(client.getId());
+		assertThat(repository.findById(client.getId())).isNotNull();
+		assertThat(breaker.getState()).isEqualTo(DatabaseCircuitBreaker.State.OPEN);
+		assertThatThrownBy(() -> repository.findByClientId("never-seen"))
+				.isInstanceOf(DataAccessResourceFailureException.class);
+		assertThat(meterRegistry.get("authserver.degraded.client.lookups").tag("outcome", "snapshot").counter().count())
+				.isEqualTo(2);
+	}
+
+	@Test
+	void spoolsAuthorizationWritesAndReplaysThemOnceDatabaseRecovers() throws IOException {
+		InMemoryOAuth2AuthorizationService database = new InMemoryOAuth2AuthorizationService();
+		DegradedModeAuthorizationService service = new DegradedModeAuthorizationService(
+				new FlakyAuthorizationService(database), breaker, spool, meterRegistry);
+
+		databaseDown = true;
+		OAuth2Authorization first = authorization("token-1");
+		OAuth2Authorization second = authorization("token-2");
+		service.save(first);
+		service.save(second);
+		service.remove(first);
+
+		assertThat(spool.size()).isEqualTo(2);
+		assertThat(service.findByToken("token-2", OAuth2TokenType.ACCESS_TOKEN)).isNotNull();
+		assertThat(service.findById(first.getId())).isNull();
+		assertThat(database.findById(second.getId())).isNull();
+
+		// a restart during the outage recovers the journal
+		spool.close();
+		spool = new AuthorizationSpool(directory, 64 * 1024, 100);
+		DatabaseCircuitBreaker recovered = new DatabaseCircuitBreaker(2, 3600, 10_000);
+		service = new DegradedModeAuthorizationService(new FlakyAuthorizationService(database), recovered, spool,
+				new SimpleMeterRegistry());
+		assertThat(spool.size()).isEqualTo(2);
+
+		databaseDown = false;
+		service.replayPending();
+		assertThat(spool.size()).isZero();
+		assertThat(database.findById(second.getId())).isNotNull();
+		assertThat(database.findById(first.getId())).isNull();
+		assertThat(service.findByToken("token-2", OAuth2TokenType.ACCESS_TOKEN)).isNotNull();
+	}
+
+	private OAuth2Authorization authorization(String tokenValue) {
+		Instant now = Instant.now();
+		return OAuth2Authorization.withRegisteredClient(client)
+				.id(UUID.randomUUID().toString())
+				.principalName(client.getClientId())
+				.authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+				.token(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, tokenValue, now, now.plusSeconds(300), Set.of()))
+				.build();
+	}
+
+	private void failIfDown() {
+		if (databaseDown) {
+			throw new DataAccessResourceFailureException("Connection refused");
+		}
+	}
+
+	private class FlakyClientRepository implements RemovableRegisteredClientRepository {
+
+		private final InMemoryRegisteredClientRepository delegate;
+
+		FlakyClientRepository(InMemoryRegisteredClientRepository delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void save(RegisteredClient registeredClient) {
+			failIfDown();
+			delegate.save(registeredClient);
+		}
+
+		@Override
+		public void removeById(String id) {
+			failIfDown();
+		}
+
+		@Override
+		public RegisteredClient findById(String id) {
+			failIfDown();
+			return delegate.findById(id);
+		}
+
+		@Override
+		public RegisteredClient findByClientId(String clientId) {
+			failIfDown();
+			return delegate.findByClientId(clientId);
+		}
+	}
+
+	private class FlakyAuthorizationService implements OAuth2AuthorizationService {
+
+		private final OAuth2AuthorizationService delegate;
+
+		FlakyAuthorizationService(OAuth2AuthorizationService delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void save(OAuth2Authorization authorization) {
+			failIfDown();
+			delegate.save(authorization);
+		}
+
+		@Override
+		public void remove(OAuth2Authorization authorization) {
+			failIfDown();
+			delegate.remove(authorization);
+		}
+
+		@Override
+		public OAuth2Authorization findById(String id) {
+			failIfDown();
+			return delegate.findById(id);
+		}
+
+		@Override
+		public OAuth2Authorization findByToken(String token, OAuth2TokenType tokenType) {
+			failIfDown();
+			return delegate.findByToken(token, tokenType);
+		}
+	}
+}
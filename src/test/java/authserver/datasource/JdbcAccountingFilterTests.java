@@ -0,0 +1,26 @@
+package authserver.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JdbcAccountingFilterTests {
+
+	@Test
+	void tagsAuthorizationServerEndpointsByName() throws Exception {
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		JdbcAccountingFilter filter = new JdbcAccountingFilter(meterRegistry, false);
+
+		for (String uri : new String[] { "/oauth2/token", "/acme/oauth2/token", "/globex/oauth2/introspect", "/acme/oauth2/anything" }) {
+			filter.doFilter(new MockHttpServletRequest("POST", uri), new MockHttpServletResponse(), new MockFilterChain());
+		}
+
+		assertThat(meterRegistry.find("authserver.jdbc.time").meters())
+				.map(meter -> meter.getId().getTag("endpoint"))
+				.containsExactlyInAnyOrder("POST token", "POST introspect", "POST other");
+	}
+}
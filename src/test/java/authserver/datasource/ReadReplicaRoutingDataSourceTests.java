@@ -0,0 +1,101 @@
+package authserver.datasource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadReplicaRoutingDataSourceTests {
+
+	private DataSource primary;
+	private DataSource replica;
+	private ReplicaLagMonitor monitor;
+	private JdbcTemplate routed;
+	private TransactionTemplate readOnlyTx;
+	private TransactionTemplate readWriteTx;
+
+	@BeforeEach
+	void setUp() {
+		primary = embedded("primary");
+		replica = embedded("replica");
+		monitor = new ReplicaLagMonitor(primary, replica, Duration.ofSeconds(5), Duration.ofSeconds(1));
+
+		DataSource dataSource = new LazyConnectionDataSourceProxy(new ReadReplicaRoutingDataSource(primary, replica, monitor));
+		routed = new JdbcTemplate(dataSource);
+		readOnlyTx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		readOnlyTx.setReadOnly(true);
+		readWriteTx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+	}
+
+	@AfterEach
+	void tearDown() {
+		monitor.close();
+		new JdbcTemplate(primary).execute("DROP ALL OBJECTS");
+		new JdbcTemplate(replica).execute("DROP ALL OBJECTS");
+	}
+
+	@Test
+	void readOnlyWorkGoesToReplicaWhileItIsCaughtUp() {
+		replicateHeartbeat(System.currentTimeMillis());
+		monitor.check();
+
+		assertThat(ReadOnlyRouting.call(this::node)).isEqualTo("replica");
+		assertThat(readOnlyTx.<String>execute(status -> node())).isEqualTo("replica");
+		assertThat(node()).isEqualTo("primary");
+	}
+
+	@Test
+	void readThenWriteTransactionStaysOnPrimary() {
+		replicateHeartbeat(System.currentTimeMillis());
+		monitor.check();
+
+		String readFrom = readWriteTx.execute(status -> {
+			String node = ReadOnlyRouting.call(this::node);
+			routed.update("INSERT INTO node (name) VALUES (?)", "written");
+			return node;
+		});
+
+		assertThat(readFrom).isEqualTo("primary");
+		assertThat(new JdbcTemplate(primary).queryForObject("SELECT COUNT(*) FROM node", Integer.class)).isEqualTo(2);
+		assertThat(new JdbcTemplate(replica).queryForObject("SELECT COUNT(*) FROM node", Integer.class)).isEqualTo(1);
+	}
+
+	@Test
+	void fallsBackToPrimaryWhenReplicaLagExceedsThreshold() {
+		replicateHeartbeat(System.currentTimeMillis() - Duration.ofMinutes(1).toMillis());
+		monitor.check();
+
+		assertThat(monitor.isReplicaUsable()).isFalse();
+		assertThat(ReadOnlyRouting.call(this::node)).isEqualTo("primary");
+		assertThat(readOnlyTx.<String>execute(status -> node())).isEqualTo("primary");
+	}
+
+	private String node() {
+		return routed.queryForObject("SELECT name FROM node", String.class);
+	}
+
+	private void replicateHeartbeat(long beatAt) {
+		new JdbcTemplate(replica).update("UPDATE replica_heartbeat SET beat_at = ? WHERE id = 1", beatAt);
+	}
+
+	private static DataSource embedded(String name) {
+		JdbcDataSource dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+		JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+		jdbc.execute("CREATE TABLE replica_heartbeat (id INT PRIMARY KEY, beat_at BIGINT NOT NULL)");
+		jdbc.update("INSERT INTO replica_heartbeat (id, beat_at) VALUES (1, 0)");
+		jdbc.execute("CREATE TABLE node (name VARCHAR(20))");
+		jdbc.update("INSERT INTO node (name) VALUES (?)", name);
+		return dataSource;
+	}
+
+}
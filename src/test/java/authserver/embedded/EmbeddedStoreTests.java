@@ -0,0 +1,121 @@
+package authserver.embedded;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EmbeddedStoreTests {
+
+	private static final int SEGMENT_BYTES = 4096;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void recoversWritesFromTheLog() throws IOException {
+		try (EmbeddedStore store = open()) {
+			for (int i = 0; i < 300; i++) {
+				// enough records to roll over several segments
+				store.put("ns", "key-" + i, "value-" + i);
+			}
+			store.remove("ns", "key-0");
+			store.put("ns", "key-1", "updated");
+		}
+		assertThat(segments()).hasSizeGreaterThan(1);
+
+		try (EmbeddedStore store = open()) {
+			assertThat(store.<String>get("ns", "key-0")).isNull();
+			assertThat(store.<String>get("ns", "key-1")).isEqualTo("updated");
+			assertThat(store.values("ns")).hasSize(299);
+		}
+	}
+
+	@Test
+	void replaysLogWrittenAfterSnapshot() throws IOException {
+		try (EmbeddedStore store = open()) {
+			store.put("ns", "a", "1");
+			store.put("ns", "b", "2");
+			store.snapshot();
+			store.put("ns", "a", "3");
+			store.remove("ns", "b");
+		}
+		try (var files = Files.list(directory)) {
+			assertThat(files.map(file -> file.getFileName().toString()).filter(name -> name.startsWith("snapshot-")).toList())
+					.hasSize(1);
+		}
+
+		try (EmbeddedStore store = open()) {
+			assertThat(store.<String>get("ns", "a")).isEqualTo("3");
+			assertThat(store.<String>get("ns", "b")).isNull();
+		}
+	}
+
+	@Test
+	void discardsTornRecordAtTheTail() throws IOException {
+		try (EmbeddedStore store = open()) {
+			store.put("ns", "kept", "value");
+			store.put("ns", "torn", "value");
+		}
+		Path segment = segments().get(0);
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			int second = channel.map(FileChannel.MapMode.READ_ONLY, 0, 4).getInt() + AppendOnlyLog.HEADER_BYTES;
+			// a crash between writing the payload and completing it
+			channel.write(ByteBuffer.wrap(new byte[] {0x7f}), second + AppendOnlyLog.HEADER_BYTES + 20);
+		}
+
+		try (EmbeddedStore store = open()) {
+			assertThat(store.<String>get("ns", "kept")).isEqualTo("value");
+			assertThat(store.<String>get("ns", "torn")).isNull();
+			store.put("ns", "after", "value");
+		}
+		try (EmbeddedStore store = open()) {
+			assertThat(store.values("ns")).hasSize(2);
+		}
+	}
+
+	@Test
+	void refusesToStartFromAnUnreadableSnapshot() throws IOException {
+		try (EmbeddedStore store = open()) {
+			store.put("ns", "a", "1");
+			store.snapshot();
+		}
+		Path snapshot;
+		try (var files = Files.list(directory)) {
+			snapshot = files.filter(file -> file.getFileName().toString().startsWith("snapshot-")).findFirst().orElseThrow();
+		}
+		Files.write(snapshot, new byte[] {0, 0, 0, 0}, StandardOpenOption.TRUNCATE_EXISTING);
+
+		assertThatThrownBy(this::open).isInstanceOf(IOException.class).hasMessageContaining("Unreadable embedded store snapshot");
+	}
+
+	@Test
+	void refusesToDeserializeUnexpectedTypes() {
+		byte[] stored = EmbeddedStore.serialize(new File("/etc/passwd"));
+
+		assertThatThrownBy(() -> EmbeddedStore.deserialize(new ByteArrayInputStream(stored))).isInstanceOf(InvalidClassException.class);
+	}
+
+	private EmbeddedStore open() throws IOException {
+		return new EmbeddedStore(directory, SEGMENT_BYTES, Duration.ofSeconds(1), Duration.ofHours(1));
+	}
+
+	private List<Path> segments() throws IOException {
+		try (var files = Files.list(directory)) {
+			return files.filter(file -> file.getFileName().toString().startsWith("log-")).sorted().toList();
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package authserver.repo;
+
+import authserver.security.TokenReuseAuthenticationProvider;
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.server.authorization.client.JdbcRegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.settings.ClientSettings;
+import org.springframework.security.oauth2.server.authorization.settings.OAuth2TokenFormat;
+import org.springframework.security.oauth2.server.authorization.settings.TokenSettings;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ColumnarRegisteredClientRepositoryTests {
+
+	private DataSource dataSource;
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void setUp() {
+		JdbcDataSource h2 = new JdbcDataSource();
+		h2.setURL("jdbc:h2:mem:columnar;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+		h2.setUser("sa");
+		dataSource = h2;
+		jdbcTemplate = new JdbcTemplate(dataSource);
+	}
+
+	@AfterEach
+	void tearDown() {
+		jdbcTemplate.execute("DROP ALL OBJECTS");
+	}
+
+	@Test
+	void migratesClientsFromJsonSettings() {
+		migrate("4");
+		RegisteredClient legacy = client(ClientSettings.builder().requireAuthorizationConsent(true).build(), TokenSettings.builder()
+				.accessTokenTimeToLive(Duration.ofMinutes(7))
+				.accessTokenFormat(OAuth2TokenFormat.REFERENCE)
+				.refreshTokenTimeToLive(Duration.ofDays(2))
+				.setting(TokenReuseAuthenticationProvider.REUSE_ACCESS_TOKEN_SETTING, true)
+				.build());
+		new JdbcRegisteredClientRepository(jdbcTemplate).save(legacy);
+
+		migrate("latest");
+
+		RegisteredClient migrated = new ColumnarRegisteredClientRepository(jdbcTemplate).findByClientId(legacy.getClientId());
+		assertThat(migrated.getTokenSettings()).isEqualTo(legacy.getTokenSettings());
+		assertThat(migrated.getClientSettings()).isEqualTo(legacy.getClientSettings());
+		assertThat(migrated.getScopes()).isEqualTo(legacy.getScopes());
+		assertThat(jdbcTemplate.queryForObject("SELECT access_token_ttl_seconds FROM oauth2_registered_client", Long.class))
+				.isEqualTo(420);
+	}
+
+	@Test
+	void keepsDefaultSettingsOutOfOverflowColumn() {
+		migrate("latest");
+		ColumnarRegisteredClientRepository repository = new ColumnarRegisteredClientRepository(jdbcTemplate);
+		RegisteredClient client = client(ClientSettings.builder().build(), TokenSettings.builder().accessTokenTimeToLive(Duration.ofMinutes(5)).build());
+		repository.save(client);
+
+		assertThat(jdbcTemplate.queryForObject("SELECT settings_overflow FROM oauth2_registered_client", String.class)).isNull();
+		assertThat(repository.findById(client.getId()).getTokenSettings().getAccessTokenTimeToLive()).isEqualTo(Duration.ofMinutes(5));
+
+		RegisteredClient updated = RegisteredClient.from(client).clientSecret("{noop}rotated").build();
+		repository.save(updated);
+		assertThat(repository.findById(client.getId()).getClientSecret()).isEqualTo("{noop}rotated");
+	}
+
+	@Test
+	void sharesClientsWithNodesOfThePreviousRelease() {
+		migrate("latest");
+		ColumnarRegisteredClientRepository repository = new ColumnarRegisteredClientRepository(jdbcTemplate);
+		JdbcRegisteredClientRepository previousRelease = new JdbcRegisteredClientRepository(jdbcTemplate);
+		RegisteredClient client = client(ClientSettings.builder().build(), TokenSettings.builder()
+				.accessTokenTimeToLive(Duration.ofMinutes(5))
+				.setting(TokenReuseAuthenticationProvider.REUSE_ACCESS_TOKEN_SETTING, true)
+				.build());
+		repository.save(client);
+		assertThat(previousRelease.findByClientId(client.getClientId()).getTokenSettings()).isEqualTo(client.getTokenSettings());
+
+		RegisteredClient savedByPreviousRelease = RegisteredClient.from(client(ClientSettings.builder().requireProofKey(true).build(),
+						TokenSettings.builder().accessTokenFormat(OAuth2TokenFormat.REFERENCE).build()))
+				.id(UUID.randomUUID().toString())
+				.clientId("previous-release-client")
+				.clientSecret("{noop}previous-secret")
+				.build();
+		previousRelease.save(savedByPreviousRelease);
+		RegisteredClient read = repository.findByClientId("previous-release-client");
+		assertThat(read.getTokenSettings()).isEqualTo(savedByPreviousRelease.getTokenSettings());
+		assertThat(read.getClientSettings()).isEqualTo(savedByPreviousRelease.getClientSettings());
+	}
+
+	private void migrate(String target) {
+		Flyway.configure()
+				.dataSource(dataSource)
+				.locations("classpath:db/migration", "classpath:db/vendor/h2")
+				.javaMigrations(new RegisteredClientColumnsMigration())
+				.target(target)
+				.load()
+				.migrate();
+	}
+
+	private static RegisteredClient client(ClientSettings clientSettings, TokenSettings tokenSettings) {
+		return RegisteredClient.withId(UUID.randomUUID().toString())
+				.clientId("columnar-client")
+				.clientSecret("{noop}secret")
+				.clientName("Columnar Client")
+				.clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
+				.authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+				.scope("read")
+				.scope("write")
+				.clientSettings(clientSettings)
+				.tokenSettings(tokenSettings)
+				.build();
+	}
+
+}
@@ -0,0 +1,154 @@
+package authserver.repo;
+
+import authserver.config.AuthServerProperties;
+import authserver.service.AuthorizationEncodingMigrator;
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.server.authorization.JdbcOAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.settings.OAuth2TokenFormat;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompactAuthorizationEncodingTests {
+
+	private DataSource dataSource;
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void setUp() {
+		JdbcDataSource h2 = new JdbcDataSource();
+		h2.setURL("jdbc:h2:mem:compact;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+		h2.setUser("sa");
+		dataSource = h2;
+		jdbcTemplate = new JdbcTemplate(dataSource);
+	}
+
+	@AfterEach
+	void tearDown() {
+		jdbcTemplate.execute("DROP ALL OBJECTS");
+	}
+
+	@Test
+	void roundTripsClaimsWithTheirTypes() {
+		CompactAuthorizationCodec codec = new CompactAuthorizationCodec(true, 64);
+		Map<String, Object> claims = new LinkedHashMap<>();
+		claims.put("sub", "client");
+		claims.put("aud", List.of("inventory-service"));
+		claims.put("scope", Set.of("read"));
+		claims.put("iat", Instant.ofEpochSecond(1_700_000_000L, 123));
+		claims.put("n", 42L);
+		claims.put("i", -7);
+		Map<String, Object> metadata = new LinkedHashMap<>();
+		metadata.put(OAuth2Authorization.Token.CLAIMS_METADATA_NAME, claims);
+		metadata.put(OAuth2Authorization.Token.INVALIDATED_METADATA_NAME, false);
+		metadata.put(OAuth2TokenFormat.class.getName(), OAuth2TokenFormat.SELF_CONTAINED.getValue());
+
+		byte[] encoded = codec.encode(metadata);
+
+		assertThat(codec.decode(encoded)).isEqualTo(metadata);
+		assertThat(CompactAuthorizationCodec.isJson(encoded)).isFalse();
+	}
+
+	@Test
+	void readsAndConvertsJsonRows() {
+		migrate("8");
+		ColumnarRegisteredClientRepository clients = new ColumnarRegisteredClientRepository(jdbcTemplate);
+		RegisteredClient client = client();
+		clients.save(client);
+		OAuth2Authorization legacy = authorization(client);
+		new JdbcOAuth2AuthorizationService(jdbcTemplate, clients).save(legacy);
+		String json = jdbcTemplate.queryForObject("SELECT access_token_metadata FROM oauth2_authorization", String.class);
+
+		migrate("latest");
+		CompactAuthorizationCodec codec = new CompactAuthorizationCodec(true, 512);
+		JdbcOAuth2AuthorizationService service = new JdbcOAuth2AuthorizationService(jdbcTemplate, clients);
+		service.setAuthorizationRowMapper(new CompactAuthorizationRowMapper(clients, codec));
+		service.setAuthorizationParametersMapper(new CompactAuthorizationParametersMapper(codec));
+		assertThat(service.findByToken("access-token", OAuth2TokenType.ACCESS_TOKEN).getAccessToken().getClaims())
+				.isEqualTo(legacy.getAccessToken().getClaims());
+
+		AuthServerProperties properties = new AuthServerProperties();
+		AuthorizationEncodingMigrator migrator = new AuthorizationEncodingMigrator(jdbcTemplate,
+				new TransactionTemplate(new DataSourceTransactionManager(dataSource)), codec, properties);
+		assertThat(migrator.convertLegacyRows()).isEqualTo(1);
+		assertThat(migrator.convertLegacyRows()).isZero();
+
+		byte[] converted = jdbcTemplate.queryForObject("SELECT access_token_metadata FROM oauth2_authorization", byte[].class);
+		assertThat(CompactAuthorizationCodec.isJson(converted)).isFalse();
+		assertThat(converted.length).isLessThan(json.length() / 2);
+		OAuth2Authorization read = service.findById(legacy.getId());
+		assertThat(read.getAccessToken().getClaims()).isEqualTo(legacy.getAccessToken().getClaims());
+		assertThat(read.getAccessToken().getToken().getScopes()).containsExactly("read");
+
+		service.save(OAuth2Authorization.from(read).invalidate(read.getAccessToken().getToken()).build());
+		assertThat(service.findById(legacy.getId()).getAccessToken().isInvalidated()).isTrue();
+	}
+
+	private void migrate(String target) {
+		Flyway.configure()
+				.dataSource(dataSource)
+				.locations("classpath:db/migration", "classpath:db/vendor/h2")
+				.javaMigrations(new RegisteredClientColumnsMigration())
+				.target(target)
+				.load()
+				.migrate();
+	}
+
+	private static RegisteredClient client() {
+		return RegisteredClient.withId(UUID.randomUUID().toString())
+				.clientId("compact-client")
+				.clientSecret("{noop}secret")
+				.clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
+				.authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+				.scope("read")
+				.build();
+	}
+
+	private static OAuth2Authorization authorization(RegisteredClient client) {
+		Instant issuedAt = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+		Instant expiresAt = issuedAt.plusSeconds(300);
+		Map<String, Object> claims = new LinkedHashMap<>();
+		claims.put("iss", "http://localhost:8080");
+		claims.put("sub", client.getClientId());
+		claims.put("aud", new ArrayList<>(List.of(client.getClientId())));
+		claims.put("nbf", issuedAt);
+		claims.put("exp", expiresAt);
+		claims.put("iat", issuedAt);
+		claims.put("jti", UUID.randomUUID().toString());
+		claims.put("scope", new HashSet<>(Set.of("read")));
+		OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "access-token",
+				issuedAt, expiresAt, Set.of("read"));
+		return OAuth2Authorization.withRegisteredClient(client)
+				.principalName(client.getClientId())
+				.authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+				.authorizedScopes(Set.of("read"))
+				.token(accessToken, metadata -> {
+					metadata.put(OAuth2Authorization.Token.CLAIMS_METADATA_NAME, claims);
+					metadata.put(OAuth2TokenFormat.class.getName(), OAuth2TokenFormat.SELF_CONTAINED.getValue());
+				})
+				.build();
+	}
+}
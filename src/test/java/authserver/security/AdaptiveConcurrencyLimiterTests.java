@@ -0,0 +1,81 @@
+package authserver.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTests {
+
+	private static final long FAST = TimeUnit.MILLISECONDS.toNanos(5);
+	private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(900);
+
+	@Test
+	void rejectsAboveLimit() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 500, 0.5);
+
+		assertThat(limiter.tryAcquire()).isTrue();
+		assertThat(limiter.tryAcquire()).isTrue();
+		assertThat(limiter.tryAcquire()).isFalse();
+
+		limiter.release(FAST, false);
+		assertThat(limiter.tryAcquire()).isTrue();
+	}
+
+	@Test
+	void countsEveryPermitOfABatch() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 20, 500, 0.5);
+
+		assertThat(limiter.tryAcquire(8)).isTrue();
+		assertThat(limiter.tryAcquire(3)).isFalse();
+		assertThat(limiter.tryAcquire(2)).isTrue();
+		assertThat(limiter.tryAcquire()).isFalse();
+
+		// 8 tokens in 900 ms is fast per token
+		limiter.release(8, SLOW, false);
+		limiter.release(2, FAST, false);
+		assertThat(limiter.getLimit()).isEqualTo(10);
+		assertThat(limiter.getInFlight()).isZero();
+
+		// wider than the limit, admitted only when nothing else is in flight
+		assertThat(limiter.tryAcquire(50)).isTrue();
+		assertThat(limiter.tryAcquire()).isFalse();
+	}
+
+	@Test
+	void backsOffOnSlowResponsesAndRecovers() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 2, 20, 500, 0.5);
+
+		limiter.tryAcquire();
+		limiter.release(SLOW, false);
+		assertThat(limiter.getLimit()).isEqualTo(5);
+
+		// one cut per latency target interval
+		limiter.tryAcquire();
+		limiter.release(SLOW, false);
+		assertThat(limiter.getLimit()).isEqualTo(5);
+
+		for (int round = 0; round < 50; round++) {
+			for (int i = 0; i < limiter.getLimit(); i++) {
+				limiter.tryAcquire();
+			}
+			while (limiter.getInFlight() > 0) {
+				limiter.release(FAST, false);
+			}
+		}
+		assertThat(limiter.getLimit()).isGreaterThan(5);
+	}
+
+	@Test
+	void doesNotGrowWhenIdle() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 2, 20, 500, 0.5);
+
+		for (int i = 0; i < 1000; i++) {
+			limiter.tryAcquire();
+			limiter.release(FAST, false);
+		}
+		assertThat(limiter.getLimit()).isEqualTo(10);
+	}
+
+}
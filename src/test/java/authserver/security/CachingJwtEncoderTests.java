@@ -0,0 +1,98 @@
+package authserver.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachingJwtEncoderTests {
+
+	@Test
+	void producesTokensTheStandardDecoderAccepts() throws JOSEException {
+		RSAKey key = new RSAKeyGenerator(2048).keyID("key-1").generate();
+		CachingJwtEncoder encoder = new CachingJwtEncoder(() -> key, new NimbusJwtEncoder(new ImmutableJWKSet<>(new JWKSet(key))));
+
+		Jwt jwt = encoder.encode(JwtEncoderParameters.from(JwsHeader.with(SignatureAlgorithm.RS256).build(), claims("client \"quoted\"\n")));
+
+		assertThat(jwt.getHeaders()).containsEntry("kid", "key-1").containsEntry("alg", "RS256");
+		Jwt decoded = NimbusJwtDecoder.withPublicKey(key.toRSAPublicKey()).build().decode(jwt.getTokenValue());
+		assertThat(decoded.getSubject()).isEqualTo("client \"quoted\"\n");
+		assertThat(decoded.getAudience()).containsExactly("client");
+		assertThat(decoded.getClaimAsStringList("scope")).containsExactlyInAnyOrder("read", "write");
+		assertThat(decoded.getExpiresAt().getEpochSecond()).isEqualTo(jwt.getExpiresAt().getEpochSecond());
+		assertThat(decoded.getHeaders()).containsEntry("kid", "key-1");
+	}
+
+	@Test
+	void reusesTheInitializedSignerForConsecutiveTokens() throws JOSEException {
+		RSAKey key = new RSAKeyGenerator(2048).keyID("key-1").generate();
+		CachingJwtEncoder encoder = new CachingJwtEncoder(() -> key, new NimbusJwtEncoder(new ImmutableJWKSet<>(new JWKSet(key))));
+		NimbusJwtDecoder decoder = NimbusJwtDecoder.withPublicKey(key.toRSAPublicKey()).build();
+
+		for (int i = 0; i < 3; i++) {
+			Jwt jwt = encoder.encode(JwtEncoderParameters.from(claims("client-" + i)));
+			assertThat(decoder.decode(jwt.getTokenValue()).getSubject()).isEqualTo("client-" + i);
+		}
+	}
+
+	@Test
+	void switchesToRotatedKeyImmediately() throws JOSEException {
+		RSAKey first = new RSAKeyGenerator(2048).keyID("key-1").generate();
+		RSAKey second = new RSAKeyGenerator(2048).keyID("key-2").generate();
+		AtomicReference<RSAKey> active = new AtomicReference<>(first);
+		CachingJwtEncoder encoder = new CachingJwtEncoder(active::get, new NimbusJwtEncoder(new ImmutableJWKSet<>(new JWKSet(first))));
+
+		encoder.encode(JwtEncoderParameters.from(claims("client")));
+		active.set(second);
+		Jwt jwt = encoder.encode(JwtEncoderParameters.from(claims("client")));
+
+		assertThat(jwt.getHeaders()).containsEntry("kid", "key-2");
+		assertThat(NimbusJwtDecoder.withPublicKey(second.toRSAPublicKey()).build().decode(jwt.getTokenValue()).getSubject())
+				.isEqualTo("client");
+	}
+
+	@Test
+	void delegatesHeadersItDoesNotPrecompute() throws JOSEException {
+		RSAKey key = new RSAKeyGenerator(2048).keyID("key-1").generate();
+		CachingJwtEncoder encoder = new CachingJwtEncoder(() -> key, new NimbusJwtEncoder(new ImmutableJWKSet<>(new JWKSet(key))));
+
+		Jwt jwt = encoder.encode(JwtEncoderParameters.from(JwsHeader.with(SignatureAlgorithm.RS256).header("x-request", "batch").build(), claims("client")));
+
+		assertThat(jwt.getHeaders()).containsEntry("x-request", "batch");
+		assertThat(NimbusJwtDecoder.withPublicKey(key.toRSAPublicKey()).build().decode(jwt.getTokenValue()).getSubject())
+				.isEqualTo("client");
+	}
+
+	private static JwtClaimsSet claims(String subject) {
+		Instant now = Instant.now();
+		return JwtClaimsSet.builder()
+				.issuer("http://localhost:9000")
+				.subject(subject)
+				.audience(List.of("client"))
+				.issuedAt(now)
+				.notBefore(now)
+				.expiresAt(now.plusSeconds(300))
+				.id("jti-1")
+				.claim("scope", Set.of("read", "write"))
+				.claim("ext", Map.of("tenant", "default"))
+				.build();
+	}
+
+}
@@ -0,0 +1,45 @@
+package authserver.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientSecretEncoderTests {
+
+	private static final String GENERATED = "q3Jx8yS0m1hV9uQ2cR7eZ4wK6pL5nB0tA-dF_gH1iJk";
+
+	private final ClientSecretEncoder encoder = new ClientSecretEncoder("test-pepper");
+
+	@Test
+	void generatedSecretsUseKeyedHash() {
+		String encoded = encoder.encodeGenerated(GENERATED);
+
+		assertThat(encoded).startsWith("{hmac-sha256}");
+		assertThat(encoder.matches(GENERATED, encoded)).isTrue();
+		assertThat(encoder.matches(GENERATED + "x", encoded)).isFalse();
+		assertThat(new ClientSecretEncoder("other-pepper").matches(GENERATED, encoded)).isFalse();
+		assertThat(encoder.upgradeEncoding(encoded)).isFalse();
+	}
+
+	@Test
+	void providedSecretsKeepBcrypt() {
+		String encoded = encoder.encodeProvided("my-chosen-secret");
+
+		assertThat(encoded).startsWith("{bcrypt}");
+		assertThat(encoder.matches("my-chosen-secret", encoded)).isTrue();
+		assertThat(encoder.upgradeEncoding(encoded)).isFalse();
+	}
+
+	@Test
+	void legacyHashesMatchAndAreLeftAsTheyAre() {
+		String legacyGenerated = new BCryptPasswordEncoder().encode(GENERATED);
+		String legacyProvided = new BCryptPasswordEncoder().encode("my-chosen-secret");
+
+		assertThat(encoder.matches(GENERATED, legacyGenerated)).isTrue();
+		assertThat(encoder.upgradeEncoding(legacyGenerated)).as("origin unknown, so no fast hash to move to").isFalse();
+		assertThat(encoder.matches("my-chosen-secret", legacyProvided)).isTrue();
+		assertThat(encoder.upgradeEncoding(legacyProvided)).isFalse();
+	}
+
+}
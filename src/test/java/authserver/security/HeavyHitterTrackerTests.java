@@ -0,0 +1,53 @@
+package authserver.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HeavyHitterTrackerTests {
+
+	@Test
+	void sketchNeverUndercountsAndStaysWithinItsErrorBound() {
+		CountMinSketch sketch = new CountMinSketch(4, 1024);
+		IntStream.range(0, 100_000).forEach(i -> sketch.add("key-" + (i % 10_000)));
+
+		assertThat(sketch.getWidth()).isEqualTo(1024);
+		for (int i = 0; i < 10_000; i++) {
+			long estimate = sketch.estimate("key-" + i);
+			assertThat(estimate).isGreaterThanOrEqualTo(10);
+			// e / width of all 100k adds, with high probability
+			assertThat(estimate).isLessThan(10 + 100_000 * 3 / 1024);
+		}
+	}
+
+	@Test
+	void findsTheBusiestKeysAmongManyAndForgetsThemWhenTheWindowSlides() {
+		AtomicLong clock = new AtomicLong(1_000_000);
+		HeavyHitterTracker tracker = new HeavyHitterTracker(6, 10_000, 4, 2048, 10, clock::get);
+		for (int i = 0; i < 50_000; i++) {
+			tracker.record("noise-" + i);
+			if (i % 50 == 0) {
+				tracker.record("busy-client");
+			}
+			if (i % 100 == 0) {
+				tracker.record("second-client");
+			}
+			if (i % 1_000 == 0) {
+				clock.addAndGet(1_000);
+			}
+		}
+
+		assertThat(tracker.top(2)).extracting(HeavyHitterTracker.HeavyHitter::key).containsExactly("busy-client", "second-client");
+		assertThat(tracker.top(1).get(0).estimate()).isBetween(1_000L, 1_100L);
+		assertThat(tracker.total()).isEqualTo(51_500);
+
+		clock.addAndGet(60_000);
+		tracker.record("x".repeat(500));
+		assertThat(tracker.top(10)).extracting(HeavyHitterTracker.HeavyHitter::key)
+				.containsExactly("x".repeat(HeavyHitterTracker.MAX_KEY_LENGTH));
+		assertThat(tracker.total()).isEqualTo(1);
+	}
+}
@@ -0,0 +1,69 @@
+package authserver.security;
+
+import authserver.service.ChangeEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KnownClientIdsTests {
+
+	@Test
+	void bloomFilterHasNoFalseNegativesAndRoughlyTheConfiguredFalsePositiveRate() {
+		BloomFilter filter = new BloomFilter(10_000, 0.01);
+		IntStream.range(0, 10_000).forEach(i -> filter.add("client-" + i));
+
+		assertThat(IntStream.range(0, 10_000).allMatch(i -> filter.mightContain("client-" + i))).isTrue();
+		long falsePositives = IntStream.range(0, 100_000).filter(i -> filter.mightContain("unknown-" + i)).count();
+		assertThat(falsePositives).isLessThan(2_000);
+	}
+
+	@Test
+	void rejectsUnknownIdsAndLearnsAboutNewClients() {
+		List<String> registered = new ArrayList<>(List.of("alpha", "beta"));
+		KnownClientIds known = new KnownClientIds(action -> registered.forEach(action), registered::contains, true,
+				1_000, 0.001, Duration.ofMinutes(1), 100, new SimpleMeterRegistry());
+		assertThat(known.isKnownAbsent("gamma")).as("nothing is rejected before the first build").isFalse();
+
+		known.rebuild();
+		assertThat(known.isKnownAbsent("alpha")).isFalse();
+		assertThat(known.isKnownAbsent("gamma")).isTrue();
+
+		known.onChange(new ChangeEvent(1, ChangeEvent.EntityType.CLIENT, "gamma", ChangeEvent.ChangeType.CREATED, LocalDateTime.now()));
+		assertThat(known.isKnownAbsent("gamma")).isFalse();
+
+		known.recordAbsent("alpha");
+		assertThat(known.isKnownAbsent("alpha")).as("deleted clients are caught by the negative cache").isTrue();
+		known.recordPresent("alpha");
+		assertThat(known.isKnownAbsent("alpha")).isFalse();
+	}
+
+	@Test
+	void looksUpFilterMissesUnlessTheFilterIsTrusted() {
+		List<String> registered = new ArrayList<>(List.of("alpha"));
+		AtomicInteger lookups = new AtomicInteger();
+		KnownClientIds known = new KnownClientIds(action -> registered.forEach(action),
+				clientId -> {
+					lookups.incrementAndGet();
+					return registered.contains(clientId);
+				}, false,
+				1_000, 0.001, Duration.ofMinutes(1), 100, new SimpleMeterRegistry());
+		known.rebuild();
+
+		registered.add("created-elsewhere");
+		assertThat(known.isKnownAbsent("created-elsewhere")).as("created on another node, event not yet received").isFalse();
+		assertThat(known.isKnownAbsent("created-elsewhere")).isFalse();
+		assertThat(lookups).as("the lookup adds the id to the filter").hasValue(1);
+
+		assertThat(known.isKnownAbsent("unknown")).isTrue();
+		assertThat(known.isKnownAbsent("unknown")).isTrue();
+		assertThat(lookups).as("the miss is negative-cached").hasValue(2);
+	}
+}
@@ -0,0 +1,43 @@
+package authserver.security;
+
+import authserver.service.ChangeEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenReuseCacheTests {
+
+	@Test
+	void handsOutOnlyTokensSignedWithTheActiveKey() {
+		AtomicReference<String> activeKeyId = new AtomicReference<>("key-1");
+		TokenReuseCache cache = new TokenReuseCache(0.5, 100, activeKeyId::get, new SimpleMeterRegistry());
+		cache.put("client-1", Set.of("read"), token("key-1"));
+		cache.put("client-2", Set.of("read"), token("key-1"));
+		assertThat(cache.get("client-1", Set.of("read"))).isNotNull();
+
+		// rotated on another node, before the change feed delivered the event
+		activeKeyId.set("key-2");
+		assertThat(cache.get("client-1", Set.of("read"))).isNull();
+
+		activeKeyId.set("key-1");
+		cache.onChange(new ChangeEvent(1, ChangeEvent.EntityType.JWK_KEY, "key-2", ChangeEvent.ChangeType.ROTATED, LocalDateTime.now()));
+		assertThat(cache.get("client-2", Set.of("read"))).isNull();
+	}
+
+	private static OAuth2AccessToken token(String kid) {
+		Base64.Encoder base64 = Base64.getUrlEncoder().withoutPadding();
+		String value = base64.encodeToString(("{\"alg\":\"RS256\",\"kid\":\"" + kid + "\"}").getBytes(StandardCharsets.UTF_8))
+				+ "." + base64.encodeToString("{\"sub\":\"client\"}".getBytes(StandardCharsets.UTF_8)) + ".c2lnbmF0dXJl";
+		Instant now = Instant.now();
+		return new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, value, now, now.plusSeconds(300), Set.of("read"));
+	}
+}
@@ -0,0 +1,58 @@
+package authserver.service;
+
+import authserver.config.AuthServerProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class ChangeFeedServiceTests {
+
+	private final JdbcTemplate jdbcTemplate = new JdbcTemplate(
+			new DriverManagerDataSource("jdbc:h2:mem:change-feed;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", ""));
+
+	private final List<ChangeEvent> received = new CopyOnWriteArrayList<>();
+
+	private ChangeFeedService changeFeed;
+
+	@AfterEach
+	void stop() {
+		changeFeed.stop();
+		jdbcTemplate.execute("DROP TABLE change_log");
+	}
+
+	@Test
+	void skipsChangesOfUnknownTypesAndKeepsPolling() {
+		jdbcTemplate.execute("CREATE TABLE change_log (id BIGINT AUTO_INCREMENT PRIMARY KEY, entity_type VARCHAR(50) NOT NULL, "
+				+ "entity_id VARCHAR(100) NOT NULL, change_type VARCHAR(20) NOT NULL, created_at DATETIME(6) NOT NULL)");
+		AuthServerProperties properties = new AuthServerProperties();
+		properties.getChangeFeed().setPollIntervalMillis(100);
+		ChangeListener listener = received::add;
+		changeFeed = new ChangeFeedService(jdbcTemplate,
+				new StaticListableBeanFactory(Map.of("listener", listener)).getBeanProvider(ChangeListener.class), properties);
+		changeFeed.start();
+
+		// changes recorded before the poller found the newest id are not replayed, so probe until one arrives
+		await().atMost(Duration.ofSeconds(5)).until(() -> {
+			changeFeed.record(ChangeEvent.EntityType.CLIENT, "client-1", ChangeEvent.ChangeType.CREATED);
+			return !received.isEmpty();
+		});
+
+		jdbcTemplate.update("INSERT INTO change_log (entity_type, entity_id, change_type, created_at) VALUES (?, ?, ?, ?)",
+				"TENANT", "acme", "SUSPENDED", LocalDateTime.now());
+		changeFeed.record(ChangeEvent.EntityType.CLIENT, "client-2", ChangeEvent.ChangeType.DELETED);
+
+		await().atMost(Duration.ofSeconds(5)).until(() -> received.get(received.size() - 1).entityId().equals("client-2"));
+		assertThat(received).allMatch(event -> event.entityType() == ChangeEvent.EntityType.CLIENT);
+	}
+}
@@ -0,0 +1,117 @@
+package authserver.service;
+
+import authserver.config.AuthServerProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class ClientPurgeServiceTests {
+
+	private final JdbcTemplate jdbcTemplate = new JdbcTemplate(
+			new DriverManagerDataSource("jdbc:h2:mem:purge-claims;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", ""));
+
+	private final ReferenceTokenStore referenceTokenStore = new ReferenceTokenStore(4, 64, Duration.ofSeconds(1), 100);
+	private final ClientPurgeService node1 = node(null);
+	private final ClientPurgeService node2 = node(null);
+
+	@AfterEach
+	void stop() {
+		node1.stop();
+		node2.stop();
+		referenceTokenStore.close();
+		jdbcTemplate.execute("DROP TABLE client_purge_job");
+	}
+
+	@Test
+	void onlyOneNodeClaimsAJob() {
+		insertJob("job-1", ClientPurgeService.PENDING, LocalDateTime.now());
+
+		assertThat(node1.claim("job-1")).isTrue();
+		assertThat(node2.claim("job-1")).isFalse();
+		assertThat(node1.claim("job-1")).as("running and within its lease").isFalse();
+	}
+
+	@Test
+	void takesOverRunningJobsWhoseLeaseExpired() {
+		insertJob("job-2", ClientPurgeService.RUNNING, LocalDateTime.now().minusHours(1));
+
+		assertThat(node2.claim("job-2")).isTrue();
+		assertThat(node1.claim("job-2")).isFalse();
+	}
+
+	@Test
+	void rescanResumesJobsWhoseLeaseExpired() {
+		insertJob("job-3", ClientPurgeService.RUNNING, LocalDateTime.now().minusHours(1));
+		insertJob("job-4", ClientPurgeService.RUNNING, LocalDateTime.now());
+		ClientPurgeService node = node(new StubPurgeStore(false));
+		try {
+			node.resumeUnfinished();
+
+			await().atMost(Duration.ofSeconds(5)).until(() -> ClientPurgeService.COMPLETED.equals(status("job-3")));
+			assertThat(status("job-4")).as("its owner is still within the lease").isEqualTo(ClientPurgeService.RUNNING);
+		} finally {
+			node.stop();
+		}
+	}
+
+	@Test
+	void marksJobFailedWhenAChunkThrows() {
+		insertJob("job-5", ClientPurgeService.PENDING, LocalDateTime.now());
+		ClientPurgeService node = node(new StubPurgeStore(true));
+		try {
+			assertThat(node.claim("job-5")).isTrue();
+			node.purge("job-5", "");
+
+			assertThat(status("job-5")).isEqualTo(ClientPurgeService.FAILED);
+		} finally {
+			node.stop();
+		}
+	}
+
+	private String status(String registeredClientId) {
+		return jdbcTemplate.queryForObject("SELECT status FROM client_purge_job WHERE registered_client_id = ?",
+				String.class, registeredClientId);
+	}
+
+	private ClientPurgeService node(AuthorizationPurgeStore purgeStore) {
+		jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS client_purge_job (registered_client_id VARCHAR(100) PRIMARY KEY, "
+				+ "client_id VARCHAR(100) NOT NULL, status VARCHAR(20) NOT NULL, purged_authorizations BIGINT DEFAULT 0 NOT NULL, "
+				+ "last_authorization_id VARCHAR(100) DEFAULT '' NOT NULL, created_at DATETIME(6) NOT NULL, "
+				+ "updated_at DATETIME(6) NOT NULL, tenant_id VARCHAR(100) DEFAULT 'default' NOT NULL, owner VARCHAR(100))");
+		return new ClientPurgeService(jdbcTemplate, purgeStore, referenceTokenStore, new AuthServerProperties());
+	}
+
+	private void insertJob(String registeredClientId, String status, LocalDateTime updatedAt) {
+		jdbcTemplate.update("INSERT INTO client_purge_job (registered_client_id, client_id, status, created_at, updated_at) VALUES (?, ?, ?, ?, ?)",
+				registeredClientId, registeredClientId, status, updatedAt, updatedAt);
+	}
+
+	// a store with no authorizations left, or one whose chunks fail with something other than a database error
+	private record StubPurgeStore(boolean failing) implements AuthorizationPurgeStore {
+
+		@Override
+		public List<String> findIdsAfter(String registeredClientId, String afterId, int limit) {
+			if (failing) {
+				throw new IllegalStateException("corrupt authorization row");
+			}
+			return List.of();
+		}
+
+		@Override
+		public int deleteByIds(List<String> ids) {
+			return 0;
+		}
+
+		@Override
+		public void deleteConsents(String registeredClientId) {
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package authserver.service;
+
+import authserver.config.AuthServerProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class JwksChangeNotifierTests {
+
+	private final List<Received> received = new CopyOnWriteArrayList<>();
+	private final AtomicInteger failuresLeft = new AtomicInteger();
+	private HttpServer webhook;
+
+	@BeforeEach
+	void startWebhook() throws Exception {
+		webhook = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		webhook.createContext("/jwks-changed", exchange -> {
+			byte[] body = exchange.getRequestBody().readAllBytes();
+			received.add(new Received(exchange.getRequestHeaders().getFirst(JwksChangeNotifier.SIGNATURE_HEADER),
+					exchange.getRequestHeaders().getFirst(JwksChangeNotifier.EVENT_ID_HEADER), body));
+			exchange.sendResponseHeaders(failuresLeft.getAndDecrement() > 0 ? 503 : 204, -1);
+			exchange.close();
+		});
+		webhook.start();
+	}
+
+	@AfterEach
+	void stopWebhook() {
+		webhook.stop(0);
+	}
+
+	@Test
+	void coalescesChangesAndRetriesUntilTheWebhookAcceptsTheSignedEvent() throws Exception {
+		AtomicInteger builds = new AtomicInteger();
+		JwksSubscriptionService.Subscription subscription = new JwksSubscriptionService.Subscription("sub-1", "default",
+				"http://127.0.0.1:" + webhook.getAddress().getPort() + "/jwks-changed", "webhook-secret", LocalDateTime.now());
+		failuresLeft.set(2);
+		try (JwksChangeNotifier notifier = new JwksChangeNotifier(tenantId -> List.of(subscription),
+				tenantId -> Map.of("jwks", Map.of("keys", List.of()), "build", builds.incrementAndGet()),
+				config(), new SimpleMeterRegistry())) {
+			notifier.keysChanged("default");
+			notifier.keysChanged("default");
+			notifier.keysChanged("default");
+
+			await().atMost(Duration.ofSeconds(10)).until(() -> received.size() == 3 && notifier.pending() == 0);
+		}
+
+		assertThat(builds).as("changes within the coalescing window make one event").hasValue(1);
+		assertThat(received).extracting(Received::eventId).containsOnly(received.get(0).eventId());
+		for (Received request : received) {
+			String timestamp = request.signature().substring(2, request.signature().indexOf(','));
+			assertThat(request.signature()).endsWith(",v1=" + JwksChangeNotifier.sign("webhook-secret", timestamp, request.body()));
+		}
+		Map<?, ?> event = new ObjectMapper().readValue(received.get(2).body(), Map.class);
+		assertThat(event.get("type")).isEqualTo(JwksChangeNotifier.EVENT_TYPE);
+		assertThat(event.get("tenant")).isEqualTo("default");
+		assertThat(event.get("jwks")).isEqualTo(Map.of("keys", List.of()));
+	}
+
+	@Test
+	void givesUpAfterMaxAttemptsAndOnClientErrors() {
+		JwksSubscriptionService.Subscription subscription = new JwksSubscriptionService.Subscription("sub-1", "default",
+				"http://127.0.0.1:" + webhook.getAddress().getPort() + "/jwks-changed", "webhook-secret", LocalDateTime.now());
+		JwksSubscriptionService.Subscription gone = new JwksSubscriptionService.Subscription("sub-2", "default",
+				"http://127.0.0.1:" + webhook.getAddress().getPort() + "/no-such-webhook", "webhook-secret", LocalDateTime.now());
+		failuresLeft.set(100);
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		try (JwksChangeNotifier notifier = new JwksChangeNotifier(tenantId -> List.of(subscription, gone),
+				tenantId -> Map.of("jwks", Map.of("keys", List.of())), config(), meterRegistry)) {
+			notifier.keysChanged("default");
+
+			await().atMost(Duration.ofSeconds(10)).until(() ->
+					meterRegistry.get("authserver.jwks.notifications").tag("outcome", "failed").counter().count() == 2);
+			assertThat(notifier.pending()).isZero();
+		}
+
+		assertThat(received).as("the 404 is not retried").hasSize(4);
+		assertThat(meterRegistry.get("authserver.jwks.notifications").tag("outcome", "retried").counter().count()).isEqualTo(3);
+	}
+
+	private static AuthServerProperties.JwksNotifications config() {
+		AuthServerProperties.JwksNotifications config = new AuthServerProperties.JwksNotifications();
+		config.setCoalesceMillis(200);
+		config.setMaxAttempts(4);
+		config.setInitialBackoffMillis(20);
+		config.setMaxBackoffMillis(100);
+		return config;
+	}
+
+	private record Received(String signature, String eventId, byte[] body) {
+	}
+}
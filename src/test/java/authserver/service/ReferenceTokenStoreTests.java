@@ -0,0 +1,47 @@
+package authserver.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.settings.OAuth2TokenFormat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReferenceTokenStoreTests {
+
+	@Test
+	void evictsAuthorizationsRevokedOnAnotherNode() {
+		RegisteredClient client = RegisteredClient.withId("registered-1")
+				.clientId("client-1")
+				.authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+				.build();
+		Instant now = Instant.now();
+		OAuth2AccessToken token = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "opaque-token",
+				now, now.plusSeconds(300), Set.of("read"));
+		OAuth2Authorization authorization = OAuth2Authorization.withRegisteredClient(client)
+				.id("authorization-1")
+				.principalName("client-1")
+				.authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+				.token(token, metadata -> metadata.putAll(Map.of(OAuth2TokenFormat.class.getName(), OAuth2TokenFormat.REFERENCE.getValue())))
+				.build();
+
+		try (ReferenceTokenStore store = new ReferenceTokenStore(4, 64, Duration.ofSeconds(1), 100)) {
+			store.put(authorization);
+			assertThat(store.get("opaque-token")).isNotNull();
+
+			store.onChange(new ChangeEvent(1, ChangeEvent.EntityType.CLIENT, "authorization-1", ChangeEvent.ChangeType.DELETED, LocalDateTime.now()));
+			assertThat(store.get("opaque-token")).isNotNull();
+
+			store.onChange(new ChangeEvent(2, ChangeEvent.EntityType.AUTHORIZATION, "authorization-1", ChangeEvent.ChangeType.REVOKED, LocalDateTime.now()));
+			assertThat(store.get("opaque-token")).isNull();
+		}
+	}
+}